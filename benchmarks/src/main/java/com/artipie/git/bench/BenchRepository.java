@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.bench;
+
+import com.artipie.asto.Copy;
+import com.artipie.asto.Storage;
+import com.artipie.asto.memory.InMemoryStorage;
+import com.artipie.git.TmpResource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.TreeFormatter;
+
+/**
+ * Generated repository in memory storage.
+ * <p>
+ * Repository has one commit packed into single pack and given amount of
+ * branches pointing to this commit, refs are written into {@code packed-refs}
+ * directly, so even million refs are generated in seconds.
+ * </p>
+ * @since 1.0
+ */
+final class BenchRepository {
+
+    /**
+     * Refs count.
+     */
+    private final int refs;
+
+    /**
+     * New generated repository.
+     * @param refs Refs count
+     */
+    BenchRepository(final int refs) {
+        this.refs = refs;
+    }
+
+    /**
+     * Generate repository.
+     * @return Storage with bare repository
+     */
+    Storage storage() {
+        final Storage res = new InMemoryStorage();
+        try {
+            final Path dir = Files.createTempDirectory(BenchRepository.class.getSimpleName());
+            this.generate(dir);
+            new TmpResource(dir).with(tmp -> new Copy(tmp).copy(res)).join();
+        } catch (final IOException err) {
+            throw new UncheckedIOException(err);
+        }
+        return res;
+    }
+
+    /**
+     * Generate repository files.
+     * @param dir Repository directory
+     * @throws IOException On error
+     */
+    private void generate(final Path dir) throws IOException {
+        final ObjectId head;
+        try (FileRepository repo = new FileRepository(dir.toFile())) {
+            repo.create(true);
+            try (ObjectInserter ins = repo.newObjectInserter()) {
+                final TreeFormatter tree = new TreeFormatter();
+                tree.append(
+                    "readme.txt", FileMode.REGULAR_FILE,
+                    ins.insert(Constants.OBJ_BLOB, "bench".getBytes(StandardCharsets.UTF_8))
+                );
+                final CommitBuilder commit = new CommitBuilder();
+                commit.setTreeId(ins.insert(tree));
+                commit.setAuthor(new PersonIdent("bench", "bench@artipie.com"));
+                commit.setCommitter(commit.getAuthor());
+                commit.setMessage("bench");
+                head = ins.insert(commit);
+                ins.flush();
+            }
+            try (PackWriter writer = new PackWriter(repo)) {
+                writer.preparePack(
+                    NullProgressMonitor.INSTANCE,
+                    Collections.singleton(head),
+                    Collections.emptySet()
+                );
+                final Path pack = dir.resolve("objects").resolve("pack")
+                    .resolve(String.format("pack-%s", writer.computeName().name()));
+                try (OutputStream out = Files.newOutputStream(
+                    pack.resolveSibling(String.format("%s.pack", pack.getFileName()))
+                )) {
+                    writer.writePack(
+                        NullProgressMonitor.INSTANCE, NullProgressMonitor.INSTANCE, out
+                    );
+                }
+                try (OutputStream out = Files.newOutputStream(
+                    pack.resolveSibling(String.format("%s.idx", pack.getFileName()))
+                )) {
+                    writer.writeIndex(out);
+                }
+            }
+        }
+        try (Writer out = Files.newBufferedWriter(dir.resolve(Constants.PACKED_REFS))) {
+            out.write("# pack-refs with: peeled fully-peeled sorted \n");
+            for (int idx = 0; idx < this.refs; ++idx) {
+                out.write(String.format("%s refs/heads/branch-%07d\n", head.name(), idx));
+            }
+            out.write(String.format("%s refs/heads/master\n", head.name()));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.bench;
+
+import java.io.OutputStream;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Output stream which sends written data to blackhole.
+ * @since 1.0
+ */
+final class BlackholeOutputStream extends OutputStream {
+
+    /**
+     * Blackhole.
+     */
+    private final Blackhole bhl;
+
+    /**
+     * New output stream.
+     * @param bhl Blackhole
+     */
+    BlackholeOutputStream(final Blackhole bhl) {
+        super();
+        this.bhl = bhl;
+    }
+
+    @Override
+    public void write(final int data) {
+        this.bhl.consume(data);
+    }
+
+    @Override
+    public void write(final byte[] data, final int off, final int len) {
+        this.bhl.consume(data);
+        this.bhl.consume(len);
+    }
+}
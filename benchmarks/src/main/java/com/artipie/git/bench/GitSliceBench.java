@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.bench;
+
+import com.artipie.asto.Content;
+import com.artipie.git.http.GitSlice;
+import com.artipie.git.sdk.PktLineEncoder;
+import com.artipie.http.Connection;
+import com.artipie.http.Headers;
+import com.artipie.http.Slice;
+import com.artipie.http.rq.RequestLine;
+import com.artipie.http.rq.RqMethod;
+import com.artipie.http.rs.RsStatus;
+import hu.akarnokd.rxjava2.interop.CompletableInterop;
+import io.reactivex.Flowable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Publisher;
+
+/**
+ * End-to-end benchmark of {@link GitSlice} request handling.
+ * <p>
+ * Requests are handled by the slice with in-memory storage and response
+ * body is consumed by the blackhole, HTTP server is not involved.
+ * </p>
+ * @since 1.0
+ * @checkstyle DesignForExtensionCheck (500 lines)
+ * @checkstyle VisibilityModifierCheck (500 lines)
+ * @checkstyle JavadocMethodCheck (500 lines)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class GitSliceBench {
+
+    /**
+     * Refs count.
+     */
+    @Param({"1000"})
+    public int refs;
+
+    /**
+     * Slice.
+     */
+    private Slice slice;
+
+    /**
+     * Info refs request line.
+     */
+    private String info;
+
+    /**
+     * Upload pack request line.
+     */
+    private String upload;
+
+    /**
+     * Protocol v2 headers.
+     */
+    private Headers headers;
+
+    /**
+     * Ls-refs request body.
+     */
+    private byte[] lsrefs;
+
+    @Setup
+    public void setup() throws IOException {
+        this.slice = new GitSlice(new BenchRepository(this.refs).storage());
+        this.info = new RequestLine(RqMethod.GET, "/info/refs?service=git-upload-pack")
+            .toString();
+        this.upload = new RequestLine(RqMethod.POST, "/git-upload-pack").toString();
+        this.headers = new Headers.From("Git-Protocol", "version=2");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PktLineEncoder(out)
+            .writeLine("command=ls-refs")
+            .writeLine("agent=git/bench")
+            .writeDelim()
+            .writeLine("peel")
+            .writeLine("symrefs")
+            .writeLine("ref-prefix HEAD")
+            .writeLine("ref-prefix refs/heads/")
+            .writeFlush()
+            .flush();
+        this.lsrefs = out.toByteArray();
+    }
+
+    @Benchmark
+    public void infoRefs(final Blackhole bhl) {
+        this.slice.response(this.info, this.headers, Content.EMPTY)
+            .send(new Consumer(bhl)).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public void lsRefs(final Blackhole bhl) {
+        this.slice.response(this.upload, this.headers, new Content.From(this.lsrefs))
+            .send(new Consumer(bhl)).toCompletableFuture().join();
+    }
+
+    /**
+     * Connection which consumes response body.
+     * @since 1.0
+     */
+    private static final class Consumer implements Connection {
+
+        /**
+         * Blackhole.
+         */
+        private final Blackhole bhl;
+
+        /**
+         * New connection.
+         * @param bhl Blackhole
+         */
+        Consumer(final Blackhole bhl) {
+            this.bhl = bhl;
+        }
+
+        @Override
+        public CompletionStage<Void> accept(final RsStatus status, final Headers hdrs,
+            final Publisher<ByteBuffer> body) {
+            this.bhl.consume(status);
+            return Flowable.fromPublisher(body)
+                .doOnNext(this.bhl::consume)
+                .ignoreElements()
+                .to(CompletableInterop.await());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.bench;
+
+import com.artipie.asto.Storage;
+import com.artipie.git.sdk.Git;
+import com.artipie.git.sdk.RepositoryCache;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of {@code ls-refs} advertisement.
+ * <p>
+ * Repository cache is warmed up on setup, so the benchmark measures refs
+ * reading and encoding, not the repository loading.
+ * </p>
+ * @since 1.0
+ * @checkstyle DesignForExtensionCheck (500 lines)
+ * @checkstyle VisibilityModifierCheck (500 lines)
+ * @checkstyle JavadocMethodCheck (500 lines)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LsRefsBench {
+
+    /**
+     * Refs count.
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int refs;
+
+    /**
+     * Git SDK.
+     */
+    private Git git;
+
+    @Setup
+    public void setup() {
+        final Storage storage = new BenchRepository(this.refs).storage();
+        this.git = new Git(storage, new RepositoryCache());
+        this.git.lsRefs(new ByteArrayOutputStream()).join();
+    }
+
+    @Benchmark
+    public void lsRefs(final Blackhole bhl) {
+        this.git.lsRefs(new BlackholeOutputStream(bhl)).join();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.bench;
+
+import com.artipie.git.sdk.GitRequest;
+import com.artipie.git.sdk.PktLine;
+import com.artipie.git.sdk.PktLineDecoder;
+import com.artipie.git.sdk.PktLineEncoder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of pkt-line encoding and decoding.
+ * <p>
+ * Data is a ref advertisement-like list of lines, decoder is fed with
+ * chunks of {@link #chunk} size to simulate request body.
+ * </p>
+ * @since 1.0
+ * @checkstyle DesignForExtensionCheck (500 lines)
+ * @checkstyle VisibilityModifierCheck (500 lines)
+ * @checkstyle JavadocMethodCheck (500 lines)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PktLineBench {
+
+    /**
+     * Lines count.
+     */
+    @Param({"16", "1024"})
+    public int lines;
+
+    /**
+     * Body chunk size.
+     */
+    @Param({"8192"})
+    public int chunk;
+
+    /**
+     * Text lines.
+     */
+    private String[] text;
+
+    /**
+     * Encoded lines.
+     */
+    private byte[] encoded;
+
+    /**
+     * Encoded lines as string.
+     */
+    private String raw;
+
+    @Setup
+    public void setup() throws IOException {
+        this.text = new String[this.lines];
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final PktLineEncoder enc = new PktLineEncoder(out);
+        for (int idx = 0; idx < this.lines; ++idx) {
+            this.text[idx] = String.format(
+                "%040x refs/heads/branch-%07d", idx, idx
+            );
+            enc.writeLine(this.text[idx]);
+        }
+        enc.writeFlush().flush();
+        this.encoded = out.toByteArray();
+        this.raw = new String(this.encoded, StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public void encode(final Blackhole bhl) throws IOException {
+        final PktLineEncoder enc = new PktLineEncoder(new BlackholeOutputStream(bhl));
+        for (final String line : this.text) {
+            enc.writeLine(line);
+        }
+        enc.writeFlush().flush();
+    }
+
+    @Benchmark
+    public void decode(final Blackhole bhl) {
+        final PktLineDecoder dec = new PktLineDecoder();
+        for (int pos = 0; pos < this.encoded.length; pos += this.chunk) {
+            dec.feed(
+                ByteBuffer.wrap(this.encoded, pos, Math.min(this.chunk, this.encoded.length - pos))
+            );
+            for (Optional<PktLine> pkt = dec.next(); pkt.isPresent(); pkt = dec.next()) {
+                bhl.consume(pkt.get().payload());
+            }
+        }
+    }
+
+    @Benchmark
+    public GitRequest parse() {
+        return GitRequest.parse(this.raw);
+    }
+}
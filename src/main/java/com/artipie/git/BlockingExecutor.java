@@ -0,0 +1,223 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git;
+
+import com.artipie.git.metrics.GitMetrics;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor of blocking git work: JGit operations, file copies and
+ * repository file system access.
+ * <p>
+ * Blocking work must not run on common fork-join pool or on server event loop,
+ * so it's performed by this executor with bounded number of threads and
+ * bounded queue, tasks are rejected with {@link RejectedExecutionException}
+ * when queue is full. Queued tasks are reported as {@code exec.queue} in-flight
+ * count and queue waiting time as its latency, running tasks are reported as
+ * {@code exec.run}.
+ * </p>
+ * @since 1.0
+ */
+public final class BlockingExecutor implements Executor {
+
+    /**
+     * Shared executor with default limits.
+     */
+    public static final BlockingExecutor SHARED = new BlockingExecutor(
+        Math.max(4, Runtime.getRuntime().availableProcessors() * 2), 1024
+    );
+
+    /**
+     * Queue metrics operation name.
+     */
+    private static final String QUEUE = "exec.queue";
+
+    /**
+     * Running tasks metrics operation name.
+     */
+    private static final String RUN = "exec.run";
+
+    /**
+     * Origin executor.
+     */
+    private final Executor origin;
+
+    /**
+     * Metrics.
+     */
+    private final GitMetrics metrics;
+
+    /**
+     * New executor with platform threads.
+     * @param threads Max threads count
+     * @param queue Max queued tasks count
+     */
+    public BlockingExecutor(final int threads, final int queue) {
+        this(threads, queue, GitMetrics.NOP);
+    }
+
+    /**
+     * New executor with platform threads.
+     * @param threads Max threads count
+     * @param queue Max queued tasks count
+     * @param metrics Metrics
+     */
+    public BlockingExecutor(final int threads, final int queue, final GitMetrics metrics) {
+        this(BlockingExecutor.pool(threads, queue), metrics);
+    }
+
+    /**
+     * New executor.
+     * @param origin Origin executor
+     * @param metrics Metrics
+     */
+    public BlockingExecutor(final Executor origin, final GitMetrics metrics) {
+        this.origin = origin;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Executor with a virtual thread per task when running on JVM with virtual
+     * threads, executor with platform threads otherwise.
+     * @param limit Max concurrently running tasks count
+     * @param queue Max waiting tasks count
+     * @param metrics Metrics
+     * @return Executor
+     */
+    public static BlockingExecutor virtual(final int limit, final int queue,
+        final GitMetrics metrics) {
+        BlockingExecutor res;
+        try {
+            res = new BlockingExecutor(
+                new Limited(
+                    (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null),
+                    limit, queue
+                ),
+                metrics
+            );
+        } catch (final ReflectiveOperationException err) {
+            res = new BlockingExecutor(limit, queue, metrics);
+        }
+        return res;
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        final long queued = System.nanoTime();
+        this.metrics.inflight(BlockingExecutor.QUEUE, 1);
+        try {
+            this.origin.execute(
+                () -> {
+                    final long start = System.nanoTime();
+                    this.metrics.inflight(BlockingExecutor.QUEUE, -1);
+                    this.metrics.latency(BlockingExecutor.QUEUE, start - queued);
+                    this.metrics.inflight(BlockingExecutor.RUN, 1);
+                    try {
+                        task.run();
+                    } finally {
+                        this.metrics.inflight(BlockingExecutor.RUN, -1);
+                        this.metrics.latency(BlockingExecutor.RUN, System.nanoTime() - start);
+                    }
+                }
+            );
+        } catch (final RejectedExecutionException err) {
+            this.metrics.inflight(BlockingExecutor.QUEUE, -1);
+            throw err;
+        }
+    }
+
+    /**
+     * Thread pool with bounded queue and daemon threads.
+     * @param threads Max threads count
+     * @param queue Max queued tasks count
+     * @return Thread pool
+     */
+    private static Executor pool(final int threads, final int queue) {
+        final AtomicInteger num = new AtomicInteger();
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            threads, threads, 1L, TimeUnit.MINUTES, new ArrayBlockingQueue<>(queue),
+            task -> {
+                final Thread thread = new Thread(
+                    task,
+                    String.format(
+                        "%s-%d", BlockingExecutor.class.getSimpleName(), num.incrementAndGet()
+                    )
+                );
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Executor with limited concurrency over unbounded executor,
+     * e.g. virtual thread per task executor.
+     * @since 1.0
+     */
+    private static final class Limited implements Executor {
+
+        /**
+         * Origin executor.
+         */
+        private final Executor origin;
+
+        /**
+         * Permits to run.
+         */
+        private final Semaphore permits;
+
+        /**
+         * Max waiting tasks count.
+         */
+        private final int queue;
+
+        /**
+         * Waiting tasks count.
+         */
+        private final AtomicInteger waiting;
+
+        /**
+         * New limited executor.
+         * @param origin Origin executor
+         * @param limit Max concurrently running tasks count
+         * @param queue Max waiting tasks count
+         */
+        Limited(final Executor origin, final int limit, final int queue) {
+            this.origin = origin;
+            this.permits = new Semaphore(limit);
+            this.queue = queue;
+            this.waiting = new AtomicInteger();
+        }
+
+        @Override
+        public void execute(final Runnable task) {
+            if (this.waiting.incrementAndGet() > this.queue) {
+                this.waiting.decrementAndGet();
+                throw new RejectedExecutionException("Too many waiting tasks");
+            }
+            this.origin.execute(
+                () -> {
+                    this.permits.acquireUninterruptibly();
+                    this.waiting.decrementAndGet();
+                    try {
+                        task.run();
+                    } finally {
+                        this.permits.release();
+                    }
+                }
+            );
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git;
+
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.reactivestreams.Publisher;
+
+/**
+ * Blocking input stream of publisher.
+ * <p>
+ * Requests chunks from publisher on demand with bounded prefetch,
+ * so only a few chunks are kept in memory at once. Should be used
+ * from blocking worker threads only. Read fails if read timeout is set and the
+ * publisher doesn't emit next chunk in time, so stalled client doesn't hold
+ * worker thread.
+ * </p>
+ * @since 1.0
+ */
+public final class PublisherInputStream extends InputStream {
+
+    /**
+     * Max count of chunks to prefetch.
+     */
+    private static final int PREFETCH = 4;
+
+    /**
+     * Empty buffer.
+     */
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    /**
+     * Chunks source.
+     */
+    private final Publisher<ByteBuffer> source;
+
+    /**
+     * Max time between chunks, zero if not limited.
+     */
+    private final Duration timeout;
+
+    /**
+     * Chunks iterator, subscribed on first read.
+     */
+    private Iterator<ByteBuffer> chunks;
+
+    /**
+     * Current chunk.
+     */
+    private ByteBuffer current;
+
+    /**
+     * New input stream.
+     * @param source Publisher of chunks
+     */
+    public PublisherInputStream(final Publisher<ByteBuffer> source) {
+        this(source, Duration.ZERO);
+    }
+
+    /**
+     * New input stream with read timeout.
+     * @param source Publisher of chunks
+     * @param timeout Max time between chunks, zero if not limited
+     */
+    public PublisherInputStream(final Publisher<ByteBuffer> source, final Duration timeout) {
+        super();
+        this.source = source;
+        this.timeout = timeout;
+        this.current = PublisherInputStream.EMPTY;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int res;
+        if (this.next()) {
+            res = this.current.get() & 0xff;
+        } else {
+            res = -1;
+        }
+        return res;
+    }
+
+    @Override
+    public int read(final byte[] buf, final int off, final int len) throws IOException {
+        final int res;
+        if (len == 0) {
+            res = 0;
+        } else if (this.next()) {
+            res = Math.min(len, this.current.remaining());
+            this.current.get(buf, off, res);
+        } else {
+            res = -1;
+        }
+        return res;
+    }
+
+    @Override
+    public int available() {
+        return this.current.remaining();
+    }
+
+    @Override
+    public void close() {
+        if (this.chunks instanceof Disposable) {
+            ((Disposable) this.chunks).dispose();
+        }
+    }
+
+    /**
+     * Move to next non-empty chunk if current chunk has no remaining bytes.
+     * @return False if no more chunks available
+     * @throws IOException On publisher error
+     */
+    private boolean next() throws IOException {
+        if (this.chunks == null) {
+            Flowable<ByteBuffer> flow = Flowable.fromPublisher(this.source);
+            if (!this.timeout.isZero()) {
+                flow = flow.timeout(this.timeout.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            this.chunks = flow.onErrorResumeNext(PublisherInputStream::failed)
+                .blockingIterable(PublisherInputStream.PREFETCH).iterator();
+        }
+        try {
+            while (!this.current.hasRemaining() && this.chunks.hasNext()) {
+                this.current = this.chunks.next();
+            }
+        } catch (final UncheckedIOException err) {
+            throw err.getCause();
+        }
+        return this.current.hasRemaining();
+    }
+
+    /**
+     * Publisher error wrapped for blocking iteration, so the reader
+     * receives it as {@link IOException}.
+     * @param err Publisher error
+     * @return Failed flow
+     */
+    private static Flowable<ByteBuffer> failed(final Throwable err) {
+        return Flowable.error(
+            new UncheckedIOException(new IOException("Failed to read publisher", err))
+        );
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git;
+
+import com.artipie.asto.ArtipieIOException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pool of scratch directories.
+ * <p>
+ * Directories are created in configured root, e.g. on {@code tmpfs} mount,
+ * emptied directories are returned to the pool by {@link TmpReaper} to be reused
+ * by next request:
+ * <code>
+ * new TmpReaper(executor, dirs::offer)
+ * </code>
+ * </p>
+ * @since 1.0
+ */
+public final class ScratchDirs implements Supplier<Path> {
+
+    /**
+     * Root directory.
+     */
+    private final Path root;
+
+    /**
+     * Max number of idle directories.
+     */
+    private final int capacity;
+
+    /**
+     * Idle directories.
+     */
+    private final Queue<Path> idle;
+
+    /**
+     * Idle directories count.
+     */
+    private final AtomicInteger size;
+
+    /**
+     * New scratch directories pool.
+     * @param root Root directory
+     * @param capacity Max number of idle directories
+     */
+    public ScratchDirs(final Path root, final int capacity) {
+        this.root = root;
+        this.capacity = capacity;
+        this.idle = new ConcurrentLinkedQueue<>();
+        this.size = new AtomicInteger();
+    }
+
+    /**
+     * Create idle directories up to pool capacity.
+     * @return Self
+     */
+    public ScratchDirs prepare() {
+        boolean accepted = true;
+        while (accepted && this.size.get() < this.capacity) {
+            final Path dir = this.create();
+            accepted = this.offer(dir);
+            if (!accepted) {
+                try {
+                    Files.delete(dir);
+                } catch (final IOException iex) {
+                    throw new ArtipieIOException(iex);
+                }
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public Path get() {
+        Path dir = this.idle.poll();
+        if (dir == null) {
+            dir = this.create();
+        } else {
+            this.size.decrementAndGet();
+        }
+        return dir;
+    }
+
+    /**
+     * Return empty directory to the pool.
+     * @param dir Empty directory
+     * @return True if directory was accepted, false if pool is full
+     */
+    public boolean offer(final Path dir) {
+        final boolean res = this.size.incrementAndGet() <= this.capacity;
+        if (res) {
+            this.idle.add(dir);
+        } else {
+            this.size.decrementAndGet();
+        }
+        return res;
+    }
+
+    /**
+     * Create new directory.
+     * @return Directory path
+     */
+    private Path create() {
+        try {
+            return Files.createTempDirectory(this.root, ScratchDirs.class.getSimpleName());
+        } catch (final IOException iex) {
+            throw new ArtipieIOException(iex);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git;
+
+import com.artipie.asto.ArtipieIOException;
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Remover of temporary directories.
+ * <p>
+ * Directories are removed by the executor, so removal doesn't block the caller,
+ * concurrency of removals is bounded by the executor threads. Removal failures
+ * are logged and reported by returned future. Emptied directory may be kept for
+ * reuse if recycle predicate accepts it, see {@link ScratchDirs#offer(Path)}.
+ * </p>
+ * @since 1.0
+ */
+public final class TmpReaper {
+
+    /**
+     * Shared reaper with two background threads.
+     */
+    public static final TmpReaper SHARED = new TmpReaper(2);
+
+    /**
+     * Reaper which removes directories on caller thread.
+     */
+    public static final TmpReaper SYNC = new TmpReaper(Runnable::run);
+
+    /**
+     * Executor of removals.
+     */
+    private final Executor exec;
+
+    /**
+     * Recycle predicate, accepts emptied directories to keep.
+     */
+    private final Predicate<? super Path> recycle;
+
+    /**
+     * New reaper with own background threads.
+     * @param threads Max number of concurrent removals
+     */
+    public TmpReaper(final int threads) {
+        this(
+            Executors.newFixedThreadPool(
+                threads,
+                task -> {
+                    final Thread thread = new Thread(task, TmpReaper.class.getSimpleName());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            )
+        );
+    }
+
+    /**
+     * New reaper.
+     * @param exec Executor of removals
+     */
+    public TmpReaper(final Executor exec) {
+        this(exec, dir -> false);
+    }
+
+    /**
+     * New reaper.
+     * @param exec Executor of removals
+     * @param recycle Recycle predicate, accepts emptied directories to keep
+     */
+    public TmpReaper(final Executor exec, final Predicate<? super Path> recycle) {
+        this.exec = exec;
+        this.recycle = recycle;
+    }
+
+    /**
+     * Remove directory with its content.
+     * @param path Directory to remove
+     * @return Future completed when directory is removed
+     */
+    public CompletableFuture<Void> reap(final Path path) {
+        return CompletableFuture.runAsync(() -> this.remove(path), this.exec).whenComplete(
+            (none, err) -> {
+                if (err != null) {
+                    Logger.warn(
+                        TmpReaper.class, "Failed to remove %s: %[exception]s", path, err
+                    );
+                }
+            }
+        );
+    }
+
+    /**
+     * Remove directory content, then directory itself unless it's recycled.
+     * @param path Directory
+     */
+    private void remove(final Path path) {
+        try {
+            Files.walkFileTree(
+                path,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(final Path file,
+                        final BasicFileAttributes attrs) throws IOException {
+                        Files.delete(file);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(final Path dir,
+                        final IOException exc) throws IOException {
+                        if (exc != null) {
+                            throw exc;
+                        }
+                        if (!dir.equals(path)) {
+                            Files.delete(dir);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                }
+            );
+            if (!this.recycle.test(path)) {
+                Files.delete(path);
+            }
+        } catch (final IOException iex) {
+            throw new ArtipieIOException(iex);
+        }
+    }
+}
@@ -7,21 +7,25 @@ package com.artipie.git;
 import com.artipie.asto.Storage;
 import com.artipie.asto.fs.FileStorage;
 import com.artipie.asto.misc.UncheckedSupplier;
-import java.io.IOException;
-import java.nio.file.FileVisitResult;
+import com.artipie.git.metrics.GitMetrics;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
-import java.util.function.BiFunction;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
  * Temporary storage as resource.
+ * <p>
+ * Temporary directory is removed by {@link TmpReaper} after the operation,
+ * operation result doesn't wait for removal, so request latency doesn't include
+ * file system teardown. Shared background reaper is used by default.
+ * Temporary directory is created by {@link BlockingExecutor}, fixed directory
+ * is used by caller thread, so resource with fixed path can be used from
+ * blocking executor tasks without waiting for the same executor.
+ * </p>
  *
  * @since 1.0
  */
@@ -32,13 +36,49 @@ public final class TmpResource {
      */
     private final Supplier<? extends Path> factory;
 
+    /**
+     * Metrics.
+     */
+    private final GitMetrics metrics;
+
+    /**
+     * Reaper of temporary directory.
+     */
+    private final TmpReaper reaper;
+
+    /**
+     * Executor of tmp path factory.
+     */
+    private final Executor exec;
+
     /**
      * New tmp resource with fixed path.
      *
      * @param path Tmp path
      */
     public TmpResource(final Path path) {
-        this(() -> path);
+        this(path, GitMetrics.NOP);
+    }
+
+    /**
+     * New tmp resource with fixed path.
+     *
+     * @param path Tmp path
+     * @param metrics Metrics
+     */
+    public TmpResource(final Path path, final GitMetrics metrics) {
+        this(path, metrics, TmpReaper.SHARED);
+    }
+
+    /**
+     * New tmp resource with fixed path.
+     *
+     * @param path Tmp path
+     * @param metrics Metrics
+     * @param reaper Reaper of temporary directory
+     */
+    public TmpResource(final Path path, final GitMetrics metrics, final TmpReaper reaper) {
+        this(() -> path, metrics, reaper, Runnable::run);
     }
 
     /**
@@ -53,15 +93,46 @@ public final class TmpResource {
     }
 
     /**
-     * Primary constructor.
+     * New tmp resource.
      * @param factory Tmp path factory
      */
     public TmpResource(final Supplier<? extends Path> factory) {
+        this(factory, GitMetrics.NOP);
+    }
+
+    /**
+     * New tmp resource.
+     * @param factory Tmp path factory
+     * @param metrics Metrics
+     */
+    public TmpResource(final Supplier<? extends Path> factory, final GitMetrics metrics) {
+        this(factory, metrics, TmpReaper.SHARED, BlockingExecutor.SHARED);
+    }
+
+    /**
+     * Primary constructor.
+     * @param factory Tmp path factory
+     * @param metrics Metrics
+     * @param reaper Reaper of temporary directory
+     * @param exec Executor of tmp path factory
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public TmpResource(final Supplier<? extends Path> factory, final GitMetrics metrics,
+        final TmpReaper reaper, final Executor exec) {
         this.factory = factory;
+        this.metrics = metrics;
+        this.reaper = reaper;
+        this.exec = exec;
     }
 
     /**
      * Perform operations with this resource and cleanup after that.
+     * <p>
+     * Durations of the operation and of the cleanup are reported as
+     * {@code tmp.copy} and {@code tmp.cleanup} latencies, cleanup latency
+     * includes waiting in reaper queue, pending cleanups are reported as
+     * {@code tmp.cleanup} in-flight count.
+     * </p>
      *
      * @param func Operation function
      * @param <T> Result type
@@ -70,55 +141,32 @@ public final class TmpResource {
     public <T> CompletableFuture<? extends T> with(
         final Function<? super Storage, ? extends CompletionStage<T>> func
     ) {
-        return CompletableFuture.supplyAsync(this.factory).thenCompose(
-            (Path path) -> func.apply(new FileStorage(path)).handle(TmpResource.cleanup(path))
+        return CompletableFuture.supplyAsync(this.factory, this.exec).thenCompose(
+            (Path path) -> {
+                final long start = System.nanoTime();
+                return func.apply(new FileStorage(path)).whenComplete(
+                    (T res, Throwable err) -> {
+                        this.metrics.latency("tmp.copy", System.nanoTime() - start);
+                        this.cleanup(path);
+                    }
+                );
+            }
         );
     }
 
     /**
-     * Cleanup function.
+     * Schedule cleanup of temporary directory.
      *
      * @param path Path to cleanup
-     * @param <T> Return type
-     * @return Cleanup function
      */
-    private static <T> BiFunction<? super T, Throwable, T> cleanup(final Path path) {
-        return (T res, Throwable thr) -> {
-            Throwable err = thr;
-            try {
-                Files.walkFileTree(
-                    path,
-                    new SimpleFileVisitor<Path>() {
-                        @Override
-                        public FileVisitResult visitFile(final Path file,
-                            final BasicFileAttributes attrs) throws IOException {
-                            Files.delete(file);
-                            return FileVisitResult.CONTINUE;
-                        }
-
-                        @Override
-                        public FileVisitResult postVisitDirectory(final Path dir,
-                            final IOException exc) throws IOException {
-                            Files.delete(dir);
-                            return FileVisitResult.CONTINUE;
-                        }
-                    }
-                );
-            } catch (final IOException iex) {
-                if (err == null) {
-                    err = iex;
-                } else {
-                    err.addSuppressed(iex);
-                }
+    private void cleanup(final Path path) {
+        final long start = System.nanoTime();
+        this.metrics.inflight("tmp.cleanup", 1);
+        this.reaper.reap(path).whenComplete(
+            (none, err) -> {
+                this.metrics.inflight("tmp.cleanup", -1);
+                this.metrics.latency("tmp.cleanup", System.nanoTime() - start);
             }
-            if (err != null) {
-                if (err instanceof RuntimeException) {
-                    throw (RuntimeException) err;
-                } else {
-                    throw new CompletionException(err);
-                }
-            }
-            return res;
-        };
+        );
     }
 }
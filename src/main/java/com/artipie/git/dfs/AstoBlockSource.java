@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionException;
+import org.eclipse.jgit.internal.storage.io.BlockSource;
+
+/**
+ * Block source of storage value for reftable reader.
+ * <p>
+ * Reftable reader seeks the footer and the index first and then reads only
+ * blocks containing requested references, so reference lookups don't read
+ * the whole table. Blocks are read with {@link AstoReadableChannel}.
+ * </p>
+ * @since 1.0
+ */
+final class AstoBlockSource extends BlockSource {
+
+    /**
+     * Value channel.
+     */
+    private final AstoReadableChannel channel;
+
+    /**
+     * New block source.
+     * @param storage Storage
+     * @param key Value key
+     * @throws IOException If failed to read value size
+     */
+    AstoBlockSource(final Storage storage, final Key key) throws IOException {
+        super();
+        try {
+            this.channel = new AstoReadableChannel(storage, key, storage.size(key).join());
+        } catch (final CompletionException err) {
+            throw new IOException(String.format("Failed to open reftable %s", key), err);
+        }
+    }
+
+    @Override
+    public ByteBuffer read(final long position, final int size) throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate(size);
+        this.channel.position(position);
+        int read = this.channel.read(buf);
+        while (read > 0 && buf.position() < size) {
+            read = this.channel.read(buf);
+        }
+        return buf;
+    }
+
+    @Override
+    public long size() {
+        return this.channel.size();
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.channel.close();
+        } catch (final IOException err) {
+            throw new UncheckedIOException(err);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.ext.PublisherAs;
+import com.jcabi.log.Logger;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase;
+import org.eclipse.jgit.internal.storage.dfs.DfsOutputStream;
+import org.eclipse.jgit.internal.storage.dfs.DfsPackDescription;
+import org.eclipse.jgit.internal.storage.dfs.DfsReaderOptions;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepository;
+import org.eclipse.jgit.internal.storage.dfs.ReadableChannel;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Object database of packs in storage.
+ * <p>
+ * Packs are stored with the same keys as in bare git repository:
+ * {@code objects/pack/<name>.pack} with {@code .idx} and optional {@code .bitmap}
+ * files. The pack is visible only when both pack and index keys exist, so new packs
+ * are published by saving pack first and index after that. Loose objects are not
+ * supported. Packs replaced by repacking are not removed at once: they are retired
+ * by {@code <name>.retired} marker key with retirement time, retired packs are hidden
+ * from new readers while current readers can finish with them, and
+ * {@link Maintenance} removes them later. Packs of unreachable objects written by
+ * garbage collector are marked by {@code <name>.garbage} key with creation time,
+ * so they are recognized and expired by next garbage collection.
+ * </p>
+ * <p>
+ * Files of received packs are kept in spool files until the pack is committed:
+ * thin pack header is completed in place, see {@link ThinPackHeader}, and then
+ * every file is saved to the storage once, index is saved last.
+ * </p>
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+final class AstoObjDatabase extends DfsObjDatabase {
+
+    /**
+     * Packs directory key.
+     */
+    static final Key PACKS = new Key.From("objects", "pack");
+
+    /**
+     * File extension of retired pack marker.
+     */
+    static final String RETIRED = "retired";
+
+    /**
+     * File extension of unreachable objects pack marker.
+     */
+    static final String GARBAGE = "garbage";
+
+    /**
+     * Random generator for pack names.
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Spooled files of received packs by pack file name.
+     */
+    private final Map<String, Map<PackExt, AstoOutputStream>> spooled;
+
+    /**
+     * New object database.
+     * @param repo Repository
+     * @param storage Storage
+     */
+    AstoObjDatabase(final DfsRepository repo, final Storage storage) {
+        super(repo, new DfsReaderOptions());
+        this.storage = storage;
+        this.spooled = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    protected DfsPackDescription newPack(final PackSource source) {
+        return new DfsPackDescription(
+            this.getRepository().getDescription(),
+            // keep file repository name format `pack-<40 hex>`, so packs
+            // written here are visible for git and JGit file repositories
+            String.format("pack-%s", ObjectId.fromRaw(AstoObjDatabase.random()).name()),
+            source
+        );
+    }
+
+    @Override
+    protected void commitPackImpl(final Collection<DfsPackDescription> desc,
+        final Collection<DfsPackDescription> replace) throws IOException {
+        for (final DfsPackDescription pack : desc) {
+            final Map<PackExt, AstoOutputStream> files =
+                this.spooled.remove(pack.getFileName(PackExt.PACK));
+            if (files != null) {
+                this.publish(pack, files);
+            }
+        }
+        final List<DfsPackDescription> garbage = new ArrayList<>(0);
+        for (final DfsPackDescription pack : desc) {
+            if (pack.getPackSource() == PackSource.UNREACHABLE_GARBAGE) {
+                garbage.add(pack);
+            }
+        }
+        this.mark(garbage, AstoObjDatabase.GARBAGE);
+        if (replace != null) {
+            this.mark(replace, AstoObjDatabase.RETIRED);
+        }
+        this.clearCache();
+    }
+
+    @Override
+    protected void rollbackPack(final Collection<DfsPackDescription> desc) {
+        final List<CompletableFuture<Void>> removed = new ArrayList<>(desc.size());
+        for (final DfsPackDescription pack : desc) {
+            final Map<PackExt, AstoOutputStream> files =
+                this.spooled.remove(pack.getFileName(PackExt.PACK));
+            if (files != null) {
+                for (final AstoOutputStream file : files.values()) {
+                    try {
+                        file.discard();
+                    } catch (final IOException err) {
+                        Logger.warn(
+                            this, "Failed to discard spooled pack file: %[exception]s", err
+                        );
+                    }
+                }
+            }
+            for (final PackExt ext : PackExt.values()) {
+                final Key key = AstoObjDatabase.key(pack, ext);
+                removed.add(
+                    this.storage.exists(key).thenCompose(
+                        exists -> {
+                            final CompletableFuture<Void> res;
+                            if (exists) {
+                                res = this.storage.delete(key);
+                            } else {
+                                res = CompletableFuture.completedFuture(null);
+                            }
+                            return res;
+                        }
+                    )
+                );
+            }
+        }
+        CompletableFuture.allOf(removed.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    @Override
+    protected List<DfsPackDescription> listPacks() throws IOException {
+        final Map<String, Set<String>> files = new TreeMap<>();
+        final Collection<Key> keys;
+        try {
+            keys = this.storage.list(AstoObjDatabase.PACKS).join();
+        } catch (final CompletionException err) {
+            throw new IOException("Failed to list packs", err);
+        }
+        for (final Key key : keys) {
+            final String file = key.string().substring(AstoObjDatabase.PACKS.string().length() + 1);
+            final int dot = file.lastIndexOf('.');
+            if (dot > 0 && file.indexOf('/') < 0) {
+                files.computeIfAbsent(file.substring(0, dot), name -> new HashSet<>())
+                    .add(file.substring(dot + 1));
+            }
+        }
+        final List<DfsPackDescription> res = new ArrayList<>(files.size());
+        for (final Map.Entry<String, Set<String>> entry : files.entrySet()) {
+            final Set<String> exts = entry.getValue();
+            if (exts.contains(PackExt.PACK.getExtension())
+                && exts.contains(PackExt.INDEX.getExtension())
+                && !exts.contains(AstoObjDatabase.RETIRED)) {
+                res.add(this.pack(entry.getKey(), exts));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Pack description of visible pack.
+     * @param name Pack name
+     * @param exts File extensions of the pack in storage
+     * @return Pack description
+     */
+    private DfsPackDescription pack(final String name, final Set<String> exts) {
+        final DfsPackDescription pack;
+        if (exts.contains(AstoObjDatabase.GARBAGE)) {
+            pack = new DfsPackDescription(
+                this.getRepository().getDescription(), name, PackSource.UNREACHABLE_GARBAGE
+            );
+            pack.setLastModified(this.created(name));
+        } else {
+            pack = new DfsPackDescription(
+                this.getRepository().getDescription(), name, PackSource.RECEIVE
+            );
+        }
+        for (final String ext : exts) {
+            final PackExt known = AstoObjDatabase.ext(ext);
+            if (known != null) {
+                pack.addFileExt(known);
+            }
+        }
+        return pack;
+    }
+
+    /**
+     * Creation time of unreachable objects pack from its garbage marker.
+     * Unreadable or malformed marker is logged and the pack is kept as created
+     * now, {@link Maintenance} resets such markers, so the pack expires later.
+     * @param name Pack name
+     * @return Creation time in milliseconds
+     */
+    private long created(final String name) {
+        final Key marker = new Key.From(
+            AstoObjDatabase.PACKS, String.format("%s.%s", name, AstoObjDatabase.GARBAGE)
+        );
+        long res;
+        try {
+            res = Long.parseLong(
+                this.storage.value(marker)
+                    .thenCompose(content -> new PublisherAs(content).asciiString())
+                    .toCompletableFuture().join().trim()
+            );
+        } catch (final CompletionException | NumberFormatException err) {
+            Logger.warn(
+                this, "Invalid garbage marker %s, pack is kept: %[exception]s",
+                marker.string(), err
+            );
+            res = System.currentTimeMillis();
+        }
+        return res;
+    }
+
+    @Override
+    protected ReadableChannel openFile(final DfsPackDescription desc, final PackExt ext)
+        throws IOException {
+        final Key key = AstoObjDatabase.key(desc, ext);
+        final long size;
+        try {
+            size = this.storage.size(key).join();
+        } catch (final CompletionException err) {
+            throw (FileNotFoundException) new FileNotFoundException(key.string()).initCause(err);
+        }
+        return new AstoReadableChannel(this.storage, key, size);
+    }
+
+    @Override
+    protected DfsOutputStream writeFile(final DfsPackDescription desc, final PackExt ext)
+        throws IOException {
+        final AstoOutputStream res;
+        if (desc.getPackSource() == PackSource.RECEIVE) {
+            res = new AstoOutputStream(this.storage, AstoObjDatabase.key(desc, ext), false);
+            this.spooled.computeIfAbsent(
+                desc.getFileName(PackExt.PACK), name -> new HashMap<>()
+            ).put(ext, res);
+        } else {
+            res = new AstoOutputStream(this.storage, AstoObjDatabase.key(desc, ext));
+        }
+        return res;
+    }
+
+    /**
+     * Complete thin pack header and save spooled pack files, index is saved
+     * after other files, so the pack becomes visible when it's complete.
+     * @param pack Pack description
+     * @param files Spooled files
+     * @throws IOException On error
+     */
+    private void publish(final DfsPackDescription pack,
+        final Map<PackExt, AstoOutputStream> files) throws IOException {
+        final AstoOutputStream idx = files.remove(PackExt.INDEX);
+        if (idx != null && files.containsKey(PackExt.PACK)) {
+            new ThinPackHeader(pack).fix(files.get(PackExt.PACK).file(), idx.file());
+        }
+        for (final AstoOutputStream file : files.values()) {
+            file.save();
+        }
+        if (idx != null) {
+            idx.save();
+        }
+    }
+
+    /**
+     * Save marker with current time for each pack.
+     * @param desc Packs to mark
+     * @param ext Marker extension
+     */
+    private void mark(final Collection<DfsPackDescription> desc, final String ext) {
+        final byte[] now = Long.toString(System.currentTimeMillis())
+            .getBytes(StandardCharsets.US_ASCII);
+        CompletableFuture.allOf(
+            desc.stream().map(
+                pack -> this.storage.save(AstoObjDatabase.marker(pack, ext), new Content.From(now))
+            ).toArray(CompletableFuture<?>[]::new)
+        ).join();
+    }
+
+    /**
+     * Storage key of pack marker.
+     * @param desc Pack description
+     * @param ext Marker extension
+     * @return Storage key
+     */
+    static Key marker(final DfsPackDescription desc, final String ext) {
+        final String name = desc.getFileName(PackExt.PACK);
+        return new Key.From(
+            AstoObjDatabase.PACKS,
+            String.format("%s.%s", name.substring(0, name.lastIndexOf('.')), ext)
+        );
+    }
+
+    /**
+     * Storage key of pack file.
+     * @param desc Pack description
+     * @param ext Pack file extension
+     * @return Storage key
+     */
+    static Key key(final DfsPackDescription desc, final PackExt ext) {
+        return new Key.From(AstoObjDatabase.PACKS, desc.getFileName(ext));
+    }
+
+    /**
+     * Pack extension by file extension.
+     * @param name File extension
+     * @return Pack extension or null if unknown
+     */
+    private static PackExt ext(final String name) {
+        PackExt res = null;
+        for (final PackExt ext : PackExt.values()) {
+            if (ext.getExtension().equals(name)) {
+                res = ext;
+                break;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Random bytes for pack name.
+     * @return Random 20 bytes
+     * @checkstyle MagicNumberCheck (5 lines)
+     */
+    private static byte[] random() {
+        final byte[] bytes = new byte[20];
+        AstoObjDatabase.RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Copy;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.git.TmpReaper;
+import com.artipie.git.TmpResource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.concurrent.CompletionException;
+import org.eclipse.jgit.internal.storage.dfs.DfsOutputStream;
+
+/**
+ * Output stream of new storage value.
+ * <p>
+ * JGit reads back written data while indexing a pack, so data is spooled
+ * into a temporary file which is moved to the storage on close. Deferred
+ * stream keeps the file after close until it's saved or discarded explicitly,
+ * so pack files can be completed before they become visible.
+ * </p>
+ * @since 1.0
+ */
+final class AstoOutputStream extends DfsOutputStream {
+
+    /**
+     * Target storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Target key.
+     */
+    private final Key key;
+
+    /**
+     * Spool directory.
+     */
+    private final Path dir;
+
+    /**
+     * Spool file.
+     */
+    private final Path file;
+
+    /**
+     * Spool file channel.
+     */
+    private final FileChannel spool;
+
+    /**
+     * Save on close.
+     */
+    private final boolean eager;
+
+    /**
+     * New output stream which saves value on close.
+     * @param storage Target storage
+     * @param key Target key
+     * @throws IOException On error
+     */
+    AstoOutputStream(final Storage storage, final Key key) throws IOException {
+        this(storage, key, true);
+    }
+
+    /**
+     * New output stream.
+     * @param storage Target storage
+     * @param key Target key
+     * @param eager Save on close, otherwise value is saved by {@link #save()}
+     * @throws IOException On error
+     */
+    AstoOutputStream(final Storage storage, final Key key, final boolean eager)
+        throws IOException {
+        super();
+        this.storage = storage;
+        this.key = key;
+        this.eager = eager;
+        this.dir = Files.createTempDirectory(AstoOutputStream.class.getName());
+        this.file = this.dir.resolve(key.string());
+        Files.createDirectories(this.file.getParent());
+        this.spool = FileChannel.open(
+            this.file, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE
+        );
+    }
+
+    @Override
+    public void write(final byte[] buf, final int off, final int len) throws IOException {
+        final ByteBuffer src = ByteBuffer.wrap(buf, off, len);
+        while (src.hasRemaining()) {
+            this.spool.write(src);
+        }
+    }
+
+    @Override
+    public int read(final long position, final ByteBuffer buf) throws IOException {
+        return this.spool.read(buf, position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.spool.isOpen()) {
+            this.spool.close();
+            if (this.eager) {
+                this.save();
+            }
+        }
+    }
+
+    /**
+     * Spool file of closed deferred stream, it can be modified before saving.
+     * @return File path
+     */
+    Path file() {
+        return this.file;
+    }
+
+    /**
+     * Save spooled value to the storage and remove spool file.
+     * @throws IOException On error
+     */
+    void save() throws IOException {
+        try {
+            new TmpResource(this.dir).with(
+                tmp -> new Copy(tmp, Collections.singleton(this.key)).copy(this.storage)
+            ).join();
+        } catch (final CompletionException err) {
+            throw new IOException(String.format("Failed to save '%s'", this.key), err);
+        }
+    }
+
+    /**
+     * Close the stream and remove spool file without saving.
+     * @throws IOException On error
+     */
+    void discard() throws IOException {
+        this.spool.close();
+        TmpReaper.SHARED.reap(this.dir);
+    }
+}
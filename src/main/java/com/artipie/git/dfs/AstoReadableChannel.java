@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.git.PublisherInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.jgit.internal.storage.dfs.ReadableChannel;
+
+/**
+ * Readable channel of storage value.
+ * <p>
+ * Storage doesn't support ranged reads, so the channel reads value as a stream:
+ * it skips bytes of the stream to move forward. Channel keeps a few streams at
+ * different positions, so reading continues from the nearest stream before
+ * the position, and moving back before all streams opens another stream from
+ * the beginning, replacing least recently used stream. JGit reads pack files
+ * with block cache and reftables by blocks, so alternate reads of a few
+ * regions, e.g. index and data, don't re-read the value, but random backward
+ * positioning still costs reading the value from the beginning.
+ * </p>
+ * @since 1.0
+ */
+final class AstoReadableChannel implements ReadableChannel {
+
+    /**
+     * Max count of open streams.
+     */
+    private static final int STREAMS = 4;
+
+    /**
+     * Storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Value key.
+     */
+    private final Key key;
+
+    /**
+     * Value size.
+     */
+    private final long length;
+
+    /**
+     * Open streams, least recently used first.
+     */
+    private final List<Cursor> cursors;
+
+    /**
+     * Position of channel.
+     */
+    private long pos;
+
+    /**
+     * Open flag.
+     */
+    private boolean open;
+
+    /**
+     * New channel.
+     * @param storage Storage
+     * @param key Value key
+     * @param length Value size
+     */
+    AstoReadableChannel(final Storage storage, final Key key, final long length) {
+        this.storage = storage;
+        this.key = key;
+        this.length = length;
+        this.cursors = new ArrayList<>(AstoReadableChannel.STREAMS);
+        this.open = true;
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+        final int res = this.cursor().read(this.pos, dst);
+        if (res > 0) {
+            this.pos += res;
+        }
+        return res;
+    }
+
+    @Override
+    public long position() {
+        return this.pos;
+    }
+
+    @Override
+    public void position(final long position) {
+        this.pos = position;
+    }
+
+    @Override
+    public long size() {
+        return this.length;
+    }
+
+    @Override
+    public int blockSize() {
+        return 0;
+    }
+
+    @Override
+    public void setReadAheadBytes(final int bytes) {
+        // value stream reads ahead by itself
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.open = false;
+        for (final Cursor cursor : this.cursors) {
+            cursor.stream.close();
+        }
+        this.cursors.clear();
+    }
+
+    /**
+     * Nearest stream before the position or new stream from the beginning.
+     * @return Stream cursor
+     * @throws IOException On error
+     */
+    private Cursor cursor() throws IOException {
+        Cursor res = null;
+        for (final Cursor cursor : this.cursors) {
+            if (cursor.offset <= this.pos && (res == null || cursor.offset > res.offset)) {
+                res = cursor;
+            }
+        }
+        if (res == null) {
+            if (this.cursors.size() >= AstoReadableChannel.STREAMS) {
+                this.cursors.remove(0).stream.close();
+            }
+            res = new Cursor(new PublisherInputStream(this.storage.value(this.key).join()));
+        } else {
+            this.cursors.remove(res);
+        }
+        this.cursors.add(res);
+        return res;
+    }
+
+    /**
+     * Value stream with its position.
+     * @since 1.0
+     */
+    private static final class Cursor {
+
+        /**
+         * Value stream.
+         */
+        private final InputStream stream;
+
+        /**
+         * Position of value stream.
+         */
+        private long offset;
+
+        /**
+         * New cursor at the beginning of the stream.
+         * @param stream Value stream
+         */
+        Cursor(final InputStream stream) {
+            this.stream = stream;
+        }
+
+        /**
+         * Read bytes at position which is not before the stream position.
+         * @param pos Position
+         * @param dst Destination buffer
+         * @return Count of bytes read or -1 at the end of value
+         * @throws IOException On error
+         */
+        int read(final long pos, final ByteBuffer dst) throws IOException {
+            while (this.offset < pos) {
+                final long skipped = this.stream.skip(pos - this.offset);
+                if (skipped <= 0) {
+                    break;
+                }
+                this.offset += skipped;
+            }
+            final int res;
+            if (this.offset < pos) {
+                res = -1;
+            } else {
+                res = this.stream.read(
+                    dst.array(), dst.arrayOffset() + dst.position(), dst.remaining()
+                );
+            }
+            if (res > 0) {
+                dst.position(dst.position() + res);
+                this.offset += res;
+            }
+            return res;
+        }
+    }
+}
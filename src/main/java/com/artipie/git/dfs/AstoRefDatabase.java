@@ -0,0 +1,364 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.ext.PublisherAs;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import org.eclipse.jgit.internal.storage.dfs.DfsRefDatabase;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.SymbolicRef;
+import org.eclipse.jgit.util.RefList;
+
+/**
+ * Reference database in storage.
+ * <p>
+ * References are stored with the same keys as in bare git repository:
+ * loose references are stored in {@code HEAD} and {@code refs/*} keys, packed
+ * references are stored in {@code packed-refs} key. Updated references are written
+ * as loose references. Compare-and-set updates are serialized by
+ * {@link RefsLock} of the storage, so concurrent pushes with separate
+ * repositories, storage instances or servers can't overwrite each other.
+ * </p>
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+final class AstoRefDatabase extends DfsRefDatabase {
+
+    /**
+     * Packed references key.
+     */
+    private static final Key PACKED = new Key.From(Constants.PACKED_REFS);
+
+    /**
+     * Symbolic reference prefix.
+     */
+    private static final String SYMREF = "ref: ";
+
+    /**
+     * Storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Update lock of references in the storage.
+     */
+    private final RefsLock lock;
+
+    /**
+     * New reference database.
+     * @param repo Repository
+     * @param storage Storage
+     */
+    AstoRefDatabase(final DfsRepository repo, final Storage storage) {
+        super(repo);
+        this.storage = storage;
+        this.lock = new RefsLock(storage);
+    }
+
+    @Override
+    public RefCache scanAllRefs() throws IOException {
+        final Map<String, Ref> ids = new TreeMap<>(this.packed());
+        final Map<String, String> symbolic = new TreeMap<>();
+        for (final Map.Entry<String, String> ref : this.loose().entrySet()) {
+            final String value = ref.getValue().trim();
+            if (value.startsWith(AstoRefDatabase.SYMREF)) {
+                symbolic.put(ref.getKey(), value.substring(AstoRefDatabase.SYMREF.length()));
+            } else if (ObjectId.isId(value)) {
+                ids.put(
+                    ref.getKey(),
+                    new ObjectIdRef.Unpeeled(
+                        AstoRefDatabase.storage(ids.get(ref.getKey())),
+                        ref.getKey(), ObjectId.fromString(value)
+                    )
+                );
+            }
+        }
+        return AstoRefDatabase.cache(ids, symbolic);
+    }
+
+    @Override
+    public boolean compareAndPut(final Ref old, final Ref ref) throws IOException {
+        return this.lock.locked(() -> this.put(old, ref));
+    }
+
+    @Override
+    public boolean compareAndRemove(final Ref old) throws IOException {
+        return this.lock.locked(() -> this.remove(old));
+    }
+
+    /**
+     * Read loose references and HEAD.
+     * @return Values of loose references by name
+     * @throws IOException On error
+     */
+    private Map<String, String> loose() throws IOException {
+        final Map<String, String> res = new TreeMap<>();
+        try {
+            for (final Key key : this.storage.list(new Key.From(Constants.R_REFS)).join()) {
+                res.put(key.string(), this.read(key));
+            }
+            if (this.storage.exists(new Key.From(Constants.HEAD)).join()) {
+                res.put(Constants.HEAD, this.read(new Key.From(Constants.HEAD)));
+            }
+        } catch (final CompletionException err) {
+            throw new IOException("Failed to read references", err);
+        }
+        return res;
+    }
+
+    /**
+     * Write reference if stored one matches expected, must be called with lock.
+     * Reference with only peeled state changed is not written.
+     * @param old Expected reference
+     * @param ref New reference
+     * @return True if written
+     * @throws IOException On error
+     */
+    private boolean put(final Ref old, final Ref ref) throws IOException {
+        final boolean res;
+        if (AstoRefDatabase.same(old, ref)) {
+            res = true;
+        } else if (this.matches(old)) {
+            final String value;
+            if (ref.isSymbolic()) {
+                value = String.format("%s%s\n", AstoRefDatabase.SYMREF, ref.getTarget().getName());
+            } else {
+                value = String.format("%s\n", ref.getObjectId().name());
+            }
+            this.storage.save(
+                new Key.From(ref.getName()),
+                new Content.From(value.getBytes(StandardCharsets.US_ASCII))
+            ).join();
+            res = true;
+        } else {
+            res = false;
+        }
+        return res;
+    }
+
+    /**
+     * Remove reference if stored one matches expected, must be called with lock.
+     * @param old Expected reference
+     * @return True if removed
+     * @throws IOException On error
+     */
+    private boolean remove(final Ref old) throws IOException {
+        final boolean res;
+        if (this.matches(old)) {
+            final Key key = new Key.From(old.getName());
+            if (this.storage.exists(key).join()) {
+                this.storage.delete(key).join();
+            }
+            final Map<String, Ref> packed = this.packed();
+            if (packed.remove(old.getName()) != null) {
+                this.writePacked(packed.values());
+            }
+            res = true;
+        } else {
+            res = false;
+        }
+        return res;
+    }
+
+    /**
+     * Check that current stored reference matches expected one.
+     * @param expected Expected reference
+     * @return True if matches
+     * @throws IOException On error
+     */
+    private boolean matches(final Ref expected) throws IOException {
+        final String name = expected.getName();
+        final Key key = new Key.From(name);
+        final Ref current;
+        try {
+            if (this.storage.exists(key).join()) {
+                final String value = this.read(key).trim();
+                if (value.startsWith(AstoRefDatabase.SYMREF)) {
+                    current = new SymbolicRef(
+                        name,
+                        new ObjectIdRef.Unpeeled(
+                            Ref.Storage.NEW, value.substring(AstoRefDatabase.SYMREF.length()), null
+                        )
+                    );
+                } else {
+                    current = new ObjectIdRef.Unpeeled(
+                        Ref.Storage.LOOSE, name, ObjectId.fromString(value)
+                    );
+                }
+            } else {
+                current = this.packed().get(name);
+            }
+        } catch (final CompletionException err) {
+            throw new IOException(String.format("Failed to read reference %s", name), err);
+        }
+        final boolean res;
+        if (current == null) {
+            res = expected.getStorage() == Ref.Storage.NEW;
+        } else {
+            res = AstoRefDatabase.same(expected, current);
+        }
+        return res;
+    }
+
+    /**
+     * Read packed references.
+     * @return Packed references by name
+     * @throws IOException On error
+     */
+    private Map<String, Ref> packed() throws IOException {
+        final String text;
+        try {
+            if (this.storage.exists(AstoRefDatabase.PACKED).join()) {
+                text = this.read(AstoRefDatabase.PACKED);
+            } else {
+                text = "";
+            }
+        } catch (final CompletionException err) {
+            throw new IOException("Failed to read packed references", err);
+        }
+        return AstoRefDatabase.parse(text);
+    }
+
+    /**
+     * Write packed references.
+     * @param refs References to write
+     */
+    private void writePacked(final Collection<Ref> refs) {
+        final StringBuilder text = new StringBuilder("# pack-refs with: peeled sorted\n");
+        final List<Ref> sorted = new ArrayList<>(refs);
+        sorted.sort((left, right) -> left.getName().compareTo(right.getName()));
+        for (final Ref ref : sorted) {
+            text.append(ref.getObjectId().name()).append(' ').append(ref.getName()).append('\n');
+            if (ref.getPeeledObjectId() != null) {
+                text.append('^').append(ref.getPeeledObjectId().name()).append('\n');
+            }
+        }
+        this.storage.save(
+            AstoRefDatabase.PACKED,
+            new Content.From(text.toString().getBytes(StandardCharsets.US_ASCII))
+        ).join();
+    }
+
+    /**
+     * Read storage value as ASCII string.
+     * @param key Key
+     * @return String value
+     */
+    private String read(final Key key) {
+        return this.storage.value(key)
+            .thenCompose(content -> new PublisherAs(content).asciiString())
+            .toCompletableFuture().join();
+    }
+
+    /**
+     * Parse packed references file.
+     * @param text Text of packed references file
+     * @return Packed references by name
+     */
+    private static Map<String, Ref> parse(final String text) {
+        final Map<String, Ref> res = new TreeMap<>();
+        boolean peeled = false;
+        Ref last = null;
+        for (final String line : text.split("\n")) {
+            if (line.startsWith("#")) {
+                peeled = line.contains(" fully-peeled");
+            } else if (line.startsWith("^") && last != null) {
+                last = new ObjectIdRef.PeeledTag(
+                    Ref.Storage.PACKED, last.getName(), last.getObjectId(),
+                    ObjectId.fromString(line.substring(1).trim())
+                );
+                res.put(last.getName(), last);
+            } else if (line.indexOf(' ') == Constants.OBJECT_ID_STRING_LENGTH) {
+                final String name = line.substring(Constants.OBJECT_ID_STRING_LENGTH + 1).trim();
+                final ObjectId id = ObjectId.fromString(
+                    line.substring(0, Constants.OBJECT_ID_STRING_LENGTH)
+                );
+                if (peeled) {
+                    last = new ObjectIdRef.PeeledNonTag(Ref.Storage.PACKED, name, id);
+                } else {
+                    last = new ObjectIdRef.Unpeeled(Ref.Storage.PACKED, name, id);
+                }
+                res.put(name, last);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Reference cache of object and symbolic references.
+     * @param ids Object references by name
+     * @param symbolic Targets of symbolic references by name
+     * @return Reference cache
+     */
+    private static RefCache cache(final Map<String, Ref> ids,
+        final Map<String, String> symbolic) {
+        final RefList.Builder<Ref> all = new RefList.Builder<>(ids.size() + symbolic.size());
+        final RefList.Builder<Ref> sym = new RefList.Builder<>(symbolic.size());
+        for (final Ref ref : ids.values()) {
+            all.add(ref);
+        }
+        for (final Map.Entry<String, String> ref : symbolic.entrySet()) {
+            final Ref target = ids.getOrDefault(
+                ref.getValue(),
+                new ObjectIdRef.Unpeeled(Ref.Storage.NEW, ref.getValue(), null)
+            );
+            final Ref link = new SymbolicRef(ref.getKey(), target);
+            all.add(link);
+            sym.add(link);
+        }
+        all.sort();
+        sym.sort();
+        return new RefCache(all.toRefList(), sym.toRefList());
+    }
+
+    /**
+     * Storage of loose reference which may be packed too.
+     * @param packed Packed reference or null
+     * @return Reference storage
+     */
+    private static Ref.Storage storage(final Ref packed) {
+        final Ref.Storage res;
+        if (packed == null) {
+            res = Ref.Storage.LOOSE;
+        } else {
+            res = Ref.Storage.LOOSE_PACKED;
+        }
+        return res;
+    }
+
+    /**
+     * Check if references point to the same target.
+     * @param left First reference
+     * @param right Second reference
+     * @return True if targets are the same
+     */
+    private static boolean same(final Ref left, final Ref right) {
+        final boolean res;
+        if (left.isSymbolic() || right.isSymbolic()) {
+            res = left.isSymbolic() && right.isSymbolic()
+                && left.getTarget().getName().equals(right.getTarget().getName());
+        } else {
+            res = left.getStorage() != Ref.Storage.NEW && right.getStorage() != Ref.Storage.NEW
+                && left.getName().equals(right.getName())
+                && left.getObjectId() != null
+                && left.getObjectId().equals(right.getObjectId());
+        }
+        return res;
+    }
+}
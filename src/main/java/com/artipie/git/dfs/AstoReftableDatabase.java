@@ -0,0 +1,613 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.ext.PublisherAs;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.eclipse.jgit.internal.storage.dfs.DfsRefDatabase;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepository;
+import org.eclipse.jgit.internal.storage.reftable.MergedReftable;
+import org.eclipse.jgit.internal.storage.reftable.ReftableBatchRefUpdate;
+import org.eclipse.jgit.internal.storage.reftable.ReftableCompactor;
+import org.eclipse.jgit.internal.storage.reftable.ReftableConfig;
+import org.eclipse.jgit.internal.storage.reftable.ReftableDatabase;
+import org.eclipse.jgit.internal.storage.reftable.ReftableReader;
+import org.eclipse.jgit.internal.storage.reftable.ReftableWriter;
+import org.eclipse.jgit.lib.BatchRefUpdate;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.SymbolicRef;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.eclipse.jgit.util.RefList;
+import org.eclipse.jgit.util.RefMap;
+
+/**
+ * Reference database of reftable stack in storage.
+ * <p>
+ * References are stored in the same layout as git and JGit file repositories
+ * store reftables: {@code reftable/tables.list} key lists table names from the
+ * oldest to the newest one, and every table is stored in {@code reftable/<name>}
+ * key. Tables are sorted and block-indexed, so reference lookups and prefix
+ * scans read only blocks with matching references with {@link AstoBlockSource},
+ * instead of reading all references like {@link AstoRefDatabase} does.
+ * </p>
+ * <p>
+ * Every update writes a new table with updated references and reflog entries
+ * and then saves the list with the new table appended. The list is compared with
+ * the list of loaded tables before saving, so the update fails with lock failure
+ * if the stack was changed by another writer. The comparison and saving are
+ * serialized by {@link RefsLock} of the storage, which is shared by all writers
+ * of the repository including other servers. After the update top tables of the stack are compacted into one while
+ * the table below them is not larger than twice their size, so the stack depth
+ * stays logarithmic to the count of updates. Replaced tables are not removed
+ * from storage, because concurrent readers can read them: {@link Maintenance}
+ * removes them after grace period and compacts the whole stack.
+ * </p>
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ * @checkstyle ClassFanOutComplexityCheck (500 lines)
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+final class AstoReftableDatabase extends DfsRefDatabase {
+
+    /**
+     * Reftables key.
+     */
+    static final Key DIR = new Key.From(Constants.REFTABLE);
+
+    /**
+     * Tables list key.
+     */
+    static final Key LIST = new Key.From(Constants.REFTABLE, Constants.TABLES_LIST);
+
+    /**
+     * Reflog entries older than this are removed by full compaction.
+     */
+    private static final long REFLOG_EXPIRE = TimeUnit.DAYS.toMillis(90);
+
+    /**
+     * Storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Reftable database of loaded tables.
+     */
+    private final ReftableDatabase tables;
+
+    /**
+     * Names of loaded tables, guarded by tables lock.
+     */
+    private List<String> names;
+
+    /**
+     * Readers of loaded tables, guarded by tables lock.
+     */
+    private List<ReftableReader> readers;
+
+    /**
+     * New reference database.
+     * @param repo Repository
+     * @param storage Storage
+     */
+    AstoReftableDatabase(final DfsRepository repo, final Storage storage) {
+        super(repo);
+        this.storage = storage;
+        this.tables = new ReftableDatabase() {
+            @Override
+            public MergedReftable openMergedReftable() throws IOException {
+                return new MergedReftable(AstoReftableDatabase.this.loaded());
+            }
+        };
+    }
+
+    @Override
+    public boolean performsAtomicTransactions() {
+        return true;
+    }
+
+    @Override
+    public boolean hasVersioning() {
+        return true;
+    }
+
+    @Override
+    public BatchRefUpdate newBatchUpdate() {
+        return new Batch(this);
+    }
+
+    @Override
+    public Ref exactRef(final String name) throws IOException {
+        return this.tables.exactRef(name);
+    }
+
+    @Override
+    public Map<String, Ref> getRefs(final String prefix) throws IOException {
+        final List<Ref> refs = this.tables.getRefsByPrefix(prefix);
+        final RefList.Builder<Ref> all = new RefList.Builder<>(refs.size());
+        for (final Ref ref : refs) {
+            all.add(ref);
+        }
+        return new RefMap(prefix, all.toRefList(), RefList.emptyList(), RefList.emptyList());
+    }
+
+    @Override
+    public List<Ref> getRefsByPrefix(final String prefix) throws IOException {
+        return this.tables.getRefsByPrefix(prefix);
+    }
+
+    @Override
+    public Set<Ref> getTipsWithSha1(final ObjectId id) throws IOException {
+        return this.tables.getTipsWithSha1(id);
+    }
+
+    @Override
+    public boolean hasFastTipsWithSha1() throws IOException {
+        return this.tables.hasFastTipsWithSha1();
+    }
+
+    @Override
+    public boolean isNameConflicting(final String name) throws IOException {
+        return this.tables.isNameConflicting(name, new TreeSet<>(), new HashSet<>());
+    }
+
+    @Override
+    public Ref peel(final Ref ref) throws IOException {
+        final Ref leaf = ref.getLeaf();
+        final Ref res;
+        if (leaf.isPeeled() || leaf.getObjectId() == null) {
+            res = ref;
+        } else {
+            res = AstoReftableDatabase.recreate(ref, this.peeled(leaf));
+        }
+        return res;
+    }
+
+    @Override
+    public void refresh() {
+        super.refresh();
+        this.reset();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        this.reset();
+    }
+
+    /**
+     * Compact all tables of the stack into one table and remove reflog entries
+     * older than 90 days.
+     * @throws IOException On error
+     */
+    void compact() throws IOException {
+        final ReentrantLock lock = this.tables.getLock();
+        lock.lock();
+        try {
+            final List<ReftableReader> loaded = this.loaded();
+            if (loaded.size() > 1) {
+                final String merged = this.merge(
+                    loaded, false,
+                    System.currentTimeMillis() - AstoReftableDatabase.REFLOG_EXPIRE
+                );
+                new RefsLock(this.storage).locked(
+                    () -> {
+                        if (AstoReftableDatabase.names(this.storage).equals(this.names)) {
+                            this.saveList(Collections.singletonList(merged));
+                        }
+                        return (Void) null;
+                    }
+                );
+                this.reset();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write references as the first table of the stack.
+     * @param refs References
+     * @throws IOException On error
+     */
+    void convert(final Collection<Ref> refs) throws IOException {
+        final List<Ref> write = new ArrayList<>(refs.size());
+        try (RevWalk walk = new RevWalk(this.getRepository())) {
+            for (final Ref ref : refs) {
+                if (ref.isSymbolic()) {
+                    write.add(
+                        new SymbolicRef(
+                            ref.getName(),
+                            new ObjectIdRef.Unpeeled(
+                                Ref.Storage.NEW, ref.getTarget().getName(), null
+                            )
+                        )
+                    );
+                } else if (ref.getObjectId() != null) {
+                    write.add(AstoReftableDatabase.peeled(walk, ref));
+                }
+            }
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ReftableWriter writer = new ReftableWriter(this.config(), out)
+            .setMinUpdateIndex(1).setMaxUpdateIndex(1).begin().sortAndWriteRefs(write);
+        writer.finish();
+        final String name = AstoReftableDatabase.name(1, 1);
+        this.save(new Key.From(AstoReftableDatabase.DIR, name), out.toByteArray());
+        this.saveList(Collections.singletonList(name));
+        this.reset();
+    }
+
+    @Override
+    protected boolean compareAndPut(final Ref old, final Ref ref) throws IOException {
+        final ReceiveCommand cmd = ReftableDatabase.toCommand(old, ref);
+        try (RevWalk walk = new RevWalk(this.getRepository())) {
+            walk.setRetainBody(false);
+            this.newBatchUpdate().setAllowNonFastForwards(true).addCommand(cmd)
+                .execute(walk, NullProgressMonitor.INSTANCE);
+        }
+        if (cmd.getResult() == ReceiveCommand.Result.REJECTED_OTHER_REASON) {
+            throw new IOException(cmd.getMessage());
+        }
+        return cmd.getResult() == ReceiveCommand.Result.OK;
+    }
+
+    @Override
+    protected boolean compareAndRemove(final Ref old) throws IOException {
+        return this.compareAndPut(old, null);
+    }
+
+    @Override
+    protected RefCache scanAllRefs() throws IOException {
+        final List<Ref> refs = this.tables.getRefsByPrefix(RefDatabase.ALL);
+        final RefList.Builder<Ref> all = new RefList.Builder<>(refs.size());
+        final RefList.Builder<Ref> sym = new RefList.Builder<>();
+        for (final Ref ref : refs) {
+            all.add(ref);
+            if (ref.isSymbolic()) {
+                sym.add(ref);
+            }
+        }
+        return new RefCache(all.toRefList(), sym.toRefList());
+    }
+
+    @Override
+    protected void cachePeeledState(final Ref old, final Ref ref) {
+        // tables are immutable, peeled state is written by updates
+    }
+
+    /**
+     * Table names of the stack in storage.
+     * @param storage Storage
+     * @return Table names from the oldest to the newest one
+     * @throws IOException On error
+     */
+    static List<String> names(final Storage storage) throws IOException {
+        final List<String> res = new ArrayList<>(0);
+        try {
+            if (storage.exists(AstoReftableDatabase.LIST).join()) {
+                for (final String line : storage.value(AstoReftableDatabase.LIST)
+                    .thenCompose(content -> new PublisherAs(content).asciiString())
+                    .toCompletableFuture().join().split("\n")) {
+                    if (!line.trim().isEmpty()) {
+                        res.add(line.trim());
+                    }
+                }
+            }
+        } catch (final CompletionException err) {
+            throw new IOException("Failed to read reftables list", err);
+        }
+        return res;
+    }
+
+    /**
+     * Readers of loaded tables, tables are loaded on first access.
+     * @return Readers from the oldest to the newest table
+     * @throws IOException On error
+     */
+    private List<ReftableReader> loaded() throws IOException {
+        final ReentrantLock lock = this.tables.getLock();
+        lock.lock();
+        try {
+            if (this.readers == null) {
+                final List<String> current = AstoReftableDatabase.names(this.storage);
+                final List<ReftableReader> opened = new ArrayList<>(current.size());
+                for (final String name : current) {
+                    opened.add(this.reader(name));
+                }
+                this.names = current;
+                this.readers = opened;
+            }
+            return this.readers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add new table on top of the stack and compact top tables.
+     * @param table Table content
+     * @param stats Table stats
+     * @return False if the stack was changed by another writer
+     * @throws IOException On error
+     */
+    private boolean add(final byte[] table, final ReftableWriter.Stats stats)
+        throws IOException {
+        this.loaded();
+        final boolean res = new RefsLock(this.storage).locked(
+            () -> {
+                final boolean same = AstoReftableDatabase.names(this.storage).equals(this.names);
+                if (same) {
+                    this.push(table, stats);
+                }
+                return same;
+            }
+        );
+        this.reset();
+        return res;
+    }
+
+    /**
+     * Save new table and the list with it on top of loaded tables, compacting
+     * top tables, must be called with storage lock.
+     * @param table Table content
+     * @param stats Table stats
+     * @throws IOException On error
+     */
+    private void push(final byte[] table, final ReftableWriter.Stats stats)
+        throws IOException {
+        final String name = AstoReftableDatabase.name(
+            stats.minUpdateIndex(), stats.maxUpdateIndex()
+        );
+        this.save(new Key.From(AstoReftableDatabase.DIR, name), table);
+        final List<String> stack = new ArrayList<>(this.names);
+        stack.add(name);
+        final List<ReftableReader> opened = new ArrayList<>(this.readers);
+        opened.add(this.reader(name));
+        int from = opened.size() - 1;
+        long size = table.length;
+        while (from > 0 && opened.get(from - 1).size() <= 2 * size) {
+            from -= 1;
+            size += opened.get(from).size();
+        }
+        if (from < opened.size() - 1) {
+            final String merged = this.merge(
+                opened.subList(from, opened.size()), from > 0, 0
+            );
+            stack.subList(from, stack.size()).clear();
+            stack.add(merged);
+        }
+        opened.get(opened.size() - 1).close();
+        this.saveList(stack);
+    }
+
+    /**
+     * Merge tables into new table.
+     * @param merge Tables to merge
+     * @param deletes Keep deleted references, required if there are tables below
+     * @param expire Reflog entries older than this time in milliseconds are removed
+     * @return Name of the new table
+     * @throws IOException On error
+     */
+    private String merge(final List<ReftableReader> merge, final boolean deletes,
+        final long expire) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ReftableCompactor compactor = new ReftableCompactor(out)
+            .setConfig(this.config())
+            .setIncludeDeletes(deletes)
+            .setReflogExpireOldestReflogTimeMillis(expire);
+        compactor.addAll(merge);
+        compactor.compact();
+        final String name = AstoReftableDatabase.name(
+            compactor.getStats().minUpdateIndex(), compactor.getStats().maxUpdateIndex()
+        );
+        this.save(new Key.From(AstoReftableDatabase.DIR, name), out.toByteArray());
+        return name;
+    }
+
+    /**
+     * Open table reader.
+     * @param name Table name
+     * @return Reader
+     * @throws IOException On error
+     */
+    private ReftableReader reader(final String name) throws IOException {
+        return new ReftableReader(
+            new AstoBlockSource(this.storage, new Key.From(AstoReftableDatabase.DIR, name))
+        );
+    }
+
+    /**
+     * Save tables list.
+     * @param stack Table names from the oldest to the newest one
+     */
+    private void saveList(final List<String> stack) {
+        final StringBuilder list = new StringBuilder();
+        for (final String name : stack) {
+            list.append(name).append('\n');
+        }
+        this.save(
+            AstoReftableDatabase.LIST, list.toString().getBytes(StandardCharsets.US_ASCII)
+        );
+    }
+
+    /**
+     * Save value to storage.
+     * @param key Key
+     * @param value Value
+     */
+    private void save(final Key key, final byte[] value) {
+        this.storage.save(key, new Content.From(value)).join();
+    }
+
+    /**
+     * Close loaded tables, they are loaded again on next access.
+     */
+    private void reset() {
+        final ReentrantLock lock = this.tables.getLock();
+        lock.lock();
+        try {
+            if (this.readers != null) {
+                for (final ReftableReader reader : this.readers) {
+                    reader.close();
+                }
+            }
+            this.readers = null;
+            this.names = null;
+            this.tables.clearCache();
+        } catch (final IOException err) {
+            throw new IllegalStateException("Failed to close reftable", err);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reftable writer config of repository.
+     * @return Config
+     */
+    private ReftableConfig config() {
+        return new ReftableConfig(this.getRepository());
+    }
+
+    /**
+     * Peel reference.
+     * @param leaf Reference which is not symbolic
+     * @return Peeled reference
+     * @throws IOException On error
+     */
+    private Ref peeled(final Ref leaf) throws IOException {
+        try (RevWalk walk = new RevWalk(this.getRepository())) {
+            final Ref peeled = AstoReftableDatabase.peeled(walk, leaf);
+            final Ref res;
+            if (peeled.getPeeledObjectId() == null) {
+                res = new ObjectIdRef.PeeledNonTag(
+                    leaf.getStorage(), leaf.getName(), leaf.getObjectId(), leaf.getUpdateIndex()
+                );
+            } else {
+                res = new ObjectIdRef.PeeledTag(
+                    leaf.getStorage(), leaf.getName(), leaf.getObjectId(),
+                    peeled.getPeeledObjectId(), leaf.getUpdateIndex()
+                );
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Peel reference to write it to the table.
+     * @param walk Revision walk
+     * @param ref Reference which is not symbolic
+     * @return Peeled reference
+     * @throws IOException On error
+     */
+    private static Ref peeled(final RevWalk walk, final Ref ref) throws IOException {
+        final RevObject obj = walk.parseAny(ref.getObjectId());
+        final Ref res;
+        if (obj instanceof RevTag) {
+            res = new ObjectIdRef.PeeledTag(
+                Ref.Storage.PACKED, ref.getName(), ref.getObjectId(), walk.peel(obj).copy()
+            );
+        } else {
+            res = new ObjectIdRef.PeeledNonTag(
+                Ref.Storage.PACKED, ref.getName(), ref.getObjectId()
+            );
+        }
+        return res;
+    }
+
+    /**
+     * Replace leaf of symbolic reference chain.
+     * @param old Reference
+     * @param leaf New leaf
+     * @return Reference with new leaf
+     */
+    private static Ref recreate(final Ref old, final Ref leaf) {
+        final Ref res;
+        if (old.isSymbolic()) {
+            res = new SymbolicRef(
+                old.getName(), AstoReftableDatabase.recreate(old.getTarget(), leaf),
+                old.getUpdateIndex()
+            );
+        } else {
+            res = leaf;
+        }
+        return res;
+    }
+
+    /**
+     * Table name in git format: update index range and random suffix, so
+     * concurrent writers never write to the same key.
+     * @param min Min update index
+     * @param max Max update index
+     * @return Table name
+     */
+    private static String name(final long min, final long max) {
+        return String.format(
+            "0x%012x-0x%012x-%08x.ref", min, max, ThreadLocalRandom.current().nextInt()
+        );
+    }
+
+    /**
+     * Batch update writing new table.
+     * @since 1.0
+     */
+    private static final class Batch extends ReftableBatchRefUpdate {
+
+        /**
+         * Reference database.
+         */
+        private final AstoReftableDatabase refdb;
+
+        /**
+         * New batch update.
+         * @param refdb Reference database
+         */
+        Batch(final AstoReftableDatabase refdb) {
+            super(refdb, refdb.tables, refdb.tables.getLock(), refdb.getRepository());
+            this.refdb = refdb;
+        }
+
+        @Override
+        protected void applyUpdates(final List<Ref> refs, final List<ReceiveCommand> pending)
+            throws IOException {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final ReftableWriter writer = new ReftableWriter(this.refdb.config(), out);
+            this.write(writer, refs, pending);
+            writer.finish();
+            if (!this.refdb.add(out.toByteArray(), writer.getStats())) {
+                for (final ReceiveCommand cmd : pending) {
+                    if (cmd.getResult() == ReceiveCommand.Result.NOT_ATTEMPTED) {
+                        cmd.setResult(ReceiveCommand.Result.LOCK_FAILURE);
+                    }
+                }
+            }
+        }
+    }
+}
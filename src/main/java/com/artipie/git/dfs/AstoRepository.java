@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.ext.PublisherAs;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase;
+import org.eclipse.jgit.internal.storage.dfs.DfsRefDatabase;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepository;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryBuilder;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.RefDatabase;
+
+/**
+ * JGit repository backed by storage.
+ * <p>
+ * Reads and writes packs, references and config directly from storage
+ * keys of bare git repository layout, without copying the repository
+ * to local file system. Only packed objects are supported: loose objects
+ * in storage are not visible for this repository. References are read from
+ * reftable stack if repository config enables reftable storage, see
+ * {@link #convertToReftable()}.
+ * </p>
+ * @since 1.0
+ */
+public final class AstoRepository extends DfsRepository {
+
+    /**
+     * Pattern of loose object key.
+     */
+    private static final Pattern LOOSE = Pattern.compile("^objects/[0-9a-f]{2}/[0-9a-f]{38}$");
+
+    /**
+     * Object database.
+     */
+    private final AstoObjDatabase objects;
+
+    /**
+     * Repository storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Reference database, replaced on conversion to reftable.
+     */
+    private DfsRefDatabase refs;
+
+    /**
+     * New repository.
+     * @param storage Repository storage
+     * @param name Unique repository name, it's used to identify repository data in caches
+     * @throws IOException If failed to read repository config
+     */
+    public AstoRepository(final Storage storage, final String name) throws IOException {
+        this(new Builder(storage).setRepositoryDescription(new DfsRepositoryDescription(name)));
+    }
+
+    /**
+     * Primary constructor.
+     * @param builder Repository builder
+     * @throws IOException If failed to read repository config
+     */
+    private AstoRepository(final Builder builder) throws IOException {
+        super(builder);
+        this.storage = builder.storage;
+        this.objects = new AstoObjDatabase(this, builder.storage);
+        final Key config = new Key.From(Constants.CONFIG);
+        if (builder.storage.exists(config).join()) {
+            try {
+                this.getConfig().fromText(
+                    builder.storage.value(config)
+                        .thenCompose(content -> new PublisherAs(content).asciiString())
+                        .toCompletableFuture().join()
+                );
+            } catch (final ConfigInvalidException err) {
+                throw new IOException("Invalid repository config", err);
+            }
+        }
+        if (this.getConfig().getLong(
+            ConfigConstants.CONFIG_CORE_SECTION, ConfigConstants.CONFIG_KEY_REPO_FORMAT_VERSION, 0
+        ) >= 1 && ConfigConstants.CONFIG_REF_STORAGE_REFTABLE.equalsIgnoreCase(
+            this.getConfig().getString(
+                ConfigConstants.CONFIG_EXTENSIONS_SECTION, null,
+                ConfigConstants.CONFIG_KEY_REF_STORAGE
+            )
+        )) {
+            this.refs = new AstoReftableDatabase(this, builder.storage);
+        } else {
+            this.refs = new AstoRefDatabase(this, builder.storage);
+        }
+    }
+
+    @Override
+    public DfsObjDatabase getObjectDatabase() {
+        return this.objects;
+    }
+
+    @Override
+    public RefDatabase getRefDatabase() {
+        return this.refs;
+    }
+
+    /**
+     * Convert loose and packed references to reftable stack, see
+     * {@link AstoReftableDatabase}. References are written to the first table,
+     * then repository format is updated in config and old references are removed.
+     * {@code HEAD} key is replaced with invalid symbolic reference, as git does,
+     * so old clients detect the repository, but don't read stale references.
+     * It's not safe to update references concurrently with conversion.
+     * @throws IOException On error
+     */
+    public void convertToReftable() throws IOException {
+        if (!(this.refs instanceof AstoReftableDatabase)) {
+            final AstoReftableDatabase tables = new AstoReftableDatabase(this, this.storage);
+            tables.convert(this.refs.getRefs());
+            this.getConfig().setLong(
+                ConfigConstants.CONFIG_CORE_SECTION, null,
+                ConfigConstants.CONFIG_KEY_REPO_FORMAT_VERSION, 1
+            );
+            this.getConfig().setString(
+                ConfigConstants.CONFIG_EXTENSIONS_SECTION, null,
+                ConfigConstants.CONFIG_KEY_REF_STORAGE,
+                ConfigConstants.CONFIG_REF_STORAGE_REFTABLE
+            );
+            this.storage.save(
+                new Key.From(Constants.CONFIG),
+                new Content.From(
+                    this.getConfig().toText().getBytes(StandardCharsets.UTF_8)
+                )
+            ).join();
+            final List<CompletableFuture<Void>> removed = new ArrayList<>(0);
+            for (final Key key : this.storage.list(new Key.From(Constants.R_REFS)).join()) {
+                removed.add(this.storage.delete(key));
+            }
+            final Key packed = new Key.From(Constants.PACKED_REFS);
+            if (this.storage.exists(packed).join()) {
+                removed.add(this.storage.delete(packed));
+            }
+            CompletableFuture.allOf(removed.toArray(new CompletableFuture<?>[0])).join();
+            this.storage.save(
+                new Key.From(Constants.HEAD),
+                new Content.From(
+                    "ref: refs/heads/.invalid\n".getBytes(StandardCharsets.US_ASCII)
+                )
+            ).join();
+            this.refs.close();
+            this.refs = tables;
+        }
+    }
+
+    /**
+     * Find loose object in repository storage, such objects are not visible
+     * for this repository, so the storage must be repacked before it's written.
+     * @param storage Repository storage
+     * @return Future with key of any loose object, empty if all objects are packed
+     */
+    public static CompletableFuture<Optional<Key>> loose(final Storage storage) {
+        return storage.list(new Key.From("objects")).thenApply(
+            keys -> keys.stream()
+                .filter(key -> AstoRepository.LOOSE.matcher(key.string()).matches())
+                .findAny()
+        );
+    }
+
+    /**
+     * Repository builder.
+     * @since 1.0
+     */
+    private static final class Builder extends DfsRepositoryBuilder<Builder, AstoRepository> {
+
+        /**
+         * Repository storage.
+         */
+        private final Storage storage;
+
+        /**
+         * New builder.
+         * @param storage Repository storage
+         */
+        Builder(final Storage storage) {
+            super();
+            this.storage = storage;
+        }
+
+        @Override
+        public AstoRepository build() throws IOException {
+            return new AstoRepository(this);
+        }
+    }
+}
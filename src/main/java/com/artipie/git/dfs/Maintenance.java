@@ -0,0 +1,492 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.ArtipieIOException;
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.ext.PublisherAs;
+import com.artipie.git.BlockingExecutor;
+import com.artipie.git.metrics.GitMetrics;
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.jgit.internal.storage.dfs.DfsGarbageCollector;
+import org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase.PackSource;
+import org.eclipse.jgit.internal.storage.dfs.DfsPackCompactor;
+import org.eclipse.jgit.internal.storage.dfs.DfsPackDescription;
+import org.eclipse.jgit.internal.storage.dfs.DfsPackFile;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+
+/**
+ * Background maintenance of repository in storage.
+ * <p>
+ * Pushes add a pack each, so fetch performance decays when packs accumulate.
+ * Every run of maintenance performs:
+ * </p>
+ * <ul>
+ *   <li>incremental repack: small packs without bitmap index are compacted
+ *   into one pack when their count reaches the limit;</li>
+ *   <li>full repack of reachable objects into pack with reachability bitmap
+ *   index when the number of pushes since last full repack reaches the limit,
+ *   when the interval since last full repack has elapsed, or when repository
+ *   has no bitmap index at all;</li>
+ *   <li>reftable compaction: if references are stored in reftable stack, see
+ *   {@link AstoReftableDatabase}, all tables are compacted into one with full
+ *   repack;</li>
+ *   <li>pruning: retired packs are removed after grace period, pack files
+ *   without index left by failed pushes are removed when they stay without
+ *   index for grace period, malformed markers of retired and unreachable
+ *   objects packs are reset to current time, and reftables replaced by compaction are removed
+ *   when they stay out of the stack for grace period.</li>
+ * </ul>
+ * <p>
+ * New packs become visible when their index is saved and replaced packs are
+ * retired instead of removal, see {@link AstoObjDatabase}, so readers are never
+ * blocked and can finish reading retired packs during grace period. Pushes are
+ * counted as packs which were not seen by previous run, so pushes through all
+ * servers sharing the storage are counted. Maintenance of a repository should be
+ * scheduled, see {@link #schedule(ScheduledExecutorService, Duration)}, or
+ * triggered after pushes, see {@link #trigger()}, by one server only. Full repack
+ * is skipped while repository has loose objects, because DFS garbage collector
+ * reads packs only and would drop them. Runs are performed by the executor, so one
+ * executor with limited threads for all repositories caps the concurrency of
+ * maintenance. JGit doesn't write commit-graph and multi-pack-index files,
+ * bitmap index of the full repack serves reachability queries instead.
+ * Operations are reported as {@code maintenance.compact}, {@code maintenance.gc}
+ * and {@code maintenance.prune} latency.
+ * </p>
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ * @checkstyle ClassFanOutComplexityCheck (500 lines)
+ */
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+public final class Maintenance {
+
+    /**
+     * Shared executor which runs one maintenance at a time.
+     */
+    public static final Executor SHARED = new BlockingExecutor(1, 1024);
+
+    /**
+     * Max size of pack for incremental repack.
+     */
+    private static final long SMALL = 16L * 1024 * 1024;
+
+    /**
+     * Repository storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Count of small packs which triggers incremental repack.
+     */
+    private final int packs;
+
+    /**
+     * Count of pushes which triggers full repack.
+     */
+    private final int pushes;
+
+    /**
+     * Max interval between full repacks.
+     */
+    private final Duration interval;
+
+    /**
+     * Grace period of retired and incomplete packs.
+     */
+    private final Duration grace;
+
+    /**
+     * Executor of maintenance.
+     */
+    private final Executor exec;
+
+    /**
+     * Metrics.
+     */
+    private final GitMetrics metrics;
+
+    /**
+     * Maintenance is running.
+     */
+    private final AtomicBoolean running;
+
+    /**
+     * Packs seen by previous run.
+     */
+    private final Set<String> known;
+
+    /**
+     * Times when packs without index were found first, by pack name.
+     */
+    private final Map<String, Long> incomplete;
+
+    /**
+     * Times when reftables not listed in the stack were found first, by key.
+     */
+    private final Map<String, Long> unlisted;
+
+    /**
+     * Pushes since last full repack.
+     */
+    private int received;
+
+    /**
+     * Time of last full repack in milliseconds.
+     */
+    private long repacked;
+
+    /**
+     * New maintenance with default triggers: 16 small packs, 32 pushes or a day
+     * since last full repack, retired packs are removed after an hour.
+     * @param storage Repository storage
+     */
+    public Maintenance(final Storage storage) {
+        this(storage, GitMetrics.NOP);
+    }
+
+    /**
+     * New maintenance with default triggers and shared executor.
+     * @param storage Repository storage
+     * @param metrics Metrics
+     */
+    public Maintenance(final Storage storage, final GitMetrics metrics) {
+        this(
+            storage, 16, 32, Duration.ofDays(1), Duration.ofHours(1),
+            Maintenance.SHARED, metrics
+        );
+    }
+
+    /**
+     * New maintenance.
+     * @param storage Repository storage
+     * @param packs Count of small packs which triggers incremental repack
+     * @param pushes Count of pushes which triggers full repack
+     * @param interval Max interval between full repacks
+     * @param grace Grace period of retired and incomplete packs
+     * @param exec Executor of maintenance
+     * @param metrics Metrics
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public Maintenance(final Storage storage, final int packs, final int pushes,
+        final Duration interval, final Duration grace, final Executor exec,
+        final GitMetrics metrics) {
+        this.storage = storage;
+        this.packs = packs;
+        this.pushes = pushes;
+        this.interval = interval;
+        this.grace = grace;
+        this.exec = exec;
+        this.metrics = metrics;
+        this.running = new AtomicBoolean();
+        this.known = new HashSet<>();
+        this.incomplete = new HashMap<>();
+        this.unlisted = new HashMap<>();
+        this.repacked = System.currentTimeMillis();
+    }
+
+    /**
+     * Run maintenance, it's skipped if previous run is not completed.
+     * @return Future completed when maintenance is done
+     */
+    public CompletableFuture<Void> run() {
+        CompletableFuture<Void> res = CompletableFuture.completedFuture(null);
+        if (this.running.compareAndSet(false, true)) {
+            try {
+                res = CompletableFuture.runAsync(this::maintain, this.exec);
+            } catch (final RejectedExecutionException err) {
+                res = new CompletableFuture<>();
+                res.completeExceptionally(err);
+            }
+            res = res.whenComplete((none, err) -> this.running.set(false));
+        }
+        return res;
+    }
+
+    /**
+     * Run maintenance periodically.
+     * @param scheduler Scheduler
+     * @param period Delay between runs
+     * @return Scheduled task
+     */
+    public ScheduledFuture<?> schedule(final ScheduledExecutorService scheduler,
+        final Duration period) {
+        return scheduler.scheduleWithFixedDelay(
+            this::trigger, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Run maintenance in background without waiting for it, failure is logged.
+     */
+    public void trigger() {
+        this.run().whenComplete(
+            (none, err) -> {
+                if (err != null) {
+                    Logger.warn(
+                        Maintenance.class, "Repository maintenance failed: %[exception]s", err
+                    );
+                }
+            }
+        );
+    }
+
+    /**
+     * Repack repository if triggered and prune retired packs.
+     */
+    private void maintain() {
+        final long now = System.currentTimeMillis();
+        try (AstoRepository repo = new AstoRepository(this.storage, UUID.randomUUID().toString())) {
+            final DfsPackFile[] current = repo.getObjectDatabase().getPacks();
+            final List<DfsPackFile> small = new ArrayList<>(current.length);
+            boolean bitmap = false;
+            for (final DfsPackFile pack : current) {
+                final DfsPackDescription desc = pack.getPackDescription();
+                if (!this.known.contains(desc.getFileName(PackExt.PACK))) {
+                    this.received += 1;
+                }
+                bitmap |= desc.hasFileExt(PackExt.BITMAP_INDEX);
+                if (desc.getPackSource() != PackSource.UNREACHABLE_GARBAGE
+                    && !desc.hasFileExt(PackExt.BITMAP_INDEX)
+                    && this.size(desc) < Maintenance.SMALL) {
+                    small.add(pack);
+                }
+            }
+            final boolean due = this.received >= this.pushes
+                || now - this.repacked >= this.interval.toMillis()
+                || !bitmap && current.length > 0;
+            if (due && !repo.getRefDatabase().getRefs().isEmpty() && this.packed()) {
+                this.collect(repo);
+                this.received = 0;
+                this.repacked = now;
+            } else if (small.size() >= Math.max(this.packs, 2)) {
+                this.compact(repo, current, small);
+            }
+            this.known.clear();
+            for (final DfsPackFile pack : repo.getObjectDatabase().getPacks()) {
+                this.known.add(pack.getPackDescription().getFileName(PackExt.PACK));
+            }
+        } catch (final IOException iex) {
+            throw new ArtipieIOException(iex);
+        }
+        final long start = System.nanoTime();
+        this.prune(System.currentTimeMillis());
+        this.metrics.latency("maintenance.prune", System.nanoTime() - start);
+    }
+
+    /**
+     * Repack all reachable objects and compact reftable.
+     * @param repo Repository
+     * @throws IOException On error
+     */
+    private void collect(final AstoRepository repo) throws IOException {
+        final long start = System.nanoTime();
+        new DfsGarbageCollector(repo).pack(NullProgressMonitor.INSTANCE);
+        if (repo.getRefDatabase() instanceof AstoReftableDatabase) {
+            ((AstoReftableDatabase) repo.getRefDatabase()).compact();
+        }
+        this.metrics.latency("maintenance.gc", System.nanoTime() - start);
+    }
+
+    /**
+     * Compact small packs into one.
+     * @param repo Repository
+     * @param current Current packs
+     * @param small Small packs to compact
+     * @throws IOException On error
+     */
+    private void compact(final AstoRepository repo, final DfsPackFile[] current,
+        final List<DfsPackFile> small) throws IOException {
+        final long start = System.nanoTime();
+        final DfsPackCompactor compactor = new DfsPackCompactor(repo);
+        for (final DfsPackFile pack : current) {
+            if (small.contains(pack)) {
+                compactor.add(pack);
+            } else {
+                compactor.exclude(pack);
+            }
+        }
+        compactor.compact(NullProgressMonitor.INSTANCE);
+        this.metrics.latency("maintenance.compact", System.nanoTime() - start);
+    }
+
+    /**
+     * Check that repository has no loose objects, so full repack doesn't lose them.
+     * @return True if all objects are packed, false with logged warning otherwise
+     */
+    private boolean packed() {
+        final Optional<Key> loose = AstoRepository.loose(this.storage).join();
+        loose.ifPresent(
+            key -> Logger.warn(
+                this, "Full repack is skipped, repository has loose object %s", key.string()
+            )
+        );
+        return !loose.isPresent();
+    }
+
+    /**
+     * Remove retired packs and packs without index after grace period.
+     * @param now Current time in milliseconds
+     */
+    private void prune(final long now) {
+        final Map<String, Set<String>> files = new HashMap<>();
+        for (final Key key : this.storage.list(AstoObjDatabase.PACKS).join()) {
+            final String file = key.string()
+                .substring(AstoObjDatabase.PACKS.string().length() + 1);
+            final int dot = file.lastIndexOf('.');
+            if (dot > 0 && file.indexOf('/') < 0) {
+                files.computeIfAbsent(file.substring(0, dot), name -> new HashSet<>())
+                    .add(file.substring(dot + 1));
+            }
+        }
+        this.incomplete.keySet().retainAll(files.keySet());
+        final List<CompletableFuture<Void>> removed = this.pruneTables(now);
+        for (final Map.Entry<String, Set<String>> entry : files.entrySet()) {
+            final String name = entry.getKey();
+            final Set<String> exts = entry.getValue();
+            if (exts.contains(AstoObjDatabase.RETIRED)) {
+                final Optional<Long> retired = this.stamp(name, AstoObjDatabase.RETIRED, now);
+                if (retired.isPresent() && now - retired.get() >= this.grace.toMillis()) {
+                    removed.add(this.remove(name, exts));
+                }
+            } else if (exts.contains(AstoObjDatabase.GARBAGE)) {
+                this.stamp(name, AstoObjDatabase.GARBAGE, now);
+            } else if (exts.contains(PackExt.INDEX.getExtension())) {
+                this.incomplete.remove(name);
+            } else if (now - this.incomplete.computeIfAbsent(name, key -> now)
+                >= this.grace.toMillis()) {
+                this.incomplete.remove(name);
+                removed.add(this.remove(name, exts));
+            }
+        }
+        CompletableFuture.allOf(removed.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Remove reftables which are not listed in the stack for grace period.
+     * @param now Current time in milliseconds
+     * @return Futures completed when tables are removed
+     */
+    private List<CompletableFuture<Void>> pruneTables(final long now) {
+        final Set<String> listed;
+        try {
+            listed = new HashSet<>(AstoReftableDatabase.names(this.storage));
+        } catch (final IOException iex) {
+            throw new ArtipieIOException(iex);
+        }
+        final Set<String> tables = new HashSet<>();
+        for (final Key key : this.storage.list(AstoReftableDatabase.DIR).join()) {
+            if (!key.equals(AstoReftableDatabase.LIST) && !listed.contains(key.string()
+                .substring(AstoReftableDatabase.DIR.string().length() + 1))) {
+                tables.add(key.string());
+            }
+        }
+        this.unlisted.keySet().retainAll(tables);
+        final List<CompletableFuture<Void>> removed = new ArrayList<>(0);
+        for (final String table : tables) {
+            if (now - this.unlisted.computeIfAbsent(table, key -> now)
+                >= this.grace.toMillis()) {
+                this.unlisted.remove(table);
+                removed.add(this.storage.delete(new Key.From(table)));
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Time of pack marker: retirement time of retired pack or creation time of
+     * unreachable objects pack. Malformed marker is rewritten with current
+     * time, so the pack is kept and waits for the next grace period or garbage
+     * expiration instead of failing the prune.
+     * @param name Pack name
+     * @param ext Marker extension
+     * @param now Current time in milliseconds
+     * @return Marker time in milliseconds, empty if marker was malformed
+     */
+    private Optional<Long> stamp(final String name, final String ext, final long now) {
+        final Key marker = Maintenance.key(name, ext);
+        final String value = this.storage.value(marker)
+            .thenCompose(content -> new PublisherAs(content).asciiString())
+            .toCompletableFuture().join().trim();
+        Optional<Long> res;
+        try {
+            res = Optional.of(Long.parseLong(value));
+        } catch (final NumberFormatException err) {
+            Logger.warn(
+                this, "Malformed pack marker %s is reset: '%s'", marker.string(), value
+            );
+            this.storage.save(
+                marker,
+                new Content.From(Long.toString(now).getBytes(StandardCharsets.US_ASCII))
+            ).join();
+            res = Optional.empty();
+        }
+        return res;
+    }
+
+    /**
+     * Remove pack files, retirement marker is removed last.
+     * @param name Pack name
+     * @param exts File extensions
+     * @return Future completed when files are removed
+     */
+    private CompletableFuture<Void> remove(final String name, final Collection<String> exts) {
+        final List<CompletableFuture<Void>> files = new ArrayList<>(exts.size());
+        for (final String ext : exts) {
+            if (!AstoObjDatabase.RETIRED.equals(ext)) {
+                files.add(this.storage.delete(Maintenance.key(name, ext)));
+            }
+        }
+        CompletableFuture<Void> res = CompletableFuture.allOf(
+            files.toArray(new CompletableFuture<?>[0])
+        );
+        if (exts.contains(AstoObjDatabase.RETIRED)) {
+            res = res.thenCompose(
+                none -> this.storage.delete(Maintenance.key(name, AstoObjDatabase.RETIRED))
+            );
+        }
+        return res;
+    }
+
+    /**
+     * Size of pack file.
+     * @param desc Pack description
+     * @return Size in bytes
+     */
+    private long size(final DfsPackDescription desc) {
+        return this.storage.size(AstoObjDatabase.key(desc, PackExt.PACK)).join();
+    }
+
+    /**
+     * Storage key of pack file.
+     * @param name Pack name
+     * @param ext File extension
+     * @return Storage key
+     */
+    private static Key key(final String name, final String ext) {
+        return new Key.From(AstoObjDatabase.PACKS, String.format("%s.%s", name, ext));
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.lock.storage.StorageLock;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Update lock of repository references in storage.
+ * <p>
+ * Compare-and-set of a reference is a read followed by a write, so updates
+ * must be exclusive for all writers of the repository. Exclusion is provided by
+ * asto {@link StorageLock} of {@code refs} key in repository storage: the lock
+ * is a proposal value in the storage itself, so it's shared by all storage
+ * instances with the same location, e.g. sub-storages which are created again
+ * after eviction from repository registry, and by all servers sharing the
+ * storage. Proposal expires after lock timeout, so the lock of crashed writer
+ * is released. Threads using the same storage instance are serialized by
+ * in-memory lock before taking the storage lock, so they don't poll the storage.
+ * Lock is reentrant for the holder thread.
+ * </p>
+ * @since 1.0
+ */
+final class RefsLock {
+
+    /**
+     * Lock target key.
+     */
+    private static final Key TARGET = new Key.From("refs");
+
+    /**
+     * Max time to wait for the lock and lifetime of lock proposal.
+     */
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    /**
+     * Max pause between attempts to take storage lock in milliseconds.
+     */
+    private static final long PAUSE = 200L;
+
+    /**
+     * In-memory locks by storage instance.
+     */
+    private static final Map<Storage, Holder> LOCKS =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Storage.
+     */
+    private final Storage storage;
+
+    /**
+     * In-memory lock of storage instance.
+     */
+    private final Holder local;
+
+    /**
+     * New lock, it shares in-memory lock with other locks of the same storage
+     * instance while it's used.
+     * @param storage Repository storage
+     */
+    RefsLock(final Storage storage) {
+        this.storage = storage;
+        this.local = RefsLock.LOCKS.computeIfAbsent(storage, key -> new Holder());
+    }
+
+    /**
+     * Perform action while holding the lock.
+     * @param action Action
+     * @param <T> Result type
+     * @return Action result
+     * @throws IOException If lock was not taken in time or action failed
+     */
+    <T> T locked(final Action<T> action) throws IOException {
+        this.lock();
+        try {
+            return action.run();
+        } finally {
+            this.unlock();
+        }
+    }
+
+    /**
+     * Take in-memory lock and storage lock if it's not held by current thread.
+     * @throws IOException If lock was not taken in time
+     */
+    private void lock() throws IOException {
+        final long deadline = System.nanoTime() + RefsLock.TIMEOUT.toNanos();
+        try {
+            if (!this.local.tryLock(RefsLock.TIMEOUT.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IOException("Timed out waiting for references lock");
+            }
+        } catch (final InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for references lock");
+        }
+        if (this.local.getHoldCount() == 1) {
+            try {
+                this.local.held = this.acquire(deadline);
+            } catch (final IOException err) {
+                this.local.unlock();
+                throw err;
+            }
+        }
+    }
+
+    /**
+     * Release storage lock if it's the last hold of current thread and
+     * in-memory lock.
+     * @throws IOException On storage error
+     */
+    private void unlock() throws IOException {
+        try {
+            if (this.local.getHoldCount() == 1) {
+                final StorageLock lock = this.local.held;
+                this.local.held = null;
+                lock.release().toCompletableFuture().join();
+            }
+        } catch (final CompletionException err) {
+            throw new IOException("Failed to release references lock", err);
+        } finally {
+            this.local.unlock();
+        }
+    }
+
+    /**
+     * Take storage lock, retrying with random pauses while it's held by
+     * another writer.
+     * @param deadline Deadline in {@link System#nanoTime()} units
+     * @return Taken lock
+     * @throws IOException If lock was not taken before deadline
+     */
+    private StorageLock acquire(final long deadline) throws IOException {
+        StorageLock res = null;
+        while (res == null) {
+            final StorageLock lock = new StorageLock(
+                this.storage, RefsLock.TARGET, Instant.now().plus(RefsLock.TIMEOUT)
+            );
+            try {
+                lock.acquire().toCompletableFuture().join();
+                res = lock;
+            } catch (final CompletionException err) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IOException("Timed out waiting for references lock", err);
+                }
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(1L, RefsLock.PAUSE));
+                } catch (final InterruptedException iex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(
+                        "Interrupted while waiting for references lock"
+                    );
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Locked action.
+     * @param <T> Result type
+     * @since 1.0
+     */
+    @FunctionalInterface
+    interface Action<T> {
+
+        /**
+         * Run action.
+         * @return Result
+         * @throws IOException On error
+         */
+        T run() throws IOException;
+    }
+
+    /**
+     * In-memory lock with storage lock of the holder.
+     * @since 1.0
+     */
+    @SuppressWarnings("serial")
+    private static final class Holder extends ReentrantLock {
+
+        /**
+         * Storage lock of the holder, guarded by this lock.
+         */
+        private transient StorageLock held;
+    }
+}
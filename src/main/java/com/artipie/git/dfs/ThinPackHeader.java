@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import org.eclipse.jgit.internal.storage.dfs.DfsPackDescription;
+import org.eclipse.jgit.lib.Constants;
+
+/**
+ * Object count of completed thin pack header.
+ * <p>
+ * JGit DFS pack parser doesn't rewrite pack header after appending base
+ * objects to received thin pack, so header object count is less than index
+ * object count. JGit DFS reader ignores it, but git and JGit file
+ * repositories reject such packs. This class writes actual object count to the
+ * pack header and updates pack checksum in pack and index trailers. Files are
+ * fixed in place in the spool directory before they are saved to the storage,
+ * see {@link AstoOutputStream}, so invalid packs are never visible.
+ * </p>
+ * @since 1.0
+ * @checkstyle MagicNumberCheck (200 lines)
+ */
+final class ThinPackHeader {
+
+    /**
+     * Pack header size: signature, version and object count.
+     */
+    private static final int HEADER = 12;
+
+    /**
+     * Object count offset in pack header.
+     */
+    private static final int COUNT = 8;
+
+    /**
+     * Digest buffer size.
+     */
+    private static final int BUFFER = 64 * 1024;
+
+    /**
+     * Pack description.
+     */
+    private final DfsPackDescription desc;
+
+    /**
+     * New thin pack header.
+     * @param desc Pack description with object count
+     */
+    ThinPackHeader(final DfsPackDescription desc) {
+        this.desc = desc;
+    }
+
+    /**
+     * Fix pack header if object count doesn't match pack index.
+     * @param pack Pack file
+     * @param idx Index file
+     * @throws IOException On error
+     */
+    void fix(final Path pack, final Path idx) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(ThinPackHeader.HEADER);
+        try (FileChannel chan = FileChannel.open(pack, StandardOpenOption.READ)) {
+            int read;
+            do {
+                read = chan.read(header);
+            } while (read > 0 && header.hasRemaining());
+        }
+        if (this.desc.getObjectCount() > 0 && !header.hasRemaining()
+            && header.getInt(ThinPackHeader.COUNT) != this.desc.getObjectCount()) {
+            ThinPackHeader.checksum(idx, this.count(pack));
+        }
+    }
+
+    /**
+     * Write object count to pack header and update pack trailer.
+     * @param file Pack file
+     * @return New pack checksum
+     * @throws IOException On error
+     */
+    private byte[] count(final Path file) throws IOException {
+        try (FileChannel chan = FileChannel.open(
+            file, StandardOpenOption.READ, StandardOpenOption.WRITE
+        )) {
+            final ByteBuffer count = ByteBuffer.allocate(4);
+            count.putInt(0, (int) this.desc.getObjectCount());
+            ThinPackHeader.write(chan, count, ThinPackHeader.COUNT);
+            final long end = chan.size() - Constants.OBJECT_ID_LENGTH;
+            final byte[] sum = ThinPackHeader.digest(chan, end);
+            ThinPackHeader.write(chan, ByteBuffer.wrap(sum), end);
+            return sum;
+        }
+    }
+
+    /**
+     * Write pack checksum to index trailer and update index checksum.
+     * @param file Index file
+     * @param pack Pack checksum
+     * @throws IOException On error
+     */
+    private static void checksum(final Path file, final byte[] pack) throws IOException {
+        try (FileChannel chan = FileChannel.open(
+            file, StandardOpenOption.READ, StandardOpenOption.WRITE
+        )) {
+            final long end = chan.size() - Constants.OBJECT_ID_LENGTH;
+            ThinPackHeader.write(chan, ByteBuffer.wrap(pack), end - Constants.OBJECT_ID_LENGTH);
+            ThinPackHeader.write(chan, ByteBuffer.wrap(ThinPackHeader.digest(chan, end)), end);
+        }
+    }
+
+    /**
+     * SHA-1 of file head.
+     * @param chan File channel
+     * @param len Head length
+     * @return Digest
+     * @throws IOException On read error
+     */
+    private static byte[] digest(final FileChannel chan, final long len) throws IOException {
+        final MessageDigest digest = Constants.newMessageDigest();
+        final ByteBuffer buf = ByteBuffer.allocate(ThinPackHeader.BUFFER);
+        long pos = 0;
+        while (pos < len) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), len - pos));
+            final int read = chan.read(buf, pos);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            buf.flip();
+            digest.update(buf);
+            pos += read;
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Write buffer at position.
+     * @param chan File channel
+     * @param buf Buffer
+     * @param pos Position
+     * @throws IOException On write error
+     */
+    private static void write(final FileChannel chan, final ByteBuffer buf, final long pos)
+        throws IOException {
+        long off = pos;
+        while (buf.hasRemaining()) {
+            off += chan.write(buf, off);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Admission control of pack generation requests.
+ * <p>
+ * At most {@code limit} requests are processed concurrently, up to {@code queue}
+ * requests wait for their turn, other requests are rejected immediately with
+ * {@code 503} status and {@code Retry-After} header. Optional memory budget
+ * caps JGit pack writer memory of each admitted request.
+ * </p>
+ * @since 1.0
+ */
+public final class Admission {
+
+    /**
+     * No admission limits.
+     */
+    public static final Admission UNLIMITED = new Admission(
+        Integer.MAX_VALUE, 0, Duration.ZERO
+    );
+
+    /**
+     * Max initial capacity of waiting requests queue.
+     */
+    private static final int CAPACITY = 64;
+
+    /**
+     * Max concurrently processed requests.
+     */
+    private final int limit;
+
+    /**
+     * Max waiting requests.
+     */
+    private final int queue;
+
+    /**
+     * Delay for rejected clients to retry after.
+     */
+    private final Duration retry;
+
+    /**
+     * Memory budget of request in bytes, zero if not limited.
+     */
+    private final long memory;
+
+    /**
+     * Waiting requests, guarded by lock.
+     */
+    private final Queue<CompletableFuture<Boolean>> waiting;
+
+    /**
+     * Count of processed requests, guarded by lock.
+     */
+    private int running;
+
+    /**
+     * Lock of waiting and processed requests.
+     */
+    private final Object lock;
+
+    /**
+     * New admission control without memory budget.
+     * @param limit Max concurrently processed requests
+     * @param queue Max waiting requests
+     * @param retry Delay for rejected clients to retry after
+     */
+    public Admission(final int limit, final int queue, final Duration retry) {
+        this(limit, queue, retry, 0L);
+    }
+
+    /**
+     * New admission control.
+     * @param limit Max concurrently processed requests
+     * @param queue Max waiting requests
+     * @param retry Delay for rejected clients to retry after
+     * @param memory Memory budget of request in bytes, zero if not limited
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public Admission(final int limit, final int queue, final Duration retry,
+        final long memory) {
+        this.limit = limit;
+        this.queue = queue;
+        this.retry = retry;
+        this.memory = memory;
+        this.waiting = new ArrayDeque<>(Math.min(queue, Admission.CAPACITY));
+        this.lock = new Object();
+    }
+
+    /**
+     * Admit request.
+     * @return Future completed with true when request is admitted, or with false
+     *  if request is rejected, every admitted request must be released
+     */
+    CompletableFuture<Boolean> acquire() {
+        synchronized (this.lock) {
+            final CompletableFuture<Boolean> res;
+            if (this.running < this.limit) {
+                this.running += 1;
+                res = CompletableFuture.completedFuture(true);
+            } else if (this.waiting.size() < this.queue) {
+                res = new CompletableFuture<>();
+                this.waiting.add(res);
+            } else {
+                res = CompletableFuture.completedFuture(false);
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Release admitted request, next waiting request is admitted.
+     */
+    void release() {
+        final CompletableFuture<Boolean> next;
+        synchronized (this.lock) {
+            next = this.waiting.poll();
+            if (next == null) {
+                this.running -= 1;
+            }
+        }
+        if (next != null) {
+            next.complete(true);
+        }
+    }
+
+    /**
+     * Value of {@code Retry-After} header.
+     * @return Delay in seconds
+     */
+    String retryAfter() {
+        return String.valueOf(this.retry.getSeconds());
+    }
+
+    /**
+     * Memory budget of request.
+     * @return Bytes, zero if not limited
+     */
+    long memory() {
+        return this.memory;
+    }
+}
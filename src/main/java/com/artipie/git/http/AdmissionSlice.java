@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.git.metrics.GitMetrics;
+import com.artipie.http.Response;
+import com.artipie.http.Slice;
+import com.artipie.http.async.AsyncResponse;
+import com.artipie.http.headers.Header;
+import com.artipie.http.rs.RsStatus;
+import com.artipie.http.rs.RsWithHeaders;
+import com.artipie.http.rs.RsWithStatus;
+import java.nio.ByteBuffer;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.reactivestreams.Publisher;
+
+/**
+ * Slice which admits requests by {@link Admission}.
+ * <p>
+ * Admitted request holds its slot until response is sent, rejected request gets
+ * {@code 503 Service Unavailable} with {@code Retry-After} header. Requests which
+ * wait for admission are reported as {@code admission} in-flight count and
+ * waiting time as its latency.
+ * </p>
+ * @since 1.0
+ */
+final class AdmissionSlice implements Slice {
+
+    /**
+     * Metrics operation name.
+     */
+    private static final String OPERATION = "admission";
+
+    /**
+     * Origin slice.
+     */
+    private final Slice origin;
+
+    /**
+     * Admission control.
+     */
+    private final Admission admission;
+
+    /**
+     * Metrics.
+     */
+    private final GitMetrics metrics;
+
+    /**
+     * New admission slice.
+     * @param origin Origin slice
+     * @param admission Admission control
+     * @param metrics Metrics
+     */
+    AdmissionSlice(final Slice origin, final Admission admission, final GitMetrics metrics) {
+        this.origin = origin;
+        this.admission = admission;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response response(final String line, final Iterable<Entry<String, String>> headers,
+        final Publisher<ByteBuffer> body) {
+        final long start = System.nanoTime();
+        final CompletableFuture<Boolean> admitted = this.admission.acquire();
+        final boolean waits = !admitted.isDone();
+        if (waits) {
+            this.metrics.inflight(AdmissionSlice.OPERATION, 1);
+        }
+        return new AsyncResponse(
+            admitted.thenApply(
+                granted -> {
+                    if (waits) {
+                        this.metrics.inflight(AdmissionSlice.OPERATION, -1);
+                        this.metrics.latency(
+                            AdmissionSlice.OPERATION, System.nanoTime() - start
+                        );
+                    }
+                    final Response res;
+                    if (granted) {
+                        res = this.admitted(line, headers, body);
+                    } else {
+                        res = new RsWithHeaders(
+                            new RsWithStatus(RsStatus.UNAVAILABLE),
+                            new Header("Retry-After", this.admission.retryAfter())
+                        );
+                    }
+                    return res;
+                }
+            )
+        );
+    }
+
+    /**
+     * Response of admitted request, which releases admission when it's sent.
+     * @param line Request line
+     * @param headers Request headers
+     * @param body Request body
+     * @return Response
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private Response admitted(final String line, final Iterable<Entry<String, String>> headers,
+        final Publisher<ByteBuffer> body) {
+        final AtomicBoolean released = new AtomicBoolean();
+        final Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                this.admission.release();
+            }
+        };
+        final Response response;
+        try {
+            response = this.origin.response(line, headers, body);
+        } catch (final RuntimeException err) {
+            release.run();
+            throw err;
+        }
+        return connection -> response.send(connection).whenComplete(
+            (none, err) -> release.run()
+        );
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.ArtipieIOException;
+import com.artipie.asto.Key;
+import com.artipie.git.sdk.Bundles;
+import com.artipie.git.sdk.PktLineEncoder;
+import com.artipie.http.Response;
+import com.artipie.http.Slice;
+import com.artipie.http.async.AsyncResponse;
+import com.artipie.http.headers.ContentType;
+import com.artipie.http.rs.RsWithBody;
+import com.artipie.http.rs.RsWithHeaders;
+import com.artipie.http.rs.StandardRs;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map.Entry;
+import org.reactivestreams.Publisher;
+
+/**
+ * Slice to handle protocol v2 {@code bundle-uri} command.
+ * <p>
+ * Responds with the list of published {@link Bundles}, bundles are downloaded
+ * from the same server by {@code GET} request of {@code bundles/*} path of the
+ * repository. Bundle URIs are relative, git resolves them against remote URL
+ * of the repository, so the list doesn't depend on request headers which may be
+ * rewritten or forged by proxies.
+ * </p>
+ * @since 1.0
+ */
+final class BundleUriSlice implements Slice {
+
+    /**
+     * Bundles.
+     */
+    private final Bundles bundles;
+
+    /**
+     * New slice.
+     * @param bundles Bundles
+     */
+    BundleUriSlice(final Bundles bundles) {
+        this.bundles = bundles;
+    }
+
+    @Override
+    public Response response(final String line, final Iterable<Entry<String, String>> headers,
+        final Publisher<ByteBuffer> body) {
+        return new AsyncResponse(
+            this.bundles.list().thenApply(
+                keys -> new RsWithBody(
+                    new RsWithHeaders(
+                        StandardRs.OK,
+                        new ContentType("application/x-git-upload-pack-result")
+                    ),
+                    BundleUriSlice.list(keys)
+                )
+            )
+        );
+    }
+
+    /**
+     * Encode bundle list.
+     * @param keys Bundle keys
+     * @return Response body
+     */
+    private static byte[] list(final List<Key> keys) {
+        final ByteArrayOutputStream res = new ByteArrayOutputStream();
+        try {
+            final PktLineEncoder enc = new PktLineEncoder(res, 256);
+            enc.writeLine("bundle.version=1").writeLine("bundle.mode=all");
+            for (final Key key : keys) {
+                final String name = key.string().substring(key.string().lastIndexOf('/') + 1);
+                enc.writeLine(
+                    String.format(
+                        "bundle.%s.uri=%s",
+                        name.substring(0, name.lastIndexOf('.')), key.string()
+                    )
+                );
+            }
+            enc.writeFlush().flush();
+        } catch (final IOException iex) {
+            throw new ArtipieIOException(iex);
+        }
+        return res.toByteArray();
+    }
+}
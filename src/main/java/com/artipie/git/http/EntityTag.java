@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.http.headers.Header;
+
+/**
+ * Strong entity tag of response.
+ * @since 1.0
+ */
+final class EntityTag {
+
+    /**
+     * Weak tag prefix.
+     */
+    private static final String WEAK = "W/";
+
+    /**
+     * Quoted tag value.
+     */
+    private final String value;
+
+    /**
+     * New entity tag.
+     * @param hex Hex string of response digest
+     */
+    EntityTag(final String hex) {
+        this.value = String.format("\"%s\"", hex);
+    }
+
+    /**
+     * Check if tag matches {@code If-None-Match} headers.
+     * <p>
+     * Tags are compared with weak comparison as required for {@code If-None-Match}
+     * by RFC 7232 section 3.2: {@code W/} prefix of weak tags is ignored,
+     * e.g. proxies may weaken the tag of compressed response.
+     * </p>
+     * @param headers Values of {@code If-None-Match} headers
+     * @return True if any of tags in headers matches or headers contain {@code *}
+     */
+    boolean matches(final Iterable<String> headers) {
+        boolean res = false;
+        for (final String header : headers) {
+            for (final String tag : header.split(",")) {
+                String trimmed = tag.trim();
+                if (trimmed.startsWith(EntityTag.WEAK)) {
+                    trimmed = trimmed.substring(EntityTag.WEAK.length());
+                }
+                res |= "*".equals(trimmed) || this.value.equals(trimmed);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Response header with the tag.
+     * @return ETag header
+     */
+    Header header() {
+        return new Header("ETag", this.value);
+    }
+
+    @Override
+    public String toString() {
+        return this.value;
+    }
+}
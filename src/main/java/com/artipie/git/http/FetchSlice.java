@@ -0,0 +1,186 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Remaining;
+import com.artipie.asto.Storage;
+import com.artipie.git.sdk.Git;
+import com.artipie.git.sdk.GitSettings;
+import com.artipie.http.Response;
+import com.artipie.http.Slice;
+import com.artipie.http.async.AsyncResponse;
+import com.artipie.http.headers.ContentType;
+import com.artipie.http.rs.RsStatus;
+import com.artipie.http.rs.RsWithBody;
+import com.artipie.http.rs.RsWithHeaders;
+import com.artipie.http.rs.RsWithStatus;
+import com.artipie.http.rs.StandardRs;
+import io.reactivex.Flowable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.jgit.errors.PackProtocolException;
+import org.reactivestreams.Publisher;
+
+/**
+ * Slice to handle protocol v2 {@code fetch} command.
+ * <p>
+ * Request body with client wants and haves is read asynchronously and checked
+ * before the response is started, so executor threads don't wait for the client
+ * and invalid requests are answered with {@code 400}. Body is buffered up to the
+ * limit, larger requests are cancelled and answered with {@code 413}. Request is
+ * parsed once: checked request is passed to the fetch. The pack is streamed to the
+ * response body with side-band framing as it's generated, errors after response
+ * status are reported to the client with {@code ERR} packet.
+ * </p>
+ *
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ * @checkstyle ClassFanOutComplexityCheck (500 lines)
+ */
+final class FetchSlice implements Slice {
+
+    /**
+     * Default max size of request body, enough for negotiation with about
+     * a hundred thousand haves.
+     */
+    private static final long LIMIT = 8L * 1024 * 1024;
+
+    /**
+     * Repository storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Settings of git operations.
+     */
+    private final GitSettings settings;
+
+    /**
+     * Max size of request body in bytes.
+     */
+    private final long limit;
+
+    /**
+     * New slice.
+     *
+     * @param storage Repo storage
+     * @param settings Settings of git operations
+     */
+    FetchSlice(final Storage storage, final GitSettings settings) {
+        this(storage, settings, FetchSlice.LIMIT);
+    }
+
+    /**
+     * New slice.
+     *
+     * @param storage Repo storage
+     * @param settings Settings of git operations
+     * @param limit Max size of request body in bytes
+     */
+    FetchSlice(final Storage storage, final GitSettings settings, final long limit) {
+        this.storage = storage;
+        this.settings = settings;
+        this.limit = limit;
+    }
+
+    @Override
+    public Response response(final String line, final Iterable<Entry<String, String>> headers,
+        final Publisher<ByteBuffer> body) {
+        final Git git = new Git(this.storage, this.settings);
+        return new AsyncResponse(
+            this.read(body).thenCompose(
+                bytes -> bytes.<CompletionStage<Response>>map(
+                    req -> FetchSlice.fetch(git, req)
+                ).orElseGet(
+                    () -> CompletableFuture.completedFuture(
+                        new RsWithStatus(RsStatus.PAYLOAD_TOO_LARGE)
+                    )
+                )
+            )
+        );
+    }
+
+    /**
+     * Check request and start fetch response.
+     * @param git Git SDK
+     * @param req Buffered request
+     * @return Future with response
+     */
+    private static CompletionStage<Response> fetch(final Git git, final byte[] req) {
+        return git.checkFetch(new ByteArrayInputStream(req)).handle(
+            (checked, err) -> {
+                final Response res;
+                if (err == null) {
+                    res = new RsWithBody(
+                        new RsWithHeaders(
+                            StandardRs.OK,
+                            new ContentType("application/x-git-upload-pack-result")
+                        ),
+                        new Content.From(
+                            new OutputStreamPublisher(out -> git.fetch(checked, out))
+                        )
+                    );
+                } else {
+                    res = FetchSlice.invalid(err)
+                        .<Response>map(
+                            inv -> new RsWithBody(
+                                new RsWithStatus(RsStatus.BAD_REQUEST),
+                                inv.getMessage(), StandardCharsets.UTF_8
+                            )
+                        ).orElseGet(() -> new RsWithStatus(RsStatus.INTERNAL_ERROR));
+                }
+                return res;
+            }
+        );
+    }
+
+    /**
+     * Read request body up to the limit, origin body is cancelled as soon as
+     * the limit is exceeded.
+     * @param body Request body
+     * @return Future with body bytes, empty if body exceeds the limit
+     */
+    private CompletionStage<Optional<byte[]>> read(final Publisher<ByteBuffer> body) {
+        final AtomicLong size = new AtomicLong();
+        final CompletableFuture<Optional<byte[]>> res = new CompletableFuture<>();
+        Flowable.fromPublisher(body)
+            .map(chunk -> new Remaining(chunk).bytes())
+            .takeUntil(chunk -> size.addAndGet(chunk.length) > this.limit)
+            .reduce(
+                new ByteArrayOutputStream(),
+                (out, chunk) -> {
+                    out.write(chunk, 0, chunk.length);
+                    return out;
+                }
+            )
+            .map(out -> Optional.of(out.toByteArray()).filter(bytes -> size.get() <= this.limit))
+            .subscribe(res::complete, res::completeExceptionally);
+        return res;
+    }
+
+    /**
+     * Protocol error of invalid request in error causes.
+     * @param err Error
+     * @return Protocol error if request is invalid
+     */
+    private static Optional<PackProtocolException> invalid(final Throwable err) {
+        Optional<PackProtocolException> res = Optional.empty();
+        for (Throwable cause = err; cause != null && !res.isPresent();
+            cause = cause.getCause()) {
+            if (cause instanceof PackProtocolException) {
+                res = Optional.of((PackProtocolException) cause);
+            }
+        }
+        return res;
+    }
+}
@@ -6,77 +6,101 @@ package com.artipie.git.http;
 
 import com.artipie.asto.Storage;
 import com.artipie.asto.fs.FileStorage;
+import com.artipie.git.dfs.Maintenance;
+import com.artipie.git.sdk.Bundles;
 import com.artipie.http.Slice;
+import com.artipie.http.async.AsyncResponse;
 import com.artipie.http.rq.RequestLineFrom;
 import com.artipie.http.rq.RqParams;
+import com.artipie.http.rs.RsStatus;
+import com.artipie.http.rs.RsWithStatus;
 import com.artipie.http.rt.ByMethodsRule;
 import com.artipie.http.rt.RtRule;
 import com.artipie.http.rt.RtRulePath;
 import com.artipie.http.rt.SliceRoute;
 import com.artipie.http.slice.LoggingSlice;
+import com.artipie.http.slice.SliceDownload;
+import com.artipie.http.slice.SliceSimple;
 import com.artipie.vertx.VertxSliceServer;
 import com.jcabi.log.Logger;
 import io.vertx.reactivex.core.Vertx;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeSet;
 
 /**
  * Git main entry point.
  * <p>
- * Implements git smart-http protocol for git repository.
+ * Implements git smart-http protocol for git repository. The slice is
+ * read-only by default, push with {@code git-receive-pack} service is
+ * accepted only if it's enabled explicitly, see
+ * {@link SliceSettings#withPush(boolean)}. Accepted pushes trigger background
+ * maintenance of the repository unless it's disabled, see
+ * {@link SliceSettings#withMaintenance(boolean)}. Command {@code bundle-uri}
+ * is advertised only if bundle is published, see {@link Bundles}.
  * </p>
  *
  * @since 1.0
  * @checkstyle MethodBodyCommentsCheck (500 lines)
  * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ * @checkstyle ClassFanOutComplexityCheck (500 lines)
  */
 public final class GitSlice extends Slice.Wrap {
 
     /**
-     * New git slice.
+     * New git slice with default settings.
      * @param storage Repository storage
      */
-    @SuppressWarnings("PMD.UnusedFormalParameter")
     public GitSlice(final Storage storage) {
+        this(storage, new SliceSettings());
+    }
+
+    /**
+     * New git slice.
+     * @param storage Repository storage
+     * @param settings Settings of the slice
+     */
+    public GitSlice(final Storage storage, final SliceSettings settings) {
         super(
             new SliceRoute(
                 new RtRulePath(
-                    new RtRule.All(
+                    new RtRule.Any(
                         ReceivePackSlice.RT_RULE,
-                        ByMethodsRule.Standard.POST
+                        new RtRule.ByPath("/git-receive-pack")
                     ),
-                    new ReceivePackSlice()
+                    GitSlice.receivePack(storage, settings)
                 ),
                 new RtRulePath(
                     new RtRule.All(
-                        UploadPackSlice.RT_RULE,
+                        new RtRule.Any(
+                            UploadPackSlice.RT_RULE,
+                            new RtRule.ByPath("/git-upload-pack")
+                        ),
                         ByMethodsRule.Standard.POST
                     ),
-                    new UploadPackSlice(storage)
+                    new AdmissionSlice(
+                        new UploadPackSlice(storage, settings),
+                        settings.admission(), settings.git().metrics()
+                    )
                 ),
                 new RtRulePath(
                     new RtRule.All(
-                        ByMethodsRule.Standard.POST,
-                        new RtRule.ByPath("/git-upload-pack")
+                        new RtRule.ByPath("/info/refs"),
+                        ByMethodsRule.Standard.GET
                     ),
-                    new UploadPackSlice(storage)
+                    new MeasuredSlice(
+                        GitSlice.infoRefs(new Bundles(storage, settings.git().cache())),
+                        "info-refs", settings.git().metrics()
+                    )
                 ),
                 new RtRulePath(
                     new RtRule.All(
-                        new RtRule.ByPath("/info/refs"),
+                        new RtRule.ByPath("^/bundles/[^/]+\\.bundle$"),
                         ByMethodsRule.Standard.GET
                     ),
-                    new InfoRefsSlice(
-                        "git/artipie",
-                        new TreeSet<>(
-                            Arrays.asList(
-                                "ls-refs=unborn",
-                                "fetch=shallow wait-for-done filter"
-                            )
-                        )
-                    )
+                    new SliceDownload(storage)
                 )
             )
         );
@@ -102,6 +126,63 @@ public final class GitSlice extends Slice.Wrap {
         Logger.info(GitSlice.class, "Artipie git server started at http://localhost:%d", port);
     }
 
+    /**
+     * Slice of capability advertisement, {@code bundle-uri} command is advertised
+     * only when bundle of the repository is published.
+     * @param bundles Bundles of the repository
+     * @return Info refs slice
+     */
+    private static Slice infoRefs(final Bundles bundles) {
+        final Slice plain = new InfoRefsSlice("git/artipie", GitSlice.commands());
+        final Set<String> commands = GitSlice.commands();
+        commands.add("bundle-uri");
+        final Slice bundled = new InfoRefsSlice("git/artipie", commands);
+        return (line, headers, body) -> new AsyncResponse(
+            bundles.published().thenApply(
+                published -> {
+                    final Slice slice;
+                    if (published) {
+                        slice = bundled;
+                    } else {
+                        slice = plain;
+                    }
+                    return slice.response(line, headers, body);
+                }
+            )
+        );
+    }
+
+    /**
+     * Supported commands of upload-pack service.
+     * @return Commands with annotations
+     */
+    private static Set<String> commands() {
+        return new TreeSet<>(
+            Arrays.asList("ls-refs=unborn", "fetch=shallow wait-for-done filter")
+        );
+    }
+
+    /**
+     * Slice of receive-pack service.
+     * @param storage Repository storage
+     * @param settings Settings of the slice
+     * @return Receive-pack slice if push is enabled, not implemented slice otherwise
+     */
+    private static Slice receivePack(final Storage storage, final SliceSettings settings) {
+        final Slice res;
+        if (settings.push() && settings.maintenance()) {
+            res = new ReceivePackSlice(
+                storage, settings.git(),
+                new Maintenance(storage, settings.git().metrics())::trigger
+            );
+        } else if (settings.push()) {
+            res = new ReceivePackSlice(storage, settings.git(), () -> { });
+        } else {
+            res = new SliceSimple(new RsWithStatus(RsStatus.NOT_IMPLEMENTED));
+        }
+        return res;
+    }
+
     /**
      * Routing rule by service name.
      *
@@ -6,34 +6,62 @@ package com.artipie.git.http;
 
 import com.artipie.asto.ArtipieIOException;
 import com.artipie.asto.Content;
+import com.artipie.git.sdk.PktLineEncoder;
 import com.artipie.http.ArtipieHttpException;
 import com.artipie.http.Response;
 import com.artipie.http.Slice;
 import com.artipie.http.headers.ContentType;
+import com.artipie.http.headers.Header;
 import com.artipie.http.rq.RequestLineFrom;
+import com.artipie.http.rq.RqHeaders;
 import com.artipie.http.rq.RqParams;
 import com.artipie.http.rs.RsStatus;
 import com.artipie.http.rs.RsWithBody;
 import com.artipie.http.rs.RsWithHeaders;
+import com.artipie.http.rs.RsWithStatus;
 import com.artipie.http.rs.StandardRs;
+import io.reactivex.Flowable;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 import org.reactivestreams.Publisher;
 
 /**
  * Slice to handle {@code /info/refs} - it's used
  * to send metadata about git server, it shows supported commands
  * services, versions, etc.
+ * <p>
+ * Capability advertisement doesn't depend on repository state, so it's
+ * rendered once per supported service on construction and every response
+ * body is a new view of the same buffer. Advertisement of other services is
+ * rendered for each request. Responses have strong {@code ETag}
+ * and are revalidated with {@code If-None-Match}.
+ * </p>
  * @since 1.0
  * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
- * @checkstyle MethodBodyCommentsCheck (500 lines)
+ * @checkstyle ClassFanOutComplexityCheck (500 lines)
  */
 final class InfoRefsSlice implements Slice {
 
+    /**
+     * Upload pack service name.
+     */
+    private static final String UPLOAD_PACK = "git-upload-pack";
+
+    /**
+     * Advertisements by service name.
+     */
+    private final Map<String, Advertisement> ads;
+
     /**
      * Server agent name.
      */
@@ -45,13 +73,28 @@ final class InfoRefsSlice implements Slice {
     private final Set<String> commands;
 
     /**
-     * New slice.
+     * New slice for upload-pack service.
      * @param agent Server agent name
      * @param commands Supported commands with annotations
      */
     InfoRefsSlice(final String agent, final Set<String> commands) {
+        this(agent, commands, Collections.singleton(InfoRefsSlice.UPLOAD_PACK));
+    }
+
+    /**
+     * New slice.
+     * @param agent Server agent name
+     * @param commands Supported commands with annotations
+     * @param services Supported services
+     */
+    InfoRefsSlice(final String agent, final Set<String> commands,
+        final Collection<String> services) {
         this.agent = agent;
         this.commands = commands;
+        this.ads = new HashMap<>(services.size());
+        for (final String service : services) {
+            this.ads.put(service, new Advertisement(service, agent, commands));
+        }
     }
 
     @Override
@@ -64,30 +107,85 @@ final class InfoRefsSlice implements Slice {
                     "service query param required"
                 )
             );
-        // this response is very small: <1K - it doesn't consume a lot of memory
-        // and it could be constructed in byte-array right here
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
-        try (OutputStreamWriter osw = new OutputStreamWriter(baos)) {
-            final GitResponseOutput gwr = new GitResponseOutput(osw);
-            gwr.pushLine(String.format("# service=%s", service));
-            gwr.endPart();
-            gwr.pushLine("version 2");
-            gwr.pushLine(String.format("agent=%s", this.agent));
-            for (final String cmd : this.commands) {
-                gwr.pushLine(cmd);
+        Advertisement adv = this.ads.get(service);
+        if (adv == null) {
+            adv = new Advertisement(service, this.agent, this.commands);
+        }
+        return adv.response(new RqHeaders(headers, "If-None-Match"));
+    }
+
+    /**
+     * Rendered capability advertisement of a service.
+     * @since 1.0
+     */
+    private static final class Advertisement {
+
+        /**
+         * Advertisement body.
+         */
+        private final ByteBuffer data;
+
+        /**
+         * Entity tag of the body.
+         */
+        private final EntityTag etag;
+
+        /**
+         * Render advertisement.
+         * @param service Service name
+         * @param agent Server agent name
+         * @param commands Supported commands with annotations
+         */
+        Advertisement(final String service, final String agent, final Set<String> commands) {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+            try {
+                final PktLineEncoder enc = new PktLineEncoder(baos, 256);
+                enc.writeLine(String.format("# service=%s", service));
+                enc.writeFlush();
+                enc.writeLine("version 2");
+                enc.writeLine(String.format("agent=%s", agent));
+                for (final String cmd : commands) {
+                    enc.writeLine(cmd);
+                }
+                enc.writeLine("server-option");
+                enc.writeLine("object-format=sha1");
+                enc.writeFlush();
+                enc.flush();
+            } catch (final IOException iex) {
+                throw new ArtipieIOException(iex);
+            }
+            final byte[] bytes = baos.toByteArray();
+            this.data = ByteBuffer.wrap(bytes);
+            final MessageDigest digest = Constants.newMessageDigest();
+            digest.update(bytes);
+            this.etag = new EntityTag(ObjectId.fromRaw(digest.digest()).name());
+        }
+
+        /**
+         * Response for request.
+         * @param matches Entity tags of {@code If-None-Match} headers
+         * @return Full response or not modified if entity tag matches
+         */
+        Response response(final Iterable<String> matches) {
+            final Response res;
+            if (this.etag.matches(matches)) {
+                res = new RsWithHeaders(
+                    new RsWithStatus(RsStatus.NOT_MODIFIED), this.etag.header()
+                );
+            } else {
+                res = new RsWithBody(
+                    new RsWithHeaders(
+                        StandardRs.OK,
+                        new ContentType("application/x-git-upload-pack-advertisement"),
+                        this.etag.header(),
+                        new Header("Cache-Control", "no-cache")
+                    ),
+                    new Content.From(
+                        this.data.remaining(), Flowable.fromCallable(this.data::duplicate)
+                    )
+                );
             }
-            gwr.pushLine("server-option");
-            gwr.pushLine("object-format=sha1");
-            gwr.endPart();
-        } catch (final IOException iex) {
-            throw new ArtipieHttpException(RsStatus.INTERNAL_ERROR, new ArtipieIOException(iex));
+            return res;
         }
-        return new RsWithBody(
-            new RsWithHeaders(
-                StandardRs.OK,
-                new ContentType("application/x-git-upload-pack-advertisement")
-            ),
-            new Content.From(baos.toByteArray())
-        );
     }
 }
@@ -6,20 +6,43 @@ package com.artipie.git.http;
 
 import com.artipie.asto.Content;
 import com.artipie.asto.Storage;
+import com.artipie.asto.ext.PublisherAs;
 import com.artipie.git.sdk.Git;
+import com.artipie.git.sdk.GitRequest;
+import com.artipie.git.sdk.GitSettings;
+import com.artipie.git.sdk.PktLineDecoder;
+import com.artipie.git.sdk.RepositoryCache;
 import com.artipie.http.Response;
 import com.artipie.http.Slice;
 import com.artipie.http.async.AsyncResponse;
+import com.artipie.http.rq.RqHeaders;
+import com.artipie.http.rs.RsStatus;
 import com.artipie.http.rs.RsWithBody;
-import java.io.ByteArrayOutputStream;
+import com.artipie.http.rs.RsWithHeaders;
+import com.artipie.http.rs.RsWithStatus;
+import com.artipie.http.rs.StandardRs;
 import java.nio.ByteBuffer;
 import java.util.Map.Entry;
+import java.util.Optional;
 import org.reactivestreams.Publisher;
 
 /**
  * Slice to handle {@code ls-refs} command.
+ * <p>
+ * Request with command arguments is read before response, references
+ * matching the request are streamed to the response body as they are advertised.
+ * Responses have strong {@code ETag} of references state and request arguments,
+ * see {@link Git#refsTag(GitRequest)}, so polls without reference changes are
+ * answered with {@code 304 Not Modified} if client sends {@code If-None-Match}
+ * header, or with cached response body otherwise, without opening the repository.
+ * Responses are recorded to the cache if references were not invalidated
+ * while the response was streamed, the check reuses cached references fingerprint
+ * of {@link RepositoryCache#refsState(Storage)}. Cache hits are reported as
+ * {@code ls-refs-cache.hit} output bytes.
+ * </p>
  *
  * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
  */
 final class LsRefsSlice implements Slice {
 
@@ -28,22 +51,92 @@ final class LsRefsSlice implements Slice {
      */
     private final Storage storage;
 
+    /**
+     * Settings of git operations.
+     */
+    private final GitSettings settings;
+
+    /**
+     * Cache of responses.
+     */
+    private final ResponseCache responses;
+
     /**
      * New slice.
      *
      * @param storage Repo storage
+     * @param settings Settings of git operations
+     * @param responses Cache of responses
      */
-    LsRefsSlice(final Storage storage) {
+    LsRefsSlice(final Storage storage, final GitSettings settings,
+        final ResponseCache responses) {
         this.storage = storage;
+        this.settings = settings;
+        this.responses = responses;
     }
 
     @Override
     public Response response(final String line, final Iterable<Entry<String, String>> headers,
         final Publisher<ByteBuffer> body) {
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final Git git = new Git(this.storage, this.settings);
         return new AsyncResponse(
-            new Git(this.storage).lsRefs(baos)
-                .thenApply(none -> new RsWithBody(new Content.From(baos.toByteArray())))
+            new PublisherAs(new Content.From(body)).bytes().thenCompose(
+                bytes -> {
+                    final GitRequest req = GitRequest.parse(
+                        new PktLineDecoder().feed(ByteBuffer.wrap(bytes))
+                    );
+                    return git.refsTag(req).thenApply(
+                        tag -> this.response(git, req, tag, new RqHeaders(headers, "If-None-Match"))
+                    );
+                }
+            )
         );
     }
+
+    /**
+     * Response of ls-refs request.
+     * @param git Git
+     * @param req Request with command arguments
+     * @param tag Entity tag of response
+     * @param matches Entity tags of {@code If-None-Match} headers
+     * @return Not modified, cached or streamed response
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private Response response(final Git git, final GitRequest req, final String tag,
+        final Iterable<String> matches) {
+        final EntityTag etag = new EntityTag(tag);
+        final Optional<byte[]> cached = this.responses.get(tag);
+        final Response res;
+        if (etag.matches(matches)) {
+            res = new RsWithHeaders(new RsWithStatus(RsStatus.NOT_MODIFIED), etag.header());
+        } else if (cached.isPresent()) {
+            this.settings.metrics().bytesOut("ls-refs-cache.hit", cached.get().length);
+            res = new RsWithBody(
+                new RsWithHeaders(StandardRs.OK, etag.header()),
+                new Content.From(cached.get())
+            );
+        } else {
+            res = new RsWithBody(
+                new RsWithHeaders(StandardRs.OK, etag.header()),
+                new Content.From(
+                    new OutputStreamPublisher(
+                        out -> {
+                            final ResponseCache.Recorder rec = this.responses.recorder(out);
+                            return git.lsRefs(req, rec)
+                                .thenCompose(none -> git.refsTag(req))
+                                .thenAccept(
+                                    actual -> {
+                                        final Optional<byte[]> recorded = rec.body();
+                                        if (actual.equals(tag) && recorded.isPresent()) {
+                                            this.responses.put(tag, recorded.get());
+                                        }
+                                    }
+                                );
+                        }
+                    )
+                )
+            );
+        }
+        return res;
+    }
 }
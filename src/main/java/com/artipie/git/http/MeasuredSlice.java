@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.git.metrics.GitMetrics;
+import com.artipie.http.Response;
+import com.artipie.http.Slice;
+import io.reactivex.Flowable;
+import java.nio.ByteBuffer;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.reactivestreams.Publisher;
+
+/**
+ * Slice which reports request metrics.
+ * <p>
+ * Request is in progress from the call of the slice until its response is sent,
+ * so latency includes streaming of response body. Request and response body
+ * bytes are counted as they pass through.
+ * </p>
+ * @since 1.0
+ */
+final class MeasuredSlice implements Slice {
+
+    /**
+     * Origin slice.
+     */
+    private final Slice origin;
+
+    /**
+     * Operation name.
+     */
+    private final String operation;
+
+    /**
+     * Metrics.
+     */
+    private final GitMetrics metrics;
+
+    /**
+     * New measured slice.
+     * @param origin Origin slice
+     * @param operation Operation name
+     * @param metrics Metrics
+     */
+    MeasuredSlice(final Slice origin, final String operation, final GitMetrics metrics) {
+        this.origin = origin;
+        this.operation = operation;
+        this.metrics = metrics;
+    }
+
+    @Override
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public Response response(final String line, final Iterable<Entry<String, String>> headers,
+        final Publisher<ByteBuffer> body) {
+        final long start = System.nanoTime();
+        final AtomicBoolean finished = new AtomicBoolean();
+        final Runnable finish = () -> {
+            if (finished.compareAndSet(false, true)) {
+                this.metrics.latency(this.operation, System.nanoTime() - start);
+                this.metrics.inflight(this.operation, -1);
+            }
+        };
+        this.metrics.inflight(this.operation, 1);
+        final Response response;
+        try {
+            response = this.origin.response(
+                line, headers,
+                Flowable.fromPublisher(body).doOnNext(
+                    buf -> this.metrics.bytesIn(this.operation, buf.remaining())
+                )
+            );
+        } catch (final RuntimeException err) {
+            finish.run();
+            throw err;
+        }
+        return connection -> response.send(
+            (status, rsheaders, rsbody) -> connection.accept(
+                status, rsheaders,
+                Flowable.fromPublisher(rsbody).doOnNext(
+                    buf -> this.metrics.bytesOut(this.operation, buf.remaining())
+                )
+            )
+        ).whenComplete((none, err) -> finish.run());
+    }
+}
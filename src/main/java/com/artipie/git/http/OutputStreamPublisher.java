@@ -0,0 +1,292 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publisher of data written to output stream.
+ * <p>
+ * Each subscription starts the writer function with new output stream. Written
+ * bytes are buffered into chunks of fixed size and are emitted when subscriber
+ * requests them: the writer is blocked until the demand is available, so memory
+ * usage doesn't depend on response size. The writer must write from blocking
+ * worker threads only and complete returned stage when all data is written.
+ * Writer waits for the demand not longer than write timeout, then write fails,
+ * so stalled client doesn't hold worker thread.
+ * </p>
+ * @since 1.0
+ */
+final class OutputStreamPublisher implements Publisher<ByteBuffer> {
+
+    /**
+     * Default chunk size.
+     */
+    private static final int CHUNK = 8 * 1024;
+
+    /**
+     * Default write timeout.
+     */
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    /**
+     * Writer function.
+     */
+    private final Function<? super OutputStream, ? extends CompletionStage<?>> writer;
+
+    /**
+     * Chunk size.
+     */
+    private final int chunk;
+
+    /**
+     * Max time to wait for demand.
+     */
+    private final Duration timeout;
+
+    /**
+     * New publisher with default chunk size.
+     * @param writer Writer function
+     */
+    OutputStreamPublisher(
+        final Function<? super OutputStream, ? extends CompletionStage<?>> writer
+    ) {
+        this(writer, OutputStreamPublisher.CHUNK);
+    }
+
+    /**
+     * New publisher.
+     * @param writer Writer function
+     * @param chunk Chunk size
+     */
+    OutputStreamPublisher(
+        final Function<? super OutputStream, ? extends CompletionStage<?>> writer,
+        final int chunk
+    ) {
+        this(writer, chunk, OutputStreamPublisher.TIMEOUT);
+    }
+
+    /**
+     * New publisher.
+     * @param writer Writer function
+     * @param chunk Chunk size
+     * @param timeout Max time to wait for demand
+     */
+    OutputStreamPublisher(
+        final Function<? super OutputStream, ? extends CompletionStage<?>> writer,
+        final int chunk, final Duration timeout
+    ) {
+        this.writer = writer;
+        this.chunk = chunk;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super ByteBuffer> subscriber) {
+        final ChunkedStream out = new ChunkedStream(subscriber, this.chunk, this.timeout);
+        subscriber.onSubscribe(out);
+        this.writer.apply(out).handle(
+            (res, err) -> {
+                out.finish(err);
+                return res;
+            }
+        );
+    }
+
+    /**
+     * Output stream which emits chunks to subscriber.
+     * @since 1.0
+     */
+    private static final class ChunkedStream extends OutputStream implements Subscription {
+
+        /**
+         * Subscriber.
+         */
+        private final Subscriber<? super ByteBuffer> subscriber;
+
+        /**
+         * Current chunk.
+         */
+        private final byte[] buf;
+
+        /**
+         * Max time to wait for demand in nanoseconds.
+         */
+        private final long timeout;
+
+        /**
+         * Count of bytes in current chunk.
+         */
+        private int count;
+
+        /**
+         * Requested chunks count, guarded by lock.
+         */
+        private long demand;
+
+        /**
+         * Lock of demand and cancelled flag.
+         */
+        private final Object lock;
+
+        /**
+         * Cancelled flag, guarded by lock.
+         */
+        private boolean cancelled;
+
+        /**
+         * Finished flag.
+         */
+        private boolean finished;
+
+        /**
+         * New stream.
+         * @param subscriber Subscriber
+         * @param size Chunk size
+         * @param timeout Max time to wait for demand
+         */
+        ChunkedStream(final Subscriber<? super ByteBuffer> subscriber, final int size,
+            final Duration timeout) {
+            super();
+            this.subscriber = subscriber;
+            this.buf = new byte[size];
+            this.timeout = timeout.toNanos();
+            this.lock = new Object();
+        }
+
+        @Override
+        public void write(final int data) throws IOException {
+            if (this.count == this.buf.length) {
+                this.emit();
+            }
+            this.buf[this.count] = (byte) data;
+            this.count += 1;
+        }
+
+        @Override
+        public void write(final byte[] src, final int off, final int len) throws IOException {
+            int pos = off;
+            final int end = off + len;
+            while (pos < end) {
+                if (this.count == this.buf.length) {
+                    this.emit();
+                }
+                final int size = Math.min(end - pos, this.buf.length - this.count);
+                System.arraycopy(src, pos, this.buf, this.count, size);
+                this.count += size;
+                pos += size;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (this.count > 0) {
+                this.emit();
+            }
+        }
+
+        @Override
+        public void request(final long num) {
+            synchronized (this.lock) {
+                if (num <= 0) {
+                    this.cancelled = true;
+                } else {
+                    this.demand += Math.min(num, Long.MAX_VALUE - this.demand);
+                }
+                this.lock.notifyAll();
+            }
+            if (num <= 0) {
+                this.subscriber.onError(
+                    new IllegalArgumentException(
+                        String.format("Requested %d items, positive number expected", num)
+                    )
+                );
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this.lock) {
+                this.cancelled = true;
+                this.lock.notifyAll();
+            }
+        }
+
+        /**
+         * Finish the stream: emit remaining bytes and complete subscriber.
+         * @param err Writer error or null
+         */
+        void finish(final Throwable err) {
+            if (!this.finished) {
+                this.finished = true;
+                Throwable failure = err;
+                if (failure == null) {
+                    try {
+                        this.flush();
+                    } catch (final IOException iex) {
+                        failure = iex;
+                    }
+                }
+                if (!this.isCancelled()) {
+                    if (failure == null) {
+                        this.subscriber.onComplete();
+                    } else {
+                        this.subscriber.onError(failure);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Wait for demand and emit current chunk.
+         * @throws IOException If subscription was cancelled, demand wait timed out
+         *  or thread was interrupted
+         */
+        private void emit() throws IOException {
+            synchronized (this.lock) {
+                final long deadline = System.nanoTime() + this.timeout;
+                while (this.demand == 0 && !this.cancelled) {
+                    final long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        throw new InterruptedIOException("Timed out waiting for demand");
+                    }
+                    try {
+                        this.lock.wait(TimeUnit.NANOSECONDS.toMillis(left) + 1);
+                    } catch (final InterruptedException iex) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for demand");
+                    }
+                }
+                if (this.cancelled) {
+                    throw new IOException("Subscription was cancelled");
+                }
+                this.demand -= 1;
+            }
+            this.subscriber.onNext(ByteBuffer.wrap(Arrays.copyOf(this.buf, this.count)));
+            this.count = 0;
+        }
+
+        /**
+         * Check if subscription was cancelled.
+         * @return True if cancelled
+         */
+        private boolean isCancelled() {
+            synchronized (this.lock) {
+                return this.cancelled;
+            }
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.ArtipieException;
+import com.artipie.git.sdk.PktLine;
+import com.artipie.git.sdk.PktLineDecoder;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Request body with peeked protocol v2 command.
+ * <p>
+ * Body chunks are requested one by one until {@code command=} line or end of
+ * command section is decoded, then the body is paused. Subscriber of this
+ * publisher receives peeked chunks followed by the rest of origin body, which
+ * is requested from origin only by subscriber demand, so the body is neither
+ * cached nor read twice. Only one subscriber is supported. If peeked chunks are
+ * not valid pkt-lines, origin body is cancelled and command completes with
+ * {@link ArtipieException}. Body of rejected request should be discarded, see
+ * {@link #discard()}, so origin body is cancelled instead of staying paused.
+ * </p>
+ * @since 1.0
+ */
+final class PeekedBody implements Publisher<ByteBuffer> {
+
+    /**
+     * Command line prefix.
+     */
+    private static final String PREFIX = "command=";
+
+    /**
+     * Origin body.
+     */
+    private final Publisher<ByteBuffer> origin;
+
+    /**
+     * Peeked command.
+     */
+    private final CompletableFuture<Optional<String>> cmd;
+
+    /**
+     * Decoder for peeked chunks.
+     */
+    private final PktLineDecoder decoder;
+
+    /**
+     * Chunks received from origin and not emitted yet, guarded by lock.
+     */
+    private final Queue<ByteBuffer> queue;
+
+    /**
+     * Lock of origin and downstream state.
+     */
+    private final Object lock;
+
+    /**
+     * Origin subscription, guarded by lock.
+     */
+    private Subscription upstream;
+
+    /**
+     * Downstream subscriber, guarded by lock.
+     */
+    private Subscriber<? super ByteBuffer> downstream;
+
+    /**
+     * Downstream demand, guarded by lock.
+     */
+    private long demand;
+
+    /**
+     * Requested from origin but not received chunks count, guarded by lock.
+     */
+    private long outstanding;
+
+    /**
+     * Origin completed flag, guarded by lock.
+     */
+    private boolean completed;
+
+    /**
+     * Origin error, guarded by lock.
+     */
+    private Throwable error;
+
+    /**
+     * Downstream cancelled or terminated, guarded by lock.
+     */
+    private boolean done;
+
+    /**
+     * Drain loop is running, guarded by lock.
+     */
+    private boolean emitting;
+
+    /**
+     * Drain loop should repeat, guarded by lock.
+     */
+    private boolean missed;
+
+    /**
+     * New body.
+     * @param origin Origin body
+     */
+    PeekedBody(final Publisher<ByteBuffer> origin) {
+        this.origin = origin;
+        this.cmd = new CompletableFuture<>();
+        this.decoder = new PktLineDecoder();
+        this.queue = new ArrayDeque<>(1);
+        this.lock = new Object();
+    }
+
+    /**
+     * Peek command name, it starts reading origin body on first call.
+     * @return Command name if found before end of command section
+     */
+    CompletionStage<Optional<String>> command() {
+        final boolean start;
+        synchronized (this.lock) {
+            start = this.upstream == null && !this.cmd.isDone();
+        }
+        if (start) {
+            this.origin.subscribe(new Upstream());
+        }
+        return this.cmd;
+    }
+
+    /**
+     * Discard the body: origin body is cancelled, queued chunks are dropped and
+     * subscriber of this body receives an error instead of the rest of the body.
+     */
+    void discard() {
+        final Subscription up;
+        synchronized (this.lock) {
+            this.queue.clear();
+            if (this.error == null) {
+                this.error = new IllegalStateException("Request body is discarded");
+            }
+            up = this.upstream;
+        }
+        if (up != null) {
+            up.cancel();
+        }
+        this.drain();
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super ByteBuffer> subscriber) {
+        final boolean first;
+        synchronized (this.lock) {
+            first = this.downstream == null;
+            if (first) {
+                this.downstream = subscriber;
+            }
+        }
+        if (first) {
+            subscriber.onSubscribe(new Downstream());
+            this.drain();
+        } else {
+            subscriber.onSubscribe(new EmptySubscription());
+            subscriber.onError(new IllegalStateException("Body can be subscribed only once"));
+        }
+    }
+
+    /**
+     * Decode peeked chunk.
+     * @param chunk Chunk
+     * @return Command if command section was decoded, null if more data is required
+     */
+    private Optional<String> peek(final ByteBuffer chunk) {
+        this.decoder.feed(chunk.duplicate());
+        Optional<String> res = null;
+        for (Optional<PktLine> pkt = this.decoder.next(); res == null && pkt.isPresent();
+            pkt = this.decoder.next()) {
+            if (!pkt.get().isData()) {
+                res = Optional.empty();
+            } else if (pkt.get().text().startsWith(PeekedBody.PREFIX)) {
+                res = Optional.of(pkt.get().text().substring(PeekedBody.PREFIX.length()).trim());
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Emit queued chunks and terminal signals to downstream by demand.
+     */
+    private void drain() {
+        boolean run;
+        synchronized (this.lock) {
+            run = !this.emitting;
+            this.emitting = true;
+            this.missed |= !run;
+        }
+        while (run) {
+            final Runnable action = this.step();
+            if (action == null) {
+                run = false;
+            } else {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * Next drain loop action.
+     * @return Action to perform out of lock or null if drain loop is finished
+     */
+    private Runnable step() {
+        synchronized (this.lock) {
+            final Subscriber<? super ByteBuffer> sub = this.downstream;
+            Runnable res = null;
+            if (sub != null && !this.done) {
+                if (this.demand > 0 && !this.queue.isEmpty()) {
+                    final ByteBuffer next = this.queue.poll();
+                    this.demand -= 1;
+                    res = () -> sub.onNext(next);
+                } else if (this.queue.isEmpty() && this.error != null) {
+                    final Throwable err = this.error;
+                    this.done = true;
+                    res = () -> sub.onError(err);
+                } else if (this.queue.isEmpty() && this.completed) {
+                    this.done = true;
+                    res = sub::onComplete;
+                } else if (this.cmd.isDone() && this.upstream != null) {
+                    final long request = this.demand - this.queue.size() - this.outstanding;
+                    if (request > 0) {
+                        final Subscription up = this.upstream;
+                        this.outstanding += request;
+                        res = () -> up.request(request);
+                    }
+                }
+            }
+            if (res == null && this.missed) {
+                this.missed = false;
+                res = () -> { };
+            } else if (res == null) {
+                this.emitting = false;
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Subscriber of origin body.
+     * @since 1.0
+     */
+    private final class Upstream implements Subscriber<ByteBuffer> {
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            synchronized (PeekedBody.this.lock) {
+                PeekedBody.this.upstream = subscription;
+                PeekedBody.this.outstanding = 1;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(final ByteBuffer chunk) {
+            Optional<String> found = Optional.empty();
+            ArtipieException malformed = null;
+            synchronized (PeekedBody.this.lock) {
+                PeekedBody.this.outstanding -= 1;
+                if (PeekedBody.this.error == null) {
+                    PeekedBody.this.queue.add(chunk);
+                }
+                if (!PeekedBody.this.cmd.isDone()) {
+                    try {
+                        found = PeekedBody.this.peek(chunk);
+                    } catch (final ArtipieException err) {
+                        malformed = err;
+                        PeekedBody.this.queue.clear();
+                        PeekedBody.this.error = err;
+                        PeekedBody.this.upstream.cancel();
+                    }
+                    if (found == null) {
+                        PeekedBody.this.outstanding += 1;
+                    }
+                }
+            }
+            if (malformed != null) {
+                PeekedBody.this.cmd.completeExceptionally(malformed);
+                PeekedBody.this.drain();
+            } else if (found == null) {
+                PeekedBody.this.upstream.request(1);
+            } else {
+                PeekedBody.this.cmd.complete(found);
+                PeekedBody.this.drain();
+            }
+        }
+
+        @Override
+        public void onError(final Throwable err) {
+            synchronized (PeekedBody.this.lock) {
+                if (PeekedBody.this.error == null) {
+                    PeekedBody.this.error = err;
+                }
+            }
+            PeekedBody.this.cmd.completeExceptionally(err);
+            PeekedBody.this.drain();
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (PeekedBody.this.lock) {
+                PeekedBody.this.completed = true;
+            }
+            PeekedBody.this.cmd.complete(Optional.empty());
+            PeekedBody.this.drain();
+        }
+    }
+
+    /**
+     * Subscription of downstream subscriber.
+     * @since 1.0
+     */
+    private final class Downstream implements Subscription {
+
+        @Override
+        public void request(final long num) {
+            Subscription cancel = null;
+            synchronized (PeekedBody.this.lock) {
+                if (num > 0) {
+                    PeekedBody.this.demand += Math.min(
+                        num, Long.MAX_VALUE - PeekedBody.this.demand
+                    );
+                } else if (!PeekedBody.this.done) {
+                    PeekedBody.this.queue.clear();
+                    PeekedBody.this.error = new IllegalArgumentException(
+                        String.format("Non-positive request: %d", num)
+                    );
+                    cancel = PeekedBody.this.upstream;
+                }
+            }
+            if (cancel != null) {
+                cancel.cancel();
+            }
+            PeekedBody.this.drain();
+        }
+
+        @Override
+        public void cancel() {
+            final Subscription up;
+            synchronized (PeekedBody.this.lock) {
+                PeekedBody.this.done = true;
+                PeekedBody.this.queue.clear();
+                up = PeekedBody.this.upstream;
+            }
+            if (up != null) {
+                up.cancel();
+            }
+        }
+    }
+
+    /**
+     * Empty subscription for rejected subscribers.
+     * @since 1.0
+     */
+    private static final class EmptySubscription implements Subscription {
+
+        @Override
+        public void request(final long num) {
+            // nothing to emit
+        }
+
+        @Override
+        public void cancel() {
+            // nothing to cancel
+        }
+    }
+}
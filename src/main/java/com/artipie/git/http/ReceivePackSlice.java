@@ -4,11 +4,31 @@
  */
 package com.artipie.git.http;
 
+import com.artipie.asto.ArtipieIOException;
+import com.artipie.asto.Content;
+import com.artipie.asto.Storage;
+import com.artipie.git.PublisherInputStream;
+import com.artipie.git.sdk.Git;
+import com.artipie.git.sdk.GitSettings;
+import com.artipie.git.sdk.PktLineEncoder;
+import com.artipie.http.Response;
 import com.artipie.http.Slice;
+import com.artipie.http.async.AsyncResponse;
+import com.artipie.http.headers.ContentType;
+import com.artipie.http.rs.RsWithBody;
 import com.artipie.http.rs.RsStatus;
+import com.artipie.http.rs.RsWithHeaders;
 import com.artipie.http.rs.RsWithStatus;
+import com.artipie.http.rs.StandardRs;
+import com.artipie.http.rt.ByMethodsRule;
 import com.artipie.http.rt.RtRule;
-import com.artipie.http.slice.SliceSimple;
+import com.artipie.http.rt.RtRulePath;
+import com.artipie.http.rt.SliceRoute;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Slice to handle {@code receive-pack} service commands to support {@code git push}
@@ -23,8 +43,19 @@ import com.artipie.http.slice.SliceSimple;
  *   <li>{@code POST} HTTP request with payload where client uploads pack to server</li>
  * </ol>
  * </p>
+ * <p>
+ * Receive-pack is not a part of protocol v2, references are advertised with
+ * protocol v0 format. Pushed pack is streamed from request body into the storage,
+ * reading fails if client doesn't send next chunk in time, so stalled push
+ * doesn't hold executor thread. Push to repository with loose objects is
+ * answered with {@code 409} before the pack is read, see
+ * {@link Git#checkReceivePack()}. Completed push runs the callback, which
+ * triggers maintenance of the repository, see {@link GitSlice}.
+ * </p>
  *
  * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ * @checkstyle ClassFanOutComplexityCheck (500 lines)
  */
 final class ReceivePackSlice extends Slice.Wrap {
 
@@ -33,10 +64,105 @@ final class ReceivePackSlice extends Slice.Wrap {
      */
     static final RtRule RT_RULE = new GitSlice.ByService("git-receive-pack");
 
+    /**
+     * Max time to wait for next chunk of pushed pack.
+     */
+    private static final Duration READ_TIMEOUT = Duration.ofMinutes(1);
+
     /**
      * New Slice.
+     * @param storage Repository storage
+     * @param settings Settings of git operations
+     * @param pushed Callback of completed push
+     * @checkstyle MethodLengthCheck (100 lines)
+     */
+    ReceivePackSlice(final Storage storage, final GitSettings settings,
+        final Runnable pushed) {
+        super(
+            new SliceRoute(
+                new RtRulePath(
+                    ByMethodsRule.Standard.GET,
+                    new MeasuredSlice(
+                        (line, headers, body) -> ReceivePackSlice.accepted(
+                            new Git(storage, settings),
+                            () -> new RsWithBody(
+                                new RsWithHeaders(
+                                    StandardRs.OK,
+                                    new ContentType(
+                                        "application/x-git-receive-pack-advertisement"
+                                    )
+                                ),
+                                new Content.From(
+                                    new OutputStreamPublisher(
+                                        out -> CompletableFuture.runAsync(
+                                            () -> {
+                                                try {
+                                                    new PktLineEncoder(out, 64)
+                                                        .writeLine("# service=git-receive-pack")
+                                                        .writeFlush()
+                                                        .flush();
+                                                } catch (final IOException iex) {
+                                                    throw new ArtipieIOException(iex);
+                                                }
+                                            },
+                                            settings.executor()
+                                        ).thenCompose(
+                                            none -> new Git(storage, settings)
+                                                .receivePackRefs(out)
+                                        )
+                                    )
+                                )
+                            )
+                        ),
+                        "info-refs", settings.metrics()
+                    )
+                ),
+                new RtRulePath(
+                    ByMethodsRule.Standard.POST,
+                    new MeasuredSlice(
+                        (line, headers, body) -> ReceivePackSlice.accepted(
+                            new Git(storage, settings),
+                            () -> new RsWithBody(
+                                new RsWithHeaders(
+                                    StandardRs.OK,
+                                    new ContentType("application/x-git-receive-pack-result")
+                                ),
+                                new Content.From(
+                                    new OutputStreamPublisher(
+                                        out -> new Git(storage, settings)
+                                            .receivePack(
+                                                new PublisherInputStream(
+                                                    body, ReceivePackSlice.READ_TIMEOUT
+                                                ),
+                                                out
+                                            ).thenRun(pushed)
+                                    )
+                                )
+                            )
+                        ),
+                        "receive-pack", settings.metrics()
+                    )
+                )
+            )
+        );
+    }
+
+    /**
+     * Response if repository accepts pushes, conflict with the reason otherwise,
+     * see {@link Git#checkReceivePack()}.
+     * @param git Git SDK
+     * @param response Response of accepted request
+     * @return Response
      */
-    ReceivePackSlice() {
-        super(new SliceSimple(new RsWithStatus(RsStatus.NOT_IMPLEMENTED)));
+    private static Response accepted(final Git git, final Supplier<Response> response) {
+        return new AsyncResponse(
+            git.checkReceivePack().thenApply(
+                refused -> refused.<Response>map(
+                    reason -> new RsWithBody(
+                        new RsWithStatus(RsStatus.CONFLICT), reason, StandardCharsets.UTF_8
+                    )
+                ).orElseGet(response)
+            )
+        );
     }
 }
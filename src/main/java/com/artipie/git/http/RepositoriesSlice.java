@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.Storage;
+import com.artipie.http.Response;
+import com.artipie.http.Slice;
+import com.artipie.http.rq.RequestLineFrom;
+import com.artipie.http.rs.StandardRs;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.reactivestreams.Publisher;
+
+/**
+ * Git slice serving multiple repositories.
+ * <p>
+ * Requests are routed by path {@code /<owner>/<repo>.git/...} to
+ * {@link GitSlice} of the repository with storage prefixed by
+ * {@code <owner>/<repo>.git}. Repository cache, admission control and response
+ * caches are shared by all repositories, repository slices are kept in a
+ * bounded {@link RepositoryRegistry}. Requests not matching repository path
+ * are rejected with {@code 404}.
+ * </p>
+ * @since 1.0
+ */
+public final class RepositoriesSlice implements Slice {
+
+    /**
+     * Default max number of registered repositories.
+     */
+    private static final int REPOS = 256;
+
+    /**
+     * Repository path pattern.
+     */
+    private static final Pattern PATH = Pattern.compile(
+        "^/([\\w-][\\w.-]*)/([\\w-][\\w.-]*\\.git)(/.*)?$"
+    );
+
+    /**
+     * Registry of repositories.
+     */
+    private final RepositoryRegistry registry;
+
+    /**
+     * New slice with default settings.
+     * @param storage Root storage of repositories
+     */
+    public RepositoriesSlice(final Storage storage) {
+        this(storage, new SliceSettings(), RepositoriesSlice.REPOS);
+    }
+
+    /**
+     * New slice.
+     * @param storage Root storage of repositories
+     * @param settings Settings of repository slices, see {@link GitSlice}
+     * @param repos Max number of registered repositories
+     */
+    public RepositoriesSlice(final Storage storage, final SliceSettings settings,
+        final int repos) {
+        this(
+            new RepositoryRegistry(
+                storage, settings.git().cache(), sub -> new GitSlice(sub, settings), repos
+            )
+        );
+    }
+
+    /**
+     * New slice.
+     * @param registry Registry of repositories
+     */
+    RepositoriesSlice(final RepositoryRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Response response(final String line,
+        final Iterable<Map.Entry<String, String>> headers,
+        final Publisher<ByteBuffer> body) {
+        final Matcher matcher = RepositoriesSlice.PATH.matcher(
+            new RequestLineFrom(line).uri().getPath()
+        );
+        final Response res;
+        if (matcher.matches()) {
+            res = this.registry.slice(matcher.group(1), matcher.group(2))
+                .response(line, headers, body);
+        } else {
+            res = StandardRs.NOT_FOUND;
+        }
+        return res;
+    }
+}
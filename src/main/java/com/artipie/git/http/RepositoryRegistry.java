@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.SubStorage;
+import com.artipie.git.sdk.RepositoryCache;
+import com.artipie.http.Slice;
+import com.artipie.http.slice.TrimPathSlice;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded registry of served repositories.
+ * <p>
+ * Repository slice with its sub-storage is created on first request and kept
+ * while the repository is used, so busy repositories don't reopen their state.
+ * Least recently used repository is evicted when the number of repositories
+ * exceeds the limit and its cached state is released from
+ * {@link RepositoryCache}, so memory doesn't grow with repository count.
+ * </p>
+ * @since 1.0
+ */
+final class RepositoryRegistry {
+
+    /**
+     * Initial capacity of repositories map.
+     */
+    private static final int CAPACITY = 16;
+
+    /**
+     * Load factor of repositories map.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Root storage of repositories.
+     */
+    private final Storage storage;
+
+    /**
+     * Repository cache shared by repositories.
+     */
+    private final RepositoryCache cache;
+
+    /**
+     * Factory of repository slice by repository storage.
+     */
+    private final Function<Storage, Slice> factory;
+
+    /**
+     * Max number of registered repositories.
+     */
+    private final int limit;
+
+    /**
+     * Repositories by name in access order, guarded by lock.
+     */
+    private final Map<String, Entry> repos;
+
+    /**
+     * Lock of repositories.
+     */
+    private final Object lock;
+
+    /**
+     * New registry.
+     * @param storage Root storage of repositories
+     * @param cache Repository cache shared by repositories
+     * @param factory Factory of repository slice by repository storage
+     * @param limit Max number of registered repositories
+     */
+    RepositoryRegistry(final Storage storage, final RepositoryCache cache,
+        final Function<Storage, Slice> factory, final int limit) {
+        this.storage = storage;
+        this.cache = cache;
+        this.factory = factory;
+        this.limit = limit;
+        this.repos = new LinkedHashMap<>(
+            RepositoryRegistry.CAPACITY, RepositoryRegistry.LOAD_FACTOR, true
+        );
+        this.lock = new Object();
+    }
+
+    /**
+     * Slice of repository, path of requests to the slice should start with
+     * repository name.
+     * @param owner Repository owner
+     * @param name Repository name
+     * @return Repository slice
+     */
+    Slice slice(final String owner, final String name) {
+        synchronized (this.lock) {
+            final String path = String.join("/", owner, name);
+            Entry entry = this.repos.get(path);
+            if (entry == null) {
+                final Storage sub = new SubStorage(new Key.From(owner, name), this.storage);
+                entry = new Entry(
+                    sub, new TrimPathSlice(this.factory.apply(sub), Pattern.quote(path))
+                );
+                this.repos.put(path, entry);
+                this.shrink();
+            }
+            return entry.slice;
+        }
+    }
+
+    /**
+     * Number of registered repositories.
+     * @return Repositories count
+     */
+    int size() {
+        synchronized (this.lock) {
+            return this.repos.size();
+        }
+    }
+
+    /**
+     * Evict least recently used repositories exceeding the limit.
+     */
+    private void shrink() {
+        final Iterator<Entry> iter = this.repos.values().iterator();
+        while (this.repos.size() > this.limit) {
+            this.cache.evict(iter.next().storage);
+            iter.remove();
+        }
+    }
+
+    /**
+     * Registered repository.
+     * @since 1.0
+     */
+    private static final class Entry {
+
+        /**
+         * Repository storage.
+         */
+        private final Storage storage;
+
+        /**
+         * Repository slice.
+         */
+        private final Slice slice;
+
+        /**
+         * New entry.
+         * @param storage Repository storage
+         * @param slice Repository slice
+         */
+        Entry(final Storage storage, final Slice slice) {
+            this.storage = storage;
+            this.slice = slice;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory cache of rendered response bodies by entity tag.
+ * <p>
+ * Entity tags change with the content, so entries are never invalidated:
+ * outdated entries are evicted as least recently used when total size exceeds
+ * the limit. Responses larger than a quarter of the limit are not recorded and
+ * are streamed as usual, so one large response doesn't evict other entries and
+ * concurrent requests don't buffer the whole limit each.
+ * </p>
+ * @since 1.0
+ */
+final class ResponseCache {
+
+    /**
+     * Initial capacity of entries map.
+     */
+    private static final int CAPACITY = 16;
+
+    /**
+     * Load factor of entries map.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Default max total size of cached bodies.
+     */
+    private static final long MAX_BYTES = 4L * 1024 * 1024;
+
+    /**
+     * Max total size of cached bodies.
+     */
+    private final long bytes;
+
+    /**
+     * Cached bodies by tag in access order, guarded by lock.
+     */
+    private final Map<String, byte[]> entries;
+
+    /**
+     * Lock of entries and total size.
+     */
+    private final Object lock;
+
+    /**
+     * Total size of cached bodies, guarded by lock.
+     */
+    private long total;
+
+    /**
+     * New cache with default limit of 4MB.
+     */
+    ResponseCache() {
+        this(ResponseCache.MAX_BYTES);
+    }
+
+    /**
+     * New cache.
+     * @param bytes Max total size of cached bodies
+     */
+    ResponseCache(final long bytes) {
+        this.bytes = bytes;
+        this.entries = new LinkedHashMap<>(
+            ResponseCache.CAPACITY, ResponseCache.LOAD_FACTOR, true
+        );
+        this.lock = new Object();
+    }
+
+    /**
+     * Cached body of tag.
+     * @param tag Entity tag
+     * @return Body if cached
+     */
+    Optional<byte[]> get(final String tag) {
+        synchronized (this.lock) {
+            return Optional.ofNullable(this.entries.get(tag));
+        }
+    }
+
+    /**
+     * Cache body and evict least recently used entries.
+     * @param tag Entity tag
+     * @param body Body
+     */
+    void put(final String tag, final byte[] body) {
+        synchronized (this.lock) {
+            if (body.length <= this.entry()) {
+                final byte[] prev = this.entries.put(tag, body);
+                if (prev != null) {
+                    this.total -= prev.length;
+                }
+                this.total += body.length;
+                final Iterator<byte[]> iter = this.entries.values().iterator();
+                while (this.total > this.bytes) {
+                    this.total -= iter.next().length;
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Output stream which records written body while it fits the cache.
+     * @param out Response output
+     * @return Recording output stream
+     */
+    Recorder recorder(final OutputStream out) {
+        return new Recorder(out, this.entry());
+    }
+
+    /**
+     * Max size of cached body.
+     * @return Size in bytes
+     */
+    private long entry() {
+        return this.bytes / 4;
+    }
+
+    /**
+     * Output stream which writes to response and records the body.
+     * @since 1.0
+     */
+    static final class Recorder extends OutputStream {
+
+        /**
+         * Response output.
+         */
+        private final OutputStream out;
+
+        /**
+         * Max recorded size.
+         */
+        private final long limit;
+
+        /**
+         * Recorded body, null if it exceeds the limit.
+         */
+        private ByteArrayOutputStream copy;
+
+        /**
+         * New recorder.
+         * @param out Response output
+         * @param limit Max recorded size
+         */
+        Recorder(final OutputStream out, final long limit) {
+            super();
+            this.out = out;
+            this.limit = limit;
+            this.copy = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public void write(final int data) throws IOException {
+            this.out.write(data);
+            this.record(new byte[]{(byte) data}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] src, final int off, final int len) throws IOException {
+            this.out.write(src, off, len);
+            this.record(src, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+
+        /**
+         * Recorded body.
+         * @return Body if it fits the limit
+         */
+        Optional<byte[]> body() {
+            return Optional.ofNullable(this.copy).map(ByteArrayOutputStream::toByteArray);
+        }
+
+        /**
+         * Record written bytes or drop the record if it exceeds the limit.
+         * @param src Source bytes
+         * @param off Offset
+         * @param len Length
+         */
+        private void record(final byte[] src, final int off, final int len) {
+            if (this.copy != null) {
+                if (this.copy.size() + len > this.limit) {
+                    this.copy = null;
+                } else {
+                    this.copy.write(src, off, len);
+                }
+            }
+        }
+    }
+}
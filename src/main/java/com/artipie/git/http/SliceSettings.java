@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.git.sdk.GitSettings;
+
+/**
+ * Tuning of git slices, see {@link GitSlice} and {@link RepositoriesSlice}.
+ * <p>
+ * Settings of git operations, see {@link GitSettings}, with admission control of
+ * upload-pack requests, push flag, maintenance flag and cache of ls-refs
+ * responses. Settings are immutable: every {@code with} method returns a copy
+ * with one changed value. Defaults are: unlimited admission, push is not
+ * accepted, maintenance is triggered after accepted pushes.
+ * </p>
+ * @since 1.0
+ */
+public final class SliceSettings {
+
+    /**
+     * Settings of git operations.
+     */
+    private final GitSettings sdk;
+
+    /**
+     * Admission control of upload-pack requests.
+     */
+    private final Admission admission;
+
+    /**
+     * Accept pushes.
+     */
+    private final boolean push;
+
+    /**
+     * Trigger maintenance after pushes.
+     */
+    private final boolean maintain;
+
+    /**
+     * Cache of ls-refs responses.
+     */
+    private final ResponseCache refs;
+
+    /**
+     * New default settings.
+     */
+    public SliceSettings() {
+        this(new GitSettings());
+    }
+
+    /**
+     * New settings with default admission and push flag.
+     * @param sdk Settings of git operations
+     */
+    public SliceSettings(final GitSettings sdk) {
+        this(sdk, Admission.UNLIMITED, false, true, new ResponseCache());
+    }
+
+    /**
+     * New settings.
+     * @param sdk Settings of git operations
+     * @param admission Admission control of upload-pack requests
+     * @param push Accept pushes
+     * @param maintain Trigger maintenance after pushes
+     * @param refs Cache of ls-refs responses
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private SliceSettings(final GitSettings sdk, final Admission admission,
+        final boolean push, final boolean maintain, final ResponseCache refs) {
+        this.sdk = sdk;
+        this.admission = admission;
+        this.push = push;
+        this.maintain = maintain;
+        this.refs = refs;
+    }
+
+    /**
+     * Settings with admission control of upload-pack requests, memory budget
+     * of admission limits pack generation of every request.
+     * @param control Admission control
+     * @return New settings
+     */
+    public SliceSettings withAdmission(final Admission control) {
+        return new SliceSettings(this.sdk, control, this.push, this.maintain, this.refs);
+    }
+
+    /**
+     * Settings with push flag.
+     * <p>
+     * Push is not authorized by git slices: if it's enabled, the slice must be
+     * wrapped by a slice which authorizes {@code git-receive-pack} requests.
+     * </p>
+     * @param accept Accept pushes, otherwise receive-pack is answered with {@code 501}
+     * @return New settings
+     */
+    public SliceSettings withPush(final boolean accept) {
+        return new SliceSettings(this.sdk, this.admission, accept, this.maintain, this.refs);
+    }
+
+    /**
+     * Settings with maintenance flag.
+     * <p>
+     * Accepted push triggers background {@link com.artipie.git.dfs.Maintenance}
+     * of the repository, which repacks it and prunes retired packs. If several
+     * servers share the storage, it should be enabled on one of them only, and
+     * it should be disabled if maintenance is scheduled separately.
+     * </p>
+     * @param enable Trigger maintenance after pushes
+     * @return New settings
+     */
+    public SliceSettings withMaintenance(final boolean enable) {
+        return new SliceSettings(this.sdk, this.admission, this.push, enable, this.refs);
+    }
+
+    /**
+     * Settings with cache of ls-refs responses.
+     * @param responses Cache of ls-refs responses
+     * @return New settings
+     */
+    SliceSettings withRefs(final ResponseCache responses) {
+        return new SliceSettings(this.sdk, this.admission, this.push, this.maintain, responses);
+    }
+
+    /**
+     * Settings of git operations with memory budget of admission.
+     * @return Git settings
+     */
+    public GitSettings git() {
+        GitSettings res = this.sdk;
+        if (this.admission.memory() > 0) {
+            res = res.withMemory(this.admission.memory());
+        }
+        return res;
+    }
+
+    /**
+     * Admission control of upload-pack requests.
+     * @return Admission control
+     */
+    Admission admission() {
+        return this.admission;
+    }
+
+    /**
+     * Pushes are accepted.
+     * @return True if push is enabled
+     */
+    boolean push() {
+        return this.push;
+    }
+
+    /**
+     * Maintenance is triggered after pushes.
+     * @return True if maintenance is enabled
+     */
+    boolean maintenance() {
+        return this.maintain;
+    }
+
+    /**
+     * Cache of ls-refs responses.
+     * @return Response cache
+     */
+    ResponseCache refs() {
+        return this.refs;
+    }
+}
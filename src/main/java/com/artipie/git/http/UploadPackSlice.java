@@ -5,8 +5,8 @@
 package com.artipie.git.http;
 
 import com.artipie.asto.Storage;
-import com.artipie.asto.ext.PublisherAs;
-import com.artipie.git.sdk.GitRequest;
+import com.artipie.git.sdk.Bundles;
+import com.artipie.git.sdk.GitSettings;
 import com.artipie.http.Response;
 import com.artipie.http.Slice;
 import com.artipie.http.async.AsyncResponse;
@@ -15,7 +15,6 @@ import com.artipie.http.rs.RsWithBody;
 import com.artipie.http.rs.RsWithStatus;
 import com.artipie.http.rt.RtRule;
 import com.artipie.http.slice.SliceSimple;
-import io.reactivex.Flowable;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
@@ -74,21 +73,32 @@ final class UploadPackSlice implements Slice {
     /**
      * New upload pack service.
      * @param storage Repository storage
+     * @param settings Settings of git slices
      */
-    UploadPackSlice(final Storage storage) {
-        this.commands = buildCommands(storage);
+    UploadPackSlice(final Storage storage, final SliceSettings settings) {
+        this.commands = UploadPackSlice.buildCommands(storage, settings);
     }
 
     @Override
     public Response response(final String line, final Iterable<Entry<String, String>> headers,
         final Publisher<ByteBuffer> body) {
-        final Publisher<ByteBuffer> cache = Flowable.fromPublisher(body).cache();
+        final PeekedBody peeked = new PeekedBody(body);
         return new AsyncResponse(
-            new PublisherAs(cache).asciiString().thenApply(GitRequest::parse).thenApply(
-                req -> req.command().map(
-                    name -> this.commands.getOrDefault(name, UploadPackSlice.SLICE_CMD_NOT_FOUND)
-                ).orElse(UploadPackSlice.SLICE_BAD_REQUEST)
-            ).thenApply(slice -> slice.response(line, headers, body))
+            peeked.command().handle(
+                (cmd, err) -> {
+                    final Slice slice;
+                    if (err == null && cmd.isPresent() && this.commands.containsKey(cmd.get())) {
+                        slice = this.commands.get(cmd.get());
+                    } else if (err == null && cmd.isPresent()) {
+                        peeked.discard();
+                        slice = UploadPackSlice.SLICE_CMD_NOT_FOUND;
+                    } else {
+                        peeked.discard();
+                        slice = UploadPackSlice.SLICE_BAD_REQUEST;
+                    }
+                    return slice;
+                }
+            ).thenApply(slice -> slice.response(line, headers, peeked))
         );
     }
 
@@ -96,11 +106,24 @@ final class UploadPackSlice implements Slice {
      * Build upload-pack service command slices.
      *
      * @param storage Repository storage
+     * @param settings Settings of git slices
      * @return Mapping of command names to slice objects
      */
-    private static Map<String, Slice> buildCommands(final Storage storage) {
-        final Map<String, Slice> map = new HashMap<>(1);
-        map.put("ls-refs", new LsRefsSlice(storage));
+    private static Map<String, Slice> buildCommands(final Storage storage,
+        final SliceSettings settings) {
+        final GitSettings git = settings.git();
+        final Map<String, Slice> map = new HashMap<>(3);
+        map.put(
+            "ls-refs",
+            new MeasuredSlice(
+                new LsRefsSlice(storage, git, settings.refs()), "ls-refs", git.metrics()
+            )
+        );
+        map.put(
+            "fetch",
+            new MeasuredSlice(new FetchSlice(storage, git), "fetch", git.metrics())
+        );
+        map.put("bundle-uri", new BundleUriSlice(new Bundles(storage, git.cache())));
         return Collections.unmodifiableMap(map);
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.metrics;
+
+/**
+ * Metrics of git operations.
+ * <p>
+ * Implementations are called on request path from any thread, so they should be
+ * thread safe and non-blocking. Methods map to Micrometer meters directly:
+ * latency to timer, bytes to counters and in-flight changes to gauge, with
+ * operation name as a tag. Operations reported by the adapter:
+ * </p>
+ * <ul>
+ *   <li>{@code info-refs}, {@code ls-refs}, {@code fetch}, {@code receive-pack}:
+ *   HTTP requests of these commands, latency is measured until response body is
+ *   sent, bytes are request and response body sizes</li>
+ *   <li>{@code git.ls-refs}, {@code git.fetch}, {@code git.receive-pack-refs},
+ *   {@code git.receive-pack}: {@code Git} SDK operations including repository
+ *   acquisition</li>
+ *   <li>{@code tmp.copy}, {@code tmp.cleanup}: {@code TmpResource} operation with
+ *   temporary storage (e.g. copy of repository) and background removal of temporary
+ *   files, in-flight cleanups are removals waiting in {@code TmpReaper}</li>
+ *   <li>{@code exec.queue}, {@code exec.run}: tasks waiting in the queue of
+ *   {@code BlockingExecutor} and running tasks</li>
+ * </ul>
+ * @since 1.0
+ */
+public interface GitMetrics {
+
+    /**
+     * Metrics which are not recorded.
+     */
+    GitMetrics NOP = new Nop();
+
+    /**
+     * Record operation latency.
+     * @param operation Operation name
+     * @param nanos Latency in nanoseconds
+     */
+    void latency(String operation, long nanos);
+
+    /**
+     * Count bytes received by operation.
+     * @param operation Operation name
+     * @param bytes Bytes count
+     */
+    void bytesIn(String operation, long bytes);
+
+    /**
+     * Count bytes sent by operation.
+     * @param operation Operation name
+     * @param bytes Bytes count
+     */
+    void bytesOut(String operation, long bytes);
+
+    /**
+     * Change count of operations in progress.
+     * @param operation Operation name
+     * @param delta Positive when operation is started, negative when finished
+     */
+    void inflight(String operation, int delta);
+
+    /**
+     * Metrics which are not recorded.
+     * @since 1.0
+     */
+    final class Nop implements GitMetrics {
+
+        @Override
+        public void latency(final String operation, final long nanos) {
+            // not recorded
+        }
+
+        @Override
+        public void bytesIn(final String operation, final long bytes) {
+            // not recorded
+        }
+
+        @Override
+        public void bytesOut(final String operation, final long bytes) {
+            // not recorded
+        }
+
+        @Override
+        public void inflight(final String operation, final int delta) {
+            // not recorded
+        }
+    }
+}
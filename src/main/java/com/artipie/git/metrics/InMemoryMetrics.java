@@ -0,0 +1,200 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics kept in memory.
+ * <p>
+ * Latencies are recorded into histograms with power of two nanosecond buckets,
+ * so recording is lock-free and doesn't allocate, percentiles are estimated by
+ * bucket upper bounds. It can be used for tests and as a source for periodic
+ * export to monitoring system.
+ * </p>
+ * @since 1.0
+ */
+public final class InMemoryMetrics implements GitMetrics {
+
+    /**
+     * Operations metrics by name.
+     */
+    private final Map<String, Operation> ops;
+
+    /**
+     * New metrics.
+     */
+    public InMemoryMetrics() {
+        this.ops = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void latency(final String operation, final long nanos) {
+        this.operation(operation).record(nanos);
+    }
+
+    @Override
+    public void bytesIn(final String operation, final long bytes) {
+        this.operation(operation).input.add(bytes);
+    }
+
+    @Override
+    public void bytesOut(final String operation, final long bytes) {
+        this.operation(operation).output.add(bytes);
+    }
+
+    @Override
+    public void inflight(final String operation, final int delta) {
+        this.operation(operation).inflight.addAndGet(delta);
+    }
+
+    /**
+     * Names of recorded operations.
+     * @return Operation names
+     */
+    public Set<String> operations() {
+        return Collections.unmodifiableSet(this.ops.keySet());
+    }
+
+    /**
+     * Count of recorded latencies.
+     * @param operation Operation name
+     * @return Count
+     */
+    public long count(final String operation) {
+        return this.operation(operation).count.sum();
+    }
+
+    /**
+     * Latency percentile estimation.
+     * @param operation Operation name
+     * @param quantile Quantile from 0 to 1
+     * @return Upper bound of latency bucket in nanoseconds, zero if nothing was recorded
+     */
+    public long percentile(final String operation, final double quantile) {
+        return this.operation(operation).percentile(quantile);
+    }
+
+    /**
+     * Total bytes received by operation.
+     * @param operation Operation name
+     * @return Bytes count
+     */
+    public long bytesIn(final String operation) {
+        return this.operation(operation).input.sum();
+    }
+
+    /**
+     * Total bytes sent by operation.
+     * @param operation Operation name
+     * @return Bytes count
+     */
+    public long bytesOut(final String operation) {
+        return this.operation(operation).output.sum();
+    }
+
+    /**
+     * Count of operations in progress.
+     * @param operation Operation name
+     * @return Count
+     */
+    public long inflight(final String operation) {
+        return this.operation(operation).inflight.get();
+    }
+
+    /**
+     * Metrics of operation.
+     * @param name Operation name
+     * @return Operation metrics
+     */
+    private Operation operation(final String name) {
+        return this.ops.computeIfAbsent(name, key -> new Operation());
+    }
+
+    /**
+     * Metrics of one operation.
+     * @since 1.0
+     */
+    private static final class Operation {
+
+        /**
+         * Latency histogram buckets: bucket {@code i} counts latencies
+         * less than {@code 2^i} nanoseconds.
+         */
+        private final LongAdder[] buckets;
+
+        /**
+         * Latencies count.
+         */
+        private final LongAdder count;
+
+        /**
+         * Received bytes.
+         */
+        private final LongAdder input;
+
+        /**
+         * Sent bytes.
+         */
+        private final LongAdder output;
+
+        /**
+         * Operations in progress.
+         */
+        private final AtomicLong inflight;
+
+        /**
+         * New operation metrics.
+         */
+        Operation() {
+            this.buckets = new LongAdder[Long.SIZE];
+            for (int idx = 0; idx < this.buckets.length; ++idx) {
+                this.buckets[idx] = new LongAdder();
+            }
+            this.count = new LongAdder();
+            this.input = new LongAdder();
+            this.output = new LongAdder();
+            this.inflight = new AtomicLong();
+        }
+
+        /**
+         * Record latency.
+         * @param nanos Latency in nanoseconds
+         */
+        void record(final long nanos) {
+            this.buckets[Long.SIZE - Long.numberOfLeadingZeros(Math.max(nanos, 0))].increment();
+            this.count.increment();
+        }
+
+        /**
+         * Latency percentile estimation.
+         * @param quantile Quantile
+         * @return Bucket upper bound
+         */
+        long percentile(final double quantile) {
+            final long total = this.count.sum();
+            final long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            long res = 0;
+            for (int idx = 0; idx < this.buckets.length && total > 0; ++idx) {
+                seen += this.buckets[idx].sum();
+                if (seen >= rank) {
+                    if (idx < Long.SIZE - 1) {
+                        res = 1L << idx;
+                    } else {
+                        res = Long.MAX_VALUE;
+                    }
+                    break;
+                }
+            }
+            return res;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+
+/**
+ * Git adapter metrics.
+ * @since 1.0
+ */
+package com.artipie.git.metrics;
@@ -0,0 +1,210 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.ArtipieIOException;
+import com.artipie.asto.Content;
+import com.artipie.asto.Copy;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.ext.PublisherAs;
+import com.artipie.asto.misc.UncheckedSupplier;
+import com.artipie.git.BlockingExecutor;
+import com.artipie.git.TmpResource;
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.transport.BundleWriter;
+
+/**
+ * Prebuilt bundles of repository for {@code bundle-uri} protocol v2 command.
+ * <p>
+ * Bundle of all branches and tags is published into repository storage under
+ * {@code bundles/} prefix, clients download it as a static file and fetch only
+ * the changes since the bundle was published. Bundle is rebuilt only when
+ * {@link RepositoryState} was changed since last publishing. Keys under
+ * {@code bundles/} are not a part of the repository: they are not copied to
+ * local mirrors and don't change repository state.
+ * </p>
+ * @since 1.0
+ * @checkstyle ClassFanOutComplexityCheck (500 lines)
+ */
+public final class Bundles {
+
+    /**
+     * Bundles keys prefix.
+     */
+    static final String PREFIX = "bundles/";
+
+    /**
+     * Bundle key.
+     */
+    private static final Key BUNDLE = new Key.From("bundles", "full.bundle");
+
+    /**
+     * Key of repository state of published bundle.
+     */
+    private static final Key STATE = new Key.From("bundles", "full.state");
+
+    /**
+     * Bundle file extension.
+     */
+    private static final String EXT = ".bundle";
+
+    /**
+     * Repository storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Repository cache.
+     */
+    private final RepositoryCache cache;
+
+    /**
+     * New bundles.
+     * @param storage Repository storage
+     * @param cache Repository cache
+     */
+    public Bundles(final Storage storage, final RepositoryCache cache) {
+        this.storage = storage;
+        this.cache = cache;
+    }
+
+    /**
+     * Publish bundle of current repository state if it's changed.
+     * @return Future completed when bundle is published
+     */
+    public CompletableFuture<Void> publish() {
+        return new RepositoryState(this.storage).fingerprint().thenCompose(
+            state -> this.storage.exists(Bundles.STATE).thenCompose(
+                exists -> {
+                    final CompletableFuture<String> prev;
+                    if (exists) {
+                        prev = this.storage.value(Bundles.STATE)
+                            .thenCompose(content -> new PublisherAs(content).asciiString())
+                            .toCompletableFuture();
+                    } else {
+                        prev = CompletableFuture.completedFuture("");
+                    }
+                    return prev;
+                }
+            ).thenCompose(
+                prev -> {
+                    final CompletableFuture<Void> res;
+                    if (prev.equals(state)) {
+                        res = CompletableFuture.completedFuture(null);
+                    } else {
+                        res = this.write().thenCompose(
+                            none -> this.storage.save(
+                                Bundles.STATE,
+                                new Content.From(state.getBytes(StandardCharsets.US_ASCII))
+                            )
+                        );
+                    }
+                    return res;
+                }
+            )
+        );
+    }
+
+    /**
+     * Publish bundle periodically.
+     * @param scheduler Scheduler
+     * @param period Delay between publishing
+     * @return Scheduled task
+     */
+    public ScheduledFuture<?> schedule(final ScheduledExecutorService scheduler,
+        final Duration period) {
+        return scheduler.scheduleWithFixedDelay(
+            () -> this.publish().handle(
+                (none, err) -> {
+                    if (err != null) {
+                        Logger.warn(Bundles.class, "Failed to publish bundle: %[exception]s", err);
+                    }
+                    return none;
+                }
+            ).join(),
+            0L, period.toMillis(), TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Check that bundle of the repository is published.
+     * @return Future with true if bundle exists
+     */
+    public CompletableFuture<Boolean> published() {
+        return this.storage.exists(Bundles.BUNDLE);
+    }
+
+    /**
+     * Names of published bundles.
+     * @return Bundle keys
+     */
+    public CompletableFuture<List<Key>> list() {
+        return this.storage.list(new Key.From("bundles")).thenApply(
+            keys -> keys.stream()
+                .filter(key -> key.string().endsWith(Bundles.EXT))
+                .sorted(Key.CMP_STRING)
+                .collect(Collectors.toList())
+        );
+    }
+
+    /**
+     * Write bundle of all branches and tags to the storage.
+     * @return Future completed when bundle is saved
+     */
+    private CompletableFuture<Void> write() {
+        return CompletableFuture.supplyAsync(
+            new UncheckedSupplier<>(() -> Files.createTempDirectory(Bundles.class.getName())),
+            BlockingExecutor.SHARED
+        ).thenCompose(
+            dir -> new TmpResource(dir).<Void>with(
+                tmp -> this.cache.with(
+                    this.storage,
+                    repo -> {
+                        final BundleWriter writer = new BundleWriter(repo);
+                        boolean empty = true;
+                        try {
+                            for (final Ref ref : repo.getRefDatabase().getRefsByPrefix(
+                                Constants.R_HEADS, Constants.R_TAGS
+                            )) {
+                                writer.include(ref);
+                                empty = false;
+                            }
+                            if (!empty) {
+                                final Path file = dir.resolve(Bundles.BUNDLE.string());
+                                Files.createDirectories(file.getParent());
+                                try (OutputStream out = Files.newOutputStream(file)) {
+                                    writer.writeBundle(NullProgressMonitor.INSTANCE, out);
+                                }
+                            }
+                        } catch (final IOException iex) {
+                            throw new ArtipieIOException(iex);
+                        }
+                        return (Void) null;
+                    }
+                ).thenCompose(
+                    none -> new Copy(tmp, Collections.singleton(Bundles.BUNDLE))
+                        .copy(this.storage)
+                )
+            ).thenApply(none -> (Void) null)
+        );
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.ArtipieIOException;
+import com.artipie.asto.Storage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Repository opened by {@link RepositoryCache}.
+ * <p>
+ * It's kept opened until it's retired from the cache and all users released it,
+ * after that the repository is closed by its {@link RepositorySource}.
+ * </p>
+ * @since 1.0
+ */
+final class CachedRepository {
+
+    /**
+     * Repository source.
+     */
+    private final RepositorySource source;
+
+    /**
+     * Repository storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Storage state this repository was opened with.
+     */
+    private final String state;
+
+    /**
+     * Opened repository.
+     */
+    private final CompletableFuture<Repository> repo;
+
+    /**
+     * Repository lifetime, completes when repository is closed.
+     */
+    private final CompletableFuture<Void> lifetime;
+
+    /**
+     * Active users count.
+     */
+    private final AtomicInteger users;
+
+    /**
+     * Retired flag: retired repository is closed when the last user releases it.
+     */
+    private final AtomicBoolean retired;
+
+    /**
+     * Closed flag.
+     */
+    private final AtomicBoolean closed;
+
+    /**
+     * Invalidated flag: invalidated repository is replaced on next usage.
+     */
+    private final AtomicBoolean stale;
+
+    /**
+     * References index, built on first request.
+     */
+    private final AtomicReference<CompletableFuture<RefIndex>> index;
+
+    /**
+     * New cached repository.
+     * @param source Repository source
+     * @param storage Repository storage
+     * @param state Storage state
+     */
+    CachedRepository(final RepositorySource source, final Storage storage,
+        final String state) {
+        this.source = source;
+        this.storage = storage;
+        this.state = state;
+        this.repo = new CompletableFuture<>();
+        this.lifetime = new CompletableFuture<>();
+        this.users = new AtomicInteger();
+        this.retired = new AtomicBoolean();
+        this.closed = new AtomicBoolean();
+        this.stale = new AtomicBoolean();
+        this.index = new AtomicReference<>();
+    }
+
+    /**
+     * Open repository.
+     * @return Future with opened repository
+     */
+    CompletableFuture<Repository> open() {
+        this.source.open(this.storage, this.lifetime).whenComplete(
+            (opened, err) -> {
+                if (err == null) {
+                    this.repo.complete(opened);
+                } else {
+                    this.repo.completeExceptionally(err);
+                }
+            }
+        );
+        return this.repo;
+    }
+
+    /**
+     * Opened repository.
+     * @return Future with repository
+     */
+    CompletableFuture<Repository> repository() {
+        return this.repo;
+    }
+
+    /**
+     * Repository is actual for storage state.
+     * @param current Current storage state
+     * @return True if repository was opened with the same state and was not invalidated
+     */
+    boolean actual(final String current) {
+        return !this.stale.get() && this.state.equals(current);
+    }
+
+    /**
+     * Invalidate this repository, it's replaced on next usage.
+     */
+    void invalidate() {
+        this.stale.set(true);
+    }
+
+    /**
+     * Size of local repository files, see {@link RepositorySource#size(Storage)}.
+     * @return Size in bytes, zero if not opened yet or has no local files
+     */
+    long size() {
+        return this.source.size(this.storage);
+    }
+
+    /**
+     * Index of repository references, it's built once for the repository.
+     * @param exec Executor of index building
+     * @return Future with references index
+     */
+    CompletableFuture<RefIndex> refs(final Executor exec) {
+        final CompletableFuture<RefIndex> built = new CompletableFuture<>();
+        CompletableFuture<RefIndex> res = built;
+        if (this.index.compareAndSet(null, built)) {
+            this.repo.thenApplyAsync(CachedRepository::index, exec).whenComplete(
+                (idx, err) -> {
+                    if (err == null) {
+                        built.complete(idx);
+                    } else {
+                        built.completeExceptionally(err);
+                    }
+                }
+            );
+        } else {
+            res = this.index.get();
+        }
+        return res;
+    }
+
+    /**
+     * Acquire repository for usage.
+     */
+    void acquire() {
+        this.users.incrementAndGet();
+    }
+
+    /**
+     * Release repository after usage.
+     */
+    void release() {
+        if (this.users.decrementAndGet() == 0 && this.retired.get()) {
+            this.close();
+        }
+    }
+
+    /**
+     * Retire this repository: it'll be closed after all users release it.
+     */
+    void retire() {
+        this.retired.set(true);
+        if (this.users.get() == 0) {
+            this.close();
+        }
+    }
+
+    /**
+     * Complete repository lifetime.
+     */
+    private void close() {
+        if (this.closed.compareAndSet(false, true)) {
+            this.lifetime.complete(null);
+        }
+    }
+
+    /**
+     * Build index of {@code HEAD} and peeled references under {@code refs/}.
+     * <p>
+     * Reftables are sorted and keep peeled references, so reftable database
+     * is used as index directly, loose and packed references are loaded and
+     * peeled into sorted index.
+     * </p>
+     * @param repo Repository
+     * @return References index
+     */
+    private static RefIndex index(final Repository repo) {
+        try {
+            final RefDatabase db = repo.getRefDatabase();
+            final RefIndex res;
+            if (db.hasVersioning()) {
+                res = new RefIndex.Tables(db);
+            } else {
+                final List<Ref> refs = new ArrayList<>(0);
+                final Ref head = db.exactRef(Constants.HEAD);
+                if (head != null) {
+                    refs.add(head);
+                }
+                for (final Ref ref : db.getRefsByPrefix(Constants.R_REFS)) {
+                    refs.add(db.peel(ref));
+                }
+                res = new RefIndex.Sorted(refs);
+            }
+            return res;
+        } catch (final IOException iex) {
+            throw new ArtipieIOException(iex);
+        }
+    }
+}
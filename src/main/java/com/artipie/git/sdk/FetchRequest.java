@@ -0,0 +1,454 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.eclipse.jgit.errors.PackProtocolException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.DepthWalk;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.transport.PacketLineIn;
+
+/**
+ * Protocol v2 {@code fetch} command request.
+ * <p>
+ * JGit protocol v2 parser can't tell delimiter packet from flush packet on
+ * recent JDKs (both markers are the same interned empty string), so fetch
+ * arguments are parsed here and converted to stateless protocol v0 request
+ * which is served by JGit upload-pack. Multi-ack-detailed and no-done
+ * capabilities are requested to keep v2 negotiation semantics, no-done is
+ * omitted if client sends {@code wait-for-done}. Unknown arguments are
+ * rejected instead of being passed to v0 want section.
+ * Shallow boundaries which can't be expressed in v0 request are resolved
+ * here, see {@link #resolved(Repository)}. Request is public only to pass it
+ * from {@link Git#checkFetch(java.io.InputStream)} to
+ * {@link Git#fetch(FetchRequest, java.io.OutputStream)} without parsing it twice.
+ * </p>
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+public final class FetchRequest {
+
+    /**
+     * Arguments which are sent as first want line capabilities in v0.
+     */
+    private static final Set<String> CAPS = new HashSet<>(
+        Arrays.asList("thin-pack", "no-progress", "include-tag", "ofs-delta", "deepen-relative")
+    );
+
+    /**
+     * Prefixes of arguments which are sent as v0 want section lines.
+     */
+    private static final List<String> ARGS = Arrays.asList(
+        "want ", "shallow ", "deepen ", "deepen-since ", "deepen-not ", "filter "
+    );
+
+    /**
+     * Capabilities of v0 request.
+     */
+    private final List<String> caps;
+
+    /**
+     * Want lines and other arguments of v0 want section.
+     */
+    private final List<String> wants;
+
+    /**
+     * Have lines.
+     */
+    private final List<String> haves;
+
+    /**
+     * Client is done with negotiation.
+     */
+    private final boolean done;
+
+    /**
+     * Client requested shallow fetch.
+     */
+    private final boolean deepen;
+
+    /**
+     * Shallow info lines resolved by server.
+     */
+    private final List<String> info;
+
+    /**
+     * New fetch request.
+     * @param caps Capabilities
+     * @param wants Want section lines
+     * @param haves Have lines
+     * @param done Done flag
+     * @param deepen Deepen flag
+     * @checkstyle ParameterNumberCheck (10 lines)
+     */
+    FetchRequest(final List<String> caps, final List<String> wants, final List<String> haves,
+        final boolean done, final boolean deepen) {
+        this(caps, wants, haves, done, deepen, Collections.emptyList());
+    }
+
+    /**
+     * New fetch request.
+     * @param caps Capabilities
+     * @param wants Want section lines
+     * @param haves Have lines
+     * @param done Done flag
+     * @param deepen Deepen flag
+     * @param info Shallow info lines resolved by server
+     * @checkstyle ParameterNumberCheck (10 lines)
+     */
+    FetchRequest(final List<String> caps, final List<String> wants, final List<String> haves,
+        final boolean done, final boolean deepen, final List<String> info) {
+        this.caps = caps;
+        this.wants = wants;
+        this.haves = haves;
+        this.done = done;
+        this.deepen = deepen;
+        this.info = info;
+    }
+
+    /**
+     * Client is done with negotiation and expects the pack.
+     * @return True if done
+     */
+    boolean done() {
+        return this.done;
+    }
+
+    /**
+     * Client waits for done before the pack, so server must not report ready.
+     * @return True if {@code wait-for-done} argument was sent
+     */
+    boolean waits() {
+        return !this.caps.contains("no-done");
+    }
+
+    /**
+     * Client requested shallow info.
+     * @return True if deepen argument was sent
+     */
+    boolean deepen() {
+        return this.deepen;
+    }
+
+    /**
+     * Shallow info lines which were resolved by server.
+     * @return Shallow and unshallow lines
+     */
+    List<String> info() {
+        return this.info;
+    }
+
+    /**
+     * Check request arguments against repository before the response is started.
+     * <p>
+     * Wanted objects must exist, {@code deepen-not} references must resolve and
+     * numeric and object id arguments must be well-formed. Reachability of wanted
+     * objects is not checked here, it's validated by upload-pack.
+     * </p>
+     * @param repo Repository
+     * @throws PackProtocolException If request is invalid
+     * @throws IOException On read error
+     */
+    void check(final Repository repo) throws IOException {
+        for (final String line : this.wants) {
+            final String arg = line.substring(line.indexOf(' ') + 1).trim();
+            if (line.startsWith("want ")) {
+                if (!ObjectId.isId(arg)
+                    || !repo.getObjectDatabase().has(ObjectId.fromString(arg))) {
+                    throw new PackProtocolException(String.format("want %s not valid", arg));
+                }
+            } else if (line.startsWith("shallow ")) {
+                if (!ObjectId.isId(arg)) {
+                    throw new PackProtocolException(
+                        String.format("Invalid shallow object: %s", arg)
+                    );
+                }
+            } else if (line.startsWith("deepen ") || line.startsWith("deepen-since ")) {
+                try {
+                    Integer.parseInt(arg);
+                } catch (final NumberFormatException err) {
+                    throw new PackProtocolException(String.format("Invalid %s", line), err);
+                }
+            } else if (line.startsWith("deepen-not ")) {
+                final Ref ref = repo.getRefDatabase().findRef(arg);
+                if (ref == null || ref.getObjectId() == null) {
+                    throw new PackProtocolException(
+                        String.format("Invalid deepen-not reference: %s", arg)
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Request with shallow boundary resolved on the server.
+     * <p>
+     * JGit v0 upload-pack supports only {@code deepen <depth>} argument, so the
+     * boundary of {@code deepen-since}, {@code deepen-not} and
+     * {@code deepen-relative} requests is found here by depth walk from wanted
+     * commits, or from client shallow commits for relative deepening. The walk
+     * stops at the boundary and doesn't visit the rest of history. Boundary
+     * commits are sent to upload-pack as client shallow commits, so the pack
+     * ends at them, and parents of unshallowed commits are wanted: they are not
+     * advertised, so upload-pack must accept reachable commits.
+     * </p>
+     * @param repo Repository
+     * @return Request which can be served by v0 upload-pack
+     * @throws IOException On read error or unknown deepen-not reference
+     * @checkstyle CyclomaticComplexityCheck (100 lines)
+     * @checkstyle ExecutableStatementCountCheck (100 lines)
+     */
+    @SuppressWarnings("PMD.CognitiveComplexity")
+    FetchRequest resolved(final Repository repo) throws IOException {
+        final boolean relative = this.caps.contains("deepen-relative");
+        final FetchRequest res;
+        if (relative || this.wants.stream().anyMatch(
+            line -> line.startsWith("deepen-since ") || line.startsWith("deepen-not ")
+        )) {
+            int depth = 0;
+            int since = 0;
+            final List<ObjectId> nots = new ArrayList<>(0);
+            final Set<ObjectId> shallow = new HashSet<>();
+            final List<ObjectId> wanted = new ArrayList<>(1);
+            final List<String> lines = new ArrayList<>(this.wants.size());
+            for (final String line : this.wants) {
+                final String arg = line.substring(line.indexOf(' ') + 1).trim();
+                if (line.startsWith("deepen ")) {
+                    depth = Integer.parseInt(arg);
+                } else if (line.startsWith("deepen-since ")) {
+                    since = Integer.parseInt(arg);
+                } else if (line.startsWith("deepen-not ")) {
+                    final Ref ref = repo.getRefDatabase().findRef(arg);
+                    if (ref == null || ref.getObjectId() == null) {
+                        throw new PackProtocolException(
+                            String.format("Invalid deepen-not reference: %s", arg)
+                        );
+                    }
+                    nots.add(ref.getObjectId());
+                } else {
+                    if (line.startsWith("shallow ")) {
+                        shallow.add(ObjectId.fromString(arg));
+                    } else if (line.startsWith("want ")) {
+                        wanted.add(ObjectId.fromString(arg));
+                        lines.add(line);
+                    } else {
+                        lines.add(line);
+                    }
+                }
+            }
+            final int limit;
+            if (depth == 0) {
+                limit = Integer.MAX_VALUE;
+            } else if (relative) {
+                limit = depth;
+            } else {
+                limit = depth - 1;
+            }
+            final List<String> info = new ArrayList<>(1);
+            final Set<ObjectId> boundary = new HashSet<>(shallow);
+            try (DepthWalk.RevWalk walk = new DepthWalk.RevWalk(repo, limit)) {
+                walk.setDeepenSince(since);
+                final Collection<ObjectId> roots;
+                if (relative) {
+                    roots = shallow;
+                } else {
+                    roots = wanted;
+                }
+                for (final ObjectId root : roots) {
+                    final RevObject obj = walk.parseAny(root);
+                    if (obj instanceof RevCommit) {
+                        walk.markRoot((RevCommit) obj);
+                    }
+                }
+                walk.setDeepenNots(nots);
+                for (RevCommit next = walk.next(); next != null; next = walk.next()) {
+                    final DepthWalk.Commit commit = (DepthWalk.Commit) next;
+                    if (commit.getDepth() == limit || commit.isBoundary()) {
+                        if (boundary.add(commit.copy())) {
+                            info.add(String.format("shallow %s", commit.name()));
+                        }
+                    } else if (shallow.contains(commit)) {
+                        info.add(String.format("unshallow %s", commit.name()));
+                        for (final RevCommit parent : commit.getParents()) {
+                            lines.add(String.format("want %s", parent.name()));
+                        }
+                    }
+                }
+            }
+            for (final ObjectId commit : boundary) {
+                lines.add(String.format("shallow %s", commit.name()));
+            }
+            final List<String> caps = new ArrayList<>(this.caps);
+            caps.remove("deepen-relative");
+            res = new FetchRequest(
+                Collections.unmodifiableList(caps), Collections.unmodifiableList(lines),
+                this.haves, this.done, this.deepen, Collections.unmodifiableList(info)
+            );
+        } else {
+            res = this;
+        }
+        return res;
+    }
+
+    /**
+     * Key of cached response.
+     * <p>
+     * Only final requests of fresh clones without haves are cacheable, shallow
+     * requests are cacheable unless boundary depends on references by
+     * {@code deepen-not} argument. Key is calculated from repository identity,
+     * wanted objects with other want section arguments (e.g. filter),
+     * capabilities except agent, and all references tips, so the response
+     * depends on the key only: reachability of wanted objects is validated
+     * by generated response and is the same for cache hits. Wanted objects
+     * must exist in the repository.
+     * </p>
+     * @param id Repository identity
+     * @param repo Repository
+     * @return Cache key if request is cacheable
+     * @throws IOException On read error
+     */
+    Optional<String> cacheKey(final String id, final Repository repo) throws IOException {
+        Optional<String> res = Optional.empty();
+        if (this.done && this.haves.isEmpty()
+            && this.wants.stream().noneMatch(line -> line.startsWith("deepen-not "))) {
+            final MessageDigest digest = Constants.newMessageDigest();
+            digest.update(Constants.encode(id));
+            digest.update((byte) '\n');
+            final List<String> lines = new ArrayList<>(this.wants);
+            lines.sort(String::compareTo);
+            boolean exists = true;
+            for (final String line : lines) {
+                if (line.startsWith("want ")) {
+                    final String want = line.substring("want ".length()).trim();
+                    exists &= ObjectId.isId(want)
+                        && repo.getObjectDatabase().has(ObjectId.fromString(want));
+                }
+                digest.update(Constants.encode(line));
+                digest.update((byte) '\n');
+            }
+            final List<String> sorted = new ArrayList<>(this.caps);
+            sorted.sort(String::compareTo);
+            for (final String cap : sorted) {
+                if (!cap.startsWith("agent=")) {
+                    digest.update(Constants.encode(cap));
+                    digest.update((byte) '\n');
+                }
+            }
+            final List<Ref> refs = new ArrayList<>(repo.getRefDatabase().getRefs());
+            refs.sort(Comparator.comparing(Ref::getName));
+            for (final Ref ref : refs) {
+                digest.update(Constants.encode(ref.getName()));
+                if (ref.getObjectId() != null) {
+                    digest.update(Constants.encode(ref.getObjectId().name()));
+                }
+                digest.update((byte) '\n');
+            }
+            if (exists) {
+                res = Optional.of(ObjectId.fromRaw(digest.digest()).name());
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Stateless protocol v0 request data.
+     * @return Request bytes
+     * @throws IOException On write error
+     */
+    byte[] legacy() throws IOException {
+        final ByteArrayOutputStream res = new ByteArrayOutputStream();
+        final PktLineEncoder out = new PktLineEncoder(res);
+        boolean first = true;
+        for (final String line : this.wants) {
+            if (first && line.startsWith("want ")) {
+                out.writeLine(String.format("%s %s", line, String.join(" ", this.caps)));
+                first = false;
+            } else {
+                out.writeLine(line);
+            }
+        }
+        out.writeFlush();
+        for (final String line : this.haves) {
+            out.writeLine(line);
+        }
+        if (this.done) {
+            out.writeLine("done");
+        } else {
+            out.writeFlush();
+        }
+        out.flush();
+        return res.toByteArray();
+    }
+
+    /**
+     * Read fetch request including command line.
+     * <p>
+     * Packets are positional here: first empty packet after capabilities is
+     * a delimiter and the second one is a flush.
+     * </p>
+     * @param in Packet line input
+     * @return Fetch request
+     * @throws IOException On read error
+     */
+    @SuppressWarnings("PMD.ProhibitPublicStaticMethods")
+    static FetchRequest read(final PacketLineIn in) throws IOException {
+        final List<String> caps = new ArrayList<>(
+            Arrays.asList("multi_ack_detailed", "no-done", "side-band-64k")
+        );
+        final String command = in.readString();
+        if (!"command=fetch".equals(command)) {
+            throw new PackProtocolException(
+                String.format("Unexpected fetch command: %s", command)
+            );
+        }
+        for (String line = in.readString(); !line.isEmpty(); line = in.readString()) {
+            if (line.startsWith("agent=")) {
+                caps.add(line);
+            }
+        }
+        final List<String> wants = new ArrayList<>(1);
+        final List<String> haves = new ArrayList<>(0);
+        boolean done = false;
+        boolean deepen = false;
+        for (String line = in.readString(); !line.isEmpty(); line = in.readString()) {
+            if (line.startsWith("have ")) {
+                haves.add(line);
+            } else if ("done".equals(line)) {
+                done = true;
+            } else if ("wait-for-done".equals(line)) {
+                caps.remove("no-done");
+            } else if (FetchRequest.CAPS.contains(line)) {
+                caps.add(line);
+            } else if (FetchRequest.ARGS.stream().anyMatch(line::startsWith)) {
+                deepen |= line.startsWith("deepen");
+                wants.add(line);
+            } else {
+                throw new PackProtocolException(
+                    String.format("Unexpected fetch argument: %s", line)
+                );
+            }
+        }
+        return new FetchRequest(
+            Collections.unmodifiableList(caps), Collections.unmodifiableList(wants),
+            Collections.unmodifiableList(haves), done, deepen
+        );
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Output stream which converts stateless protocol v0 upload-pack response
+ * to protocol v2 {@code fetch} response.
+ * <p>
+ * Shallow and acknowledgment lines are collected until the pack starts, starting
+ * with shallow lines resolved by {@link FetchRequest} itself, then v2 sections
+ * are written and side-band pack data is passed through as is.
+ * See {@link FetchRequest} for details.
+ * </p>
+ * @since 1.0
+ * @checkstyle MagicNumberCheck (300 lines)
+ */
+final class FetchResponseOutput extends OutputStream {
+
+    /**
+     * Target output.
+     */
+    private final OutputStream out;
+
+    /**
+     * Encoder of v2 response lines.
+     */
+    private final PktLineEncoder enc;
+
+    /**
+     * Fetch request.
+     */
+    private final FetchRequest req;
+
+    /**
+     * Pending bytes of response head.
+     */
+    private final ByteArrayOutputStream head;
+
+    /**
+     * Shallow info lines.
+     */
+    private final List<String> shallow;
+
+    /**
+     * Acknowledgment lines.
+     */
+    private final List<String> acks;
+
+    /**
+     * Server is ready to send pack.
+     */
+    private boolean ready;
+
+    /**
+     * Pack data is passed through.
+     */
+    private boolean pack;
+
+    /**
+     * New output.
+     * @param out Target output
+     * @param req Fetch request
+     */
+    FetchResponseOutput(final OutputStream out, final FetchRequest req) {
+        super();
+        this.out = out;
+        this.enc = new PktLineEncoder(out, 1024);
+        this.req = req;
+        this.head = new ByteArrayOutputStream();
+        this.shallow = new ArrayList<>(req.info());
+        this.acks = new ArrayList<>(0);
+    }
+
+    @Override
+    public void write(final int data) throws IOException {
+        this.write(new byte[]{(byte) data}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] src, final int off, final int len) throws IOException {
+        if (this.pack) {
+            this.out.write(src, off, len);
+        } else {
+            this.head.write(src, off, len);
+            this.parse();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (this.pack) {
+            this.out.flush();
+        }
+    }
+
+    /**
+     * Finish the response if pack was not sent.
+     * @throws IOException On write error
+     */
+    void finish() throws IOException {
+        if (!this.pack && !this.req.done()) {
+            this.acknowledgments(this.enc);
+            this.enc.writeFlush();
+        }
+        this.enc.flush();
+    }
+
+    /**
+     * Parse complete packets of response head.
+     * @throws IOException On write error
+     */
+    private void parse() throws IOException {
+        final byte[] buf = this.head.toByteArray();
+        int pos = 0;
+        while (!this.pack && buf.length - pos >= 4) {
+            int len = Integer.parseInt(new String(buf, pos, 4, StandardCharsets.US_ASCII), 16);
+            if (len < 4) {
+                len = 4;
+            } else if (buf.length - pos < len) {
+                break;
+            }
+            this.accept(new String(buf, pos + 4, len - 4, StandardCharsets.UTF_8).trim());
+            pos += len;
+        }
+        this.head.reset();
+        if (this.pack) {
+            this.out.write(buf, pos, buf.length - pos);
+        } else {
+            this.head.write(buf, pos, buf.length - pos);
+        }
+    }
+
+    /**
+     * Accept response head line.
+     * @param line Line without length and line feed, empty for flush packet
+     * @throws IOException On write error
+     */
+    private void accept(final String line) throws IOException {
+        if (line.startsWith("shallow ") || line.startsWith("unshallow ")) {
+            this.shallow.add(line);
+        } else if (line.startsWith("ACK ") && line.endsWith(" common")) {
+            this.acks.add(line.substring(0, line.length() - 7));
+        } else if (line.startsWith("ACK ") && line.endsWith(" ready")) {
+            this.ready = true;
+        } else if (line.startsWith("ACK ") || "NAK".equals(line) && this.req.done()) {
+            this.start();
+        } else if (line.startsWith("ERR ")) {
+            this.enc.writeLine(line).flush();
+        }
+    }
+
+    /**
+     * Write v2 response sections before pack data.
+     * @throws IOException On write error
+     */
+    private void start() throws IOException {
+        if (!this.req.done()) {
+            this.acknowledgments(this.enc);
+            this.enc.writeDelim();
+        }
+        if (this.req.deepen()) {
+            this.enc.writeLine("shallow-info");
+            for (final String line : this.shallow) {
+                this.enc.writeLine(line);
+            }
+            this.enc.writeDelim();
+        }
+        this.enc.writeLine("packfile").flush();
+        this.pack = true;
+    }
+
+    /**
+     * Write acknowledgments section without trailing packet.
+     * @param pkt Packet line encoder
+     * @throws IOException On write error
+     */
+    private void acknowledgments(final PktLineEncoder pkt) throws IOException {
+        pkt.writeLine("acknowledgments");
+        for (final String ack : this.acks) {
+            pkt.writeLine(ack);
+        }
+        if (this.ready && !this.req.waits()) {
+            pkt.writeLine("ready");
+        } else if (this.acks.isEmpty()) {
+            pkt.writeLine("NAK");
+        }
+    }
+}
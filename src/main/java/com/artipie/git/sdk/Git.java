@@ -5,23 +5,40 @@
 package com.artipie.git.sdk;
 
 import com.artipie.asto.ArtipieIOException;
-import com.artipie.asto.Copy;
 import com.artipie.asto.Storage;
-import com.artipie.asto.misc.UncheckedSupplier;
-import com.artipie.git.TmpResource;
+import com.artipie.git.dfs.AstoRepository;
+import com.artipie.git.metrics.GitMetrics;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import org.eclipse.jgit.internal.storage.file.FileRepository;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.eclipse.jgit.errors.PackProtocolException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.transport.PacketLineOut;
-import org.eclipse.jgit.transport.RefAdvertiser;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.eclipse.jgit.transport.PacketLineIn;
+import org.eclipse.jgit.transport.ReceivePack;
+import org.eclipse.jgit.transport.TransferConfig;
+import org.eclipse.jgit.transport.UploadPack;
 
 /**
  * Git SDK.
  * @since 1.0
- * @checkstyle MethodBodyCommentsCheck (500 lines)
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ * @checkstyle ClassFanOutComplexityCheck (500 lines)
  */
 public final class Git {
 
@@ -31,51 +48,493 @@ public final class Git {
     private final Storage storage;
 
     /**
-     * New git SDK.
+     * Repository cache.
+     */
+    private final RepositoryCache cache;
+
+    /**
+     * Metrics.
+     */
+    private final GitMetrics metrics;
+
+    /**
+     * Executor of blocking operations.
+     */
+    private final Executor exec;
+
+    /**
+     * Memory budget of pack generation in bytes, zero if not limited.
+     */
+    private final long memory;
+
+    /**
+     * Cache of fetch responses.
+     */
+    private final PackCache packs;
+
+    /**
+     * New git SDK with default settings.
      * @param storage Repository storage
      */
     public Git(final Storage storage) {
+        this(storage, new GitSettings());
+    }
+
+    /**
+     * New git SDK with default settings and repository cache.
+     * @param storage Repository storage
+     * @param cache Repository cache
+     */
+    public Git(final Storage storage, final RepositoryCache cache) {
+        this(storage, new GitSettings().withCache(cache));
+    }
+
+    /**
+     * New git SDK.
+     * @param storage Repository storage
+     * @param settings Settings of git operations
+     */
+    public Git(final Storage storage, final GitSettings settings) {
         this.storage = storage;
+        this.cache = settings.cache();
+        this.metrics = settings.metrics();
+        this.exec = settings.executor();
+        this.memory = settings.memory();
+        this.packs = settings.packs();
     }
 
     /**
-     * Perform ls-refs command on a git reposirory.
+     * Perform ls-refs command on a git reposirory with peeled tags.
      * @param out Output stream for response
      * @return Status future
      */
-    @SuppressWarnings("PMD.AvoidDuplicateLiterals")
     public CompletableFuture<? extends Void> lsRefs(final OutputStream out) {
-        return CompletableFuture.supplyAsync(
-            new UncheckedSupplier<>(() -> Files.createTempDirectory(Git.class.getName()))
-        ).thenCompose(
-            tmp -> new TmpResource(tmp).<Void>with(
-                tsto -> new Copy(this.storage).copy(tsto).<Void>thenApply(
-                    none -> {
-                        try {
-                            final Repository repo = new FileRepository(
-                                tmp.toAbsolutePath().toFile()
-                            );
-                            // every bare repository must have `HEAD` reference:
-                            // no `HEAD` means that repository doesn't exist here,
-                            // and we should create it.
-                            if (repo.resolve("HEAD") == null) {
-                                repo.create(true);
+        return this.lsRefs(new GitRequest(Collections.singletonList("peel")), out);
+    }
+
+    /**
+     * Perform ls-refs command on a git reposirory.
+     * <p>
+     * References are filtered by {@code ref-prefix} arguments of the request
+     * with {@link RefIndex} of cached repository, symbolic references targets,
+     * peeled tags and unborn {@code HEAD} are advertised if requested by
+     * {@code symrefs}, {@code peel} and {@code unborn} arguments.
+     * </p>
+     * @param req Request with command arguments
+     * @param out Output stream for response
+     * @return Status future
+     */
+    public CompletableFuture<? extends Void> lsRefs(final GitRequest req,
+        final OutputStream out) {
+        return this.measured(
+            "git.ls-refs",
+            () -> this.cache.refs(
+                this.storage,
+                index -> {
+                    try {
+                        final PktLineEncoder enc = new PktLineEncoder(out);
+                        for (final Ref ref : index.find(req.arguments("ref-prefix"))) {
+                            final Optional<String> line = Git.advertised(ref, req);
+                            if (line.isPresent()) {
+                                enc.writeLine(line.get());
                             }
-                            final PacketLineOut plout = new PacketLineOut(out);
-                            final RefAdvertiser adv =
-                                new RefAdvertiser.PacketLineOutRefAdvertiser(plout);
-                            adv.init(repo);
-                            adv.setDerefTags(true);
-                            adv.send(repo.getRefDatabase().getRefsByPrefix("HEAD"));
-                            adv.send(repo.getRefDatabase().getRefsByPrefix("refs/"));
-                            plout.end();
-                        } catch (final IOException iex) {
-                            throw new ArtipieIOException(iex);
                         }
-                        return (Void) null;
+                        enc.writeFlush().flush();
+                    } catch (final IOException iex) {
+                        throw new ArtipieIOException(iex);
+                    }
+                    return (Void) null;
+                }
+            )
+        );
+    }
+
+    /**
+     * Entity tag of ls-refs response.
+     * <p>
+     * Tag is a digest of references fingerprint, see
+     * {@link RepositoryCache#refsState(Storage)}, and of request arguments which
+     * change the response, so equal tags mean equal responses of
+     * {@link #lsRefs(GitRequest, OutputStream)}. It's not changed by repacking, it
+     * doesn't open the repository and doesn't read storage until push invalidates
+     * the fingerprint.
+     * </p>
+     * @param req Request with command arguments
+     * @return Future with hex string of the tag
+     */
+    public CompletableFuture<String> refsTag(final GitRequest req) {
+        return this.cache.refsState(this.storage).thenApply(
+            state -> {
+                final MessageDigest digest = RepositoryState.sha();
+                digest.update(state.getBytes(StandardCharsets.US_ASCII));
+                for (final String flag : new String[]{"peel", "symrefs", "unborn"}) {
+                    if (req.flag(flag)) {
+                        digest.update((byte) 0);
+                        digest.update(flag.getBytes(StandardCharsets.US_ASCII));
                     }
+                }
+                for (final String prefix : new TreeSet<>(req.arguments("ref-prefix"))) {
+                    digest.update((byte) 0);
+                    digest.update(prefix.getBytes(StandardCharsets.UTF_8));
+                }
+                return ObjectId.fromRaw(digest.digest()).name();
+            }
+        );
+    }
+
+    /**
+     * Check protocol v2 fetch request before the response is started.
+     * <p>
+     * Request is parsed, unknown arguments are rejected and arguments are checked
+     * against the repository, see {@link FetchRequest#check(Repository)}. Request
+     * is read by executor thread, so the stream must be buffered in memory and
+     * must not wait for the client. Checked request is served by
+     * {@link #fetch(FetchRequest, OutputStream)} without parsing it again.
+     * </p>
+     * @param in Input stream of buffered request
+     * @return Future with the request, failed with {@link PackProtocolException}
+     *  cause if request is invalid
+     */
+    public CompletableFuture<FetchRequest> checkFetch(final InputStream in) {
+        return this.cache.with(
+            this.storage,
+            repo -> {
+                final FetchRequest req;
+                try {
+                    req = FetchRequest.read(new PacketLineIn(in));
+                } catch (final PackProtocolException err) {
+                    throw new ArtipieIOException(err);
+                } catch (final IOException iex) {
+                    throw new ArtipieIOException(
+                        new PackProtocolException(
+                            String.format("Malformed fetch request: %s", iex.getMessage()), iex
+                        )
+                    );
+                }
+                try {
+                    req.check(repo);
+                } catch (final IOException iex) {
+                    throw new ArtipieIOException(iex);
+                }
+                return req;
+            }
+        );
+    }
+
+    /**
+     * Perform protocol v2 fetch command on a git repository.
+     * <p>
+     * Request is read from input stream including command line, capabilities and
+     * arguments. Negotiation response and generated pack are written to output
+     * stream as they are produced. If request fails after the response was
+     * started, {@code ERR} packet with error message is written to output stream
+     * before the future completes exceptionally, so the client reports the error
+     * instead of unexpected disconnect.
+     * </p>
+     * @param in Input stream of request
+     * @param out Output stream for response
+     * @return Status future
+     */
+    public CompletableFuture<? extends Void> fetch(final InputStream in,
+        final OutputStream out) {
+        return this.fetch(() -> FetchRequest.read(new PacketLineIn(in)), out);
+    }
+
+    /**
+     * Perform protocol v2 fetch command with request checked by
+     * {@link #checkFetch(InputStream)}.
+     * @param req Fetch request
+     * @param out Output stream for response
+     * @return Status future
+     */
+    public CompletableFuture<? extends Void> fetch(final FetchRequest req,
+        final OutputStream out) {
+        return this.fetch(() -> req, out);
+    }
+
+    /**
+     * Perform protocol v2 fetch command, errors of reading the request are
+     * reported to output stream as errors of fetch.
+     * @param request Source of fetch request
+     * @param out Output stream for response
+     * @return Status future
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private CompletableFuture<? extends Void> fetch(final Request request,
+        final OutputStream out) {
+        return this.measured(
+            "git.fetch",
+            () -> this.cache.with(
+                this.storage,
+                repo -> {
+                    try {
+                        final FetchRequest req = request.get();
+                        final Optional<String> key;
+                        if (this.packs.enabled()) {
+                            key = req.cacheKey(this.packs.identity(this.storage), repo);
+                        } else {
+                            key = Optional.empty();
+                        }
+                        if (key.isPresent()) {
+                            this.packs.write(
+                                key.get(), out, target -> this.upload(repo, req, target)
+                            );
+                        } else {
+                            this.upload(repo, req, out);
+                        }
+                    } catch (final IOException iex) {
+                        Git.report(out, iex);
+                        throw new ArtipieIOException(iex);
+                    } catch (final RuntimeException err) {
+                        Git.report(out, err);
+                        throw err;
+                    }
+                    return (Void) null;
+                }
+            )
+        );
+    }
+
+    /**
+     * Check that repository accepts pushes before the response is started.
+     * <p>
+     * Pushed objects are checked and written by {@link AstoRepository}, which
+     * reads packed objects only, so push to repository with loose objects would
+     * fail with missing objects. Such repository must be repacked first, e.g. by
+     * {@code git repack -a -d}.
+     * </p>
+     * @return Future with reason of refusal, empty if pushes are accepted
+     */
+    public CompletableFuture<Optional<String>> checkReceivePack() {
+        return AstoRepository.loose(this.storage).thenApply(
+            loose -> loose.map(
+                key -> String.format(
+                    "Repository has loose object %s, repack it with `git repack -a -d` to push",
+                    key.string()
                 )
             )
         );
     }
+
+    /**
+     * Advertise references for receive-pack service.
+     * @param out Output stream for advertisement
+     * @return Status future
+     */
+    public CompletableFuture<? extends Void> receivePackRefs(final OutputStream out) {
+        return this.measured(
+            "git.receive-pack-refs",
+            () -> this.cache.with(
+                this.storage,
+                repo -> {
+                    final ReceivePack rcv = new ReceivePack(repo);
+                    rcv.setBiDirectionalPipe(false);
+                    try {
+                        rcv.sendAdvertisedRefs(
+                            new PktLineRefAdvertiser(new PktLineEncoder(out))
+                        );
+                    } catch (final IOException iex) {
+                        throw new ArtipieIOException(iex);
+                    }
+                    return (Void) null;
+                }
+            )
+        );
+    }
+
+    /**
+     * Perform receive-pack command on a git repository.
+     * <p>
+     * Pushed pack is read from request stream and written to the storage as is
+     * while it's being indexed, objects are not unpacked and the repository is
+     * not copied to local file system. References are updated after the pack
+     * and its index are saved. Push is refused if repository has loose objects,
+     * see {@link #checkReceivePack()}.
+     * </p>
+     * @param in Input stream of request with commands and pack
+     * @param out Output stream for status report
+     * @return Status future
+     */
+    public CompletableFuture<? extends Void> receivePack(final InputStream in,
+        final OutputStream out) {
+        return this.measured(
+            "git.receive-pack",
+            () -> this.checkReceivePack().thenAcceptAsync(
+                refused -> {
+                    if (refused.isPresent()) {
+                        throw new ArtipieIOException(refused.get());
+                    }
+                    try (Repository repo = new AstoRepository(
+                        this.storage, UUID.randomUUID().toString()
+                    )) {
+                        final ReceivePack rcv = new ReceivePack(repo);
+                        rcv.setBiDirectionalPipe(false);
+                        rcv.receive(in, out, null);
+                    } catch (final IOException iex) {
+                        throw new ArtipieIOException(iex);
+                    }
+                },
+                this.exec
+            ).whenComplete((none, err) -> this.cache.invalidate(this.storage))
+        );
+    }
+
+    /**
+     * Serve fetch request by JGit upload-pack.
+     * <p>
+     * Object filters of partial clone are enabled, so {@code filter} argument
+     * is applied by pack writer while it walks objects: filtered blobs and trees
+     * are never read or written. Shallow boundary which v0 upload-pack
+     * can't compute is resolved before, see {@link FetchRequest#resolved(Repository)}.
+     * Objects of the pack are counted with reachability bitmaps if repository packs
+     * have bitmap index, objects which are not covered by bitmaps are found by walk.
+     * Wanted commits which are not advertised anymore, e.g. when reference was
+     * updated after {@code ls-refs}, are accepted if they are reachable from
+     * references: the check uses bitmaps too. Counting time is reported as
+     * {@code git.fetch.counting.bitmap} or {@code git.fetch.counting.walk} latency.
+     * </p>
+     * @param repo Repository
+     * @param req Fetch request
+     * @param out Output stream for response
+     * @throws IOException On error
+     */
+    private void upload(final Repository repo, final FetchRequest req, final OutputStream out)
+        throws IOException {
+        final FetchRequest legacy = req.resolved(repo);
+        final FetchResponseOutput res = new FetchResponseOutput(out, legacy);
+        final UploadPack upload = new UploadPack(repo);
+        upload.setBiDirectionalPipe(false);
+        upload.setTransferConfig(Git.filtering(repo));
+        upload.setRequestPolicy(UploadPack.RequestPolicy.REACHABLE_COMMIT);
+        if (this.memory > 0) {
+            upload.setPackConfig(Git.limited(repo, this.memory));
+        }
+        upload.upload(new ByteArrayInputStream(legacy.legacy()), res, null);
+        res.finish();
+        final PackStatistics stats = upload.getStatistics();
+        if (stats != null) {
+            final String counting;
+            if (stats.getBitmapIndexMisses() < 0) {
+                counting = "git.fetch.counting.walk";
+            } else {
+                counting = "git.fetch.counting.bitmap";
+            }
+            this.metrics.latency(counting, TimeUnit.MILLISECONDS.toNanos(stats.getTimeCounting()));
+        }
+    }
+
+    /**
+     * Write {@code ERR} packet with error message, failure to write it is
+     * added to the error as suppressed exception.
+     * @param out Output stream of response
+     * @param err Error
+     */
+    private static void report(final OutputStream out, final Exception err) {
+        String msg = err.getMessage();
+        if (msg == null) {
+            msg = err.getClass().getSimpleName();
+        }
+        try {
+            final PktLineEncoder enc = new PktLineEncoder(out);
+            enc.writeLine(String.format("ERR %s", msg));
+            enc.flush();
+        } catch (final IOException iex) {
+            err.addSuppressed(iex);
+        }
+    }
+
+    /**
+     * Transfer configuration of repository which allows object filters.
+     * @param repo Repository
+     * @return Transfer configuration
+     */
+    private static TransferConfig filtering(final Repository repo) {
+        final Config cfg = new Config(repo.getConfig());
+        cfg.setBoolean("uploadpack", null, "allowfilter", true);
+        return new TransferConfig(cfg);
+    }
+
+    /**
+     * Pack writer configuration which fits memory budget: half of the budget is
+     * used for delta search window and a quarter for delta cache, larger objects
+     * are not delta compressed, pack is written by single thread.
+     * @param repo Repository
+     * @param memory Memory budget in bytes
+     * @return Pack configuration
+     */
+    private static PackConfig limited(final Repository repo, final long memory) {
+        final PackConfig cfg = new PackConfig(repo);
+        cfg.setThreads(1);
+        cfg.setDeltaSearchMemoryLimit(memory / 2);
+        cfg.setDeltaCacheSize(memory / 4);
+        cfg.setBigFileThreshold(
+            (int) Math.min(cfg.getBigFileThreshold(), Math.min(memory / 4, Integer.MAX_VALUE))
+        );
+        return cfg;
+    }
+
+    /**
+     * Protocol v2 ls-refs line of reference.
+     * @param ref Reference
+     * @param req Request with command arguments
+     * @return Line if reference is advertised
+     */
+    private static Optional<String> advertised(final Ref ref, final GitRequest req) {
+        final StringBuilder line = new StringBuilder(ref.getName().length() * 2);
+        final ObjectId oid = ref.getObjectId();
+        if (oid != null) {
+            line.append(oid.name()).append(' ').append(ref.getName());
+        } else if (ref.isSymbolic() && req.flag("unborn")) {
+            line.append("unborn ").append(ref.getName());
+        }
+        if (line.length() > 0 && ref.isSymbolic() && req.flag("symrefs")) {
+            line.append(" symref-target:").append(ref.getTarget().getName());
+        }
+        if (line.length() > 0 && ref.getPeeledObjectId() != null && req.flag("peel")) {
+            line.append(" peeled:").append(ref.getPeeledObjectId().name());
+        }
+        return Optional.of(line.toString()).filter(str -> !str.isEmpty());
+    }
+
+    /**
+     * Perform operation and report its latency.
+     * @param operation Operation name
+     * @param action Operation action
+     * @param <T> Result type
+     * @return Operation result future
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private <T> CompletableFuture<T> measured(final String operation,
+        final Supplier<CompletableFuture<T>> action) {
+        final long start = System.nanoTime();
+        this.metrics.inflight(operation, 1);
+        final CompletableFuture<T> res;
+        try {
+            res = action.get();
+        } catch (final RuntimeException err) {
+            this.metrics.inflight(operation, -1);
+            throw err;
+        }
+        return res.whenComplete(
+            (val, err) -> {
+                this.metrics.latency(operation, System.nanoTime() - start);
+                this.metrics.inflight(operation, -1);
+            }
+        );
+    }
+
+    /**
+     * Source of fetch request.
+     * @since 1.0
+     */
+    @FunctionalInterface
+    private interface Request {
+
+        /**
+         * Read fetch request.
+         * @return Fetch request
+         * @throws IOException On read error
+         */
+        FetchRequest get() throws IOException;
+    }
 }
@@ -5,16 +5,17 @@
 package com.artipie.git.sdk;
 
 import com.artipie.ArtipieException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Git request data accessor.
  * @since 1.0
- * @checkstyle MagicNumberCheck (300 lines)
- * @checkstyle MethodBodyCommentsCheck (300 lines)
  */
 public final class GitRequest {
     /**
@@ -42,6 +43,27 @@ public final class GitRequest {
             .map(line -> line.substring(8)).findFirst().map(String::trim);
     }
 
+    /**
+     * Values of command argument, e.g. {@code ref-prefix refs/heads/}.
+     * @param name Argument name
+     * @return Values in request order
+     */
+    public List<String> arguments(final String name) {
+        final String prefix = String.format("%s ", name);
+        return this.lines.stream().filter(line -> line.startsWith(prefix))
+            .map(line -> line.substring(prefix.length()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Check command argument without value, e.g. {@code peel}.
+     * @param name Argument name
+     * @return True if request has the argument
+     */
+    public boolean flag(final String name) {
+        return this.lines.contains(name);
+    }
+
     /**
      * Parsed parts.
      * @return Immutable list
@@ -58,22 +80,30 @@ public final class GitRequest {
      */
     @SuppressWarnings("PMD.ProhibitPublicStaticMethods")
     public static GitRequest parse(final String raw) {
-        String rest = raw;
+        return GitRequest.parse(
+            new PktLineDecoder().feed(ByteBuffer.wrap(raw.getBytes(StandardCharsets.ISO_8859_1)))
+        );
+    }
+
+    /**
+     * Parse request data from decoder.
+     * <p>
+     * All decoded data packets are taken as request lines, special packets are skipped.
+     * </p>
+     * @param decoder Decoder with request data
+     * @return Request data accessor
+     * @throws ArtipieException In case of request is invalid
+     */
+    @SuppressWarnings("PMD.ProhibitPublicStaticMethods")
+    public static GitRequest parse(final PktLineDecoder decoder) {
         final List<String> lines = new ArrayList<>(10);
-        while (!rest.isEmpty()) {
-            if (rest.length() < 4) {
-                throw new ArtipieException("Invalid git request line lengh");
+        for (Optional<PktLine> pkt = decoder.next(); pkt.isPresent(); pkt = decoder.next()) {
+            if (pkt.get().isData()) {
+                lines.add(pkt.get().text());
             }
-            // parse line prefix (first 4 ASCI chars as hex digits) to integer
-            final int len = Integer.parseInt(rest.substring(0, 4), 16);
-            // sometimes git request contain length smaller than 4 instead of just skipping it
-            if (len < 4) {
-                rest = rest.substring(4);
-                continue;
-            }
-            final String line = rest.substring(4, len);
-            lines.add(line);
-            rest = rest.substring(len);
+        }
+        if (!decoder.isEmpty()) {
+            throw new ArtipieException("Incomplete git request line");
         }
         return new GitRequest(lines);
     }
@@ -0,0 +1,160 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.git.BlockingExecutor;
+import com.artipie.git.metrics.GitMetrics;
+import java.util.concurrent.Executor;
+
+/**
+ * Tuning of git operations, see {@link Git}.
+ * <p>
+ * Settings are immutable: every {@code with} method returns a copy with one
+ * changed value. Defaults are: new {@link RepositoryCache}, no metrics,
+ * {@link BlockingExecutor#SHARED} executor, unlimited memory of pack
+ * generation and disabled {@link PackCache}.
+ * </p>
+ * @since 1.0
+ */
+public final class GitSettings {
+
+    /**
+     * Repository cache.
+     */
+    private final RepositoryCache cache;
+
+    /**
+     * Metrics.
+     */
+    private final GitMetrics metrics;
+
+    /**
+     * Executor of blocking operations which are not performed by cache.
+     */
+    private final Executor exec;
+
+    /**
+     * Memory budget of pack generation in bytes, zero if not limited.
+     */
+    private final long memory;
+
+    /**
+     * Cache of fetch responses.
+     */
+    private final PackCache packs;
+
+    /**
+     * New default settings.
+     */
+    public GitSettings() {
+        this(
+            new RepositoryCache(), GitMetrics.NOP, BlockingExecutor.SHARED, 0L,
+            PackCache.DISABLED
+        );
+    }
+
+    /**
+     * New settings.
+     * @param cache Repository cache
+     * @param metrics Metrics
+     * @param exec Executor of blocking operations which are not performed by cache
+     * @param memory Memory budget of pack generation in bytes, zero if not limited
+     * @param packs Cache of fetch responses
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private GitSettings(final RepositoryCache cache, final GitMetrics metrics,
+        final Executor exec, final long memory, final PackCache packs) {
+        this.cache = cache;
+        this.metrics = metrics;
+        this.exec = exec;
+        this.memory = memory;
+        this.packs = packs;
+    }
+
+    /**
+     * Settings with repository cache.
+     * @param repos Repository cache, should use the same executor
+     * @return New settings
+     */
+    public GitSettings withCache(final RepositoryCache repos) {
+        return new GitSettings(repos, this.metrics, this.exec, this.memory, this.packs);
+    }
+
+    /**
+     * Settings with metrics.
+     * @param sink Metrics
+     * @return New settings
+     */
+    public GitSettings withMetrics(final GitMetrics sink) {
+        return new GitSettings(this.cache, sink, this.exec, this.memory, this.packs);
+    }
+
+    /**
+     * Settings with executor.
+     * @param executor Executor of blocking operations which are not performed by cache
+     * @return New settings
+     */
+    public GitSettings withExecutor(final Executor executor) {
+        return new GitSettings(this.cache, this.metrics, executor, this.memory, this.packs);
+    }
+
+    /**
+     * Settings with memory budget of pack generation.
+     * @param bytes Memory budget in bytes, zero if not limited
+     * @return New settings
+     */
+    public GitSettings withMemory(final long bytes) {
+        return new GitSettings(this.cache, this.metrics, this.exec, bytes, this.packs);
+    }
+
+    /**
+     * Settings with cache of fetch responses.
+     * @param responses Cache of fetch responses
+     * @return New settings
+     */
+    public GitSettings withPacks(final PackCache responses) {
+        return new GitSettings(this.cache, this.metrics, this.exec, this.memory, responses);
+    }
+
+    /**
+     * Repository cache.
+     * @return Cache
+     */
+    public RepositoryCache cache() {
+        return this.cache;
+    }
+
+    /**
+     * Metrics.
+     * @return Metrics
+     */
+    public GitMetrics metrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Executor of blocking operations which are not performed by cache.
+     * @return Executor
+     */
+    public Executor executor() {
+        return this.exec;
+    }
+
+    /**
+     * Memory budget of pack generation.
+     * @return Bytes, zero if not limited
+     */
+    public long memory() {
+        return this.memory;
+    }
+
+    /**
+     * Cache of fetch responses.
+     * @return Pack cache
+     */
+    public PackCache packs() {
+        return this.packs;
+    }
+}
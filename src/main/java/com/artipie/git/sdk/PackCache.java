@@ -0,0 +1,329 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.Storage;
+import com.artipie.git.TmpReaper;
+import com.artipie.git.metrics.GitMetrics;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+/**
+ * Cache of generated fetch responses on local disk.
+ * <p>
+ * Fresh clones of the same refs produce the same pack, so the whole fetch
+ * response is saved into a file by cache key of the request, see
+ * {@link FetchRequest#cacheKey(String, org.eclipse.jgit.lib.Repository)}, and next
+ * requests with the same key are served from the file with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)} without
+ * pack generation. Repository identity, see {@link #identity(Storage)}, and
+ * references tips are part of the key, so entries are not shared by
+ * repositories, moved refs produce new keys and outdated entries are evicted
+ * as least recently used
+ * when total size exceeds the limit. Directory must be dedicated to the cache,
+ * it's cleared on first use. Hits and misses are reported as
+ * {@code pack-cache.hit} and {@code pack-cache.miss} latency and bytes.
+ * </p>
+ * @since 1.0
+ */
+public final class PackCache {
+
+    /**
+     * Disabled cache.
+     */
+    public static final PackCache DISABLED = new PackCache(Paths.get(""), 0L);
+
+    /**
+     * Initial capacity of entries map.
+     */
+    private static final int CAPACITY = 16;
+
+    /**
+     * Load factor of entries map.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Cache directory.
+     */
+    private final Path dir;
+
+    /**
+     * Max total size of entries in bytes.
+     */
+    private final long bytes;
+
+    /**
+     * Metrics.
+     */
+    private final GitMetrics metrics;
+
+    /**
+     * Entries sizes by key in access order, guarded by lock.
+     */
+    private final Map<String, Long> entries;
+
+    /**
+     * Lock of entries, identities and directory state.
+     */
+    private final Object lock;
+
+    /**
+     * Identities of repositories by storage, guarded by lock.
+     */
+    private final Map<Storage, String> ids;
+
+    /**
+     * Cache directory was cleared, guarded by lock.
+     */
+    private boolean ready;
+
+    /**
+     * New pack cache.
+     * @param dir Cache directory
+     * @param bytes Max total size of entries in bytes
+     */
+    public PackCache(final Path dir, final long bytes) {
+        this(dir, bytes, GitMetrics.NOP);
+    }
+
+    /**
+     * New pack cache.
+     * @param dir Cache directory
+     * @param bytes Max total size of entries in bytes
+     * @param metrics Metrics
+     */
+    public PackCache(final Path dir, final long bytes, final GitMetrics metrics) {
+        this.dir = dir;
+        this.bytes = bytes;
+        this.metrics = metrics;
+        this.entries = new LinkedHashMap<>(
+            PackCache.CAPACITY, PackCache.LOAD_FACTOR, true
+        );
+        this.lock = new Object();
+        this.ids = new WeakHashMap<>();
+    }
+
+    /**
+     * Cache is enabled.
+     * @return True if responses are cached
+     */
+    boolean enabled() {
+        return this.bytes > 0;
+    }
+
+    /**
+     * Identity of repository in cache keys.
+     * <p>
+     * Identity is random and it's kept while the storage is in use, so
+     * repositories don't share entries.
+     * </p>
+     * @param storage Repository storage
+     * @return Identity
+     */
+    String identity(final Storage storage) {
+        synchronized (this.lock) {
+            return this.ids.computeIfAbsent(storage, key -> UUID.randomUUID().toString());
+        }
+    }
+
+    /**
+     * Write cached response of the key to output, or generate response,
+     * write it to output and save to the cache.
+     * @param key Cache key
+     * @param out Output
+     * @param gen Response generator
+     * @throws IOException On error
+     */
+    void write(final String key, final OutputStream out, final Generator gen)
+        throws IOException {
+        if (this.enabled()) {
+            final long start = System.nanoTime();
+            final Optional<FileChannel> hit = this.open(key);
+            if (hit.isPresent()) {
+                try (FileChannel chan = hit.get()) {
+                    final WritableByteChannel target = Channels.newChannel(out);
+                    final long size = chan.size();
+                    for (long pos = 0; pos < size;) {
+                        pos += chan.transferTo(pos, size - pos, target);
+                    }
+                    out.flush();
+                    this.metrics.bytesOut("pack-cache.hit", size);
+                }
+                this.metrics.latency("pack-cache.hit", System.nanoTime() - start);
+            } else {
+                this.generate(key, out, gen);
+                this.metrics.latency("pack-cache.miss", System.nanoTime() - start);
+            }
+        } else {
+            gen.generate(out);
+        }
+    }
+
+    /**
+     * Generate response, write it to output and save to the cache on success.
+     * @param key Cache key
+     * @param out Output
+     * @param gen Response generator
+     * @throws IOException On error
+     */
+    private void generate(final String key, final OutputStream out, final Generator gen)
+        throws IOException {
+        final Path spool = Files.createTempFile(this.home(), "spool", ".tmp");
+        boolean saved = false;
+        try {
+            try (OutputStream file = Files.newOutputStream(spool)) {
+                gen.generate(new Tee(out, file));
+            }
+            final long size = Files.size(spool);
+            this.metrics.bytesOut("pack-cache.miss", size);
+            if (size <= this.bytes) {
+                this.save(key, spool, size);
+                saved = true;
+            }
+        } finally {
+            if (!saved) {
+                Files.deleteIfExists(spool);
+            }
+        }
+    }
+
+    /**
+     * Open cached entry.
+     * @param key Cache key
+     * @return File channel of entry if cached
+     * @throws IOException On error
+     */
+    private Optional<FileChannel> open(final String key) throws IOException {
+        synchronized (this.lock) {
+            final Optional<FileChannel> res;
+            if (this.entries.get(key) == null) {
+                res = Optional.empty();
+            } else {
+                res = Optional.of(FileChannel.open(this.home().resolve(key)));
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Save spooled response as cache entry and evict least recently used entries.
+     * @param key Cache key
+     * @param spool Spooled response file
+     * @param size Response size
+     * @throws IOException On error
+     */
+    private void save(final String key, final Path spool, final long size)
+        throws IOException {
+        synchronized (this.lock) {
+            Files.move(
+                spool, this.home().resolve(key),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+            );
+            this.entries.put(key, size);
+            long total = 0;
+            for (final long entry : this.entries.values()) {
+                total += entry;
+            }
+            final Iterator<Map.Entry<String, Long>> iter = this.entries.entrySet().iterator();
+            while (total > this.bytes) {
+                final Map.Entry<String, Long> eldest = iter.next();
+                total -= eldest.getValue();
+                iter.remove();
+                Files.deleteIfExists(this.home().resolve(eldest.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Cache directory, it's created or cleared on first call.
+     * @return Directory
+     * @throws IOException On error
+     */
+    private Path home() throws IOException {
+        synchronized (this.lock) {
+            if (!this.ready) {
+                Files.createDirectories(this.dir);
+                new TmpReaper(Runnable::run, path -> true).reap(this.dir).join();
+                this.ready = true;
+            }
+            return this.dir;
+        }
+    }
+
+    /**
+     * Response generator.
+     * @since 1.0
+     */
+    @FunctionalInterface
+    interface Generator {
+
+        /**
+         * Generate response.
+         * @param out Output
+         * @throws IOException On error
+         */
+        void generate(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Output stream which writes to two streams.
+     * @since 1.0
+     */
+    private static final class Tee extends OutputStream {
+
+        /**
+         * Main output.
+         */
+        private final OutputStream main;
+
+        /**
+         * Copy output.
+         */
+        private final OutputStream copy;
+
+        /**
+         * New tee output.
+         * @param main Main output
+         * @param copy Copy output
+         */
+        Tee(final OutputStream main, final OutputStream copy) {
+            super();
+            this.main = main;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(final int data) throws IOException {
+            this.main.write(data);
+            this.copy.write(data);
+        }
+
+        @Override
+        public void write(final byte[] src, final int off, final int len) throws IOException {
+            this.main.write(src, off, len);
+            this.copy.write(src, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.main.flush();
+            this.copy.flush();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Git pkt-line packet.
+ * <p>
+ * Data packet payload is a view of decoded bytes, it's not copied unless
+ * the packet was split between several chunks.
+ * </p>
+ * @since 1.0
+ */
+public final class PktLine {
+
+    /**
+     * Flush packet.
+     */
+    public static final PktLine FLUSH = new PktLine(Type.FLUSH);
+
+    /**
+     * Delimiter packet.
+     */
+    public static final PktLine DELIM = new PktLine(Type.DELIM);
+
+    /**
+     * Response end packet.
+     */
+    public static final PktLine RESPONSE_END = new PktLine(Type.RESPONSE_END);
+
+    /**
+     * Packet type.
+     */
+    private final Type type;
+
+    /**
+     * Payload without length prefix.
+     */
+    private final ByteBuffer data;
+
+    /**
+     * New special packet.
+     * @param type Packet type
+     */
+    private PktLine(final Type type) {
+        this(type, ByteBuffer.allocate(0));
+    }
+
+    /**
+     * New data packet.
+     * @param data Payload without length prefix
+     */
+    public PktLine(final ByteBuffer data) {
+        this(Type.DATA, data);
+    }
+
+    /**
+     * Primary constructor.
+     * @param type Packet type
+     * @param data Payload
+     */
+    private PktLine(final Type type, final ByteBuffer data) {
+        this.type = type;
+        this.data = data;
+    }
+
+    /**
+     * Packet type.
+     * @return Type
+     */
+    public Type type() {
+        return this.type;
+    }
+
+    /**
+     * Check if it's a data packet.
+     * @return True for data packets
+     */
+    public boolean isData() {
+        return this.type == Type.DATA;
+    }
+
+    /**
+     * Packet payload.
+     * @return Read-only buffer view of payload
+     */
+    public ByteBuffer payload() {
+        return this.data.asReadOnlyBuffer();
+    }
+
+    /**
+     * Payload as text without trailing line feed.
+     * @return Text line, empty for special packets
+     */
+    public String text() {
+        int len = this.data.remaining();
+        if (len > 0 && this.data.get(this.data.position() + len - 1) == '\n') {
+            len -= 1;
+        }
+        final byte[] bytes = new byte[len];
+        this.data.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        final String res;
+        if (this.isData()) {
+            res = this.text();
+        } else {
+            res = this.type.name();
+        }
+        return res;
+    }
+
+    /**
+     * Packet type.
+     * @since 1.0
+     */
+    public enum Type {
+        /**
+         * Data packet.
+         */
+        DATA,
+
+        /**
+         * Flush packet {@code 0000}.
+         */
+        FLUSH,
+
+        /**
+         * Delimiter packet {@code 0001}.
+         */
+        DELIM,
+
+        /**
+         * Response end packet {@code 0002}.
+         */
+        RESPONSE_END
+    }
+}
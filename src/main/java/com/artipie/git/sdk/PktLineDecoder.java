@@ -0,0 +1,256 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.ArtipieException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+
+/**
+ * Incremental pkt-line decoder.
+ * <p>
+ * Data chunks are fed as they arrive, complete packets are taken one by one
+ * with {@link #next()}. Packets which are fully contained in one chunk are
+ * returned as views of this chunk without copying, only packets split between
+ * chunks are assembled into new buffer. Memory usage is bounded by fed chunks
+ * which were not decoded yet and one packet of max size.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ * @since 1.0
+ * @checkstyle MagicNumberCheck (300 lines)
+ */
+public final class PktLineDecoder {
+
+    /**
+     * Max packet length including length prefix.
+     */
+    public static final int MAX_LENGTH = 65_520;
+
+    /**
+     * Length prefix size.
+     */
+    private static final int PREFIX = 4;
+
+    /**
+     * Hex digits values by ASCII code, -1 for non hex chars.
+     */
+    private static final byte[] HEX = PktLineDecoder.hex();
+
+    /**
+     * Fed chunks which were not decoded yet.
+     */
+    private final Deque<ByteBuffer> chunks;
+
+    /**
+     * Length prefix split between chunks.
+     */
+    private final byte[] prefix;
+
+    /**
+     * Count of bytes of split length prefix.
+     */
+    private int prefixed;
+
+    /**
+     * Payload of packet split between chunks, null if none.
+     */
+    private ByteBuffer partial;
+
+    /**
+     * New decoder.
+     */
+    public PktLineDecoder() {
+        this.chunks = new ArrayDeque<>(4);
+        this.prefix = new byte[PktLineDecoder.PREFIX];
+    }
+
+    /**
+     * Feed next data chunk.
+     * <p>
+     * The decoder takes ownership of the chunk, it should not be modified after that.
+     * </p>
+     * @param chunk Data chunk
+     * @return Self
+     */
+    public PktLineDecoder feed(final ByteBuffer chunk) {
+        if (chunk.hasRemaining()) {
+            this.chunks.addLast(chunk.slice());
+        }
+        return this;
+    }
+
+    /**
+     * Take next complete packet.
+     * @return Packet or empty if more data is required
+     * @throws ArtipieException If packet length is invalid
+     */
+    public Optional<PktLine> next() {
+        PktLine res = null;
+        while (res == null && !this.chunks.isEmpty()) {
+            final ByteBuffer chunk = this.chunks.peekFirst();
+            if (this.partial == null) {
+                res = this.head(chunk);
+            } else {
+                res = this.fill(chunk);
+            }
+            if (!chunk.hasRemaining()) {
+                this.chunks.pollFirst();
+            }
+        }
+        return Optional.ofNullable(res);
+    }
+
+    /**
+     * Check if decoder has no pending data.
+     * @return True if all fed data was decoded into packets
+     */
+    public boolean isEmpty() {
+        return this.chunks.isEmpty() && this.prefixed == 0 && this.partial == null;
+    }
+
+    /**
+     * Decode packet which starts in the chunk.
+     * @param chunk Chunk
+     * @return Packet or null if packet continues in next chunks
+     */
+    private PktLine head(final ByteBuffer chunk) {
+        final int len;
+        if (this.prefixed == 0 && chunk.remaining() >= PktLineDecoder.PREFIX) {
+            final int pos = chunk.position();
+            len = PktLineDecoder.length(
+                chunk.get(pos), chunk.get(pos + 1), chunk.get(pos + 2), chunk.get(pos + 3)
+            );
+            chunk.position(pos + PktLineDecoder.PREFIX);
+        } else {
+            final int size = Math.min(PktLineDecoder.PREFIX - this.prefixed, chunk.remaining());
+            chunk.get(this.prefix, this.prefixed, size);
+            this.prefixed += size;
+            if (this.prefixed < PktLineDecoder.PREFIX) {
+                len = -1;
+            } else {
+                this.prefixed = 0;
+                len = PktLineDecoder.length(
+                    this.prefix[0], this.prefix[1], this.prefix[2], this.prefix[3]
+                );
+            }
+        }
+        final PktLine res;
+        if (len < 0) {
+            res = null;
+        } else if (len < PktLineDecoder.PREFIX) {
+            res = PktLineDecoder.special(len);
+        } else if (chunk.remaining() >= len - PktLineDecoder.PREFIX) {
+            final ByteBuffer data = chunk.slice();
+            data.limit(len - PktLineDecoder.PREFIX);
+            chunk.position(chunk.position() + data.limit());
+            res = new PktLine(data);
+        } else {
+            this.partial = ByteBuffer.allocate(len - PktLineDecoder.PREFIX);
+            res = this.fill(chunk);
+        }
+        return res;
+    }
+
+    /**
+     * Fill split packet payload from the chunk.
+     * @param chunk Chunk
+     * @return Packet or null if packet continues in next chunks
+     */
+    private PktLine fill(final ByteBuffer chunk) {
+        final ByteBuffer src = chunk.slice();
+        final int size = Math.min(src.remaining(), this.partial.remaining());
+        src.limit(size);
+        this.partial.put(src);
+        chunk.position(chunk.position() + size);
+        final PktLine res;
+        if (this.partial.hasRemaining()) {
+            res = null;
+        } else {
+            this.partial.flip();
+            res = new PktLine(this.partial);
+            this.partial = null;
+        }
+        return res;
+    }
+
+    /**
+     * Special packet by length value.
+     * @param len Length value
+     * @return Packet
+     */
+    private static PktLine special(final int len) {
+        final PktLine res;
+        switch (len) {
+            case 0:
+                res = PktLine.FLUSH;
+                break;
+            case 1:
+                res = PktLine.DELIM;
+                break;
+            case 2:
+                res = PktLine.RESPONSE_END;
+                break;
+            default:
+                throw new ArtipieException(String.format("Invalid pkt-line length: %d", len));
+        }
+        return res;
+    }
+
+    /**
+     * Parse length prefix.
+     * @param first First hex digit
+     * @param second Second hex digit
+     * @param third Third hex digit
+     * @param fourth Fourth hex digit
+     * @return Packet length
+     * @throws ArtipieException If prefix is not a valid length
+     */
+    private static int length(final byte first, final byte second, final byte third,
+        final byte fourth) {
+        final int res = PktLineDecoder.digit(first) << 12 | PktLineDecoder.digit(second) << 8
+            | PktLineDecoder.digit(third) << 4 | PktLineDecoder.digit(fourth);
+        if (res > PktLineDecoder.MAX_LENGTH) {
+            throw new ArtipieException(String.format("pkt-line is too long: %d", res));
+        }
+        return res;
+    }
+
+    /**
+     * Hex digit value.
+     * @param chr ASCII char
+     * @return Digit value
+     * @throws ArtipieException If char is not a hex digit
+     */
+    private static int digit(final byte chr) {
+        final int res;
+        if (chr < 0) {
+            res = -1;
+        } else {
+            res = PktLineDecoder.HEX[chr];
+        }
+        if (res < 0) {
+            throw new ArtipieException(
+                String.format("Invalid pkt-line length char: 0x%02x", chr & 0xff)
+            );
+        }
+        return res;
+    }
+
+    /**
+     * Build hex digits table.
+     * @return Digit values by ASCII code
+     */
+    private static byte[] hex() {
+        final byte[] res = new byte[128];
+        for (int idx = 0; idx < res.length; ++idx) {
+            res[idx] = (byte) Character.digit(idx, 16);
+        }
+        return res;
+    }
+}
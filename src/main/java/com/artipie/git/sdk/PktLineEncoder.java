@@ -0,0 +1,299 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pkt-line encoder.
+ * <p>
+ * Packets are written into reusable buffer which is written to the output
+ * when it's full or on {@link #flush()}. Length prefix is encoded with hex
+ * digits table and ASCII text is written without charset encoder, so encoding
+ * a packet doesn't allocate memory in most cases.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ * @since 1.0
+ * @checkstyle MagicNumberCheck (300 lines)
+ */
+public final class PktLineEncoder {
+
+    /**
+     * Max payload size of data packet.
+     */
+    public static final int MAX_PAYLOAD = PktLineDecoder.MAX_LENGTH - 4;
+
+    /**
+     * Side-band channel of pack data.
+     */
+    public static final int CH_DATA = 1;
+
+    /**
+     * Side-band channel of progress messages.
+     */
+    public static final int CH_PROGRESS = 2;
+
+    /**
+     * Side-band channel of error messages.
+     */
+    public static final int CH_ERROR = 3;
+
+    /**
+     * Default buffer size.
+     */
+    private static final int BUFFER = 8 * 1024;
+
+    /**
+     * Hex digits.
+     */
+    private static final byte[] DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Output.
+     */
+    private final OutputStream out;
+
+    /**
+     * Reusable buffer.
+     */
+    private final ByteBuffer buf;
+
+    /**
+     * New encoder with default buffer size.
+     * @param out Output
+     */
+    public PktLineEncoder(final OutputStream out) {
+        this(out, PktLineEncoder.BUFFER);
+    }
+
+    /**
+     * New encoder.
+     * @param out Output
+     * @param size Buffer size, at least 5 bytes
+     */
+    public PktLineEncoder(final OutputStream out, final int size) {
+        this(out, ByteBuffer.allocate(Math.max(size, 5)));
+    }
+
+    /**
+     * New encoder with reusable buffer.
+     * @param out Output
+     * @param buf Heap buffer to reuse
+     */
+    public PktLineEncoder(final OutputStream out, final ByteBuffer buf) {
+        this.out = out;
+        this.buf = buf;
+        this.buf.clear();
+    }
+
+    /**
+     * Write text line followed by line feed.
+     * @param line Text without line feed
+     * @return Self
+     * @throws IOException On write error
+     */
+    public PktLineEncoder writeLine(final CharSequence line) throws IOException {
+        return this.writeText(line, true);
+    }
+
+    /**
+     * Write text packet as is.
+     * @param text Packet text
+     * @return Self
+     * @throws IOException On write error
+     */
+    public PktLineEncoder writeString(final CharSequence text) throws IOException {
+        return this.writeText(text, false);
+    }
+
+    /**
+     * Write binary data packet.
+     * @param data Payload
+     * @param off Payload offset
+     * @param len Payload length, up to {@link #MAX_PAYLOAD}
+     * @return Self
+     * @throws IOException On write error
+     */
+    public PktLineEncoder writeData(final byte[] data, final int off, final int len)
+        throws IOException {
+        PktLineEncoder.check(len);
+        this.prefix(len + 4);
+        this.put(data, off, len);
+        return this;
+    }
+
+    /**
+     * Write side-band data, it's split into packets of max size.
+     * @param channel Side-band channel
+     * @param data Data
+     * @param off Data offset
+     * @param len Data length
+     * @return Self
+     * @throws IOException On write error
+     */
+    public PktLineEncoder writeSideband(final int channel, final byte[] data, final int off,
+        final int len) throws IOException {
+        int pos = off;
+        final int end = off + len;
+        do {
+            final int size = Math.min(end - pos, PktLineEncoder.MAX_PAYLOAD - 1);
+            this.prefix(size + 5);
+            this.put((byte) channel);
+            this.put(data, pos, size);
+            pos += size;
+        } while (pos < end);
+        return this;
+    }
+
+    /**
+     * Write flush packet {@code 0000}.
+     * @return Self
+     * @throws IOException On write error
+     */
+    public PktLineEncoder writeFlush() throws IOException {
+        this.prefix(0);
+        return this;
+    }
+
+    /**
+     * Write delimiter packet {@code 0001}.
+     * @return Self
+     * @throws IOException On write error
+     */
+    public PktLineEncoder writeDelim() throws IOException {
+        this.prefix(1);
+        return this;
+    }
+
+    /**
+     * Write response end packet {@code 0002}.
+     * @return Self
+     * @throws IOException On write error
+     */
+    public PktLineEncoder writeEnd() throws IOException {
+        this.prefix(2);
+        return this;
+    }
+
+    /**
+     * Write buffered packets to the output and flush it.
+     * @throws IOException On write error
+     */
+    public void flush() throws IOException {
+        this.drain();
+        this.out.flush();
+    }
+
+    /**
+     * Write text packet.
+     * @param text Text
+     * @param eol Append line feed
+     * @return Self
+     * @throws IOException On write error
+     */
+    private PktLineEncoder writeText(final CharSequence text, final boolean eol)
+        throws IOException {
+        final int len = text.length();
+        boolean ascii = true;
+        for (int idx = 0; ascii && idx < len; ++idx) {
+            ascii = text.charAt(idx) < 0x80;
+        }
+        int size = len;
+        if (eol) {
+            size += 1;
+        }
+        if (ascii) {
+            PktLineEncoder.check(size);
+            this.prefix(size + 4);
+            for (int idx = 0; idx < len; ++idx) {
+                this.put((byte) text.charAt(idx));
+            }
+        } else {
+            final byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            size = size - len + bytes.length;
+            PktLineEncoder.check(size);
+            this.prefix(size + 4);
+            this.put(bytes, 0, bytes.length);
+        }
+        if (eol) {
+            this.put((byte) '\n');
+        }
+        return this;
+    }
+
+    /**
+     * Put length prefix.
+     * @param len Packet length
+     * @throws IOException On write error
+     */
+    private void prefix(final int len) throws IOException {
+        if (this.buf.remaining() < 4) {
+            this.drain();
+        }
+        this.buf.put(PktLineEncoder.DIGITS[len >> 12 & 0xf]);
+        this.buf.put(PktLineEncoder.DIGITS[len >> 8 & 0xf]);
+        this.buf.put(PktLineEncoder.DIGITS[len >> 4 & 0xf]);
+        this.buf.put(PktLineEncoder.DIGITS[len & 0xf]);
+    }
+
+    /**
+     * Put one byte.
+     * @param data Byte
+     * @throws IOException On write error
+     */
+    private void put(final byte data) throws IOException {
+        if (!this.buf.hasRemaining()) {
+            this.drain();
+        }
+        this.buf.put(data);
+    }
+
+    /**
+     * Put bytes.
+     * @param data Bytes
+     * @param off Offset
+     * @param len Length
+     * @throws IOException On write error
+     */
+    private void put(final byte[] data, final int off, final int len) throws IOException {
+        if (len > this.buf.capacity()) {
+            this.drain();
+            this.out.write(data, off, len);
+        } else {
+            if (len > this.buf.remaining()) {
+                this.drain();
+            }
+            this.buf.put(data, off, len);
+        }
+    }
+
+    /**
+     * Write buffered bytes to the output.
+     * @throws IOException On write error
+     */
+    private void drain() throws IOException {
+        if (this.buf.position() > 0) {
+            this.out.write(this.buf.array(), this.buf.arrayOffset(), this.buf.position());
+            this.buf.clear();
+        }
+    }
+
+    /**
+     * Check payload size.
+     * @param len Payload size
+     */
+    private static void check(final int len) {
+        if (len > PktLineEncoder.MAX_PAYLOAD) {
+            throw new IllegalArgumentException(
+                String.format("pkt-line payload is too long: %d", len)
+            );
+        }
+    }
+}
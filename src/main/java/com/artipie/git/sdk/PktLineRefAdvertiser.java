@@ -0,0 +1,39 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import java.io.IOException;
+import org.eclipse.jgit.transport.RefAdvertiser;
+
+/**
+ * JGit references advertiser which writes lines with {@link PktLineEncoder}.
+ * @since 1.0
+ */
+final class PktLineRefAdvertiser extends RefAdvertiser {
+
+    /**
+     * Encoder.
+     */
+    private final PktLineEncoder enc;
+
+    /**
+     * New advertiser.
+     * @param enc Encoder
+     */
+    PktLineRefAdvertiser(final PktLineEncoder enc) {
+        super();
+        this.enc = enc;
+    }
+
+    @Override
+    protected void writeOne(final CharSequence line) throws IOException {
+        this.enc.writeString(line);
+    }
+
+    @Override
+    protected void end() throws IOException {
+        this.enc.writeFlush().flush();
+    }
+}
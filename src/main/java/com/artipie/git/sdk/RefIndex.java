@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+
+/**
+ * Index of {@code HEAD} and peeled references under {@code refs/} of
+ * repository, it's built once per repository state by {@link RepositoryCache}.
+ * @since 1.0
+ */
+public interface RefIndex {
+
+    /**
+     * Find references by name prefixes.
+     * @param prefixes Name prefixes, all references are found if empty
+     * @return References sorted by name
+     * @throws IOException On read error
+     */
+    List<Ref> find(Collection<String> prefixes) throws IOException;
+
+    /**
+     * Sorted in-memory index of references.
+     * <p>
+     * References are sorted by name, so references matching name prefixes are
+     * found with range lookups and lookup cost depends on matched references
+     * count, not on total references count. References should be peeled before
+     * indexing.
+     * </p>
+     * @since 1.0
+     */
+    final class Sorted implements RefIndex {
+
+        /**
+         * References by name.
+         */
+        private final NavigableMap<String, Ref> refs;
+
+        /**
+         * New index.
+         * @param refs References
+         */
+        public Sorted(final Collection<? extends Ref> refs) {
+            this.refs = new TreeMap<>();
+            for (final Ref ref : refs) {
+                this.refs.put(ref.getName(), ref);
+            }
+        }
+
+        @Override
+        public List<Ref> find(final Collection<String> prefixes) {
+            final List<Ref> res;
+            if (prefixes.isEmpty()) {
+                res = new ArrayList<>(this.refs.values());
+            } else {
+                res = new ArrayList<>(prefixes.size());
+                for (final String prefix : RefIndex.distinct(prefixes)) {
+                    res.addAll(
+                        this.refs.subMap(prefix, true, prefix + Character.MAX_VALUE, false)
+                            .values()
+                    );
+                }
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Index of reftable reference database.
+     * <p>
+     * Reftables are sorted by name and keep peeled values of references,
+     * so references matching name prefixes are looked up in the tables on
+     * each request without loading all references into memory.
+     * </p>
+     * @since 1.0
+     */
+    final class Tables implements RefIndex {
+
+        /**
+         * Reference database with versioning.
+         */
+        private final RefDatabase database;
+
+        /**
+         * New index.
+         * @param database Reference database with versioning,
+         *  see {@link RefDatabase#hasVersioning()}
+         */
+        public Tables(final RefDatabase database) {
+            this.database = database;
+        }
+
+        @Override
+        public List<Ref> find(final Collection<String> prefixes) throws IOException {
+            final Collection<String> lookups;
+            if (prefixes.isEmpty()) {
+                lookups = Collections.singletonList("");
+            } else {
+                lookups = RefIndex.distinct(prefixes);
+            }
+            final List<Ref> res = new ArrayList<>(0);
+            for (final String prefix : lookups) {
+                if (Constants.HEAD.startsWith(prefix)) {
+                    final Ref head = this.database.exactRef(Constants.HEAD);
+                    if (head != null) {
+                        res.add(head);
+                    }
+                }
+                final String start;
+                if (Constants.R_REFS.startsWith(prefix)) {
+                    start = Constants.R_REFS;
+                } else {
+                    start = prefix;
+                }
+                if (start.startsWith(Constants.R_REFS)) {
+                    for (final Ref ref : this.database.getRefsByPrefix(start)) {
+                        res.add(this.database.peel(ref));
+                    }
+                }
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Sorted prefixes without prefixes covered by shorter ones.
+     * @param prefixes Name prefixes
+     * @return Distinct prefixes
+     */
+    static List<String> distinct(final Collection<String> prefixes) {
+        final List<String> res = new ArrayList<>(prefixes.size());
+        for (final String prefix : new TreeSet<>(prefixes)) {
+            if (res.isEmpty() || !prefix.startsWith(res.get(res.size() - 1))) {
+                res.add(prefix);
+            }
+        }
+        return res;
+    }
+}
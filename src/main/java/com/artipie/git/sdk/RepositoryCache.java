@@ -0,0 +1,448 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.Storage;
+import com.artipie.git.BlockingExecutor;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Bounded cache of opened git repositories.
+ * <p>
+ * Keeps repositories opened by {@link RepositorySource} and reuses them
+ * between requests, instead of copying the whole storage for each operation.
+ * Cached repository is invalidated when {@link RepositoryState} of the storage
+ * changes, e.g. on references update. State fingerprint is kept for each
+ * storage, so requests don't list and read references: it's dropped by
+ * {@link #invalidate(Storage)} after push and recalculated on next request, and
+ * it expires after freshness period to notice changes made by other servers
+ * sharing the storage. References fingerprint, see {@link #refsState(Storage)},
+ * is kept until invalidation only. New repository is opened before the
+ * outdated one is retired, so persistent mirrors of {@link RepositorySource.Synced}
+ * are kept and only the changes are copied. Least recently used repositories
+ * are evicted when the cache exceeds the limit of entries or the limit of total
+ * size of local repository files. Repository operations are blocking, they are
+ * performed by {@link BlockingExecutor}.
+ * </p>
+ * @since 1.0
+ */
+public final class RepositoryCache {
+
+    /**
+     * Default max entries count.
+     */
+    private static final int MAX_ENTRIES = 32;
+
+    /**
+     * Default max total size of local repository files: 4GB.
+     */
+    private static final long MAX_BYTES = 4L * 1024 * 1024 * 1024;
+
+    /**
+     * Default freshness period of state fingerprint.
+     */
+    private static final Duration FRESH = Duration.ofSeconds(5);
+
+    /**
+     * Load factor of repositories map.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Repository source.
+     */
+    private final RepositorySource source;
+
+    /**
+     * Max entries count.
+     */
+    private final int entries;
+
+    /**
+     * Max total size of local repository files in bytes.
+     */
+    private final long bytes;
+
+    /**
+     * Executor of repository operations.
+     */
+    private final Executor exec;
+
+    /**
+     * Freshness period of state fingerprint in milliseconds.
+     */
+    private final long fresh;
+
+    /**
+     * Repositories by storage in access order, guarded by lock.
+     */
+    private final Map<Storage, CachedRepository> repos;
+
+    /**
+     * State fingerprints by storage, guarded by lock.
+     */
+    private final Map<Storage, State> states;
+
+    /**
+     * References fingerprints by storage, guarded by lock.
+     */
+    private final Map<Storage, CompletableFuture<String>> refstates;
+
+    /**
+     * Lock of repositories and states.
+     */
+    private final Object lock;
+
+    /**
+     * New cache of local mirrors with default limits.
+     */
+    public RepositoryCache() {
+        this(new RepositorySource.Synced());
+    }
+
+    /**
+     * New cache with default limits.
+     * @param source Repository source
+     */
+    public RepositoryCache(final RepositorySource source) {
+        this(source, RepositoryCache.MAX_ENTRIES, RepositoryCache.MAX_BYTES);
+    }
+
+    /**
+     * New cache of local mirrors.
+     * @param entries Max entries count
+     * @param bytes Max total size of local repository files in bytes
+     */
+    public RepositoryCache(final int entries, final long bytes) {
+        this(new RepositorySource.Synced(), entries, bytes);
+    }
+
+    /**
+     * New cache.
+     * @param source Repository source
+     * @param entries Max entries count
+     * @param bytes Max total size of local repository files in bytes
+     */
+    public RepositoryCache(final RepositorySource source, final int entries,
+        final long bytes) {
+        this(source, entries, bytes, BlockingExecutor.SHARED);
+    }
+
+    /**
+     * New cache.
+     * @param source Repository source
+     * @param entries Max entries count
+     * @param bytes Max total size of local repository files in bytes
+     * @param exec Executor of repository operations
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public RepositoryCache(final RepositorySource source, final int entries,
+        final long bytes, final Executor exec) {
+        this(source, entries, bytes, exec, RepositoryCache.FRESH);
+    }
+
+    /**
+     * New cache.
+     * @param source Repository source
+     * @param entries Max entries count
+     * @param bytes Max total size of local repository files in bytes
+     * @param exec Executor of repository operations
+     * @param fresh Freshness period of state fingerprint, zero to check
+     *  the state on every request
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public RepositoryCache(final RepositorySource source, final int entries,
+        final long bytes, final Executor exec, final Duration fresh) {
+        this.source = source;
+        this.entries = entries;
+        this.bytes = bytes;
+        this.exec = exec;
+        this.fresh = fresh.toMillis();
+        this.repos = new LinkedHashMap<>(entries, RepositoryCache.LOAD_FACTOR, true);
+        this.states = new WeakHashMap<>();
+        this.refstates = new WeakHashMap<>();
+        this.lock = new Object();
+    }
+
+    /**
+     * Perform operation with cached repository of storage.
+     * <p>
+     * Repository is not closed or removed while the operation is performed,
+     * even if it was invalidated or evicted from the cache.
+     * </p>
+     * @param storage Repository storage
+     * @param func Blocking operation function
+     * @param <T> Result type
+     * @return Operation result future
+     */
+    public <T> CompletableFuture<T> with(final Storage storage,
+        final Function<? super Repository, ? extends T> func) {
+        return this.state(storage).thenCompose(
+            state -> {
+                final CachedRepository cached = this.acquire(storage, state);
+                return cached.repository().<T>thenApplyAsync(func, this.exec)
+                    .whenComplete((res, err) -> cached.release());
+            }
+        );
+    }
+
+    /**
+     * Perform operation with references index of cached repository of storage.
+     * <p>
+     * Index is built once for each state of the storage and kept with
+     * cached repository. Repository is not closed while the operation is
+     * performed, because index can read references from the repository.
+     * </p>
+     * @param storage Repository storage
+     * @param func Blocking operation function
+     * @param <T> Result type
+     * @return Operation result future
+     */
+    public <T> CompletableFuture<T> refs(final Storage storage,
+        final Function<? super RefIndex, ? extends T> func) {
+        return this.state(storage).thenCompose(
+            state -> {
+                final CachedRepository cached = this.acquire(storage, state);
+                return cached.refs(this.exec).<T>thenApplyAsync(func, this.exec)
+                    .whenComplete((res, err) -> cached.release());
+            }
+        );
+    }
+
+    /**
+     * State fingerprint of storage, see {@link RepositoryState#fingerprint()}.
+     * <p>
+     * Fingerprint is calculated once and reused until it's invalidated or
+     * freshness period expires.
+     * </p>
+     * @param storage Repository storage
+     * @return Future with hex string of state fingerprint
+     */
+    public CompletableFuture<String> state(final Storage storage) {
+        final long now = System.currentTimeMillis();
+        final State cached;
+        final State res;
+        synchronized (this.lock) {
+            cached = this.states.get(storage);
+            if (cached == null || now - cached.time >= this.fresh) {
+                res = new State(new RepositoryState(storage).fingerprint(), now);
+                this.states.put(storage, res);
+            } else {
+                res = cached;
+            }
+        }
+        if (!res.equals(cached)) {
+            res.value.whenComplete(
+                (state, err) -> {
+                    if (err != null) {
+                        this.drop(storage, res);
+                    }
+                }
+            );
+        }
+        return res.value;
+    }
+
+    /**
+     * References fingerprint of storage, see {@link RepositoryState#refs()}.
+     * <p>
+     * Fingerprint is calculated once and reused until it's invalidated by
+     * {@link #invalidate(Storage)}, which is called when push is received. It
+     * doesn't expire with time, so if the storage is shared by several servers,
+     * pushes received by other servers are noticed after invalidation only.
+     * </p>
+     * @param storage Repository storage
+     * @return Future with hex string of references fingerprint
+     */
+    public CompletableFuture<String> refsState(final Storage storage) {
+        final CompletableFuture<String> cached;
+        final CompletableFuture<String> res;
+        synchronized (this.lock) {
+            cached = this.refstates.get(storage);
+            if (cached == null) {
+                res = new RepositoryState(storage).refs();
+                this.refstates.put(storage, res);
+            } else {
+                res = cached;
+            }
+        }
+        if (!res.equals(cached)) {
+            res.whenComplete(
+                (state, err) -> {
+                    if (err != null) {
+                        this.dropRefs(storage, res);
+                    }
+                }
+            );
+        }
+        return res;
+    }
+
+    /**
+     * Invalidate cached repository, state and references fingerprint of storage.
+     * @param storage Repository storage
+     */
+    public void invalidate(final Storage storage) {
+        synchronized (this.lock) {
+            this.states.remove(storage);
+            this.refstates.remove(storage);
+            final CachedRepository cached = this.repos.get(storage);
+            if (cached != null) {
+                cached.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Evict cached repository of storage, e.g. when the storage is not served
+     * anymore. Repository is closed when its operations are completed.
+     * @param storage Repository storage
+     */
+    public void evict(final Storage storage) {
+        final CachedRepository cached;
+        synchronized (this.lock) {
+            this.states.remove(storage);
+            this.refstates.remove(storage);
+            cached = this.repos.remove(storage);
+        }
+        if (cached != null) {
+            cached.retire();
+        }
+    }
+
+    /**
+     * Acquire repository of storage with actual state, open new one if
+     * storage is not cached or has another state.
+     * @param storage Repository storage
+     * @param state Storage state
+     * @return Acquired repository
+     */
+    private CachedRepository acquire(final Storage storage, final String state) {
+        final CachedRepository cached;
+        final CachedRepository res;
+        synchronized (this.lock) {
+            cached = this.repos.get(storage);
+            if (cached == null || !cached.actual(state)) {
+                res = new CachedRepository(this.source, storage, state);
+                this.repos.put(storage, res);
+            } else {
+                res = cached;
+            }
+            res.acquire();
+        }
+        if (!res.equals(cached)) {
+            res.open().whenComplete(
+                (repo, err) -> {
+                    if (err == null) {
+                        this.shrink();
+                    } else {
+                        this.remove(storage, res);
+                    }
+                }
+            );
+            if (cached != null) {
+                cached.retire();
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Remove failed state of storage if it's still cached.
+     * @param storage Repository storage
+     * @param state State to remove
+     */
+    private void drop(final Storage storage, final State state) {
+        synchronized (this.lock) {
+            this.states.remove(storage, state);
+        }
+    }
+
+    /**
+     * Remove failed references fingerprint of storage if it's still cached.
+     * @param storage Repository storage
+     * @param state Fingerprint to remove
+     */
+    private void dropRefs(final Storage storage, final CompletableFuture<String> state) {
+        synchronized (this.lock) {
+            this.refstates.remove(storage, state);
+        }
+    }
+
+    /**
+     * Remove repository from cache if it's still cached.
+     * @param storage Repository storage
+     * @param cached Repository to remove
+     */
+    private void remove(final Storage storage, final CachedRepository cached) {
+        final boolean removed;
+        synchronized (this.lock) {
+            removed = this.repos.remove(storage, cached);
+        }
+        if (removed) {
+            cached.retire();
+        }
+    }
+
+    /**
+     * Evict least recently used repositories until cache fits the limits.
+     * The most recently used repository is never evicted.
+     */
+    private void shrink() {
+        final List<CachedRepository> evicted = new ArrayList<>(0);
+        synchronized (this.lock) {
+            long total = 0;
+            for (final CachedRepository cached : this.repos.values()) {
+                total += cached.size();
+            }
+            final Iterator<CachedRepository> iter = this.repos.values().iterator();
+            while (this.repos.size() > 1
+                && (this.repos.size() > this.entries || total > this.bytes)) {
+                final CachedRepository eldest = iter.next();
+                total -= eldest.size();
+                iter.remove();
+                evicted.add(eldest);
+            }
+        }
+        evicted.forEach(CachedRepository::retire);
+    }
+
+    /**
+     * State fingerprint with calculation time.
+     * @since 1.0
+     */
+    private static final class State {
+
+        /**
+         * Fingerprint future.
+         */
+        private final CompletableFuture<String> value;
+
+        /**
+         * Calculation start time in milliseconds.
+         */
+        private final long time;
+
+        /**
+         * New state.
+         * @param value Fingerprint future
+         * @param time Calculation start time in milliseconds
+         */
+        State(final CompletableFuture<String> value, final long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.ArtipieIOException;
+import com.artipie.asto.Copy;
+import com.artipie.asto.Storage;
+import com.artipie.asto.misc.UncheckedSupplier;
+import com.artipie.git.BlockingExecutor;
+import com.artipie.git.ScratchDirs;
+import com.artipie.git.TmpReaper;
+import com.artipie.git.TmpResource;
+import com.artipie.git.dfs.AstoRepository;
+import com.artipie.git.metrics.GitMetrics;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Source of JGit repositories for {@link RepositoryCache}.
+ * @since 1.0
+ */
+public interface RepositorySource {
+
+    /**
+     * Open repository of storage.
+     * @param storage Repository storage
+     * @param lifetime Stage completed when repository is not used anymore,
+     *  source should close the repository and release its resources on completion
+     * @return Future with opened repository
+     */
+    CompletableFuture<Repository> open(Storage storage, CompletionStage<Void> lifetime);
+
+    /**
+     * Size of local files of repositories opened for storage, it's used by
+     * {@link RepositoryCache} to limit total size of cached repositories.
+     * It's called often, so it must not walk the file system.
+     * @param storage Repository storage
+     * @return Size in bytes, zero if repositories have no local files
+     */
+    default long size(final Storage storage) {
+        return 0L;
+    }
+
+    /**
+     * Local mirror of storage: storage is copied into temporary directory and
+     * opened as file repository, the directory is kept until the repository
+     * is closed and removed after that. Size of the copy is counted once
+     * after copying.
+     * @since 1.0
+     */
+    final class Mirror implements RepositorySource {
+
+        /**
+         * Mirror directories factory.
+         */
+        private final Supplier<? extends Path> dirs;
+
+        /**
+         * Reaper of mirror directories.
+         */
+        private final TmpReaper reaper;
+
+        /**
+         * Executor of blocking file system operations.
+         */
+        private final Executor exec;
+
+        /**
+         * Metrics.
+         */
+        private final GitMetrics metrics;
+
+        /**
+         * Total size of opened copies by storage.
+         */
+        private final Map<Storage, Long> sizes;
+
+        /**
+         * New mirror source.
+         */
+        public Mirror() {
+            this(GitMetrics.NOP);
+        }
+
+        /**
+         * New mirror source.
+         * @param metrics Metrics of storage copy and cleanup
+         */
+        public Mirror(final GitMetrics metrics) {
+            this(
+                new UncheckedSupplier<>(() -> Files.createTempDirectory(Mirror.class.getName())),
+                TmpReaper.SHARED,
+                BlockingExecutor.SHARED,
+                metrics
+            );
+        }
+
+        /**
+         * New mirror source.
+         * @param dirs Mirror directories factory, e.g. {@link ScratchDirs}
+         * @param reaper Reaper of mirror directories
+         * @param exec Executor of blocking file system operations
+         * @param metrics Metrics of storage copy and cleanup
+         * @checkstyle ParameterNumberCheck (5 lines)
+         */
+        public Mirror(final Supplier<? extends Path> dirs, final TmpReaper reaper,
+            final Executor exec, final GitMetrics metrics) {
+            this.dirs = dirs;
+            this.reaper = reaper;
+            this.exec = exec;
+            this.metrics = metrics;
+            this.sizes = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public CompletableFuture<Repository> open(final Storage storage,
+            final CompletionStage<Void> lifetime) {
+            final CompletableFuture<Repository> res = new CompletableFuture<>();
+            CompletableFuture.supplyAsync(this.dirs, this.exec).thenCompose(
+                tmp -> new TmpResource(tmp, this.metrics, this.reaper).<Void>with(
+                    tsto -> new Copy(
+                        storage, key -> !key.string().startsWith(Bundles.PREFIX)
+                    ).copy(tsto).thenCompose(
+                        none -> {
+                            final long size = Mirror.size(tmp);
+                            this.sizes.merge(storage, size, Long::sum);
+                            final Repository repo = Mirror.repository(tmp);
+                            res.complete(repo);
+                            return lifetime.thenRun(
+                                () -> {
+                                    repo.close();
+                                    this.sizes.computeIfPresent(
+                                        storage, (key, total) -> Mirror.rest(total, size)
+                                    );
+                                }
+                            );
+                        }
+                    )
+                )
+            ).whenComplete(
+                (none, err) -> {
+                    if (err != null) {
+                        res.completeExceptionally(err);
+                    }
+                }
+            );
+            return res;
+        }
+
+        @Override
+        public long size(final Storage storage) {
+            return this.sizes.getOrDefault(storage, 0L);
+        }
+
+        /**
+         * Total size of regular files in directory.
+         * @param dir Directory
+         * @return Size in bytes
+         */
+        private static long size(final Path dir) {
+            try (Stream<Path> files = Files.walk(dir)) {
+                return files.filter(Files::isRegularFile).mapToLong(
+                    file -> file.toFile().length()
+                ).sum();
+            } catch (final IOException iex) {
+                throw new ArtipieIOException(iex);
+            }
+        }
+
+        /**
+         * Total size after closed copy is removed.
+         * @param total Total size
+         * @param size Size of closed copy
+         * @return Rest of total size, null if nothing is left
+         */
+        private static Long rest(final long total, final long size) {
+            Long res = null;
+            if (total > size) {
+                res = total - size;
+            }
+            return res;
+        }
+
+        /**
+         * Open repository at path, create new bare repository if not exists.
+         * Every bare repository must have {@code HEAD} reference, so no
+         * {@code HEAD} means that repository doesn't exist here.
+         * @param path Repository directory
+         * @return Repository
+         */
+        private static Repository repository(final Path path) {
+            try {
+                final Repository repo = new FileRepository(path.toAbsolutePath().toFile());
+                if (repo.getRefDatabase().exactRef(Constants.HEAD) == null) {
+                    repo.create(true);
+                }
+                return repo;
+            } catch (final IOException iex) {
+                throw new ArtipieIOException(iex);
+            }
+        }
+    }
+
+    /**
+     * Persistent local mirror of storage: storage changes are copied into the
+     * same directory on each opening, see {@link StorageMirror}, so opening
+     * costs the size of the changes since previous opening instead of the
+     * repository size. Mirror is removed when all its repositories are closed,
+     * e.g. when the repository is evicted from {@link RepositoryCache}.
+     * @since 1.0
+     */
+    final class Synced implements RepositorySource {
+
+        /**
+         * Mirror directories factory.
+         */
+        private final Supplier<? extends Path> dirs;
+
+        /**
+         * Reaper of mirror directories.
+         */
+        private final TmpReaper reaper;
+
+        /**
+         * Executor of blocking file system operations.
+         */
+        private final Executor exec;
+
+        /**
+         * Metrics.
+         */
+        private final GitMetrics metrics;
+
+        /**
+         * Mirrors by storage, guarded by lock.
+         */
+        private final Map<Storage, StorageMirror> mirrors;
+
+        /**
+         * Lock of mirrors.
+         */
+        private final Object lock;
+
+        /**
+         * New synced mirror source.
+         */
+        public Synced() {
+            this(GitMetrics.NOP);
+        }
+
+        /**
+         * New synced mirror source.
+         * @param metrics Metrics of storage sync
+         */
+        public Synced(final GitMetrics metrics) {
+            this(
+                new UncheckedSupplier<>(() -> Files.createTempDirectory(Synced.class.getName())),
+                TmpReaper.SHARED,
+                BlockingExecutor.SHARED,
+                metrics
+            );
+        }
+
+        /**
+         * New synced mirror source.
+         * @param dirs Mirror directories factory, e.g. {@link ScratchDirs}
+         * @param reaper Reaper of mirror directories
+         * @param exec Executor of blocking file system operations
+         * @param metrics Metrics of storage sync
+         * @checkstyle ParameterNumberCheck (5 lines)
+         */
+        public Synced(final Supplier<? extends Path> dirs, final TmpReaper reaper,
+            final Executor exec, final GitMetrics metrics) {
+            this.dirs = dirs;
+            this.reaper = reaper;
+            this.exec = exec;
+            this.metrics = metrics;
+            this.mirrors = new HashMap<>();
+            this.lock = new Object();
+        }
+
+        @Override
+        public CompletableFuture<Repository> open(final Storage storage,
+            final CompletionStage<Void> lifetime) {
+            final StorageMirror mirror;
+            synchronized (this.lock) {
+                mirror = this.mirrors.computeIfAbsent(
+                    storage, key -> new StorageMirror(key, this.dirs, this.exec, this.metrics)
+                );
+                mirror.acquire();
+            }
+            final CompletableFuture<Void> closed = new CompletableFuture<>();
+            final CompletableFuture<Repository> res = mirror.sync(closed)
+                .thenApplyAsync(Mirror::repository, this.exec);
+            lifetime.thenCompose(
+                none -> res.handle(
+                    (repo, err) -> {
+                        if (repo != null) {
+                            repo.close();
+                        }
+                        return repo;
+                    }
+                )
+            ).thenRun(
+                () -> {
+                    closed.complete(null);
+                    this.release(storage, mirror);
+                }
+            );
+            return res;
+        }
+
+        @Override
+        public long size(final Storage storage) {
+            final StorageMirror mirror;
+            synchronized (this.lock) {
+                mirror = this.mirrors.get(storage);
+            }
+            long res = 0L;
+            if (mirror != null) {
+                res = mirror.size();
+            }
+            return res;
+        }
+
+        /**
+         * Release mirror and remove it if it's not used anymore.
+         * @param storage Repository storage
+         * @param mirror Mirror
+         */
+        private void release(final Storage storage, final StorageMirror mirror) {
+            final boolean unused;
+            synchronized (this.lock) {
+                unused = mirror.release() && this.mirrors.remove(storage, mirror);
+            }
+            if (unused) {
+                mirror.remove(this.reaper);
+            }
+        }
+    }
+
+    /**
+     * Repository which reads and writes storage directly without local copy,
+     * see {@link AstoRepository}.
+     * @since 1.0
+     */
+    final class Direct implements RepositorySource {
+
+        /**
+         * Executor of repository opening.
+         */
+        private final Executor exec;
+
+        /**
+         * New direct source.
+         */
+        public Direct() {
+            this(BlockingExecutor.SHARED);
+        }
+
+        /**
+         * New direct source.
+         * @param exec Executor of repository opening
+         */
+        public Direct(final Executor exec) {
+            this.exec = exec;
+        }
+
+        @Override
+        public CompletableFuture<Repository> open(final Storage storage,
+            final CompletionStage<Void> lifetime) {
+            return CompletableFuture.supplyAsync(
+                new UncheckedSupplier<>(
+                    () -> {
+                        final Repository repo = new AstoRepository(
+                            storage, UUID.randomUUID().toString()
+                        );
+                        lifetime.thenRun(repo::close);
+                        return repo;
+                    }
+                ),
+                this.exec
+            );
+        }
+    }
+}
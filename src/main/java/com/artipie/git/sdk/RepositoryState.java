@@ -0,0 +1,249 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.ext.PublisherAs;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * State of git repository in storage.
+ * <p>
+ * Fingerprint of repository storage: it changes when any reference or config
+ * is changed, or when packs are added or removed. Only keys which determine
+ * repository state are listed: {@code HEAD}, {@code config},
+ * {@code packed-refs}, {@code refs/*}, {@code reftable/*},
+ * {@code objects/pack/*} and {@code objects/info/*}. Packs and reftables are
+ * content-addressed, so only their names are taken into account, the content
+ * is read only for mutable files. Calculation cost depends on the count of
+ * loose references and packs, not on repository size: loose objects, reflogs,
+ * hooks and published {@link Bundles} are not a part of repository state.
+ * Loose objects are not used without reference updates, which change the state.
+ * References fingerprint, see {@link #refs()}, covers only {@code HEAD},
+ * {@code packed-refs}, {@code refs/*} and {@code reftable/*}, so it's not changed
+ * by repacking.
+ * </p>
+ * @since 1.0
+ */
+public final class RepositoryState {
+
+    /**
+     * Objects directory prefix.
+     */
+    private static final String OBJECTS = "objects/";
+
+    /**
+     * Single keys of repository state.
+     */
+    private static final List<String> FILES = Arrays.asList(
+        Constants.HEAD, Constants.CONFIG, Constants.PACKED_REFS
+    );
+
+    /**
+     * Key prefixes of repository state.
+     */
+    private static final List<Key> DIRS = Arrays.asList(
+        new Key.From(Constants.R_REFS), new Key.From(Constants.REFTABLE),
+        new Key.From("objects", "pack"), new Key.From("objects", "info")
+    );
+
+    /**
+     * Single keys of references.
+     */
+    private static final List<String> REF_FILES = Arrays.asList(
+        Constants.HEAD, Constants.PACKED_REFS
+    );
+
+    /**
+     * Key prefixes of references.
+     */
+    private static final List<Key> REF_DIRS = Arrays.asList(
+        new Key.From(Constants.R_REFS), new Key.From(Constants.REFTABLE)
+    );
+
+    /**
+     * Key prefixes of local copy: state prefixes and loose objects.
+     */
+    private static final List<Key> COPIED = Arrays.asList(
+        new Key.From(Constants.R_REFS), new Key.From(Constants.REFTABLE),
+        new Key.From("objects")
+    );
+
+    /**
+     * Objects info directory prefix, it contains mutable files.
+     */
+    private static final String OBJECTS_INFO = "objects/info/";
+
+    /**
+     * Reftables directory prefix, tables are never changed after writing.
+     */
+    private static final String REFTABLE = "reftable/";
+
+    /**
+     * Reftables list, it's rewritten on every reference update.
+     */
+    private static final String TABLES_LIST = "reftable/tables.list";
+
+    /**
+     * Repository storage.
+     */
+    private final Storage storage;
+
+    /**
+     * New repository state.
+     * @param storage Repository storage
+     */
+    public RepositoryState(final Storage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Calculate state fingerprint.
+     * @return Hex string of state fingerprint
+     */
+    public CompletableFuture<String> fingerprint() {
+        return this.keys(RepositoryState.DIRS, RepositoryState.FILES).thenCompose(this::digest);
+    }
+
+    /**
+     * Calculate references fingerprint.
+     * @return Hex string of references fingerprint
+     */
+    public CompletableFuture<String> refs() {
+        return this.keys(RepositoryState.REF_DIRS, RepositoryState.REF_FILES)
+            .thenCompose(this::digest);
+    }
+
+    /**
+     * Existing keys which local copy of repository needs: keys of state and
+     * loose objects. Other keys, e.g. reflogs, hooks, published {@link Bundles}
+     * and lock proposals of storage, are not listed.
+     * @return Future with keys
+     */
+    CompletableFuture<List<Key>> copied() {
+        return this.keys(RepositoryState.COPIED, RepositoryState.FILES);
+    }
+
+    /**
+     * Existing keys of state.
+     * @param dirs Key prefixes to list
+     * @param files Single keys
+     * @return Future with keys
+     */
+    private CompletableFuture<List<Key>> keys(final List<Key> dirs, final List<String> files) {
+        final List<CompletableFuture<Collection<Key>>> lists = new ArrayList<>(
+            dirs.size() + files.size()
+        );
+        for (final Key dir : dirs) {
+            lists.add(this.storage.list(dir));
+        }
+        for (final String name : files) {
+            final Key key = new Key.From(name);
+            lists.add(
+                this.storage.exists(key).thenApply(
+                    exists -> {
+                        final Collection<Key> res;
+                        if (exists) {
+                            res = Collections.singletonList(key);
+                        } else {
+                            res = Collections.emptyList();
+                        }
+                        return res;
+                    }
+                )
+            );
+        }
+        return CompletableFuture.allOf(lists.toArray(new CompletableFuture<?>[0])).thenApply(
+            none -> lists.stream().flatMap(list -> list.join().stream())
+                .collect(Collectors.toList())
+        );
+    }
+
+    /**
+     * Digest of keys: names of immutable keys and names with content of mutable keys.
+     * @param keys Keys
+     * @return Hex string of digest
+     */
+    private CompletableFuture<String> digest(final List<Key> keys) {
+        final List<Key> sorted = new ArrayList<>(keys);
+        sorted.sort(Key.CMP_STRING);
+        final List<CompletableFuture<byte[]>> parts = sorted.stream()
+            .map(this::part).collect(Collectors.toList());
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+            .thenApply(
+                none -> {
+                    final MessageDigest digest = RepositoryState.sha();
+                    for (final CompletableFuture<byte[]> part : parts) {
+                        digest.update(part.join());
+                        digest.update((byte) 0);
+                    }
+                    return ObjectId.fromRaw(digest.digest()).name();
+                }
+            );
+    }
+
+    /**
+     * Fingerprint part of the key: key name for immutable objects and
+     * key name with content for mutable files.
+     * @param key Storage key
+     * @return Future with fingerprint part bytes
+     */
+    private CompletableFuture<byte[]> part(final Key key) {
+        final byte[] bytes = key.string().getBytes(StandardCharsets.UTF_8);
+        final CompletableFuture<byte[]> res;
+        if (RepositoryState.immutable(key)) {
+            res = CompletableFuture.completedFuture(bytes);
+        } else {
+            res = this.storage.value(key)
+                .thenCompose(content -> new PublisherAs(content).bytes())
+                .thenApply(
+                    data -> {
+                        final byte[] full = new byte[bytes.length + 1 + data.length];
+                        System.arraycopy(bytes, 0, full, 0, bytes.length);
+                        System.arraycopy(data, 0, full, bytes.length + 1, data.length);
+                        return full;
+                    }
+                ).toCompletableFuture();
+        }
+        return res;
+    }
+
+    /**
+     * Key of content-addressed object, pack or reftable, its content is never changed.
+     * @param key Storage key
+     * @return True if key content is immutable
+     */
+    static boolean immutable(final Key key) {
+        final String name = key.string();
+        return name.startsWith(RepositoryState.OBJECTS)
+            && !name.startsWith(RepositoryState.OBJECTS_INFO)
+            || name.startsWith(RepositoryState.REFTABLE)
+            && !name.equals(RepositoryState.TABLES_LIST);
+    }
+
+    /**
+     * New SHA-1 digest.
+     * @return Message digest
+     */
+    static MessageDigest sha() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException err) {
+            throw new IllegalStateException("SHA-1 digest is not supported", err);
+        }
+    }
+}
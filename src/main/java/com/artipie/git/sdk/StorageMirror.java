@@ -0,0 +1,507 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.ext.PublisherAs;
+import com.artipie.asto.fs.FileStorage;
+import com.artipie.git.TmpReaper;
+import com.artipie.git.metrics.GitMetrics;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Persistent local mirror of repository storage.
+ * <p>
+ * Mirror keeps a manifest of synchronized keys and copies only the changes
+ * on each {@link #sync(CompletionStage)}. Only keys which repository needs are
+ * listed, see {@link RepositoryState#copied()}: storage root is never listed,
+ * so reflogs, hooks, bundles and lock proposals are not read or copied.
+ * Objects and packs are content-addressed, so they're copied only when new
+ * keys appear, mutable state files like references are read and compared with
+ * SHA-1 checksum from the manifest, and keys removed from storage are removed
+ * from the mirror. Objects are copied before references and removed
+ * after them, so repositories opened on the mirror never see references to
+ * missing objects. Removed objects and packs are kept until all repositories
+ * opened on previous syncs are closed, because these repositories can open
+ * them lazily. Files are saved atomically with {@link FileStorage}. Syncs are
+ * performed one after another, duration is reported as {@code mirror.sync}
+ * latency and copied bytes as {@code mirror.sync} input bytes. Size of mirror
+ * files is counted from copied and removed bytes, so it's known without
+ * walking the mirror directory.
+ * </p>
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+final class StorageMirror {
+
+    /**
+     * Repository storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Mirror directory factory.
+     */
+    private final Supplier<? extends Path> dirs;
+
+    /**
+     * Executor of blocking file system operations.
+     */
+    private final Executor exec;
+
+    /**
+     * Metrics.
+     */
+    private final GitMetrics metrics;
+
+    /**
+     * Manifest: synchronized files by key.
+     */
+    private final Map<String, Copied> manifest;
+
+    /**
+     * Size of mirror files in bytes.
+     */
+    private final AtomicLong bytes;
+
+    /**
+     * Lock of syncs, generations and garbage.
+     */
+    private final Object lock;
+
+    /**
+     * Mirror directory, created on first sync, guarded by lock.
+     */
+    private CompletableFuture<Path> home;
+
+    /**
+     * Last scheduled sync, guarded by lock.
+     */
+    private CompletableFuture<Path> last;
+
+    /**
+     * Counts of opened repositories by sync generation, guarded by lock.
+     */
+    private final NavigableMap<Long, Integer> opened;
+
+    /**
+     * Removed immutable keys by generation of sync which removed them,
+     * guarded by lock.
+     */
+    private final Map<String, Long> garbage;
+
+    /**
+     * Repositories opened on this mirror, guarded by lock.
+     */
+    private int users;
+
+    /**
+     * Generation of last sync, guarded by lock.
+     */
+    private long generation;
+
+    /**
+     * New mirror.
+     * @param storage Repository storage
+     * @param dirs Mirror directory factory
+     * @param exec Executor of blocking file system operations
+     * @param metrics Metrics
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    StorageMirror(final Storage storage, final Supplier<? extends Path> dirs,
+        final Executor exec, final GitMetrics metrics) {
+        this.storage = storage;
+        this.dirs = dirs;
+        this.exec = exec;
+        this.metrics = metrics;
+        this.manifest = new ConcurrentHashMap<>();
+        this.bytes = new AtomicLong();
+        this.lock = new Object();
+        this.opened = new TreeMap<>();
+        this.garbage = new HashMap<>();
+        this.last = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Copy storage changes to the mirror after previous sync is done.
+     * @param closed Stage completed when repository opened on the mirror is closed
+     * @return Future with mirror directory
+     */
+    CompletableFuture<Path> sync(final CompletionStage<Void> closed) {
+        synchronized (this.lock) {
+            this.last = this.last.handle((dir, err) -> this.home())
+                .thenCompose(home -> home.thenCompose(this::update))
+                .thenApply(
+                    dir -> {
+                        final long gen = this.hold();
+                        closed.thenRun(() -> this.unhold(gen));
+                        return dir;
+                    }
+                );
+            return this.last;
+        }
+    }
+
+    /**
+     * Size of mirror files, including removed objects which are kept for
+     * repositories opened on previous syncs.
+     * @return Size in bytes
+     */
+    long size() {
+        return this.bytes.get();
+    }
+
+    /**
+     * Acquire mirror for repository.
+     */
+    void acquire() {
+        synchronized (this.lock) {
+            this.users += 1;
+        }
+    }
+
+    /**
+     * Release mirror after repository is closed.
+     * @return True if mirror is not used anymore
+     */
+    boolean release() {
+        synchronized (this.lock) {
+            this.users -= 1;
+            return this.users == 0;
+        }
+    }
+
+    /**
+     * Remove mirror directory after pending sync is done.
+     * @param reaper Reaper of mirror directory
+     */
+    void remove(final TmpReaper reaper) {
+        synchronized (this.lock) {
+            if (this.home != null) {
+                final CompletableFuture<Path> dir = this.home;
+                this.last = this.last.handle((none, err) -> null).thenCompose(none -> dir)
+                    .thenCompose(path -> reaper.reap(path).thenApply(ignored -> path));
+            }
+        }
+    }
+
+    /**
+     * Register repository opened on last sync.
+     * @return Generation of the sync
+     */
+    private long hold() {
+        synchronized (this.lock) {
+            this.opened.merge(this.generation, 1, Integer::sum);
+            return this.generation;
+        }
+    }
+
+    /**
+     * Unregister closed repository and remove garbage it was using after
+     * pending sync is done.
+     * @param gen Generation of the sync repository was opened on
+     */
+    private void unhold(final long gen) {
+        synchronized (this.lock) {
+            if (this.opened.merge(gen, -1, Integer::sum) == 0) {
+                this.opened.remove(gen);
+            }
+            final CompletableFuture<Path> dir = this.home;
+            this.last = this.last.handle((none, err) -> null).thenCompose(none -> dir)
+                .thenCompose(this::collect);
+        }
+    }
+
+    /**
+     * Next sync generation.
+     * @return Generation
+     */
+    private long next() {
+        synchronized (this.lock) {
+            this.generation += 1;
+            return this.generation;
+        }
+    }
+
+    /**
+     * Mirror directory.
+     * @return Future with directory
+     */
+    private CompletableFuture<Path> home() {
+        synchronized (this.lock) {
+            if (this.home == null) {
+                this.home = CompletableFuture.supplyAsync(this.dirs::get, this.exec);
+            }
+            return this.home;
+        }
+    }
+
+    /**
+     * Copy new objects, then changed mutable files, then remove deleted keys.
+     * @param dir Mirror directory
+     * @return Future with mirror directory
+     */
+    private CompletableFuture<Path> update(final Path dir) {
+        final long start = System.nanoTime();
+        final long gen = this.next();
+        final Storage local = new FileStorage(dir);
+        return new RepositoryState(this.storage).copied().thenCompose(
+            actual -> StorageMirror.all(
+                actual.stream()
+                    .filter(RepositoryState::immutable)
+                    .filter(key -> !this.manifest.containsKey(key.string()))
+                    .map(key -> this.copy(local, key))
+                    .collect(Collectors.toList())
+            ).thenCompose(
+                copied -> StorageMirror.all(
+                    actual.stream()
+                        .filter(key -> !RepositoryState.immutable(key))
+                        .map(key -> this.refresh(local, key))
+                        .collect(Collectors.toList())
+                ).thenApply(refreshed -> copied + refreshed)
+            ).thenCompose(
+                bytes -> this.prune(local, actual, gen)
+                    .thenCompose(none -> this.collect(dir))
+                    .thenApply(
+                        none -> {
+                            this.metrics.bytesIn("mirror.sync", bytes);
+                            this.metrics.latency(
+                                "mirror.sync", System.nanoTime() - start
+                            );
+                            return dir;
+                        }
+                    )
+            )
+        );
+    }
+
+    /**
+     * Copy immutable object to the mirror.
+     * @param local Mirror storage
+     * @param key Object key
+     * @return Future with copied bytes count
+     */
+    private CompletableFuture<Long> copy(final Storage local, final Key key) {
+        return this.storage.value(key)
+            .thenCompose(content -> local.save(key, content))
+            .thenCompose(none -> local.size(key))
+            .thenApply(
+                size -> {
+                    this.manifest.put(key.string(), new Copied("", size));
+                    if (!this.restore(key.string())) {
+                        this.bytes.addAndGet(size);
+                    }
+                    return size;
+                }
+            );
+    }
+
+    /**
+     * Copy mutable file to the mirror if its checksum was changed.
+     * @param local Mirror storage
+     * @param key File key
+     * @return Future with copied bytes count
+     */
+    private CompletableFuture<Long> refresh(final Storage local, final Key key) {
+        return this.storage.value(key)
+            .thenCompose(content -> new PublisherAs(content).bytes())
+            .toCompletableFuture()
+            .thenCompose(
+                bytes -> {
+                    final String sum = ObjectId.fromRaw(RepositoryState.sha().digest(bytes))
+                        .name();
+                    final Copied old = this.manifest.get(key.string());
+                    final CompletableFuture<Long> res;
+                    if (old != null && sum.equals(old.sum)) {
+                        res = CompletableFuture.completedFuture(0L);
+                    } else {
+                        res = local.save(key, new Content.From(bytes)).thenApply(
+                            none -> {
+                                final Copied saved = new Copied(sum, bytes.length);
+                                this.manifest.put(key.string(), saved);
+                                this.bytes.addAndGet(saved.size - Copied.size(old));
+                                return saved.size;
+                            }
+                        );
+                    }
+                    return res;
+                }
+            );
+    }
+
+    /**
+     * Remove mutable keys which were removed from storage and mark removed
+     * immutable keys as garbage of the sync.
+     * @param local Mirror storage
+     * @param actual Actual storage keys
+     * @param gen Generation of the sync
+     * @return Future completed when keys are removed
+     */
+    private CompletableFuture<Long> prune(final Storage local, final Collection<Key> actual,
+        final long gen) {
+        final Set<String> names = actual.stream().map(Key::string)
+            .collect(Collectors.toCollection(HashSet::new));
+        final List<String> removed = this.manifest.keySet().stream()
+            .filter(name -> !names.contains(name))
+            .collect(Collectors.toList());
+        for (final String name : removed) {
+            if (RepositoryState.immutable(new Key.From(name))) {
+                this.manifest.remove(name);
+                this.discard(name, gen);
+            }
+        }
+        return StorageMirror.all(
+            removed.stream()
+                .filter(name -> !RepositoryState.immutable(new Key.From(name)))
+                .map(
+                    name -> local.delete(new Key.From(name)).thenApply(
+                        none -> {
+                            this.bytes.addAndGet(-Copied.size(this.manifest.remove(name)));
+                            return 0L;
+                        }
+                    )
+                )
+                .collect(Collectors.toList())
+        );
+    }
+
+    /**
+     * Remove garbage which is not used by repositories opened on previous syncs.
+     * @param dir Mirror directory
+     * @return Future with mirror directory
+     */
+    private CompletableFuture<Path> collect(final Path dir) {
+        final Storage local = new FileStorage(dir);
+        return StorageMirror.all(
+            this.unused().stream().map(Key.From::new).map(
+                key -> local.size(key).thenCompose(
+                    size -> local.delete(key).thenApply(none -> size)
+                )
+            ).collect(Collectors.toList())
+        ).thenApply(
+            removed -> {
+                this.bytes.addAndGet(-removed);
+                return dir;
+            }
+        );
+    }
+
+    /**
+     * Mark immutable key as garbage.
+     * @param name Key name
+     * @param gen Generation of sync which removed the key
+     */
+    private void discard(final String name, final long gen) {
+        synchronized (this.lock) {
+            this.garbage.put(name, gen);
+        }
+    }
+
+    /**
+     * Unmark immutable key copied again.
+     * @param name Key name
+     * @return True if key was marked as garbage, so its file was in the mirror
+     */
+    private boolean restore(final String name) {
+        synchronized (this.lock) {
+            return this.garbage.remove(name) != null;
+        }
+    }
+
+    /**
+     * Take garbage keys which are not used by opened repositories: keys removed
+     * by sync are used only by repositories opened on previous syncs.
+     * @return Key names
+     */
+    private List<String> unused() {
+        synchronized (this.lock) {
+            long oldest = Long.MAX_VALUE;
+            if (!this.opened.isEmpty()) {
+                oldest = this.opened.firstKey();
+            }
+            final List<String> res = new ArrayList<>(0);
+            final Iterator<Map.Entry<String, Long>> iter = this.garbage.entrySet().iterator();
+            while (iter.hasNext()) {
+                final Map.Entry<String, Long> entry = iter.next();
+                if (entry.getValue() <= oldest) {
+                    res.add(entry.getKey());
+                    iter.remove();
+                }
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Synchronized file.
+     * @since 1.0
+     */
+    private static final class Copied {
+
+        /**
+         * SHA-1 checksum of mutable file, empty for objects.
+         */
+        private final String sum;
+
+        /**
+         * File size in bytes.
+         */
+        private final long size;
+
+        /**
+         * New copied file.
+         * @param sum SHA-1 checksum of mutable file, empty for objects
+         * @param size File size in bytes
+         */
+        Copied(final String sum, final long size) {
+            this.sum = sum;
+            this.size = size;
+        }
+
+        /**
+         * Size of copied file.
+         * @param entry Copied file or null
+         * @return Size in bytes, zero for null
+         */
+        static long size(final Copied entry) {
+            long res = 0L;
+            if (entry != null) {
+                res = entry.size;
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Wait for all futures.
+     * @param futures Futures of bytes counts
+     * @return Future with total bytes count
+     */
+    private static CompletableFuture<Long> all(final List<CompletableFuture<Long>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(
+            none -> futures.stream().mapToLong(CompletableFuture::join).sum()
+        );
+    }
+}
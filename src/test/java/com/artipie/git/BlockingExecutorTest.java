@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git;
+
+import com.artipie.git.metrics.InMemoryMetrics;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link BlockingExecutor}.
+ *
+ * @since 1.0
+ */
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+final class BlockingExecutorTest {
+
+    @Test
+    void reportsQueueMetrics() throws Exception {
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        final BlockingExecutor exec = new BlockingExecutor(1, 1, metrics);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CompletableFuture<Void> first = CompletableFuture.runAsync(
+            () -> {
+                started.countDown();
+                try {
+                    latch.await();
+                } catch (final InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                }
+            },
+            exec
+        );
+        started.await();
+        final CompletableFuture<Void> second = CompletableFuture.runAsync(() -> { }, exec);
+        MatcherAssert.assertThat(
+            "Second task is not queued",
+            metrics.inflight("exec.queue"),
+            Matchers.is(1L)
+        );
+        latch.countDown();
+        CompletableFuture.allOf(first, second).join();
+        MatcherAssert.assertThat(
+            "Queue is not empty",
+            metrics.inflight("exec.queue"),
+            Matchers.is(0L)
+        );
+        MatcherAssert.assertThat(
+            "Tasks are not counted",
+            metrics.count("exec.run"),
+            Matchers.is(2L)
+        );
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        final BlockingExecutor exec = new BlockingExecutor(1, 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Runnable blocked = () -> {
+            try {
+                latch.await();
+            } catch (final InterruptedException err) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        exec.execute(blocked);
+        exec.execute(blocked);
+        try {
+            Assertions.assertThrows(
+                RejectedExecutionException.class,
+                () -> exec.execute(blocked)
+            );
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    void runsOnVirtualOrPlatformThreads() {
+        MatcherAssert.assertThat(
+            CompletableFuture.supplyAsync(
+                () -> "done", BlockingExecutor.virtual(2, 2, new InMemoryMetrics())
+            ).join(),
+            Matchers.is("done")
+        );
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link ScratchDirs}.
+ *
+ * @since 1.0
+ */
+final class ScratchDirsTest {
+
+    @Test
+    void reusesRecycledDirectory(@TempDir final Path root) throws Exception {
+        final ScratchDirs dirs = new ScratchDirs(root, 1);
+        final Path dir = dirs.get();
+        Files.createDirectories(dir.resolve("objects").resolve("pack"));
+        Files.write(dir.resolve("HEAD"), "ref: refs/heads/master\n".getBytes());
+        new TmpReaper(Runnable::run, dirs::offer).reap(dir).join();
+        try (Stream<Path> files = Files.list(dir)) {
+            MatcherAssert.assertThat(
+                "Recycled directory is not empty",
+                files.count(),
+                Matchers.is(0L)
+            );
+        }
+        MatcherAssert.assertThat(
+            "Recycled directory was not reused",
+            dirs.get(),
+            Matchers.equalTo(dir)
+        );
+    }
+
+    @Test
+    void preparesUpToCapacity(@TempDir final Path root) throws Exception {
+        new ScratchDirs(root, 3).prepare().prepare();
+        try (Stream<Path> files = Files.list(root)) {
+            MatcherAssert.assertThat(
+                files.count(),
+                Matchers.is(3L)
+            );
+        }
+    }
+
+    @Test
+    void removesDirectoryWhenPoolIsFull(@TempDir final Path root) throws Exception {
+        final ScratchDirs dirs = new ScratchDirs(root, 0);
+        final Path dir = dirs.get();
+        new TmpReaper(Runnable::run, dirs::offer).reap(dir).join();
+        MatcherAssert.assertThat(
+            Files.exists(dir),
+            Matchers.is(false)
+        );
+    }
+}
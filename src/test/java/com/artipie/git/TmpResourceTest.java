@@ -6,9 +6,15 @@ package com.artipie.git;
 
 import com.artipie.asto.Content;
 import com.artipie.asto.Key;
+import com.artipie.git.metrics.GitMetrics;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.testcontainers.shaded.org.hamcrest.MatcherAssert;
@@ -26,7 +32,7 @@ final class TmpResourceTest {
     void removeFilesOnCleanup(@TempDir final Path tmp) throws Exception {
         final Path target = tmp.resolve("test-1");
         Files.createDirectory(target);
-        new TmpResource(target)
+        new TmpResource(target, GitMetrics.NOP, TmpReaper.SYNC)
             .with(
                 st -> CompletableFuture.allOf(
                     st.save(new Key.From("one"), new Content.From("1".getBytes())),
@@ -40,4 +46,66 @@ final class TmpResourceTest {
             Matchers.is(false)
         );
     }
+
+    @Test
+    void completesBeforeCleanup(@TempDir final Path tmp) throws Exception {
+        final Path target = tmp.resolve("test-2");
+        Files.createDirectory(target);
+        final List<Runnable> tasks = new ArrayList<>(1);
+        new TmpResource(target, GitMetrics.NOP, new TmpReaper(tasks::add))
+            .with(st -> st.save(new Key.From("one"), new Content.From("1".getBytes())))
+            .join();
+        MatcherAssert.assertThat(
+            "Directory removed before completion",
+            Files.exists(target.resolve("one")),
+            Matchers.is(true)
+        );
+        tasks.forEach(Runnable::run);
+        MatcherAssert.assertThat(
+            "Directory was not removed by reaper",
+            Files.exists(target),
+            Matchers.is(false)
+        );
+    }
+
+    @Test
+    void usesFixedPathOnSaturatedExecutor(@TempDir final Path tmp) throws Exception {
+        final Path target = tmp.resolve("test-3");
+        Files.createDirectory(target);
+        final BlockingExecutor exec = new BlockingExecutor(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<Thread> worker = new AtomicReference<>();
+        final AtomicReference<Thread> saver = new AtomicReference<>();
+        final CompletableFuture<Void> saved = CompletableFuture.runAsync(
+            () -> {
+                worker.set(Thread.currentThread());
+                new TmpResource(target).with(
+                    st -> {
+                        saver.set(Thread.currentThread());
+                        return st.save(new Key.From("one"), new Content.From("1".getBytes()));
+                    }
+                ).join();
+            },
+            exec
+        );
+        exec.execute(
+            () -> {
+                try {
+                    release.await();
+                } catch (final InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        );
+        try {
+            saved.get(1, TimeUnit.MINUTES);
+        } finally {
+            release.countDown();
+        }
+        MatcherAssert.assertThat(
+            "Fixed path resource used another thread",
+            saver.get(),
+            Matchers.sameInstance(worker.get())
+        );
+    }
 }
@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.memory.InMemoryStorage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link AstoReadableChannel}.
+ *
+ * @since 1.0
+ */
+final class AstoReadableChannelTest {
+
+    @Test
+    void readsAlternateRegionsWithoutReopening() throws IOException {
+        final byte[] value = new byte[1000];
+        for (int idx = 0; idx < value.length; ++idx) {
+            value[idx] = (byte) idx;
+        }
+        final Key key = new Key.From("pack");
+        final CountingStorage storage = new CountingStorage(new InMemoryStorage());
+        storage.save(key, new Content.From(value)).join();
+        final List<Byte> read = new ArrayList<>(4);
+        try (AstoReadableChannel channel = new AstoReadableChannel(storage, key, value.length)) {
+            for (final long pos : new long[]{900, 100, 950, 120}) {
+                final ByteBuffer buf = ByteBuffer.allocate(10);
+                channel.position(pos);
+                channel.read(buf);
+                read.add(buf.get(0));
+            }
+        }
+        MatcherAssert.assertThat(
+            "Wrong bytes are read",
+            read,
+            Matchers.contains(value[900], value[100], value[950], value[120])
+        );
+        MatcherAssert.assertThat(
+            "Value is re-opened for regions read before",
+            storage.opens.get(),
+            Matchers.is(2)
+        );
+    }
+
+    /**
+     * Storage counting value reads.
+     * @since 1.0
+     */
+    private static final class CountingStorage implements Storage {
+
+        /**
+         * Origin storage.
+         */
+        private final Storage origin;
+
+        /**
+         * Count of value reads.
+         */
+        private final AtomicInteger opens;
+
+        /**
+         * New storage.
+         * @param origin Origin storage
+         */
+        CountingStorage(final Storage origin) {
+            this.origin = origin;
+            this.opens = new AtomicInteger();
+        }
+
+        @Override
+        public CompletableFuture<Boolean> exists(final Key key) {
+            return this.origin.exists(key);
+        }
+
+        @Override
+        public CompletableFuture<Collection<Key>> list(final Key prefix) {
+            return this.origin.list(prefix);
+        }
+
+        @Override
+        public CompletableFuture<Void> save(final Key key, final Content content) {
+            return this.origin.save(key, content);
+        }
+
+        @Override
+        public CompletableFuture<Void> move(final Key source, final Key destination) {
+            return this.origin.move(source, destination);
+        }
+
+        @Override
+        public CompletableFuture<Long> size(final Key key) {
+            return this.origin.size(key);
+        }
+
+        @Override
+        public CompletableFuture<Content> value(final Key key) {
+            this.opens.incrementAndGet();
+            return this.origin.value(key);
+        }
+
+        @Override
+        public CompletableFuture<Void> delete(final Key key) {
+            return this.origin.delete(key);
+        }
+
+        @Override
+        public <T> CompletionStage<T> exclusively(final Key key,
+            final Function<Storage, CompletionStage<T>> operation) {
+            return this.origin.exclusively(key, operation);
+        }
+    }
+}
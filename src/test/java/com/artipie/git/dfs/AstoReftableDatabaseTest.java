@@ -0,0 +1,152 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.fs.FileStorage;
+import com.artipie.asto.memory.InMemoryStorage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link AstoReftableDatabase}.
+ *
+ * @since 1.0
+ */
+final class AstoReftableDatabaseTest {
+
+    @Test
+    void convertsAndUpdatesReferences(@TempDir final Path dir) throws IOException {
+        final Storage storage = new FileStorage(dir);
+        final ObjectId head = AstoReftableDatabaseTest.convert(storage);
+        try (Repository repo = new AstoRepository(storage, "reftable-update")) {
+            AstoReftableDatabaseTest.update(repo, "refs/heads/dev", head);
+        }
+        MatcherAssert.assertThat(
+            "Loose references are not removed",
+            storage.list(new Key.From(Constants.R_REFS)).join(),
+            Matchers.empty()
+        );
+        try (Repository repo = new AstoRepository(storage, "reftable-read")) {
+            MatcherAssert.assertThat(
+                "HEAD is not symbolic reference to master",
+                repo.exactRef(Constants.HEAD).getTarget().getName(),
+                Matchers.equalTo("refs/heads/master")
+            );
+            MatcherAssert.assertThat(
+                "Branches are not found by prefix",
+                repo.getRefDatabase().getRefsByPrefix(Constants.R_HEADS).stream()
+                    .map(Ref::getName).collect(Collectors.toList()),
+                Matchers.contains("refs/heads/dev", "refs/heads/master")
+            );
+        }
+        try (Repository repo = new FileRepository(dir.toFile())) {
+            MatcherAssert.assertThat(
+                "File repository doesn't read reftable",
+                repo.exactRef("refs/heads/dev").getObjectId(),
+                Matchers.equalTo(head)
+            );
+        }
+    }
+
+    @Test
+    void compactsStack() throws IOException {
+        final Storage storage = new InMemoryStorage();
+        final ObjectId head = AstoReftableDatabaseTest.convert(storage);
+        final int count = 32;
+        try (Repository repo = new AstoRepository(storage, "reftable-stack")) {
+            for (int idx = 0; idx < count; ++idx) {
+                AstoReftableDatabaseTest.update(
+                    repo, String.format("refs/heads/branch-%02d", idx), head
+                );
+            }
+        }
+        MatcherAssert.assertThat(
+            "Stack is not compacted on update",
+            AstoReftableDatabase.names(storage).size(),
+            Matchers.lessThanOrEqualTo(6)
+        );
+        try (AstoRepository repo = new AstoRepository(storage, "reftable-compact")) {
+            ((AstoReftableDatabase) repo.getRefDatabase()).compact();
+        }
+        MatcherAssert.assertThat(
+            "Stack is not compacted fully",
+            AstoReftableDatabase.names(storage),
+            Matchers.hasSize(1)
+        );
+        try (Repository repo = new AstoRepository(storage, "reftable-compacted")) {
+            MatcherAssert.assertThat(
+                "References are lost by compaction",
+                repo.getRefDatabase().getRefsByPrefix("refs/heads/branch-"),
+                Matchers.hasSize(count)
+            );
+        }
+    }
+
+    /**
+     * Create repository with master branch and convert it to reftable.
+     * @param storage Storage
+     * @return Master commit
+     * @throws IOException On error
+     */
+    private static ObjectId convert(final Storage storage) throws IOException {
+        try (AstoRepository repo = new AstoRepository(storage, "reftable-convert")) {
+            final ObjectId head;
+            try (ObjectInserter ins = repo.newObjectInserter()) {
+                final TreeFormatter tree = new TreeFormatter();
+                final CommitBuilder commit = new CommitBuilder();
+                commit.setTreeId(ins.insert(tree));
+                commit.setAuthor(new PersonIdent("author", "author@example.com"));
+                commit.setCommitter(commit.getAuthor());
+                commit.setMessage("initial");
+                head = ins.insert(commit);
+                ins.flush();
+            }
+            AstoReftableDatabaseTest.update(repo, "refs/heads/master", head);
+            repo.getRefDatabase().newUpdate(Constants.HEAD, false).link("refs/heads/master");
+            repo.convertToReftable();
+            return head;
+        }
+    }
+
+    /**
+     * Point reference to object.
+     * @param repo Repository
+     * @param name Reference name
+     * @param id Object id
+     * @throws IOException On error
+     */
+    private static void update(final Repository repo, final String name, final ObjectId id)
+        throws IOException {
+        final RefUpdate upd = repo.updateRef(name);
+        upd.setNewObjectId(id);
+        MatcherAssert.assertThat(
+            String.format("Reference %s is not updated", name),
+            upd.update(),
+            Matchers.is(RefUpdate.Result.NEW)
+        );
+        MatcherAssert.assertThat(
+            "Written reference is not read",
+            repo.exactRef(name).getObjectId(),
+            Matchers.equalTo(id)
+        );
+    }
+}
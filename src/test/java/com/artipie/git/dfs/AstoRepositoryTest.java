@@ -0,0 +1,252 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Copy;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.fs.FileStorage;
+import com.artipie.asto.memory.InMemoryStorage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link AstoRepository}.
+ *
+ * @since 1.0
+ */
+final class AstoRepositoryTest {
+
+    /**
+     * Master branch.
+     */
+    private static final String MASTER = "refs/heads/master";
+
+    @Test
+    void readsPackedObjectsAndRefs(@TempDir final Path tmp) throws Exception {
+        final FileRepository local = new FileRepository(tmp.toFile());
+        local.create(true);
+        final ObjectId blob;
+        try (ObjectInserter ins = local.newObjectInserter()) {
+            blob = ins.insert(Constants.OBJ_BLOB, "hello".getBytes(StandardCharsets.UTF_8));
+            ins.flush();
+        }
+        final RefUpdate upd = local.updateRef("refs/tags/blob");
+        upd.setNewObjectId(blob);
+        upd.update();
+        new GC(local).gc();
+        local.close();
+        final Storage storage = new InMemoryStorage();
+        new Copy(new FileStorage(tmp)).copy(storage).join();
+        try (Repository repo = new AstoRepository(storage, "read-test")) {
+            MatcherAssert.assertThat(
+                new String(
+                    repo.open(repo.resolve("refs/tags/blob")).getBytes(),
+                    StandardCharsets.UTF_8
+                ),
+                Matchers.equalTo("hello")
+            );
+        }
+    }
+
+    @Test
+    void writesPackAndRefToStorage() throws Exception {
+        final Storage storage = new InMemoryStorage();
+        final ObjectId blob;
+        try (Repository repo = new AstoRepository(storage, "write-test")) {
+            try (ObjectInserter ins = repo.newObjectInserter()) {
+                blob = ins.insert(Constants.OBJ_BLOB, "world".getBytes(StandardCharsets.UTF_8));
+                ins.flush();
+            }
+            final RefUpdate upd = repo.updateRef("refs/heads/master");
+            upd.setNewObjectId(blob);
+            MatcherAssert.assertThat(upd.update(), Matchers.equalTo(RefUpdate.Result.NEW));
+        }
+        try (Repository repo = new AstoRepository(storage, "write-test-reopen")) {
+            MatcherAssert.assertThat(
+                new String(
+                    repo.open(repo.resolve("refs/heads/master")).getBytes(),
+                    StandardCharsets.UTF_8
+                ),
+                Matchers.equalTo("world")
+            );
+        }
+    }
+
+    @Test
+    void rejectsConcurrentNonFastForwardUpdate() throws Exception {
+        final Storage origin = new InMemoryStorage();
+        final List<ObjectId> blobs = new ArrayList<>(3);
+        try (Repository repo = new AstoRepository(origin, "race-init")) {
+            try (ObjectInserter ins = repo.newObjectInserter()) {
+                for (final String text : new String[]{"base", "left", "right"}) {
+                    blobs.add(
+                        ins.insert(Constants.OBJ_BLOB, text.getBytes(StandardCharsets.UTF_8))
+                    );
+                }
+                ins.flush();
+            }
+            final RefUpdate upd = repo.updateRef(AstoRepositoryTest.MASTER);
+            upd.setNewObjectId(blobs.get(0));
+            upd.update();
+        }
+        final Storage storage = new RacingStorage(
+            origin, new Key.From(AstoRepositoryTest.MASTER)
+        );
+        final ExecutorService exec = Executors.newFixedThreadPool(2);
+        try (Repository left = new AstoRepository(storage, "race-left");
+            Repository right = new AstoRepository(storage, "race-right")) {
+            final List<Future<RefUpdate.Result>> results = new ArrayList<>(2);
+            for (final Repository repo : Arrays.asList(left, right)) {
+                repo.exactRef(AstoRepositoryTest.MASTER);
+            }
+            results.add(exec.submit(() -> AstoRepositoryTest.force(left, blobs)));
+            results.add(exec.submit(() -> AstoRepositoryTest.force(right, blobs)));
+            final List<RefUpdate.Result> actual = new ArrayList<>(2);
+            for (final Future<RefUpdate.Result> res : results) {
+                actual.add(res.get());
+            }
+            MatcherAssert.assertThat(
+                actual,
+                Matchers.containsInAnyOrder(
+                    RefUpdate.Result.FORCED, RefUpdate.Result.LOCK_FAILURE
+                )
+            );
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+    /**
+     * Force master from base blob to the blob of the repository name.
+     * @param repo Repository
+     * @param blobs Base, left and right blobs
+     * @return Update result
+     * @throws IOException On error
+     */
+    private static RefUpdate.Result force(final Repository repo, final List<ObjectId> blobs)
+        throws IOException {
+        final RefUpdate upd = repo.updateRef(AstoRepositoryTest.MASTER);
+        upd.setExpectedOldObjectId(blobs.get(0));
+        if (repo.getIdentifier().endsWith("left")) {
+            upd.setNewObjectId(blobs.get(1));
+        } else {
+            upd.setNewObjectId(blobs.get(2));
+        }
+        return upd.forceUpdate();
+    }
+
+    /**
+     * Storage which delays saving of the key until the key is checked
+     * by another update, so concurrent compare-and-save operations interleave
+     * unless they are serialized.
+     * @since 1.0
+     */
+    private static final class RacingStorage implements Storage {
+
+        /**
+         * Origin storage.
+         */
+        private final Storage origin;
+
+        /**
+         * Raced key.
+         */
+        private final Key key;
+
+        /**
+         * Checks of the key.
+         */
+        private final CountDownLatch checks;
+
+        /**
+         * New storage.
+         * @param origin Origin storage
+         * @param key Raced key
+         */
+        RacingStorage(final Storage origin, final Key key) {
+            this.origin = origin;
+            this.key = key;
+            this.checks = new CountDownLatch(2);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> exists(final Key target) {
+            if (this.key.equals(target)) {
+                this.checks.countDown();
+            }
+            return this.origin.exists(target);
+        }
+
+        @Override
+        public CompletableFuture<Collection<Key>> list(final Key prefix) {
+            return this.origin.list(prefix);
+        }
+
+        @Override
+        public CompletableFuture<Void> save(final Key target, final Content content) {
+            if (this.key.equals(target)) {
+                try {
+                    this.checks.await(1, TimeUnit.SECONDS);
+                } catch (final InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(err);
+                }
+            }
+            return this.origin.save(target, content);
+        }
+
+        @Override
+        public CompletableFuture<Void> move(final Key source, final Key destination) {
+            return this.origin.move(source, destination);
+        }
+
+        @Override
+        public CompletableFuture<Long> size(final Key target) {
+            return this.origin.size(target);
+        }
+
+        @Override
+        public CompletableFuture<Content> value(final Key target) {
+            return this.origin.value(target);
+        }
+
+        @Override
+        public CompletableFuture<Void> delete(final Key target) {
+            return this.origin.delete(target);
+        }
+
+        @Override
+        public <T> CompletionStage<T> exclusively(final Key target,
+            final Function<Storage, CompletionStage<T>> operation) {
+            return this.origin.exclusively(target, operation);
+        }
+    }
+}
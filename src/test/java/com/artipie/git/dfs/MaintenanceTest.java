@@ -0,0 +1,263 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.memory.InMemoryStorage;
+import com.artipie.git.metrics.GitMetrics;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link Maintenance}.
+ *
+ * @since 1.0
+ */
+final class MaintenanceTest {
+
+    @Test
+    void compactsSmallPacksAndPrunesIncompletePacks() throws IOException {
+        final Storage storage = new InMemoryStorage();
+        MaintenanceTest.history(storage, 1);
+        final Maintenance maintenance = new Maintenance(
+            storage, 3, 100, Duration.ofDays(1), Duration.ZERO, Runnable::run, GitMetrics.NOP
+        );
+        maintenance.run().join();
+        final ObjectId head = MaintenanceTest.history(storage, 3);
+        final Key incomplete = new Key.From("objects", "pack", "pack-incomplete.pack");
+        storage.save(incomplete, Content.EMPTY).join();
+        maintenance.run().join();
+        MatcherAssert.assertThat(
+            "Packs are not compacted and pruned",
+            MaintenanceTest.files(storage, ".pack"),
+            Matchers.hasSize(2)
+        );
+        MatcherAssert.assertThat(
+            "Bitmap pack is compacted",
+            MaintenanceTest.files(storage, ".bitmap"),
+            Matchers.hasSize(1)
+        );
+        MatcherAssert.assertThat(
+            "Incomplete pack is not pruned",
+            storage.exists(incomplete).join(),
+            Matchers.is(false)
+        );
+        MatcherAssert.assertThat(
+            "History is not readable",
+            MaintenanceTest.count(storage, head),
+            Matchers.is(4)
+        );
+    }
+
+    @Test
+    void writesMissingBitmapAndKeepsRetiredPacks() throws IOException {
+        final Storage storage = new InMemoryStorage();
+        final ObjectId head = MaintenanceTest.history(storage, 2);
+        new Maintenance(
+            storage, 100, 100, Duration.ofDays(1), Duration.ofHours(1), Runnable::run,
+            GitMetrics.NOP
+        ).run().join();
+        MatcherAssert.assertThat(
+            "Bitmap index is not written",
+            MaintenanceTest.files(storage, ".bitmap"),
+            Matchers.hasSize(1)
+        );
+        MatcherAssert.assertThat(
+            "Replaced packs are not retired",
+            MaintenanceTest.files(storage, ".retired"),
+            Matchers.hasSize(2)
+        );
+        MatcherAssert.assertThat(
+            "Retired packs are removed before grace period",
+            MaintenanceTest.files(storage, ".pack"),
+            Matchers.hasSize(3)
+        );
+        try (Repository repo = new AstoRepository(storage, "maintenance-gc")) {
+            MatcherAssert.assertThat(
+                "Retired packs are visible",
+                ((AstoObjDatabase) repo.getObjectDatabase()).getPacks().length,
+                Matchers.is(1)
+            );
+        }
+        MatcherAssert.assertThat(
+            "History is not readable",
+            MaintenanceTest.count(storage, head),
+            Matchers.is(2)
+        );
+    }
+
+    @Test
+    void resetsMalformedRetirementMarker() throws IOException {
+        final Storage storage = new InMemoryStorage();
+        final ObjectId head = MaintenanceTest.history(storage, 2);
+        new Maintenance(
+            storage, 100, 100, Duration.ofDays(1), Duration.ofHours(1), Runnable::run,
+            GitMetrics.NOP
+        ).run().join();
+        for (final Key marker : MaintenanceTest.files(storage, ".retired")) {
+            storage.save(marker, Content.EMPTY).join();
+        }
+        final Maintenance maintenance = new Maintenance(
+            storage, 100, 100, Duration.ofDays(1), Duration.ZERO, Runnable::run, GitMetrics.NOP
+        );
+        maintenance.run().join();
+        MatcherAssert.assertThat(
+            "Packs with malformed markers are removed without grace period",
+            MaintenanceTest.files(storage, ".pack"),
+            Matchers.hasSize(3)
+        );
+        maintenance.run().join();
+        MatcherAssert.assertThat(
+            "Packs with reset markers are not removed",
+            MaintenanceTest.files(storage, ".pack"),
+            Matchers.hasSize(1)
+        );
+        MatcherAssert.assertThat(
+            "History is not readable",
+            MaintenanceTest.count(storage, head),
+            Matchers.is(2)
+        );
+    }
+
+    @Test
+    void keepsPackWithMalformedGarbageMarker() throws IOException {
+        final Storage storage = new InMemoryStorage();
+        final ObjectId head = MaintenanceTest.history(storage, 1);
+        final Key pack = MaintenanceTest.files(storage, ".pack").get(0);
+        storage.save(
+            new Key.From(pack.string().replace(".pack", ".garbage")),
+            new Content.From("1234x".getBytes(StandardCharsets.US_ASCII))
+        ).join();
+        MatcherAssert.assertThat(
+            "Pack with malformed garbage marker is not readable",
+            MaintenanceTest.count(storage, head),
+            Matchers.is(1)
+        );
+        new Maintenance(
+            storage, 100, 100, Duration.ofDays(1), Duration.ofHours(1), Runnable::run,
+            GitMetrics.NOP
+        ).run().join();
+        MatcherAssert.assertThat(
+            "History is not readable after maintenance",
+            MaintenanceTest.count(storage, head),
+            Matchers.is(1)
+        );
+    }
+
+    @Test
+    void skipsFullRepackOfRepositoryWithLooseObjects() throws IOException {
+        final Storage storage = new InMemoryStorage();
+        final ObjectId head = MaintenanceTest.history(storage, 2);
+        storage.save(
+            new Key.From("objects", "ab", "cdef0123456789abcdef0123456789abcdef01"),
+            new Content.From("loose".getBytes(StandardCharsets.US_ASCII))
+        ).join();
+        new Maintenance(
+            storage, 100, 100, Duration.ofDays(1), Duration.ofHours(1), Runnable::run,
+            GitMetrics.NOP
+        ).run().join();
+        MatcherAssert.assertThat(
+            "Repository with loose objects is repacked",
+            MaintenanceTest.files(storage, ".bitmap"),
+            Matchers.empty()
+        );
+        MatcherAssert.assertThat(
+            "History is not readable",
+            MaintenanceTest.count(storage, head),
+            Matchers.is(2)
+        );
+    }
+
+    /**
+     * Write history of commits on top of master, every commit to separate pack,
+     * and point master to the last one.
+     * @param storage Storage
+     * @param size Number of commits
+     * @return Last commit
+     * @throws IOException On error
+     */
+    private static ObjectId history(final Storage storage, final int size) throws IOException {
+        try (Repository repo = new AstoRepository(storage, "maintenance-history")) {
+            ObjectId head = repo.resolve("refs/heads/master");
+            for (int idx = 0; idx < size; ++idx) {
+                try (ObjectInserter ins = repo.newObjectInserter()) {
+                    final TreeFormatter tree = new TreeFormatter();
+                    tree.append(
+                        "readme.txt", FileMode.REGULAR_FILE,
+                        ins.insert(
+                            Constants.OBJ_BLOB,
+                            String.format("version %d", idx).getBytes(StandardCharsets.UTF_8)
+                        )
+                    );
+                    final CommitBuilder commit = new CommitBuilder();
+                    commit.setTreeId(ins.insert(tree));
+                    if (head != null) {
+                        commit.setParentId(head);
+                    }
+                    commit.setAuthor(new PersonIdent("author", "author@example.com"));
+                    commit.setCommitter(commit.getAuthor());
+                    commit.setMessage(String.format("version %d", idx));
+                    head = ins.insert(commit);
+                    ins.flush();
+                }
+            }
+            final RefUpdate upd = repo.updateRef("refs/heads/master");
+            upd.setNewObjectId(head);
+            upd.update();
+            return head;
+        }
+    }
+
+    /**
+     * Pack files with extension.
+     * @param storage Storage
+     * @param ext File extension
+     * @return Keys
+     */
+    private static List<Key> files(final Storage storage, final String ext) {
+        return storage.list(new Key.From("objects", "pack")).join().stream()
+            .filter(key -> key.string().endsWith(ext))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Count commits of history with trees and blobs read from storage.
+     * @param storage Storage
+     * @param head Head commit
+     * @return Number of commits
+     * @throws IOException On error
+     */
+    private static int count(final Storage storage, final ObjectId head) throws IOException {
+        int res = 0;
+        try (Repository repo = new AstoRepository(storage, "maintenance-read");
+            RevWalk walk = new RevWalk(repo)) {
+            walk.markStart(walk.parseCommit(head));
+            for (RevCommit commit = walk.next(); commit != null; commit = walk.next()) {
+                repo.open(walk.parseTree(commit.getTree()).getId()).getBytes();
+                res += 1;
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.dfs;
+
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.SubStorage;
+import com.artipie.asto.memory.InMemoryStorage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link RefsLock}.
+ *
+ * @since 1.0
+ */
+final class RefsLockTest {
+
+    @Test
+    void excludesWritersOfSameLocation() throws Exception {
+        final Storage root = new InMemoryStorage();
+        final Key repo = new Key.From("alice", "one.git");
+        final CountDownLatch taken = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean held = new AtomicBoolean();
+        final CompletableFuture<Void> first = CompletableFuture.runAsync(
+            () -> RefsLockTest.locked(
+                new SubStorage(repo, root),
+                () -> {
+                    held.set(true);
+                    taken.countDown();
+                    try {
+                        release.await(1, TimeUnit.MINUTES);
+                    } catch (final InterruptedException iex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    held.set(false);
+                }
+            )
+        );
+        taken.await(1, TimeUnit.MINUTES);
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        final CompletableFuture<Void> second = CompletableFuture.runAsync(
+            () -> RefsLockTest.locked(
+                new SubStorage(repo, root), () -> overlapped.set(held.get())
+            )
+        );
+        Thread.sleep(500L);
+        release.countDown();
+        CompletableFuture.allOf(first, second).get(1, TimeUnit.MINUTES);
+        MatcherAssert.assertThat(overlapped.get(), Matchers.is(false));
+    }
+
+    /**
+     * Run action with references lock of storage.
+     * @param storage Storage
+     * @param action Action
+     */
+    private static void locked(final Storage storage, final Runnable action) {
+        try {
+            new RefsLock(storage).locked(
+                () -> {
+                    action.run();
+                    return (Void) null;
+                }
+            );
+        } catch (final IOException err) {
+            throw new UncheckedIOException(err);
+        }
+    }
+}
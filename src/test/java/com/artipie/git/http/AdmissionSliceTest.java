@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.Content;
+import com.artipie.git.metrics.GitMetrics;
+import com.artipie.http.Headers;
+import com.artipie.http.Response;
+import com.artipie.http.hm.IsHeader;
+import com.artipie.http.hm.RsHasHeaders;
+import com.artipie.http.hm.RsHasStatus;
+import com.artipie.http.rq.RequestLine;
+import com.artipie.http.rq.RqMethod;
+import com.artipie.http.rs.RsStatus;
+import com.artipie.http.rs.StandardRs;
+import java.time.Duration;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link AdmissionSlice}.
+ *
+ * @since 1.0
+ */
+final class AdmissionSliceTest {
+
+    @Test
+    void rejectsWhenLimitIsReached() {
+        final AdmissionSlice slice = AdmissionSliceTest.slice(
+            new Admission(1, 0, Duration.ofSeconds(5))
+        );
+        final Response first = AdmissionSliceTest.request(slice);
+        MatcherAssert.assertThat(
+            "Second request is not rejected",
+            AdmissionSliceTest.request(slice),
+            Matchers.allOf(
+                new RsHasStatus(RsStatus.UNAVAILABLE),
+                new RsHasHeaders(new IsHeader("Retry-After", "5"))
+            )
+        );
+        MatcherAssert.assertThat(
+            "First request is not processed",
+            first,
+            new RsHasStatus(RsStatus.OK)
+        );
+        MatcherAssert.assertThat(
+            "Request after release is not processed",
+            AdmissionSliceTest.request(slice),
+            new RsHasStatus(RsStatus.OK)
+        );
+    }
+
+    @Test
+    void admitsWaitingRequestAfterRelease() {
+        final AdmissionSlice slice = AdmissionSliceTest.slice(
+            new Admission(1, 1, Duration.ofSeconds(1))
+        );
+        final Response first = AdmissionSliceTest.request(slice);
+        final Response second = AdmissionSliceTest.request(slice);
+        MatcherAssert.assertThat(
+            "Third request is not rejected",
+            AdmissionSliceTest.request(slice),
+            new RsHasStatus(RsStatus.UNAVAILABLE)
+        );
+        MatcherAssert.assertThat(
+            "First request is not processed",
+            first,
+            new RsHasStatus(RsStatus.OK)
+        );
+        MatcherAssert.assertThat(
+            "Waiting request is not processed",
+            second,
+            new RsHasStatus(RsStatus.OK)
+        );
+    }
+
+    /**
+     * Admission slice over slice responding OK.
+     * @param admission Admission control
+     * @return Slice
+     */
+    private static AdmissionSlice slice(final Admission admission) {
+        return new AdmissionSlice(
+            (line, headers, body) -> StandardRs.OK, admission, GitMetrics.NOP
+        );
+    }
+
+    /**
+     * Request fetch from slice.
+     * @param slice Slice
+     * @return Response
+     */
+    private static Response request(final AdmissionSlice slice) {
+        return slice.response(
+            new RequestLine(RqMethod.POST, "/git-upload-pack").toString(),
+            Headers.EMPTY, Content.EMPTY
+        );
+    }
+}
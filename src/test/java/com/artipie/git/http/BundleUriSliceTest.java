@@ -0,0 +1,51 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.memory.InMemoryStorage;
+import com.artipie.git.sdk.Bundles;
+import com.artipie.git.sdk.RepositoryCache;
+import com.artipie.http.Headers;
+import com.artipie.http.hm.RsHasBody;
+import com.artipie.http.rq.RequestLine;
+import com.artipie.http.rq.RqMethod;
+import java.nio.charset.StandardCharsets;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link BundleUriSlice}.
+ *
+ * @since 1.0
+ */
+final class BundleUriSliceTest {
+
+    @Test
+    void listsPublishedBundles() {
+        final Storage storage = new InMemoryStorage();
+        storage.save(new Key.From("bundles", "full.bundle"), Content.EMPTY).join();
+        storage.save(new Key.From("bundles", "full.state"), Content.EMPTY).join();
+        MatcherAssert.assertThat(
+            new BundleUriSlice(new Bundles(storage, new RepositoryCache())).response(
+                new RequestLine(RqMethod.POST, "/repo/git-upload-pack").toString(),
+                new Headers.From("Host", "git.example.com"),
+                Content.EMPTY
+            ),
+            new RsHasBody(
+                String.join(
+                    "",
+                    "0015bundle.version=1\n",
+                    "0014bundle.mode=all\n",
+                    "0028bundle.full.uri=bundles/full.bundle\n",
+                    "0000"
+                ),
+                StandardCharsets.US_ASCII
+            )
+        );
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import java.util.Collections;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test case for {@link EntityTag}.
+ *
+ * @since 1.0
+ */
+final class EntityTagTest {
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "\"abc\"", "W/\"abc\"", "*", "\"xyz\", W/\"abc\"", " \"xyz\" , * "
+        }
+    )
+    void matchesIfNoneMatch(final String header) {
+        MatcherAssert.assertThat(
+            new EntityTag("abc").matches(Collections.singletonList(header)),
+            Matchers.is(true)
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\"xyz\"", "W/\"xyz\"", "abc", "w/\"abc\""})
+    void doesNotMatchOtherTags(final String header) {
+        MatcherAssert.assertThat(
+            new EntityTag("abc").matches(Collections.singletonList(header)),
+            Matchers.is(false)
+        );
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.memory.InMemoryStorage;
+import com.artipie.git.sdk.GitSettings;
+import com.artipie.http.Headers;
+import com.artipie.http.hm.RsHasStatus;
+import com.artipie.http.rq.RequestLine;
+import com.artipie.http.rq.RqMethod;
+import com.artipie.http.rs.RsStatus;
+import java.nio.charset.StandardCharsets;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link FetchSlice}.
+ *
+ * @since 1.0
+ */
+final class FetchSliceTest {
+
+    /**
+     * Request line.
+     */
+    private static final String LINE = new RequestLine(
+        RqMethod.POST, "/git-upload-pack"
+    ).toString();
+
+    /**
+     * Request body with unknown argument.
+     */
+    private static final String BODY = "0012command=fetch\n00010011sideband-all\n0000";
+
+    @Test
+    void rejectsBodyLargerThanLimit() {
+        MatcherAssert.assertThat(
+            new FetchSlice(new InMemoryStorage(), new GitSettings(), 16L).response(
+                FetchSliceTest.LINE, Headers.EMPTY, FetchSliceTest.body()
+            ),
+            new RsHasStatus(RsStatus.PAYLOAD_TOO_LARGE)
+        );
+    }
+
+    @Test
+    void rejectsInvalidRequestWithinLimit() {
+        MatcherAssert.assertThat(
+            new FetchSlice(new InMemoryStorage(), new GitSettings()).response(
+                FetchSliceTest.LINE, Headers.EMPTY, FetchSliceTest.body()
+            ),
+            new RsHasStatus(RsStatus.BAD_REQUEST)
+        );
+    }
+
+    /**
+     * Request body.
+     * @return Body content
+     */
+    private static Content body() {
+        return new Content.From(FetchSliceTest.BODY.getBytes(StandardCharsets.US_ASCII));
+    }
+}
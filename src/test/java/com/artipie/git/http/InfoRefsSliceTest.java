@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.Content;
+import com.artipie.http.ArtipieHttpException;
+import com.artipie.http.Headers;
+import com.artipie.http.hm.IsHeader;
+import com.artipie.http.hm.RsHasBody;
+import com.artipie.http.hm.RsHasHeaders;
+import com.artipie.http.hm.RsHasStatus;
+import com.artipie.http.rq.RequestLine;
+import com.artipie.http.rq.RqMethod;
+import com.artipie.http.rs.RsStatus;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link InfoRefsSlice}.
+ *
+ * @since 1.0
+ */
+final class InfoRefsSliceTest {
+
+    /**
+     * Upload pack advertisement request line.
+     */
+    private static final String LINE = new RequestLine(
+        RqMethod.GET, "/info/refs?service=git-upload-pack"
+    ).toString();
+
+    @Test
+    void advertisesCapabilities() {
+        MatcherAssert.assertThat(
+            this.slice().response(InfoRefsSliceTest.LINE, Headers.EMPTY, Content.EMPTY),
+            Matchers.allOf(
+                new RsHasStatus(RsStatus.OK),
+                new RsHasHeaders(
+                    new IsHeader("Cache-Control", "no-cache"),
+                    new IsHeader("Content-Type", "application/x-git-upload-pack-advertisement")
+                ),
+                new RsHasBody(
+                    String.join(
+                        "",
+                        "001e# service=git-upload-pack\n0000",
+                        "000eversion 2\n",
+                        "0013agent=git/test\n",
+                        "0013ls-refs=unborn\n",
+                        "0012server-option\n",
+                        "0017object-format=sha1\n",
+                        "0000"
+                    ),
+                    StandardCharsets.US_ASCII
+                )
+            )
+        );
+    }
+
+    @Test
+    void respondsNotModifiedForMatchingTag() {
+        MatcherAssert.assertThat(
+            this.slice().response(
+                InfoRefsSliceTest.LINE, new Headers.From("If-None-Match", "*"), Content.EMPTY
+            ),
+            new RsHasStatus(RsStatus.NOT_MODIFIED)
+        );
+    }
+
+    @Test
+    void respondsFullForOtherTag() {
+        MatcherAssert.assertThat(
+            this.slice().response(
+                InfoRefsSliceTest.LINE, new Headers.From("If-None-Match", "\"abc\""),
+                Content.EMPTY
+            ),
+            new RsHasStatus(RsStatus.OK)
+        );
+    }
+
+    @Test
+    void advertisesOtherService() {
+        MatcherAssert.assertThat(
+            this.slice().response(
+                new RequestLine(RqMethod.GET, "/info/refs?service=git-other").toString(),
+                Headers.EMPTY, Content.EMPTY
+            ),
+            Matchers.allOf(
+                new RsHasStatus(RsStatus.OK),
+                new RsHasBody(
+                    String.join(
+                        "",
+                        "0018# service=git-other\n0000",
+                        "000eversion 2\n",
+                        "0013agent=git/test\n",
+                        "0013ls-refs=unborn\n",
+                        "0012server-option\n",
+                        "0017object-format=sha1\n",
+                        "0000"
+                    ),
+                    StandardCharsets.US_ASCII
+                )
+            )
+        );
+    }
+
+    @Test
+    void rejectsMissingService() {
+        Assertions.assertThrows(
+            ArtipieHttpException.class,
+            () -> this.slice().response(
+                new RequestLine(RqMethod.GET, "/info/refs").toString(),
+                Headers.EMPTY, Content.EMPTY
+            )
+        );
+    }
+
+    /**
+     * Slice under test.
+     * @return Slice
+     */
+    private InfoRefsSlice slice() {
+        return new InfoRefsSlice("git/test", Collections.singleton("ls-refs=unborn"));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.memory.InMemoryStorage;
+import com.artipie.git.metrics.InMemoryMetrics;
+import com.artipie.git.sdk.Git;
+import com.artipie.git.sdk.GitRequest;
+import com.artipie.git.sdk.GitSettings;
+import com.artipie.git.sdk.RepositoryCache;
+import com.artipie.http.Headers;
+import com.artipie.http.hm.IsHeader;
+import com.artipie.http.hm.RsHasBody;
+import com.artipie.http.hm.RsHasHeaders;
+import com.artipie.http.hm.RsHasStatus;
+import com.artipie.http.rq.RequestLine;
+import com.artipie.http.rq.RqMethod;
+import com.artipie.http.rs.RsStatus;
+import java.nio.charset.StandardCharsets;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link LsRefsSlice}.
+ *
+ * @since 1.0
+ */
+final class LsRefsSliceTest {
+
+    /**
+     * Request line.
+     */
+    private static final String LINE = new RequestLine(
+        RqMethod.POST, "/git-upload-pack"
+    ).toString();
+
+    /**
+     * Request body.
+     */
+    private static final String BODY = "0014command=ls-refs\n0001000csymrefs\n000bunborn\n0000";
+
+    @Test
+    void respondsNotModifiedForMatchingTag() {
+        final Storage storage = LsRefsSliceTest.storage("master");
+        final String tag = String.format(
+            "\"%s\"", new Git(storage).refsTag(GitRequest.parse(LsRefsSliceTest.BODY)).join()
+        );
+        MatcherAssert.assertThat(
+            new LsRefsSlice(storage, new GitSettings(), new ResponseCache()).response(
+                LsRefsSliceTest.LINE, new Headers.From("If-None-Match", tag),
+                LsRefsSliceTest.body()
+            ),
+            Matchers.allOf(
+                new RsHasStatus(RsStatus.NOT_MODIFIED),
+                new RsHasHeaders(new IsHeader("ETag", tag))
+            )
+        );
+    }
+
+    @Test
+    void servesCachedResponseUntilReferencesChange() {
+        final Storage storage = LsRefsSliceTest.storage("master");
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        final RepositoryCache cache = new RepositoryCache();
+        final LsRefsSlice slice = new LsRefsSlice(
+            storage, new GitSettings().withCache(cache).withMetrics(metrics), new ResponseCache()
+        );
+        for (int idx = 0; idx < 2; ++idx) {
+            MatcherAssert.assertThat(
+                slice.response(LsRefsSliceTest.LINE, Headers.EMPTY, LsRefsSliceTest.body()),
+                new RsHasBody(
+                    "0030unborn HEAD symref-target:refs/heads/master\n0000",
+                    StandardCharsets.US_ASCII
+                )
+            );
+        }
+        MatcherAssert.assertThat(
+            "Second response is not cached",
+            metrics.bytesOut("ls-refs-cache.hit"),
+            Matchers.is(52L)
+        );
+        storage.save(
+            new Key.From("HEAD"),
+            new Content.From("ref: refs/heads/main\n".getBytes(StandardCharsets.US_ASCII))
+        ).join();
+        cache.invalidate(storage);
+        MatcherAssert.assertThat(
+            slice.response(LsRefsSliceTest.LINE, Headers.EMPTY, LsRefsSliceTest.body()),
+            new RsHasBody(
+                "002eunborn HEAD symref-target:refs/heads/main\n0000",
+                StandardCharsets.US_ASCII
+            )
+        );
+    }
+
+    /**
+     * Storage of repository with unborn branch.
+     * @param branch Branch name
+     * @return Storage
+     */
+    private static Storage storage(final String branch) {
+        final Storage storage = new InMemoryStorage();
+        storage.save(
+            new Key.From("HEAD"),
+            new Content.From(
+                String.format("ref: refs/heads/%s\n", branch).getBytes(StandardCharsets.US_ASCII)
+            )
+        ).join();
+        return storage;
+    }
+
+    /**
+     * Request body.
+     * @return Content
+     */
+    private static Content body() {
+        return new Content.From(LsRefsSliceTest.BODY.getBytes(StandardCharsets.US_ASCII));
+    }
+}
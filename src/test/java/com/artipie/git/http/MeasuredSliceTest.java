@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.Content;
+import com.artipie.git.metrics.InMemoryMetrics;
+import com.artipie.http.Headers;
+import com.artipie.http.hm.RsHasBody;
+import com.artipie.http.rq.RequestLine;
+import com.artipie.http.rq.RqMethod;
+import com.artipie.http.rs.RsWithBody;
+import io.reactivex.Flowable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link MeasuredSlice}.
+ *
+ * @since 1.0
+ */
+final class MeasuredSliceTest {
+
+    @Test
+    void recordsRequestMetrics() {
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        MatcherAssert.assertThat(
+            new MeasuredSlice(
+                (line, headers, body) -> new RsWithBody(
+                    new Content.From(
+                        Flowable.fromPublisher(body)
+                            .reduce(0L, (acc, buf) -> acc + buf.remaining())
+                            .map(size -> String.format("got %d", size))
+                            .map(str -> ByteBuffer.wrap(str.getBytes(StandardCharsets.US_ASCII)))
+                            .toFlowable()
+                    )
+                ),
+                "fetch",
+                metrics
+            ).response(
+                new RequestLine(RqMethod.POST, "/git-upload-pack").toString(),
+                Headers.EMPTY,
+                new Content.From("hello".getBytes(StandardCharsets.US_ASCII))
+            ),
+            new RsHasBody("got 5", StandardCharsets.US_ASCII)
+        );
+        MatcherAssert.assertThat(
+            "in",
+            metrics.bytesIn("fetch"),
+            Matchers.is(5L)
+        );
+        MatcherAssert.assertThat(
+            "out",
+            metrics.bytesOut("fetch"),
+            Matchers.is(5L)
+        );
+        MatcherAssert.assertThat(
+            "count",
+            metrics.count("fetch"),
+            Matchers.is(1L)
+        );
+        MatcherAssert.assertThat(
+            "inflight",
+            metrics.inflight("fetch"),
+            Matchers.is(0L)
+        );
+    }
+}
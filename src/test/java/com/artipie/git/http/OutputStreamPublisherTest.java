@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.ext.PublisherAs;
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link OutputStreamPublisher}.
+ * @since 1.0
+ */
+final class OutputStreamPublisherTest {
+
+    @Test
+    void publishesWrittenDataInChunks() {
+        final List<ByteBuffer> chunks = Flowable.fromPublisher(
+            new OutputStreamPublisher(
+                out -> CompletableFuture.runAsync(
+                    () -> {
+                        try {
+                            out.write("0123456789".getBytes(StandardCharsets.US_ASCII));
+                        } catch (final IOException iex) {
+                            throw new UncheckedIOException(iex);
+                        }
+                    }
+                ),
+                4
+            )
+        ).rebatchRequests(1).toList().blockingGet();
+        MatcherAssert.assertThat(
+            chunks.stream().map(ByteBuffer::remaining).toArray(),
+            Matchers.arrayContaining(4, 4, 2)
+        );
+    }
+
+    @Test
+    void publishesAllData() {
+        MatcherAssert.assertThat(
+            new PublisherAs(
+                new OutputStreamPublisher(
+                    out -> CompletableFuture.runAsync(
+                        () -> {
+                            try {
+                                for (int idx = 0; idx < 1000; ++idx) {
+                                    out.write(
+                                        String.format("%04d", idx)
+                                            .getBytes(StandardCharsets.US_ASCII)
+                                    );
+                                }
+                            } catch (final IOException iex) {
+                                throw new UncheckedIOException(iex);
+                            }
+                        }
+                    ),
+                    16
+                )
+            ).asciiString().toCompletableFuture().join(),
+            Matchers.allOf(
+                Matchers.startsWith("000000010002"),
+                Matchers.endsWith("09980999")
+            )
+        );
+    }
+
+    @Test
+    void failsOnWriterError() {
+        Assertions.assertThrows(
+            IllegalStateException.class,
+            () -> {
+                try {
+                    Flowable.fromPublisher(
+                        new OutputStreamPublisher(
+                            out -> CompletableFuture.runAsync(
+                                () -> {
+                                    throw new IllegalStateException("failed");
+                                }
+                            )
+                        )
+                    ).blockingSubscribe();
+                } catch (final RuntimeException err) {
+                    throw err.getCause();
+                }
+            }
+        );
+    }
+
+    @Test
+    void failsWriterWithoutDemand() {
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+        new OutputStreamPublisher(
+            out -> CompletableFuture.runAsync(
+                () -> {
+                    try {
+                        out.write("0123456789".getBytes(StandardCharsets.US_ASCII));
+                    } catch (final IOException iex) {
+                        throw new UncheckedIOException(iex);
+                    }
+                }
+            ).whenComplete(
+                (none, err) -> {
+                    if (err == null) {
+                        written.complete(none);
+                    } else {
+                        written.completeExceptionally(err);
+                    }
+                }
+            ),
+            4, Duration.ofMillis(100)
+        ).subscribe(new TestSubscriber<>(0L));
+        final CompletionException err = Assertions.assertThrows(
+            CompletionException.class, written::join
+        );
+        MatcherAssert.assertThat(
+            err.getCause().getCause(),
+            Matchers.instanceOf(InterruptedIOException.class)
+        );
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.ArtipieException;
+import com.artipie.asto.ext.PublisherAs;
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link PeekedBody}.
+ * @since 1.0
+ */
+final class PeekedBodyTest {
+
+    /**
+     * Request data.
+     */
+    private static final String DATA = "0012command=fetch\n00010009done\n0000";
+
+    @Test
+    void peeksCommand() {
+        MatcherAssert.assertThat(
+            new PeekedBody(PeekedBodyTest.chunks(new AtomicLong())).command()
+                .toCompletableFuture().join(),
+            Matchers.equalTo(Optional.of("fetch"))
+        );
+    }
+
+    @Test
+    void readsOnlyCommandChunks() {
+        final AtomicLong requested = new AtomicLong();
+        new PeekedBody(PeekedBodyTest.chunks(requested)).command().toCompletableFuture().join();
+        MatcherAssert.assertThat(requested.get(), Matchers.equalTo(5L));
+    }
+
+    @Test
+    void replaysPeekedChunksWithRest() {
+        final PeekedBody body = new PeekedBody(PeekedBodyTest.chunks(new AtomicLong()));
+        body.command().toCompletableFuture().join();
+        MatcherAssert.assertThat(
+            new PublisherAs(body).asciiString().toCompletableFuture().join(),
+            Matchers.equalTo(PeekedBodyTest.DATA)
+        );
+    }
+
+    @Test
+    void returnsEmptyWithoutCommand() {
+        MatcherAssert.assertThat(
+            new PeekedBody(
+                Flowable.just(ByteBuffer.wrap("0000".getBytes(StandardCharsets.US_ASCII)))
+            ).command().toCompletableFuture().join(),
+            Matchers.equalTo(Optional.empty())
+        );
+    }
+
+    @Test
+    void failsAndCancelsOnMalformedPrefix() {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final CompletionException err = Assertions.assertThrows(
+            CompletionException.class,
+            () -> new PeekedBody(
+                Flowable.just(ByteBuffer.wrap("zzzz".getBytes(StandardCharsets.US_ASCII)))
+                    .concatWith(Flowable.never())
+                    .doOnCancel(() -> cancelled.set(true))
+            ).command().toCompletableFuture().join()
+        );
+        MatcherAssert.assertThat(
+            "Command failed with decoder error",
+            err.getCause(), Matchers.instanceOf(ArtipieException.class)
+        );
+        MatcherAssert.assertThat("Origin cancelled", cancelled.get(), Matchers.is(true));
+    }
+
+    @Test
+    void cancelsOriginWhenDiscarded() {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final PeekedBody body = new PeekedBody(
+            PeekedBodyTest.chunks(new AtomicLong()).doOnCancel(() -> cancelled.set(true))
+        );
+        body.command().toCompletableFuture().join();
+        body.discard();
+        MatcherAssert.assertThat("Origin is not cancelled", cancelled.get(), Matchers.is(true));
+        final TestSubscriber<ByteBuffer> sub = new TestSubscriber<>();
+        body.subscribe(sub);
+        sub.assertNoValues();
+        sub.assertError(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsNonPositiveRequest() {
+        final PeekedBody body = new PeekedBody(PeekedBodyTest.chunks(new AtomicLong()));
+        body.command().toCompletableFuture().join();
+        final TestSubscriber<ByteBuffer> sub = new TestSubscriber<>(0L);
+        body.subscribe(sub);
+        sub.request(0L);
+        sub.assertError(IllegalArgumentException.class);
+    }
+
+    /**
+     * Request data in chunks of 4 bytes.
+     * @param requested Requested chunks counter
+     * @return Publisher
+     */
+    private static Flowable<ByteBuffer> chunks(final AtomicLong requested) {
+        final byte[] bytes = PeekedBodyTest.DATA.getBytes(StandardCharsets.US_ASCII);
+        return Flowable.range(0, (bytes.length + 3) / 4)
+            .map(idx -> ByteBuffer.wrap(bytes, idx * 4, Math.min(4, bytes.length - idx * 4)))
+            .doOnRequest(requested::addAndGet);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.http;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.memory.InMemoryStorage;
+import com.artipie.git.sdk.GitSettings;
+import com.artipie.git.sdk.RepositoryCache;
+import com.artipie.http.Headers;
+import com.artipie.http.Response;
+import com.artipie.http.Slice;
+import com.artipie.http.hm.RsHasBody;
+import com.artipie.http.hm.RsHasStatus;
+import com.artipie.http.rq.RequestLine;
+import com.artipie.http.rq.RqMethod;
+import com.artipie.http.rs.RsStatus;
+import java.nio.charset.StandardCharsets;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test case for {@link RepositoriesSlice}.
+ *
+ * @since 1.0
+ */
+final class RepositoriesSliceTest {
+
+    /**
+     * Request body.
+     */
+    private static final String BODY = "0014command=ls-refs\n0001000csymrefs\n000bunborn\n0000";
+
+    @Test
+    void routesRequestsToRepositories() {
+        final Storage storage = RepositoriesSliceTest.storage();
+        final RepositoryCache cache = new RepositoryCache();
+        final RepositoryRegistry registry = new RepositoryRegistry(
+            storage, cache,
+            sub -> new GitSlice(sub, new SliceSettings(new GitSettings().withCache(cache))), 1
+        );
+        final Slice slice = new RepositoriesSlice(registry);
+        for (int idx = 0; idx < 2; ++idx) {
+            MatcherAssert.assertThat(
+                RepositoriesSliceTest.lsRefs(slice, "/alice/one.git/git-upload-pack"),
+                new RsHasBody(
+                    "0030unborn HEAD symref-target:refs/heads/master\n0000",
+                    StandardCharsets.US_ASCII
+                )
+            );
+            MatcherAssert.assertThat(
+                RepositoriesSliceTest.lsRefs(slice, "/bob/two.git/git-upload-pack"),
+                new RsHasBody(
+                    "002eunborn HEAD symref-target:refs/heads/main\n0000",
+                    StandardCharsets.US_ASCII
+                )
+            );
+        }
+        MatcherAssert.assertThat(
+            "Idle repository is not evicted",
+            registry.size(),
+            Matchers.is(1)
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "/git-upload-pack", "/alice/git-upload-pack", "/alice/one/git-upload-pack",
+            "/../one.git/git-upload-pack", "/alice/.git/git-upload-pack"
+        }
+    )
+    void rejectsUnknownPaths(final String path) {
+        MatcherAssert.assertThat(
+            RepositoriesSliceTest.lsRefs(
+                new RepositoriesSlice(RepositoriesSliceTest.storage()), path
+            ),
+            new RsHasStatus(RsStatus.NOT_FOUND)
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "/alice/one.git/git-receive-pack",
+            "/alice/one.git/info/refs?service=git-receive-pack"
+        }
+    )
+    void rejectsPushByDefault(final String path) {
+        MatcherAssert.assertThat(
+            new RepositoriesSlice(RepositoriesSliceTest.storage()).response(
+                new RequestLine(RqMethod.POST, path).toString(), Headers.EMPTY,
+                Content.EMPTY
+            ),
+            new RsHasStatus(RsStatus.NOT_IMPLEMENTED)
+        );
+    }
+
+    /**
+     * Request references of repository.
+     * @param slice Slice
+     * @param path Request path
+     * @return Response
+     */
+    private static Response lsRefs(final Slice slice, final String path) {
+        return slice.response(
+            new RequestLine(RqMethod.POST, path).toString(), Headers.EMPTY,
+            new Content.From(RepositoriesSliceTest.BODY.getBytes(StandardCharsets.US_ASCII))
+        );
+    }
+
+    /**
+     * Storage of two repositories with unborn branches.
+     * @return Storage
+     */
+    private static Storage storage() {
+        final Storage storage = new InMemoryStorage();
+        storage.save(
+            new Key.From("alice", "one.git", "HEAD"),
+            new Content.From("ref: refs/heads/master\n".getBytes(StandardCharsets.US_ASCII))
+        ).join();
+        storage.save(
+            new Key.From("bob", "two.git", "HEAD"),
+            new Content.From("ref: refs/heads/main\n".getBytes(StandardCharsets.US_ASCII))
+        ).join();
+        return storage;
+    }
+}
@@ -6,6 +6,7 @@ package com.artipie.git.it;
 
 import com.artipie.asto.fs.FileStorage;
 import com.artipie.git.http.GitSlice;
+import com.artipie.git.http.SliceSettings;
 import com.artipie.http.slice.LoggingSlice;
 import com.artipie.vertx.VertxSliceServer;
 import com.jcabi.log.Logger;
@@ -83,7 +84,10 @@ final class GitITCase {
         Logger.info(this, "initialize git bare repo at '%s'\n", gitdir);
         this.server = new VertxSliceServer(
             this.vertx,
-            new LoggingSlice(Level.INFO, new GitSlice(new FileStorage(tmp)))
+            new LoggingSlice(
+                Level.INFO,
+                new GitSlice(new FileStorage(tmp), new SliceSettings().withPush(true))
+            )
         );
         final int port = this.server.start();
         final String base = String.format("http://host.testcontainers.internal:%d", port);
@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.metrics;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link InMemoryMetrics}.
+ *
+ * @since 1.0
+ */
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+final class InMemoryMetricsTest {
+
+    @Test
+    void estimatesPercentiles() {
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        for (int idx = 0; idx < 99; ++idx) {
+            metrics.latency("fetch", 1000L);
+        }
+        metrics.latency("fetch", 1_000_000L);
+        MatcherAssert.assertThat(
+            "count",
+            metrics.count("fetch"),
+            Matchers.is(100L)
+        );
+        MatcherAssert.assertThat(
+            "p50",
+            metrics.percentile("fetch", 0.5),
+            Matchers.is(1024L)
+        );
+        MatcherAssert.assertThat(
+            "p100",
+            metrics.percentile("fetch", 1.0),
+            Matchers.is(1L << 20)
+        );
+    }
+
+    @Test
+    void returnsZeroPercentileWithoutRecords() {
+        MatcherAssert.assertThat(
+            new InMemoryMetrics().percentile("ls-refs", 0.99),
+            Matchers.is(0L)
+        );
+    }
+
+    @Test
+    void countsBytesAndInflight() {
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        metrics.bytesIn("receive-pack", 10);
+        metrics.bytesIn("receive-pack", 5);
+        metrics.bytesOut("receive-pack", 7);
+        metrics.inflight("receive-pack", 1);
+        metrics.inflight("receive-pack", 1);
+        metrics.inflight("receive-pack", -1);
+        MatcherAssert.assertThat(
+            "in",
+            metrics.bytesIn("receive-pack"),
+            Matchers.is(15L)
+        );
+        MatcherAssert.assertThat(
+            "out",
+            metrics.bytesOut("receive-pack"),
+            Matchers.is(7L)
+        );
+        MatcherAssert.assertThat(
+            "inflight",
+            metrics.inflight("receive-pack"),
+            Matchers.is(1L)
+        );
+    }
+}
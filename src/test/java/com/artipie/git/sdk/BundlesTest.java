@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.ext.PublisherAs;
+import com.artipie.asto.fs.FileStorage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link Bundles}.
+ *
+ * @since 1.0
+ */
+final class BundlesTest {
+
+    @Test
+    void publishesBundleOutsideOfRepositoryState(@TempDir final Path dir) throws IOException {
+        BundlesTest.init(dir);
+        final Storage storage = new FileStorage(dir);
+        final String state = new RepositoryState(storage).fingerprint().join();
+        final Bundles bundles = new Bundles(storage, new RepositoryCache());
+        MatcherAssert.assertThat(
+            "Bundle is published before publishing",
+            bundles.published().join(),
+            Matchers.is(false)
+        );
+        bundles.publish().join();
+        MatcherAssert.assertThat(
+            "Bundle is not published",
+            bundles.published().join(),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            "Bundle is not listed",
+            bundles.list().join(),
+            Matchers.equalTo(Collections.singletonList(new Key.From("bundles", "full.bundle")))
+        );
+        MatcherAssert.assertThat(
+            "Bundle is not valid",
+            new PublisherAs(storage.value(new Key.From("bundles", "full.bundle")).join())
+                .string(StandardCharsets.ISO_8859_1).toCompletableFuture().join(),
+            Matchers.allOf(
+                Matchers.startsWith("# v2 git bundle\n"),
+                Matchers.containsString(" refs/heads/master\n"),
+                Matchers.containsString("PACK")
+            )
+        );
+        MatcherAssert.assertThat(
+            "Bundle changed repository state",
+            new RepositoryState(storage).fingerprint().join(),
+            Matchers.equalTo(state)
+        );
+    }
+
+    @Test
+    void skipsPublishingOfSameState(@TempDir final Path dir) throws IOException {
+        BundlesTest.init(dir);
+        final Storage storage = new FileStorage(dir);
+        final Bundles bundles = new Bundles(storage, new RepositoryCache());
+        bundles.publish().join();
+        storage.delete(new Key.From("bundles", "full.bundle")).join();
+        bundles.publish().join();
+        MatcherAssert.assertThat(
+            bundles.list().join(),
+            Matchers.empty()
+        );
+    }
+
+    /**
+     * Create repository with one commit.
+     * @param dir Repository directory
+     * @throws IOException On error
+     */
+    private static void init(final Path dir) throws IOException {
+        try (FileRepository repo = new FileRepository(dir.toFile())) {
+            repo.create(true);
+            final ObjectId head;
+            try (ObjectInserter ins = repo.newObjectInserter()) {
+                final TreeFormatter tree = new TreeFormatter();
+                tree.append(
+                    "readme.txt", FileMode.REGULAR_FILE,
+                    ins.insert(Constants.OBJ_BLOB, "hello".getBytes(StandardCharsets.UTF_8))
+                );
+                final CommitBuilder commit = new CommitBuilder();
+                commit.setTreeId(ins.insert(tree));
+                commit.setAuthor(new PersonIdent("author", "author@example.com"));
+                commit.setCommitter(commit.getAuthor());
+                commit.setMessage("init");
+                head = ins.insert(commit);
+                ins.flush();
+            }
+            final RefUpdate upd = repo.updateRef("refs/heads/master");
+            upd.setNewObjectId(head);
+            upd.update();
+        }
+    }
+}
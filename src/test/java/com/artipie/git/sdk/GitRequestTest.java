@@ -47,4 +47,23 @@ final class GitRequestTest {
             Matchers.equalTo("foo")
         );
     }
+
+    @Test
+    void parseArguments() {
+        final GitRequest req = new GitRequest(
+            Arrays.asList(
+                "command=ls-refs", "peel", "ref-prefix refs/heads/", "ref-prefix refs/tags/"
+            )
+        );
+        MatcherAssert.assertThat(
+            "Argument values are not parsed",
+            req.arguments("ref-prefix"),
+            Matchers.contains("refs/heads/", "refs/tags/")
+        );
+        MatcherAssert.assertThat(
+            "Flag is not parsed",
+            req.flag("peel") && !req.flag("symrefs"),
+            Matchers.is(true)
+        );
+    }
 }
@@ -0,0 +1,688 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.ext.PublisherAs;
+import com.artipie.asto.fs.FileStorage;
+import com.artipie.asto.memory.InMemoryStorage;
+import com.artipie.git.metrics.InMemoryMetrics;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.CompletionException;
+import org.eclipse.jgit.errors.PackProtocolException;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TagBuilder;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.transport.PacketLineOut;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link Git}.
+ *
+ * @since 1.0
+ */
+final class GitTest {
+
+    /**
+     * Repository directory.
+     */
+    @TempDir
+    Path dir;
+
+    /**
+     * Head commit.
+     */
+    private ObjectId head;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        final FileRepository repo = new FileRepository(this.dir.toFile());
+        repo.create(true);
+        try (ObjectInserter ins = repo.newObjectInserter()) {
+            final TreeFormatter tree = new TreeFormatter();
+            tree.append(
+                "readme.txt", FileMode.REGULAR_FILE,
+                ins.insert(Constants.OBJ_BLOB, "hello".getBytes(StandardCharsets.UTF_8))
+            );
+            final CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(ins.insert(tree));
+            commit.setAuthor(new PersonIdent("author", "author@example.com"));
+            commit.setCommitter(commit.getAuthor());
+            commit.setMessage("init");
+            this.head = ins.insert(commit);
+            ins.flush();
+        }
+        final RefUpdate upd = repo.updateRef("refs/heads/master");
+        upd.setNewObjectId(this.head);
+        upd.update();
+        repo.close();
+    }
+
+    @Test
+    void fetchesPackWhenDone() throws IOException {
+        MatcherAssert.assertThat(
+            this.fetch(true),
+            Matchers.allOf(
+                Matchers.startsWith("000dpackfile\n"),
+                Matchers.containsString("PACK"),
+                Matchers.not(Matchers.containsString("acknowledgments"))
+            )
+        );
+    }
+
+    @Test
+    void fetchesPackWithMemoryBudget() throws IOException {
+        MatcherAssert.assertThat(
+            this.fetch(
+                true,
+                new Git(new FileStorage(this.dir), new GitSettings().withMemory(1024L * 1024))
+            ),
+            Matchers.allOf(
+                Matchers.startsWith("000dpackfile\n"),
+                Matchers.containsString("PACK")
+            )
+        );
+    }
+
+    @Test
+    void servesRepeatedCloneFromPackCache(@TempDir final Path tmp) throws IOException {
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        final Git git = new Git(
+            new FileStorage(this.dir),
+            new GitSettings().withMetrics(metrics)
+                .withPacks(new PackCache(tmp, 1024L * 1024, metrics))
+        );
+        final String first = this.fetch(true, git);
+        MatcherAssert.assertThat(
+            "Cached response differs",
+            this.fetch(true, git),
+            Matchers.equalTo(first)
+        );
+        MatcherAssert.assertThat(
+            "Response was not served from cache",
+            metrics.count("pack-cache.hit"),
+            Matchers.is(1L)
+        );
+    }
+
+    @Test
+    void regeneratesCachedCloneWhenReferencesMoved(@TempDir final Path tmp)
+        throws IOException {
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        final Storage storage = new FileStorage(this.dir);
+        final RepositoryCache cache = new RepositoryCache();
+        final GitSettings settings = new GitSettings().withCache(cache).withMetrics(metrics)
+            .withPacks(new PackCache(tmp, 1024L * 1024, metrics));
+        this.fetch(true, new Git(storage, settings));
+        this.history();
+        cache.invalidate(storage);
+        this.fetch(true, new Git(storage, settings));
+        this.fetch(true, new Git(new FileStorage(this.dir), settings));
+        MatcherAssert.assertThat(
+            metrics.count("pack-cache.hit"),
+            Matchers.is(0L)
+        );
+    }
+
+    @Test
+    void filtersObjectsOfPartialClone() throws IOException {
+        final byte[] asset = new byte[64 * 1024];
+        new Random(0).nextBytes(asset);
+        try (Repository repo = new FileRepository(this.dir.toFile());
+            ObjectInserter ins = repo.newObjectInserter()) {
+            final TreeFormatter sub = new TreeFormatter();
+            sub.append("asset.bin", FileMode.REGULAR_FILE, ins.insert(Constants.OBJ_BLOB, asset));
+            final TreeFormatter tree = new TreeFormatter();
+            tree.append("assets", FileMode.TREE, ins.insert(sub));
+            final CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(ins.insert(tree));
+            commit.setAuthor(new PersonIdent("author", "author@example.com"));
+            commit.setCommitter(commit.getAuthor());
+            commit.setMessage("assets");
+            this.head = ins.insert(commit);
+            ins.flush();
+            final RefUpdate upd = repo.updateRef("refs/heads/master");
+            upd.setNewObjectId(this.head);
+            upd.forceUpdate();
+        }
+        final Git git = new Git(new FileStorage(this.dir));
+        final String full = this.fetch(true, git);
+        MatcherAssert.assertThat(
+            "Full pack has wrong objects count",
+            GitTest.objects(full),
+            Matchers.is(4)
+        );
+        MatcherAssert.assertThat(
+            "Blobs are not filtered",
+            GitTest.objects(this.fetch(true, git, "filter blob:none")),
+            Matchers.is(3)
+        );
+        MatcherAssert.assertThat(
+            "Trees are not filtered",
+            GitTest.objects(this.fetch(true, git, "filter tree:0")),
+            Matchers.is(1)
+        );
+        MatcherAssert.assertThat(
+            "Small blobs are filtered",
+            GitTest.objects(this.fetch(true, git, "filter blob:limit=1048576")),
+            Matchers.is(4)
+        );
+        final String limited = this.fetch(true, git, "filter blob:limit=1024");
+        MatcherAssert.assertThat(
+            "Large blobs are not filtered",
+            GitTest.objects(limited),
+            Matchers.is(3)
+        );
+        MatcherAssert.assertThat(
+            "Filtered pack is not smaller",
+            limited.length(),
+            Matchers.lessThan(full.length() / 10)
+        );
+    }
+
+    @Test
+    void resolvesShallowBoundary() throws IOException {
+        final ObjectId[] chain = this.history();
+        final Git git = new Git(new FileStorage(this.dir));
+        MatcherAssert.assertThat(
+            "Wrong deepen-since boundary",
+            this.fetch(true, git, "deepen-since 1950000000"),
+            Matchers.containsString(String.format("shallow %s\n0001", chain[1].name()))
+        );
+        final String excluded = this.fetch(true, git, "deepen-not refs/tags/old");
+        MatcherAssert.assertThat(
+            "Wrong deepen-not boundary",
+            excluded,
+            Matchers.startsWith(
+                String.format("0011shallow-info\n0035shallow %s\n0001", chain[1].name())
+            )
+        );
+        MatcherAssert.assertThat(
+            "Pack is not limited by boundary",
+            GitTest.objects(excluded),
+            Matchers.is(6)
+        );
+    }
+
+    @Test
+    void deepensShallowClientRelatively() throws IOException {
+        final ObjectId[] chain = this.history();
+        final String res = this.fetch(
+            true, new Git(new FileStorage(this.dir)),
+            "deepen-relative", "deepen 1", String.format("shallow %s", chain[1].name()),
+            String.format("have %s", chain[2].name())
+        );
+        MatcherAssert.assertThat(
+            "Wrong shallow info",
+            res,
+            Matchers.startsWith(
+                String.format(
+                    "0011shallow-info\n0037unshallow %s\n0035shallow %s\n0001",
+                    chain[1].name(), chain[0].name()
+                )
+            )
+        );
+        MatcherAssert.assertThat(
+            "Pack doesn't contain parent of unshallowed commit only",
+            GitTest.objects(res),
+            Matchers.is(3)
+        );
+    }
+
+    @Test
+    void countsObjectsOfReachableWantWithBitmaps() throws Exception {
+        final ObjectId[] chain = this.history();
+        this.head = chain[1];
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        final Storage storage = new FileStorage(this.dir);
+        final RepositoryCache cache = new RepositoryCache();
+        final Git git = new Git(
+            storage, new GitSettings().withCache(cache).withMetrics(metrics)
+        );
+        MatcherAssert.assertThat(
+            "Reachable want is not accepted",
+            GitTest.objects(this.fetch(true, git)),
+            Matchers.is(6)
+        );
+        try (FileRepository repo = new FileRepository(this.dir.toFile())) {
+            new GC(repo).gc();
+        }
+        cache.invalidate(storage);
+        MatcherAssert.assertThat(
+            "Pack differs with bitmaps",
+            GitTest.objects(this.fetch(true, git)),
+            Matchers.is(6)
+        );
+        MatcherAssert.assertThat(
+            "Counting without bitmaps is not reported",
+            metrics.count("git.fetch.counting.walk"),
+            Matchers.is(1L)
+        );
+        MatcherAssert.assertThat(
+            "Counting with bitmaps is not reported",
+            metrics.count("git.fetch.counting.bitmap"),
+            Matchers.is(1L)
+        );
+    }
+
+    @Test
+    void listsRefsMatchingPrefixes() throws IOException {
+        final ObjectId tag;
+        try (FileRepository repo = new FileRepository(this.dir.toFile());
+            ObjectInserter ins = repo.newObjectInserter()) {
+            final TagBuilder builder = new TagBuilder();
+            builder.setObjectId(this.head, Constants.OBJ_COMMIT);
+            builder.setTag("v1");
+            builder.setTagger(new PersonIdent("author", "author@example.com"));
+            builder.setMessage("v1");
+            tag = ins.insert(builder);
+            ins.flush();
+            for (final String name : new String[]{"refs/tags/v1", "refs/pull/1/head"}) {
+                final ObjectId target;
+                if (name.startsWith("refs/tags")) {
+                    target = tag;
+                } else {
+                    target = this.head;
+                }
+                final RefUpdate upd = repo.updateRef(name);
+                upd.setNewObjectId(target);
+                upd.update();
+            }
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new Git(new FileStorage(this.dir)).lsRefs(
+            new GitRequest(
+                Arrays.asList(
+                    "command=ls-refs", "symrefs", "peel", "ref-prefix HEAD",
+                    "ref-prefix refs/tags/", "ref-prefix refs/heads/"
+                )
+            ),
+            out
+        ).join();
+        MatcherAssert.assertThat(
+            out.toString(StandardCharsets.UTF_8.name()),
+            Matchers.allOf(
+                Matchers.containsString(
+                    String.format("%s HEAD symref-target:refs/heads/master\n", this.head.name())
+                ),
+                Matchers.containsString(
+                    String.format("%s refs/heads/master\n", this.head.name())
+                ),
+                Matchers.containsString(
+                    String.format("%s refs/tags/v1 peeled:%s\n", tag.name(), this.head.name())
+                ),
+                Matchers.not(Matchers.containsString("refs/pull")),
+                Matchers.endsWith("0000")
+            )
+        );
+    }
+
+    @Test
+    void negotiatesWithoutDone() throws IOException {
+        MatcherAssert.assertThat(
+            this.fetch(false),
+            Matchers.equalTo("0014acknowledgments\n0008NAK\n0000")
+        );
+    }
+
+    @Test
+    void waitsForDoneBeforePack() throws IOException {
+        final Git git = new Git(new FileStorage(this.dir));
+        MatcherAssert.assertThat(
+            "Server is ready without done",
+            this.fetch(
+                false, git, String.format("have %s", this.head.name()), "wait-for-done"
+            ),
+            Matchers.equalTo(
+                String.format("0014acknowledgments\n0031ACK %s\n0000", this.head.name())
+            )
+        );
+        MatcherAssert.assertThat(
+            "Pack is not sent after done",
+            this.fetch(true, git, "wait-for-done"),
+            Matchers.containsString("packfile\n")
+        );
+    }
+
+    @Test
+    void rejectsUnknownFetchArguments() {
+        Assertions.assertThrows(
+            CompletionException.class,
+            () -> this.fetch(true, new Git(new FileStorage(this.dir)), "sideband-all")
+        );
+    }
+
+    @Test
+    void reportsFetchErrorToClient() throws IOException {
+        final ByteArrayOutputStream res = new ByteArrayOutputStream();
+        Assertions.assertThrows(
+            CompletionException.class,
+            () -> new Git(new FileStorage(this.dir)).fetch(
+                new ByteArrayInputStream(this.request(true, "sideband-all")), res
+            ).join()
+        );
+        MatcherAssert.assertThat(
+            new String(res.toByteArray(), StandardCharsets.US_ASCII),
+            Matchers.containsString("ERR Unexpected fetch argument: sideband-all\n")
+        );
+    }
+
+    @Test
+    void checksFetchRequest() throws IOException {
+        final Git git = new Git(new FileStorage(this.dir));
+        git.checkFetch(new ByteArrayInputStream(this.request(true))).join();
+        MatcherAssert.assertThat(
+            "Unknown want was accepted",
+            Assertions.assertThrows(
+                CompletionException.class,
+                () -> git.checkFetch(
+                    new ByteArrayInputStream(
+                        this.request(true, String.format("want %s", ObjectId.zeroId().name()))
+                    )
+                ).join()
+            ).getCause().getCause(),
+            Matchers.instanceOf(PackProtocolException.class)
+        );
+        MatcherAssert.assertThat(
+            "Unknown argument was accepted",
+            Assertions.assertThrows(
+                CompletionException.class,
+                () -> git.checkFetch(
+                    new ByteArrayInputStream(this.request(true, "sideband-all"))
+                ).join()
+            ).getCause().getCause(),
+            Matchers.instanceOf(PackProtocolException.class)
+        );
+    }
+
+    @Test
+    void receivesPackIntoStorage() throws IOException {
+        final ByteArrayOutputStream req = new ByteArrayOutputStream();
+        final PacketLineOut pkt = new PacketLineOut(req);
+        pkt.writeString(
+            String.format(
+                "%s %s refs/heads/master\0report-status\n",
+                ObjectId.zeroId().name(), this.head.name()
+            )
+        );
+        pkt.end();
+        try (Repository repo = new FileRepository(this.dir.toFile());
+            PackWriter writer = new PackWriter(repo)) {
+            writer.preparePack(
+                NullProgressMonitor.INSTANCE,
+                Collections.singleton(this.head),
+                Collections.emptySet()
+            );
+            writer.writePack(NullProgressMonitor.INSTANCE, NullProgressMonitor.INSTANCE, req);
+        }
+        final Storage storage = new InMemoryStorage();
+        final ByteArrayOutputStream res = new ByteArrayOutputStream();
+        new Git(storage).receivePack(new ByteArrayInputStream(req.toByteArray()), res).join();
+        MatcherAssert.assertThat(
+            new String(res.toByteArray(), StandardCharsets.US_ASCII),
+            Matchers.containsString("unpack ok")
+        );
+        MatcherAssert.assertThat(
+            new PublisherAs(storage.value(new Key.From("refs/heads/master")).join())
+                .asciiString().toCompletableFuture().join().trim(),
+            Matchers.equalTo(this.head.name())
+        );
+        MatcherAssert.assertThat(
+            storage.list(new Key.From("objects", "pack")).join().size(),
+            Matchers.equalTo(2)
+        );
+    }
+
+    @Test
+    void refusesPushToRepositoryWithLooseObjects() {
+        final Git git = new Git(new FileStorage(this.dir));
+        MatcherAssert.assertThat(
+            "Push to repository with loose objects is accepted",
+            git.checkReceivePack().join().isPresent(),
+            Matchers.is(true)
+        );
+        final CompletionException err = Assertions.assertThrows(
+            CompletionException.class,
+            () -> git.receivePack(
+                new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream()
+            ).join()
+        );
+        MatcherAssert.assertThat(
+            err.getCause().getMessage(),
+            Matchers.containsString("loose object")
+        );
+    }
+
+    @Test
+    void completesReceivedThinPack(@TempDir final Path target) throws IOException {
+        final ObjectId base;
+        final ObjectId next;
+        final ByteArrayOutputStream req = new ByteArrayOutputStream();
+        try (Repository repo = new FileRepository(this.dir.toFile());
+            ObjectInserter ins = repo.newObjectInserter()) {
+            final StringBuilder text = new StringBuilder();
+            for (int line = 0; line < 100; ++line) {
+                text.append("line number ").append(line).append('\n');
+            }
+            base = GitTest.commit(ins, text.toString(), this.head);
+            text.append("last line\n");
+            next = GitTest.commit(ins, text.toString(), base);
+            ins.flush();
+            try (Repository remote = new FileRepository(target.toFile());
+                PackWriter writer = new PackWriter(repo)) {
+                remote.create(true);
+                writer.preparePack(
+                    NullProgressMonitor.INSTANCE,
+                    Collections.singleton(base),
+                    Collections.emptySet()
+                );
+                final Path pack = target.resolve("objects").resolve("pack")
+                    .resolve(String.format("pack-%s", writer.computeName().name()));
+                try (OutputStream out = Files.newOutputStream(pack.resolveSibling(
+                    String.format("%s.pack", pack.getFileName())
+                ))) {
+                    writer.writePack(
+                        NullProgressMonitor.INSTANCE, NullProgressMonitor.INSTANCE, out
+                    );
+                }
+                try (OutputStream out = Files.newOutputStream(pack.resolveSibling(
+                    String.format("%s.idx", pack.getFileName())
+                ))) {
+                    writer.writeIndex(out);
+                }
+                final RefUpdate upd = remote.updateRef("refs/heads/master");
+                upd.setNewObjectId(base);
+                upd.update();
+            }
+            final PacketLineOut pkt = new PacketLineOut(req);
+            pkt.writeString(
+                String.format(
+                    "%s %s refs/heads/master\0report-status\n", base.name(), next.name()
+                )
+            );
+            pkt.end();
+            try (PackWriter writer = new PackWriter(repo)) {
+                writer.setThin(true);
+                writer.preparePack(
+                    NullProgressMonitor.INSTANCE,
+                    Collections.singleton(next),
+                    Collections.singleton(base)
+                );
+                writer.writePack(NullProgressMonitor.INSTANCE, NullProgressMonitor.INSTANCE, req);
+            }
+        }
+        new Git(new FileStorage(target)).receivePack(
+            new ByteArrayInputStream(req.toByteArray()), new ByteArrayOutputStream()
+        ).join();
+        try (Repository repo = new FileRepository(target.toFile())) {
+            MatcherAssert.assertThat(
+                repo.parseCommit(next).getParent(0),
+                Matchers.equalTo(base)
+            );
+        }
+    }
+
+    /**
+     * Send fetch request for head commit.
+     * @param done Send done line
+     * @return Response
+     * @throws IOException On error
+     */
+    private String fetch(final boolean done) throws IOException {
+        return this.fetch(done, new Git(new FileStorage(this.dir)));
+    }
+
+    /**
+     * Send fetch request for head commit.
+     * @param done Send done line
+     * @param git Git SDK
+     * @param args Additional arguments
+     * @return Response
+     * @throws IOException On error
+     */
+    private String fetch(final boolean done, final Git git, final String... args)
+        throws IOException {
+        final ByteArrayOutputStream res = new ByteArrayOutputStream();
+        git.fetch(new ByteArrayInputStream(this.request(done, args)), res).join();
+        return new String(res.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Fetch request for head commit.
+     * @param done Send done line
+     * @param args Additional arguments
+     * @return Request data
+     * @throws IOException On error
+     */
+    private byte[] request(final boolean done, final String... args) throws IOException {
+        final ByteArrayOutputStream req = new ByteArrayOutputStream();
+        final PacketLineOut pkt = new PacketLineOut(req);
+        pkt.writeString("command=fetch\n");
+        pkt.writeString("agent=git/test\n");
+        pkt.writeDelim();
+        pkt.writeString("ofs-delta\n");
+        pkt.writeString(String.format("want %s\n", this.head.name()));
+        for (final String arg : args) {
+            pkt.writeString(String.format("%s\n", arg));
+        }
+        if (done) {
+            pkt.writeString("done\n");
+        }
+        pkt.end();
+        return req.toByteArray();
+    }
+
+    /**
+     * Add two commits on top of head with increasing commit times, tag head
+     * as {@code old} and point master to the last commit.
+     * @return Head, middle and last commits
+     * @throws IOException On error
+     */
+    private ObjectId[] history() throws IOException {
+        final ObjectId[] chain = new ObjectId[3];
+        chain[0] = this.head;
+        try (Repository repo = new FileRepository(this.dir.toFile());
+            ObjectInserter ins = repo.newObjectInserter()) {
+            for (int idx = 1; idx < chain.length; ++idx) {
+                final TreeFormatter tree = new TreeFormatter();
+                tree.append(
+                    "readme.txt", FileMode.REGULAR_FILE,
+                    ins.insert(
+                        Constants.OBJ_BLOB,
+                        String.format("version %d", idx).getBytes(StandardCharsets.UTF_8)
+                    )
+                );
+                final CommitBuilder commit = new CommitBuilder();
+                commit.setTreeId(ins.insert(tree));
+                commit.setParentId(chain[idx - 1]);
+                commit.setAuthor(
+                    new PersonIdent(
+                        "author", "author@example.com",
+                        new Date((1_900_000_000L + idx * 100_000_000L) * 1000L),
+                        TimeZone.getTimeZone("UTC")
+                    )
+                );
+                commit.setCommitter(commit.getAuthor());
+                commit.setMessage(String.format("version %d", idx));
+                chain[idx] = ins.insert(commit);
+            }
+            ins.flush();
+            final RefUpdate tag = repo.updateRef("refs/tags/old");
+            tag.setNewObjectId(this.head);
+            tag.update();
+            final RefUpdate upd = repo.updateRef("refs/heads/master");
+            upd.setNewObjectId(chain[2]);
+            upd.forceUpdate();
+        }
+        this.head = chain[2];
+        return chain;
+    }
+
+    /**
+     * Number of objects in the pack of fetch response.
+     * @param response Fetch response
+     * @return Objects count from pack header
+     */
+    private static int objects(final String response) {
+        final int pos = response.indexOf("PACK") + 8;
+        int count = 0;
+        for (int idx = pos; idx < pos + 4; ++idx) {
+            count = count << 8 | response.charAt(idx);
+        }
+        return count;
+    }
+
+    /**
+     * Insert commit with one file.
+     * @param ins Object inserter
+     * @param text File text
+     * @param parent Parent commit
+     * @return Commit id
+     * @throws IOException On error
+     */
+    private static ObjectId commit(final ObjectInserter ins, final String text,
+        final ObjectId parent) throws IOException {
+        final TreeFormatter tree = new TreeFormatter();
+        tree.append(
+            "readme.txt", FileMode.REGULAR_FILE,
+            ins.insert(Constants.OBJ_BLOB, text.getBytes(StandardCharsets.UTF_8))
+        );
+        final CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(ins.insert(tree));
+        commit.setParentId(parent);
+        commit.setAuthor(new PersonIdent("author", "author@example.com"));
+        commit.setCommitter(commit.getAuthor());
+        commit.setMessage(text.substring(0, text.indexOf('\n')));
+        return ins.insert(commit);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link PackCache}.
+ *
+ * @since 1.0
+ */
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+final class PackCacheTest {
+
+    @Test
+    void servesCachedResponse(@TempDir final Path dir) throws IOException {
+        final PackCache cache = new PackCache(dir, 1024);
+        final AtomicInteger calls = new AtomicInteger();
+        PackCacheTest.write(cache, "aa", "first", calls);
+        MatcherAssert.assertThat(
+            "Cached response is not served",
+            PackCacheTest.write(cache, "aa", "second", calls),
+            Matchers.equalTo("first")
+        );
+        MatcherAssert.assertThat(
+            "Response was generated again",
+            calls.get(),
+            Matchers.is(1)
+        );
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed(@TempDir final Path dir) throws IOException {
+        final PackCache cache = new PackCache(dir, 10);
+        final AtomicInteger calls = new AtomicInteger();
+        PackCacheTest.write(cache, "aa", "12345", calls);
+        PackCacheTest.write(cache, "bb", "12345", calls);
+        PackCacheTest.write(cache, "aa", "12345", calls);
+        PackCacheTest.write(cache, "cc", "12345", calls);
+        MatcherAssert.assertThat(
+            "Recently used entry was evicted",
+            PackCacheTest.write(cache, "aa", "other", calls),
+            Matchers.equalTo("12345")
+        );
+        MatcherAssert.assertThat(
+            "Eldest entry was not evicted",
+            PackCacheTest.write(cache, "bb", "other", calls),
+            Matchers.equalTo("other")
+        );
+    }
+
+    @Test
+    void doesNotCacheFailedResponse(@TempDir final Path dir) throws IOException {
+        final PackCache cache = new PackCache(dir, 1024);
+        try {
+            cache.write(
+                "aa", new ByteArrayOutputStream(),
+                out -> {
+                    out.write(1);
+                    throw new IOException("failed");
+                }
+            );
+        } catch (final IOException ignored) {
+            // expected failure
+        }
+        MatcherAssert.assertThat(
+            PackCacheTest.write(cache, "aa", "ok", new AtomicInteger()),
+            Matchers.equalTo("ok")
+        );
+    }
+
+    /**
+     * Write response through the cache.
+     * @param cache Pack cache
+     * @param key Cache key
+     * @param text Generated response
+     * @param calls Generator calls counter
+     * @return Written response
+     * @throws IOException On error
+     */
+    private static String write(final PackCache cache, final String key, final String text,
+        final AtomicInteger calls) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.write(
+            key, out,
+            target -> {
+                calls.incrementAndGet();
+                target.write(text.getBytes(StandardCharsets.US_ASCII));
+            }
+        );
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
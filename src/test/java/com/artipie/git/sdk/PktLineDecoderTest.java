@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.ArtipieException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link PktLineDecoder}.
+ *
+ * @since 1.0
+ */
+final class PktLineDecoderTest {
+
+    @Test
+    void decodesDataAndSpecialPackets() {
+        MatcherAssert.assertThat(
+            PktLineDecoderTest.decode(
+                new PktLineDecoder(), "0012command=fetch\n00010009done\n00000002"
+            ),
+            Matchers.contains("command=fetch", "DELIM", "done", "FLUSH", "RESPONSE_END")
+        );
+    }
+
+    @Test
+    void decodesPacketsSplitBetweenChunks() {
+        final PktLineDecoder decoder = new PktLineDecoder();
+        final String data = "000ahello\n0009world0000";
+        final List<String> res = new ArrayList<>(3);
+        for (int idx = 0; idx < data.length(); ++idx) {
+            res.addAll(PktLineDecoderTest.decode(decoder, data.substring(idx, idx + 1)));
+        }
+        MatcherAssert.assertThat(res, Matchers.contains("hello", "world", "FLUSH"));
+        MatcherAssert.assertThat(decoder.isEmpty(), Matchers.is(true));
+    }
+
+    @Test
+    void waitsForCompletePacket() {
+        final PktLineDecoder decoder = new PktLineDecoder();
+        MatcherAssert.assertThat(
+            PktLineDecoderTest.decode(decoder, "000ahel"),
+            Matchers.empty()
+        );
+        MatcherAssert.assertThat(decoder.isEmpty(), Matchers.is(false));
+    }
+
+    @Test
+    void returnsPayloadViewWithoutLengthPrefix() {
+        final Optional<PktLine> pkt = new PktLineDecoder()
+            .feed(ByteBuffer.wrap("0008want".getBytes(StandardCharsets.US_ASCII)))
+            .next();
+        MatcherAssert.assertThat(pkt.get().payload().remaining(), Matchers.equalTo(4));
+    }
+
+    @Test
+    void returnsEmptyPayloadOfSpecialPacket() {
+        MatcherAssert.assertThat(
+            new PktLineDecoder()
+                .feed(ByteBuffer.wrap("0000".getBytes(StandardCharsets.US_ASCII)))
+                .next().get().payload().remaining(),
+            Matchers.equalTo(0)
+        );
+    }
+
+    @Test
+    void failsOnInvalidLength() {
+        Assertions.assertThrows(
+            ArtipieException.class,
+            () -> PktLineDecoderTest.decode(new PktLineDecoder(), "00zz")
+        );
+    }
+
+    /**
+     * Feed data and decode all complete packets.
+     * @param decoder Decoder
+     * @param data Data chunk
+     * @return Packets as strings
+     */
+    private static List<String> decode(final PktLineDecoder decoder, final String data) {
+        decoder.feed(ByteBuffer.wrap(data.getBytes(StandardCharsets.US_ASCII)));
+        final List<String> res = new ArrayList<>(1);
+        for (Optional<PktLine> pkt = decoder.next(); pkt.isPresent(); pkt = decoder.next()) {
+            res.add(pkt.get().toString());
+        }
+        return res;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.misc.UncheckedIOConsumer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link PktLineEncoder}.
+ * @since 1.0
+ */
+final class PktLineEncoderTest {
+
+    @Test
+    void writesDataLine() {
+        MatcherAssert.assertThat(
+            PktLineEncoderTest.encode(new UncheckedIOConsumer<>(enc -> enc.writeLine("hello"))),
+            new IsEqual<>("000ahello\n")
+        );
+    }
+
+    @Test
+    void writesSpecialPackets() {
+        MatcherAssert.assertThat(
+            PktLineEncoderTest.encode(
+                new UncheckedIOConsumer<>(enc -> enc.writeFlush().writeDelim().writeEnd())
+            ),
+            new IsEqual<>("000000010002")
+        );
+    }
+
+    @Test
+    void writesMultipleParts() {
+        MatcherAssert.assertThat(
+            PktLineEncoderTest.encode(
+                new UncheckedIOConsumer<>(
+                    enc -> enc.writeLine("line-1").writeFlush()
+                        .writeLine("line-02").writeString("line-003\n").writeFlush()
+                )
+            ),
+            new IsEqual<>("000bline-1\n0000000cline-02\n000dline-003\n0000")
+        );
+    }
+
+    @Test
+    void writesUnicodeLineLength() {
+        MatcherAssert.assertThat(
+            PktLineEncoderTest.encode(
+                new UncheckedIOConsumer<>(enc -> enc.writeLine("refs/heads/\u00e9"))
+            ),
+            new IsEqual<>("0012refs/heads/\u00c3\u00a9\n")
+        );
+    }
+
+    @Test
+    void writesSideband() {
+        MatcherAssert.assertThat(
+            PktLineEncoderTest.encode(
+                new UncheckedIOConsumer<>(
+                    enc -> enc.writeSideband(
+                        PktLineEncoder.CH_PROGRESS,
+                        "done".getBytes(StandardCharsets.US_ASCII), 0, 4
+                    )
+                )
+            ),
+            new IsEqual<>("0009\u0002done")
+        );
+    }
+
+    @Test
+    void writesLinesLongerThanBuffer() {
+        final String line = "want 0123456789abcdef0123456789abcdef01234567";
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            final PktLineEncoder enc = new PktLineEncoder(out, 8);
+            enc.writeLine(line).writeFlush();
+            enc.flush();
+        } catch (final IOException iex) {
+            throw new UncheckedIOException(iex);
+        }
+        MatcherAssert.assertThat(
+            new String(out.toByteArray(), StandardCharsets.US_ASCII),
+            new IsEqual<>(String.format("0032%s\n0000", line))
+        );
+    }
+
+    /**
+     * Encode packets and return result as string.
+     * @param func Encoder consumer
+     * @return Latin-1 string of encoded bytes
+     */
+    private static String encode(final Consumer<? super PktLineEncoder> func) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final PktLineEncoder enc = new PktLineEncoder(out);
+        func.accept(enc);
+        try {
+            enc.flush();
+        } catch (final IOException iex) {
+            throw new UncheckedIOException(iex);
+        }
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link RefIndex}.
+ *
+ * @since 1.0
+ */
+final class RefIndexTest {
+
+    @Test
+    void findsRefsByOverlappingPrefixes() throws IOException {
+        MatcherAssert.assertThat(
+            RefIndexTest.index().find(
+                Arrays.asList("refs/tags/", "refs/heads/ma", "refs/heads/")
+            ).stream().map(Ref::getName).collect(Collectors.toList()),
+            Matchers.contains("refs/heads/dev", "refs/heads/master", "refs/tags/v1")
+        );
+    }
+
+    @Test
+    void findsAllRefsWithoutPrefixes() throws IOException {
+        MatcherAssert.assertThat(
+            RefIndexTest.index().find(Collections.emptyList()),
+            Matchers.hasSize(4)
+        );
+    }
+
+    @Test
+    void findsPeeledRefsInReftables(@TempDir final Path dir) throws IOException {
+        try (FileRepository repo = new FileRepository(dir.toFile())) {
+            repo.create(true);
+            final ObjectId head;
+            try (ObjectInserter ins = repo.newObjectInserter()) {
+                final CommitBuilder commit = new CommitBuilder();
+                commit.setTreeId(ins.insert(new TreeFormatter()));
+                commit.setAuthor(new PersonIdent("author", "author@example.com"));
+                commit.setCommitter(commit.getAuthor());
+                commit.setMessage("initial");
+                head = ins.insert(commit);
+                ins.flush();
+            }
+            for (final String name : new String[]{"refs/heads/master", "refs/tags/v1"}) {
+                final RefUpdate upd = repo.updateRef(name);
+                upd.setNewObjectId(head);
+                upd.forceUpdate();
+            }
+            repo.convertRefStorage("reftable", false, false);
+            final List<Ref> refs = new RefIndex.Tables(repo.getRefDatabase()).find(
+                Arrays.asList("refs/tags/", "HEAD", "refs/heads/")
+            );
+            MatcherAssert.assertThat(
+                "References are not found by prefixes",
+                refs.stream().map(Ref::getName).collect(Collectors.toList()),
+                Matchers.contains("HEAD", "refs/heads/master", "refs/tags/v1")
+            );
+            MatcherAssert.assertThat(
+                "References are not peeled",
+                refs.stream().skip(1).allMatch(Ref::isPeeled),
+                Matchers.is(true)
+            );
+        }
+    }
+
+    /**
+     * Index of test references.
+     * @return Index
+     */
+    private static RefIndex index() {
+        return new RefIndex.Sorted(
+            Arrays.stream(
+                new String[]{
+                    "refs/tags/v1", "refs/pull/1/head", "refs/heads/master", "refs/heads/dev",
+                }
+            ).map(
+                name -> new ObjectIdRef.PeeledNonTag(Ref.Storage.LOOSE, name, ObjectId.zeroId())
+            ).collect(Collectors.toList())
+        );
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.memory.InMemoryStorage;
+import com.artipie.git.BlockingExecutor;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Function;
+import org.eclipse.jgit.lib.Repository;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link RepositoryCache}.
+ *
+ * @since 1.0
+ */
+final class RepositoryCacheTest {
+
+    @Test
+    void reusesRepositoryForSameState() {
+        final RepositoryCache cache = new RepositoryCache();
+        final Storage storage = new InMemoryStorage();
+        MatcherAssert.assertThat(
+            cache.with(storage, Function.identity()).join(),
+            Matchers.sameInstance(cache.with(storage, Function.identity()).join())
+        );
+    }
+
+    @Test
+    void reopensRepositoryWhenStateChanged() {
+        final RepositoryCache cache = RepositoryCacheTest.unbuffered();
+        final Storage storage = new InMemoryStorage();
+        final Repository first = cache.with(storage, Function.identity()).join();
+        storage.save(
+            new Key.From("HEAD"),
+            new Content.From("ref: refs/heads/main\n".getBytes(StandardCharsets.US_ASCII))
+        ).join();
+        MatcherAssert.assertThat(
+            cache.with(storage, Function.identity()).join(),
+            Matchers.not(Matchers.sameInstance(first))
+        );
+    }
+
+    @Test
+    void reusesRepositoryWhenReflogChanged() {
+        final RepositoryCache cache = RepositoryCacheTest.unbuffered();
+        final Storage storage = new InMemoryStorage();
+        final Repository first = cache.with(storage, Function.identity()).join();
+        storage.save(
+            new Key.From("logs", "HEAD"),
+            new Content.From("reflog entry\n".getBytes(StandardCharsets.US_ASCII))
+        ).join();
+        MatcherAssert.assertThat(
+            cache.with(storage, Function.identity()).join(),
+            Matchers.sameInstance(first)
+        );
+    }
+
+    @Test
+    void keepsStateUntilInvalidated() {
+        final RepositoryCache cache = new RepositoryCache();
+        final Storage storage = new InMemoryStorage();
+        final String first = cache.state(storage).join();
+        storage.save(
+            new Key.From("HEAD"),
+            new Content.From("ref: refs/heads/main\n".getBytes(StandardCharsets.US_ASCII))
+        ).join();
+        MatcherAssert.assertThat(
+            "State is recalculated before invalidation",
+            cache.state(storage).join(),
+            Matchers.equalTo(first)
+        );
+        cache.invalidate(storage);
+        MatcherAssert.assertThat(
+            "State is not recalculated after invalidation",
+            cache.state(storage).join(),
+            Matchers.not(Matchers.equalTo(first))
+        );
+    }
+
+    @Test
+    void keepsReferencesStateUntilInvalidated() {
+        final RepositoryCache cache = RepositoryCacheTest.unbuffered();
+        final Storage storage = new InMemoryStorage();
+        final String first = cache.refsState(storage).join();
+        storage.save(new Key.From("objects", "pack", "pack-1.pack"), Content.EMPTY).join();
+        cache.invalidate(storage);
+        MatcherAssert.assertThat(
+            "References state is changed by packs",
+            cache.refsState(storage).join(),
+            Matchers.equalTo(first)
+        );
+        storage.save(
+            new Key.From("refs", "heads", "main"),
+            new Content.From("0123\n".getBytes(StandardCharsets.US_ASCII))
+        ).join();
+        MatcherAssert.assertThat(
+            "References state expires before invalidation",
+            cache.refsState(storage).join(),
+            Matchers.equalTo(first)
+        );
+        cache.invalidate(storage);
+        MatcherAssert.assertThat(
+            "References state is not recalculated after invalidation",
+            cache.refsState(storage).join(),
+            Matchers.not(Matchers.equalTo(first))
+        );
+    }
+
+    @Test
+    void reopensRepositoryWhenInvalidated() {
+        final RepositoryCache cache = new RepositoryCache();
+        final Storage storage = new InMemoryStorage();
+        final Repository first = cache.with(storage, Function.identity()).join();
+        cache.invalidate(storage);
+        MatcherAssert.assertThat(
+            cache.with(storage, Function.identity()).join(),
+            Matchers.not(Matchers.sameInstance(first))
+        );
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        final RepositoryCache cache = new RepositoryCache(1, Long.MAX_VALUE);
+        final Storage storage = new InMemoryStorage();
+        final Repository first = cache.with(storage, Function.identity()).join();
+        cache.with(new InMemoryStorage(), Function.identity()).join();
+        MatcherAssert.assertThat(
+            cache.with(storage, Function.identity()).join(),
+            Matchers.not(Matchers.sameInstance(first))
+        );
+    }
+
+    /**
+     * Cache which checks repository state on every request.
+     * @return Repository cache
+     */
+    private static RepositoryCache unbuffered() {
+        return new RepositoryCache(
+            new RepositorySource.Synced(), 16, 64L * 1024 * 1024, BlockingExecutor.SHARED,
+            Duration.ZERO
+        );
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2020-2023 artipie.com
+ * https://github.com/artipie/git-adapter/LICENSE.txt
+ */
+package com.artipie.git.sdk;
+
+import com.artipie.asto.Content;
+import com.artipie.asto.Key;
+import com.artipie.asto.Storage;
+import com.artipie.asto.memory.InMemoryStorage;
+import com.artipie.asto.misc.UncheckedSupplier;
+import com.artipie.git.TmpReaper;
+import com.artipie.git.metrics.InMemoryMetrics;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link StorageMirror}.
+ *
+ * @since 1.0
+ */
+final class StorageMirrorTest {
+
+    @Test
+    void copiesOnlyChanges(@TempDir final Path dir) throws Exception {
+        final Storage storage = new InMemoryStorage();
+        StorageMirrorTest.save(storage, "objects/pack/pack-1.pack", "pack one");
+        StorageMirrorTest.save(storage, "refs/heads/master", "master one");
+        StorageMirrorTest.save(storage, "refs/heads/old", "old");
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        final StorageMirror mirror = new StorageMirror(storage, () -> dir, Runnable::run, metrics);
+        mirror.sync(new CompletableFuture<>()).join();
+        StorageMirrorTest.save(storage, "objects/pack/pack-2.pack", "pack two");
+        StorageMirrorTest.save(storage, "refs/heads/master", "master two");
+        storage.delete(new Key.From("refs/heads/old")).join();
+        mirror.sync(new CompletableFuture<>()).join();
+        MatcherAssert.assertThat(
+            "Unchanged keys are copied again",
+            metrics.bytesIn("mirror.sync"),
+            Matchers.is(21L + 18L)
+        );
+        MatcherAssert.assertThat(
+            "Changed reference is not updated",
+            new String(
+                Files.readAllBytes(dir.resolve("refs/heads/master")), StandardCharsets.UTF_8
+            ),
+            Matchers.equalTo("master two")
+        );
+        MatcherAssert.assertThat(
+            "New pack is not copied",
+            Files.exists(dir.resolve("objects/pack/pack-2.pack")),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            "Removed reference is not removed",
+            Files.exists(dir.resolve("refs/heads/old")),
+            Matchers.is(false)
+        );
+    }
+
+    @Test
+    void copiesOnlyRepositoryKeys(@TempDir final Path dir) {
+        final Storage storage = new InMemoryStorage();
+        StorageMirrorTest.save(storage, "HEAD", "ref: refs/heads/master");
+        StorageMirrorTest.save(storage, "objects/ab/cdef", "loose");
+        StorageMirrorTest.save(storage, "logs/HEAD", "reflog");
+        StorageMirrorTest.save(storage, "bundles/full.bundle", "bundle");
+        StorageMirrorTest.save(storage, ".artipie-locks/refs/proposal", "lock");
+        new StorageMirror(storage, () -> dir, Runnable::run, new InMemoryMetrics())
+            .sync(new CompletableFuture<>()).join();
+        MatcherAssert.assertThat(
+            "Repository keys are not copied",
+            Files.exists(dir.resolve("HEAD")) && Files.exists(dir.resolve("objects/ab/cdef")),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            "Other keys are copied",
+            Files.exists(dir.resolve("logs")) || Files.exists(dir.resolve("bundles"))
+                || Files.exists(dir.resolve(".artipie-locks")),
+            Matchers.is(false)
+        );
+    }
+
+    @Test
+    void keepsRemovedPacksWhileOlderRepositoryIsOpen(@TempDir final Path dir) {
+        final Storage storage = new InMemoryStorage();
+        StorageMirrorTest.save(storage, "objects/pack/pack-1.pack", "pack one");
+        final StorageMirror mirror = new StorageMirror(
+            storage, () -> dir, Runnable::run, new InMemoryMetrics()
+        );
+        final CompletableFuture<Void> older = new CompletableFuture<>();
+        mirror.sync(older).join();
+        StorageMirrorTest.save(storage, "objects/pack/pack-2.pack", "pack two");
+        storage.delete(new Key.From("objects/pack/pack-1.pack")).join();
+        mirror.sync(new CompletableFuture<>()).join();
+        MatcherAssert.assertThat(
+            "Removed pack is removed while older repository is open",
+            Files.exists(dir.resolve("objects/pack/pack-1.pack")),
+            Matchers.is(true)
+        );
+        older.complete(null);
+        mirror.sync(new CompletableFuture<>()).join();
+        MatcherAssert.assertThat(
+            "Removed pack is not removed after older repository is closed",
+            Files.exists(dir.resolve("objects/pack/pack-1.pack")),
+            Matchers.is(false)
+        );
+    }
+
+    @Test
+    void countsSizeOfMirrorFiles(@TempDir final Path dir) {
+        final Storage storage = new InMemoryStorage();
+        StorageMirrorTest.save(storage, "objects/pack/pack-1.pack", "pack one");
+        StorageMirrorTest.save(storage, "refs/heads/master", "master one");
+        final StorageMirror mirror = new StorageMirror(
+            storage, () -> dir, Runnable::run, new InMemoryMetrics()
+        );
+        final CompletableFuture<Void> older = new CompletableFuture<>();
+        mirror.sync(older).join();
+        MatcherAssert.assertThat("Copied files are not counted", mirror.size(), Matchers.is(18L));
+        StorageMirrorTest.save(storage, "refs/heads/master", "master three");
+        storage.delete(new Key.From("objects/pack/pack-1.pack")).join();
+        older.complete(null);
+        mirror.sync(new CompletableFuture<>()).join();
+        MatcherAssert.assertThat("Removed files are counted", mirror.size(), Matchers.is(12L));
+    }
+
+    @Test
+    void removesDirectory(@TempDir final Path tmp) {
+        final Path dir = tmp.resolve("mirror");
+        final Storage storage = new InMemoryStorage();
+        StorageMirrorTest.save(storage, "HEAD", "ref: refs/heads/master");
+        final StorageMirror mirror = new StorageMirror(
+            storage, new UncheckedSupplier<>(() -> Files.createDirectories(dir)),
+            Runnable::run, new InMemoryMetrics()
+        );
+        mirror.acquire();
+        mirror.sync(new CompletableFuture<>()).join();
+        MatcherAssert.assertThat("Mirror is released", mirror.release(), Matchers.is(true));
+        mirror.remove(TmpReaper.SYNC);
+        MatcherAssert.assertThat(
+            "Directory is not removed",
+            Files.exists(dir),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Save text value.
+     * @param storage Storage
+     * @param key Key
+     * @param text Value
+     */
+    private static void save(final Storage storage, final String key, final String text) {
+        storage.save(
+            new Key.From(key), new Content.From(text.getBytes(StandardCharsets.UTF_8))
+        ).join();
+    }
+}